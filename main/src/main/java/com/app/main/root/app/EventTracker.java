@@ -1,23 +1,43 @@
 package com.app.main.root.app;
 import com.app.main.root.app.EventLog.EventDirection;
+import com.app.main.root.app.utils.LogRingBuffer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.*;
 
 @Component
 public class EventTracker {
     private static EventTracker instance;
-    private final List<EventLog> logs = new CopyOnWriteArrayList<>();
+    private LogRingBuffer<EventLog> logs;
     private List<Consumer<EventLog>> listeners = new CopyOnWriteArrayList<>();
-    private final int maxLogs = 1000;
+    private final LongAdder sampledOut = new LongAdder();
+    private final AtomicLong idSequence = new AtomicLong();
+
+    @Value("${app.tracker.events.capacity:1024}")
+    private int maxLogs;
+
+    @Value("${app.tracker.events.sampleRate:1.0}")
+    private double sampleRate;
 
     @PostConstruct
     public void init() {
+        this.logs = new LogRingBuffer<>(maxLogs);
+        this.logs.startDrain("event-tracker-drain", this::emitMessageEvent);
         System.out.println("Event Tracker initialized");
     }
 
+    @PreDestroy
+    public void destroy() {
+        logs.stopDrain();
+    }
+
     public void track(
         String eventName,
         Object data, 
@@ -25,6 +45,11 @@ public class EventTracker {
         String senderId,
         String username
     ) {
+        if(sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            return;
+        }
+
         String id = generateId();
         Date timestamp = new Date();
 
@@ -37,28 +62,7 @@ public class EventTracker {
             senderId, 
             username
         );
-        eventLog.setId(id);
-        eventLog.setEventName(eventName);
-        eventLog.setData(data);
-        eventLog.setTimestamp(timestamp);
-        eventLog.setSenderId(senderId);
-        eventLog.setUsername(username);
         logs.add(eventLog);
-
-        if(logs.size() > maxLogs) {
-            synchronized(logs) {
-                if(logs.size() > maxLogs) {
-                    int excess = logs.size() - maxLogs;
-                    for(int i = 0; i < excess; i++) {
-                        if(!logs.isEmpty()) {
-                            logs.remove(0);
-                        }
-                    }
-                }
-            }
-        }
-
-        emitMessageEvent(eventLog);
         //logToConsole(eventLogs);
     }
 
@@ -68,37 +72,19 @@ public class EventTracker {
      * 
      */
     public List<EventLog> getMessageLogs() {
-        return new ArrayList<>(logs);
+        return logs.snapshot();
     }
 
     public List<EventLog> getLogsByEvent(String eventName) {
-        List<EventLog> filtered = new ArrayList<>();
-        for(EventLog log : logs) {
-            if(eventName.equals(log.getEventName())) {
-                filtered.add(log);
-            }
-        }
-        return filtered;
+        return logs.filter(log -> eventName.equals(log.getEventName()));
     }
 
     public List<EventLog> getLogsByDirection(EventDirection direction) {
-        List<EventLog> filtered = new ArrayList<>();
-        for(EventLog log : logs) {
-            if(direction == log.getDirection()) {
-                filtered.add(log);
-            }
-        }
-        return filtered;
+        return logs.filter(log -> direction == log.getDirection());
     }
 
     public List<EventLog> getLogsByUser(String username) {
-        List<EventLog> filtered = new ArrayList<>();
-        for(EventLog log : logs) {
-            if(username.equals(log.getUsername())) {
-                filtered.add(log);
-            }
-        }
-        return filtered;
+        return logs.filter(log -> username.equals(log.getUsername()));
     }
 
     /**
@@ -112,12 +98,34 @@ public class EventTracker {
         return logs.size();
     }
 
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("capacity", logs.capacity());
+        stats.put("size", logs.size());
+        stats.put("tracked", logs.getTotalAdded());
+        stats.put("sampledOut", sampledOut.sum());
+        stats.put("sampleRate", sampleRate);
+        stats.put("listenerLag", logs.getDrainLag());
+        stats.put("listenerDropped", logs.getDrainDropped());
+        return stats;
+    }
+
     /**
      * Generate Id
      */
     private String generateId() {
-        String content = "evnt_" + System.currentTimeMillis() + "_" + UUID.randomUUID().toString().substring(0, 8);
-        return content;
+        return "evnt_" + System.currentTimeMillis() + "_" + Long.toHexString(idSequence.incrementAndGet());
+    }
+
+    /**
+     * Listeners
+     */
+    public void addListener(Consumer<EventLog> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<EventLog> listener) {
+        listeners.remove(listener);
     }
 
     /**
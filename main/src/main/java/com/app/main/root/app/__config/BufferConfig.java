@@ -1,96 +1,165 @@
 package com.app.main.root.app.__config;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import java.lang.StringBuilder;
 
+/**
+ * Reassembles JSON frames split across socket messages.
+ *
+ * Each session with a frame in progress holds a JsonFrameDecoder,
+ * its buffer is borrowed from a small pool and handed back as soon as
+ * the session has nothing open.
+ */
 @Component
 public class BufferConfig {
-    private final Map<String, StringBuilder> messageBuffers = new ConcurrentHashMap<>();
+    @Value("${app.socket.maxFrameBytes:16777216}")
+    private int maxFrameBytes;
 
-    public String handleMessage(String sessionId, String partialMessage) {
-        StringBuilder buffer = messageBuffers.computeIfAbsent(sessionId, k -> new StringBuilder());
-        buffer.append(partialMessage);
-        String completeMessage = buffer.toString();
+    @Value("${app.socket.bufferPoolSize:64}")
+    private int poolSize;
 
-        if(isCompleteJson(completeMessage)) {
-            messageBuffers.remove(sessionId);
-            return completeMessage;
-        }
+    @Value("${app.socket.pooledBufferMaxBytes:65536}")
+    private int pooledBufferMaxBytes;
 
-        return null;
-    }
+    private final Map<String, JsonFrameDecoder> decoders = new ConcurrentHashMap<>();
+    private final Queue<StringBuilder> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
 
-    private boolean isCompleteJson(String message) {
-        if(message == null || message.trim().isEmpty()) {
-            return false;
-        }
-        message = message.trim();
-        
-        if(!message.startsWith("{") && !message.startsWith("[")) {
-            return false;
-        }
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder poolHits = new LongAdder();
+    private final LongAdder poolMisses = new LongAdder();
 
-        return isValidJsonStructure(message);
+    /**
+     * Handle Message
+     *
+     * Returns the next complete frame or null while one is still open.
+     * Further frames closed by the same fragment are returned by the
+     * following calls. Oversize or malformed input is dropped.
+     */
+    public String handleMessage(String sessionId, String partialMessage) {
+        while(true) {
+            JsonFrameDecoder decoder = decoders.computeIfAbsent(sessionId, k -> newDecoder());
+            synchronized(decoder) {
+                if(decoders.get(sessionId) != decoder) continue;
+                try {
+                    decoder.ready().addAll(feed(decoder, partialMessage));
+                } catch(IllegalStateException err) {
+                    System.err.println("Dropping buffered frame for session " + sessionId + ": " + err.getMessage());
+                }
+                String frame = decoder.ready().poll();
+                release(sessionId, decoder);
+                return frame;
+            }
+        }
     }
 
-    private boolean isValidJsonStructure(String message) {
-        int length = message.length();
-        int index = 0;
-        boolean inString = false;
-        boolean escaped = false;
-        char stringDelimiter = '\0';
-        
-        java.util.Stack<Character> stack = new java.util.Stack<>();
-
-        while(index < length) {
-            char c = message.charAt(index);
-            
-            if(escaped) {
-                escaped = false;
-                index++;
-                continue;
-            }
+    /**
+     * Decode
+     *
+     * Returns every frame closed by this fragment, throws
+     * IllegalStateException on oversize or malformed input.
+     */
+    public List<String> decode(String sessionId, String partialMessage) {
+        while(true) {
+            JsonFrameDecoder decoder = decoders.computeIfAbsent(sessionId, k -> newDecoder());
+            synchronized(decoder) {
+                if(decoders.get(sessionId) != decoder) continue;
+                try {
+                    List<String> res = feed(decoder, partialMessage);
+                    if(decoder.ready().isEmpty()) return res;
 
-            if(inString) {
-                if(c == '\\') {
-                    escaped = true;
-                } else if(c == stringDelimiter) {
-                    inString = false;
-                    stringDelimiter = '\0';
+                    List<String> queued = new ArrayList<>(decoder.ready());
+                    decoder.ready().clear();
+                    queued.addAll(res);
+                    return queued;
+                } finally {
+                    release(sessionId, decoder);
                 }
-                index++;
-                continue;
             }
-
-            switch (c) {
-                case '"':
-                case '\'':
-                    inString = true;
-                    stringDelimiter = c;
-                    break;
-                case '{':
-                case '[':
-                    stack.push(c);
-                    break;
-                case '}':
-                    if(stack.isEmpty() || stack.pop() != '{') {
-                        return false;
-                    }
-                    break;
-                case ']':
-                    if(stack.isEmpty() || stack.pop() != '[') {
-                        return false;
-                    }
-                    break;
-            }
-            index++;
         }
+    }
 
-        return stack.isEmpty() && !inString;
+    private List<String> feed(JsonFrameDecoder decoder, String partialMessage) {
+        if(partialMessage == null || partialMessage.isEmpty()) return Collections.emptyList();
+        try {
+            List<String> res = decoder.append(partialMessage);
+            frames.add(res.size());
+            return res;
+        } catch(IllegalStateException err) {
+            rejected.increment();
+            throw err;
+        }
     }
 
     public void clearBuffer(String sessionId) {
-        messageBuffers.remove(sessionId);
+        JsonFrameDecoder decoder = decoders.remove(sessionId);
+        if(decoder == null) return;
+        synchronized(decoder) {
+            decoder.reset();
+            recycle(decoder.buffer());
+        }
+    }
+
+    /**
+     * Pool
+     *
+     * Buffers that grew past pooledBufferMaxBytes are left to the GC
+     * so one large frame does not pin memory for the pool's lifetime.
+     */
+    private JsonFrameDecoder newDecoder() {
+        StringBuilder buffer = pool.poll();
+        if(buffer != null) {
+            pooled.decrementAndGet();
+            poolHits.increment();
+        } else {
+            buffer = new StringBuilder(1024);
+            poolMisses.increment();
+        }
+        return new JsonFrameDecoder(buffer, maxFrameBytes);
+    }
+
+    private void release(String sessionId, JsonFrameDecoder decoder) {
+        if(!decoder.isIdle()) return;
+        if(decoders.remove(sessionId, decoder)) recycle(decoder.buffer());
+    }
+
+    private void recycle(StringBuilder buffer) {
+        buffer.setLength(0);
+        if(buffer.capacity() > pooledBufferMaxBytes) return;
+        if(pooled.incrementAndGet() > poolSize) {
+            pooled.decrementAndGet();
+            return;
+        }
+        pool.offer(buffer);
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        long buffered = 0;
+        for(JsonFrameDecoder decoder : decoders.values()) buffered += decoder.bufferedChars();
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("openSessions", decoders.size());
+        res.put("bufferedChars", buffered);
+        res.put("frames", frames.sum());
+        res.put("rejected", rejected.sum());
+        res.put("pooled", pooled.get());
+        res.put("poolHits", poolHits.sum());
+        res.put("poolMisses", poolMisses.sum());
+        res.put("maxFrameBytes", maxFrameBytes);
+        return res;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+package com.app.main.root.app.__config;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Incremental JSON frame splitter for one session.
+ *
+ * Nesting depth and string/escape state carry over between fragments,
+ * so each character is looked at once no matter how many fragments a
+ * frame arrives in. Only the frame still open at the end of a fragment
+ * is copied into the buffer, frames that start and close inside one
+ * fragment are cut straight out of it.
+ */
+public class JsonFrameDecoder {
+    private final StringBuilder buffer;
+    private final int maxFrameChars;
+
+    private char[] stack = new char[16];
+    private int depth = 0;
+    private boolean inFrame = false;
+    private boolean inString = false;
+    private boolean escaped = false;
+    private char stringDelimiter = '\0';
+
+    private final Deque<String> ready = new ArrayDeque<>();
+
+    public JsonFrameDecoder(StringBuilder buffer, int maxFrameChars) {
+        this.buffer = buffer;
+        this.maxFrameChars = maxFrameChars;
+    }
+
+    /**
+     * Append
+     *
+     * Returns the frames closed by this fragment, in order. Throws as
+     * soon as the open frame goes past the limit or turns out not to
+     * be well formed, the decoder is reset either way.
+     */
+    public List<String> append(CharSequence fragment) {
+        List<String> frames = new ArrayList<>(1);
+        int length = fragment.length();
+        int segmentStart = 0;
+        int limit = maxFrameChars - buffer.length();
+
+        for(int i = 0; i < length; i++) {
+            char c = fragment.charAt(i);
+
+            if(!inFrame) {
+                if(Character.isWhitespace(c)) continue;
+                if(c != '{' && c != '[') {
+                    reset();
+                    throw new IllegalStateException("Frame must start with '{' or '[', got '" + c + "'");
+                }
+                inFrame = true;
+                segmentStart = i;
+                limit = i + maxFrameChars;
+            }
+
+            if(i >= limit) {
+                reset();
+                throw new IllegalStateException("Frame exceeds " + maxFrameChars + " chars");
+            }
+
+            if(escaped) {
+                escaped = false;
+                continue;
+            }
+            if(inString) {
+                if(c == '\\') {
+                    escaped = true;
+                } else if(c == stringDelimiter) {
+                    inString = false;
+                }
+                continue;
+            }
+
+            switch(c) {
+                case '"':
+                case '\'':
+                    inString = true;
+                    stringDelimiter = c;
+                    break;
+                case '{':
+                case '[':
+                    push(c);
+                    break;
+                case '}':
+                case ']':
+                    if(depth == 0 || stack[--depth] != (c == '}' ? '{' : '[')) {
+                        reset();
+                        throw new IllegalStateException("Unbalanced '" + c + "' in frame");
+                    }
+                    if(depth == 0) {
+                        frames.add(close(fragment, segmentStart, i + 1));
+                        inFrame = false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if(inFrame) buffer.append(fragment, segmentStart, length);
+        return frames;
+    }
+
+    private String close(CharSequence fragment, int start, int end) {
+        if(buffer.length() == 0) return fragment.subSequence(start, end).toString();
+        buffer.append(fragment, start, end);
+        String frame = buffer.toString();
+        buffer.setLength(0);
+        return frame;
+    }
+
+    private void push(char c) {
+        if(depth == stack.length) {
+            char[] grown = new char[stack.length * 2];
+            System.arraycopy(stack, 0, grown, 0, stack.length);
+            stack = grown;
+        }
+        stack[depth++] = c;
+    }
+
+    public void reset() {
+        buffer.setLength(0);
+        depth = 0;
+        inFrame = false;
+        inString = false;
+        escaped = false;
+        stringDelimiter = '\0';
+        ready.clear();
+    }
+
+    /**
+     * Frames decoded but not handed out yet to single frame callers.
+     */
+    Deque<String> ready() {
+        return ready;
+    }
+
+    public boolean isIdle() {
+        return !inFrame && ready.isEmpty();
+    }
+
+    public int bufferedChars() {
+        return buffer.length();
+    }
+
+    StringBuilder buffer() {
+        return buffer;
+    }
+}
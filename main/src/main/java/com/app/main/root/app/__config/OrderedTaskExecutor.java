@@ -0,0 +1,298 @@
+package com.app.main.root.app.__config;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Channel executor that runs tasks with the same key one after another
+ * and tasks with different keys in parallel.
+ *
+ * The key comes from the message a channel task carries, the session
+ * id for client channels and the destination for the broker channel.
+ * Each key gets a lane, a lane is drained by one worker at a time and
+ * disappears once empty. Queued tasks are bounded in total and per
+ * lane. Over either limit a task with an overflow handler is handed to
+ * it right away, otherwise the submitter waits up to submitTimeoutMillis
+ * and the task is rejected after that.
+ */
+public class OrderedTaskExecutor implements TaskExecutor {
+    private final String name;
+    private final Function<Message<?>, String> keyOf;
+    private final int maxQueued;
+    private final int maxQueuedPerKey;
+    private final int maxConcurrency;
+    private final long submitTimeoutNanos;
+    private final Consumer<Message<?>> overflow;
+    private final boolean virtualThreads;
+    private final ExecutorService workers;
+    private final Semaphore permits;
+    private final ReentrantLock spaceLock = new ReentrantLock();
+    private final Condition space = spaceLock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong peakQueued = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    public OrderedTaskExecutor(
+        String name,
+        Function<Message<?>, String> keyOf,
+        int maxConcurrency,
+        int maxQueued,
+        int maxQueuedPerKey,
+        long submitTimeoutMillis,
+        Consumer<Message<?>> overflow,
+        boolean virtualThreads
+    ) {
+        this.name = name;
+        this.keyOf = keyOf;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.maxQueuedPerKey = Math.max(1, maxQueuedPerKey);
+        this.submitTimeoutNanos = Math.max(0, submitTimeoutMillis) * 1_000_000L;
+        this.overflow = overflow;
+        this.virtualThreads = virtualThreads;
+        this.permits = new Semaphore(this.maxConcurrency);
+
+        if(virtualThreads) {
+            ThreadFactory factory = Thread.ofVirtual().name(name + "-", 0).factory();
+            this.workers = Executors.newThreadPerTaskExecutor(factory);
+        } else {
+            ThreadFactory factory = Thread.ofPlatform().name(name + "-", 0).daemon(true).factory();
+            this.workers = Executors.newFixedThreadPool(this.maxConcurrency, factory);
+        }
+    }
+
+    /**
+     * Execute
+     *
+     * When the channel or the lane is full a message task goes to the
+     * overflow handler if there is one, without waiting. Otherwise the
+     * caller waits for room up to submitTimeoutMillis, for the inbound
+     * channel that is the session's own socket reader, so a flooding
+     * client slows itself down. Past the timeout the task is rejected.
+     */
+    @Override
+    public void execute(Runnable task) {
+        String key = key(task);
+        Entry entry = new Entry(task);
+        long deadline = System.nanoTime() + submitTimeoutNanos;
+        boolean waited = false;
+
+        while(!offer(key, entry)) {
+            if(overflow != null && task instanceof MessageHandlingRunnable handling) {
+                overflowed.increment();
+                overflow.accept(handling.getMessage());
+                return;
+            }
+            if(!waited) {
+                blocked.increment();
+                waited = true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if(remaining <= 0) {
+                rejected.increment();
+                throw new TaskRejectedException(name + " is full (" + queued.get() + " queued)");
+            }
+            awaitSpace(remaining);
+        }
+    }
+
+    private boolean offer(String key, Entry entry) {
+        if(queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        peakQueued.accumulateAndGet(queued.get(), Math::max);
+
+        if(key == null) {
+            submit(() -> run(entry));
+            return true;
+        }
+
+        boolean[] added = new boolean[1];
+        boolean[] start = new boolean[1];
+        lanes.compute(key, (k, lane) -> {
+            if(lane == null) lane = new Lane();
+            if(lane.tasks.size() >= maxQueuedPerKey) return lane;
+            lane.tasks.add(entry);
+            added[0] = true;
+            if(!lane.scheduled) {
+                lane.scheduled = true;
+                start[0] = true;
+            }
+            return lane;
+        });
+        if(!added[0]) {
+            queued.decrementAndGet();
+            return false;
+        }
+        if(start[0]) submit(() -> drain(key));
+        return true;
+    }
+
+    private void awaitSpace(long nanos) {
+        spaceLock.lock();
+        try {
+            waiters.incrementAndGet();
+            space.awaitNanos(Math.min(nanos, 50_000_000L));
+        } catch(InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException(name + " submit interrupted", err);
+        } finally {
+            waiters.decrementAndGet();
+            spaceLock.unlock();
+        }
+    }
+
+    private void signalSpace() {
+        if(waiters.get() == 0) return;
+        spaceLock.lock();
+        try {
+            space.signalAll();
+        } finally {
+            spaceLock.unlock();
+        }
+    }
+
+    private void submit(Runnable work) {
+        try {
+            workers.execute(work);
+        } catch(Exception err) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new TaskRejectedException(name + " is shut down", err);
+        }
+    }
+
+    /**
+     * Drain
+     *
+     * Runs the lane's tasks in arrival order, the lane is removed in
+     * the same step that finds it empty so a later task starts a new
+     * drain instead of being stranded.
+     */
+    private void drain(String key) {
+        while(true) {
+            Entry[] next = new Entry[1];
+            lanes.computeIfPresent(key, (k, lane) -> {
+                next[0] = lane.tasks.poll();
+                if(next[0] == null) {
+                    lane.scheduled = false;
+                    return null;
+                }
+                return lane;
+            });
+            if(next[0] == null) return;
+            run(next[0]);
+        }
+    }
+
+    private void run(Entry entry) {
+        try {
+            permits.acquire();
+        } catch(InterruptedException err) {
+            Thread.currentThread().interrupt();
+            queued.decrementAndGet();
+            signalSpace();
+            failed.increment();
+            return;
+        }
+
+        long start = System.nanoTime();
+        long wait = start - entry.enqueuedAt;
+        queued.decrementAndGet();
+        signalSpace();
+        running.incrementAndGet();
+        waitNanos.add(wait);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+        try {
+            entry.task.run();
+        } catch(Throwable err) {
+            failed.increment();
+            System.err.println("Error in " + name + " task: " + err.getMessage());
+        } finally {
+            running.decrementAndGet();
+            permits.release();
+            executed.increment();
+            runNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private String key(Runnable task) {
+        if(!(task instanceof MessageHandlingRunnable handling)) return null;
+        try {
+            return keyOf.apply(handling.getMessage());
+        } catch(Exception err) {
+            return null;
+        }
+    }
+
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        long count = executed.sum();
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("name", name);
+        res.put("virtualThreads", virtualThreads);
+        res.put("maxConcurrency", maxConcurrency);
+        res.put("running", running.get());
+        res.put("queued", queued.get());
+        res.put("peakQueued", peakQueued.get());
+        res.put("maxQueued", maxQueued);
+        res.put("lanes", lanes.size());
+        res.put("executed", count);
+        res.put("blocked", blocked.sum());
+        res.put("overflowed", overflowed.sum());
+        res.put("rejected", rejected.sum());
+        res.put("failed", failed.sum());
+        res.put("avgWaitMicros", count > 0 ? waitNanos.sum() / 1000.0 / count : 0.0);
+        res.put("maxWaitMicros", maxWaitNanos.get() / 1000.0);
+        res.put("avgRunMicros", count > 0 ? runNanos.sum() / 1000.0 / count : 0.0);
+        return res;
+    }
+
+    private static class Entry {
+        final Runnable task;
+        final long enqueuedAt = System.nanoTime();
+
+        Entry(Runnable task) {
+            this.task = task;
+        }
+    }
+
+    private static class Lane {
+        final ArrayDeque<Entry> tasks = new ArrayDeque<>();
+        boolean scheduled = false;
+    }
+}
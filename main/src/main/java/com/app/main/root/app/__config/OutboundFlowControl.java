@@ -0,0 +1,451 @@
+package com.app.main.root.app.__config;
+import com.app.main.root.app._data.EventPriority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound flow control per WebSocket session.
+ *
+ * Frames are counted as pending from the moment they enter the client
+ * outbound channel until they are written to the socket. When a
+ * session falls behind the policy decides, by event priority:
+ *
+ * COALESCE: queued COALESCE frames are skipped once a newer one for the
+ * same destination is queued, this always applies.
+ * DROP: also drops BULK frames past softBytes and every non critical
+ * frame past hardBytes or maxPendingMessages.
+ * DISCONNECT: also closes the session once a critical frame would go
+ * past those limits or its oldest unsent frame has waited
+ * maxLagMillis. The close reason carries "resumeAfter=<millis>",
+ * everything queued before that time was delivered.
+ *
+ * A frame that finds the session's outbound lane full goes to overflow
+ * instead of blocking the sender, see there.
+ */
+@Component
+public class OutboundFlowControl {
+    public enum Policy { COALESCE, DROP, DISCONNECT }
+
+    public static final CloseStatus SLOW_CONSUMER = new CloseStatus(4008, "slow-consumer");
+
+    @Value("${app.ws.flow.policy:DISCONNECT}")
+    private Policy policy;
+
+    @Value("${app.ws.flow.softBytes:1048576}")
+    private long softBytes;
+
+    @Value("${app.ws.flow.hardBytes:4194304}")
+    private long hardBytes;
+
+    @Value("${app.ws.flow.maxLagMillis:30000}")
+    private long maxLagMillis;
+
+    @Value("${app.ws.flow.maxPendingMessages:5000}")
+    private int maxPendingMessages;
+
+    private final Map<String, EventPriority> rules = new ConcurrentHashMap<>();
+    private final Map<String, EventPriority> resolved = new ConcurrentHashMap<>();
+    private final Map<String, SessionFlow> sessions = new ConcurrentHashMap<>();
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    public long getHardBytes() {
+        return hardBytes;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    /**
+     * Register
+     *
+     * Classifies a destination and everything under it, user prefixes
+     * and -scss/-err suffixes are ignored.
+     */
+    public void register(String destination, EventPriority priority) {
+        if(destination == null || destination.isBlank() || priority == null) return;
+        rules.put(normalize(destination), priority);
+        resolved.clear();
+    }
+
+    public EventPriority classify(String destination) {
+        if(destination == null) return EventPriority.NORMAL;
+        EventPriority cached = resolved.get(destination);
+        if(cached != null) return cached;
+
+        String path = normalize(destination);
+        EventPriority priority = EventPriority.NORMAL;
+        int best = -1;
+        for(Map.Entry<String, EventPriority> rule : rules.entrySet()) {
+            String prefix = rule.getKey();
+            if(prefix.length() > best && matches(path, prefix)) {
+                best = prefix.length();
+                priority = rule.getValue();
+            }
+        }
+        if(destination.endsWith("-err") && priority != EventPriority.CRITICAL) {
+            priority = EventPriority.NORMAL;
+        }
+
+        if(resolved.size() < 10000) resolved.put(destination, priority);
+        return priority;
+    }
+
+    private static boolean matches(String path, String prefix) {
+        if(!path.startsWith(prefix)) return false;
+        return path.length() == prefix.length() || path.charAt(prefix.length()) == '/';
+    }
+
+    private static String normalize(String destination) {
+        String path = destination;
+        if(path.startsWith("/user/queue/") || path.startsWith("/user/topic/")) path = path.substring(5);
+        if(path.endsWith("-scss")) path = path.substring(0, path.length() - 5);
+        else if(path.endsWith("-err")) path = path.substring(0, path.length() - 4);
+        return path;
+    }
+
+    /**
+     * Outbound
+     *
+     * Registered after the wire format interceptor, so payloads are
+     * already encoded and their size is known.
+     */
+    public ExecutorChannelInterceptor outbound() {
+        return new ExecutorChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                return admit(message);
+            }
+
+            /**
+             * A skipped frame still gets afterMessageHandled, which
+             * settles the pending counts for both paths.
+             */
+            @Override
+            public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+                return superseded(message) ? null : message;
+            }
+
+            @Override
+            public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+                SessionFlow flow = tracked(message);
+                if(flow == null) return;
+                flow.sent(message, sizeOf(message), destinationOf(message));
+            }
+        };
+    }
+
+    private Message<?> admit(Message<?> message) {
+        SessionFlow flow = tracked(message);
+        if(flow == null) return message;
+        if(flow.closing) return null;
+
+        String destination = destinationOf(message);
+        EventPriority priority = classify(destination);
+        int bytes = sizeOf(message);
+        long pending = flow.pendingBytes.get();
+        boolean overHard = pending + bytes > hardBytes || flow.pendingMessages.get() >= maxPendingMessages;
+        long now = System.currentTimeMillis();
+
+        if(policy == Policy.DISCONNECT) {
+            boolean criticalOver = priority == EventPriority.CRITICAL && overHard;
+            if(criticalOver || flow.lagMillis(now) > maxLagMillis) {
+                disconnect(flow, now);
+                return null;
+            }
+        }
+        if(policy != Policy.COALESCE && priority.isDroppable()) {
+            boolean overSoft = priority == EventPriority.BULK && pending + bytes > softBytes;
+            if(overSoft || overHard) {
+                flow.dropped.incrementAndGet();
+                dropped.increment();
+                return null;
+            }
+        }
+
+        flow.queued(bytes, now);
+        if(priority == EventPriority.COALESCE && destination != null) flow.latest.put(destination, message);
+        return message;
+    }
+
+    /**
+     * Overflow
+     *
+     * The outbound executor could not queue an admitted frame because
+     * the session's lane is full. The frame's pending counts are settled
+     * here since it never reaches afterMessageHandled. Under DROP and
+     * DISCONNECT a droppable frame is dropped, a dropped COALESCE frame
+     * leaves the one still queued for its destination to be sent.
+     * Anything else closes the session, it cannot be dropped and
+     * waiting would stall the broker for every other session.
+     */
+    public void overflow(Message<?> message) {
+        SessionFlow flow = tracked(message);
+        if(flow == null) {
+            dropped.increment();
+            return;
+        }
+
+        String destination = destinationOf(message);
+        flow.discarded(message, sizeOf(message), destination);
+        if(policy != Policy.COALESCE && classify(destination).isDroppable()) {
+            flow.dropped.incrementAndGet();
+            dropped.increment();
+            return;
+        }
+        disconnect(flow, System.currentTimeMillis());
+    }
+
+    private boolean superseded(Message<?> message) {
+        SessionFlow flow = tracked(message);
+        if(flow == null) return false;
+
+        String destination = destinationOf(message);
+        if(destination == null) return false;
+        Message<?> latest = flow.latest.get(destination);
+        if(latest == null || latest == message) return false;
+
+        flow.coalesced.incrementAndGet();
+        coalesced.increment();
+        return true;
+    }
+
+    private SessionFlow tracked(Message<?> message) {
+        if(SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) return null;
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if(sessionId == null) return null;
+        return sessions.get(sessionId);
+    }
+
+    private static String destinationOf(Message<?> message) {
+        Object original = message.getHeaders().get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        if(original instanceof String destination) return destination;
+        return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+
+    private static int sizeOf(Message<?> message) {
+        Object payload = message.getPayload();
+        if(payload instanceof byte[] bytes) return bytes.length;
+        if(payload instanceof CharSequence text) return text.length();
+        return 256;
+    }
+
+    /**
+     * Disconnect
+     *
+     * The close runs off the calling thread, a socket write to this
+     * client may be stuck and the caller is the broker.
+     */
+    private void disconnect(SessionFlow flow, long now) {
+        synchronized(flow) {
+            if(flow.closing) return;
+            flow.closing = true;
+        }
+        disconnected.increment();
+
+        long oldest = flow.oldestPending();
+        long resumeAfter = oldest > 0 ? oldest : now;
+        WebSocketSession session = flow.session;
+        System.err.println(
+            "Disconnecting slow consumer " + flow.sessionId +
+            ": " + flow.pendingBytes.get() + " bytes, " + flow.pendingMessages.get() + " frames pending"
+        );
+        if(session == null) return;
+
+        Thread.ofVirtual().name("ws-flow-close").start(() -> {
+            try {
+                session.close(SLOW_CONSUMER.withReason("slow-consumer resumeAfter=" + resumeAfter));
+            } catch(Exception err) {
+                System.err.println("Error closing slow session " + flow.sessionId + ": " + err.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Sweep
+     *
+     * Catches sessions stuck behind with nothing new arriving for them.
+     */
+    @Scheduled(fixedRate = 5000)
+    public void sweep() {
+        if(policy != Policy.DISCONNECT) return;
+        long now = System.currentTimeMillis();
+        for(SessionFlow flow : sessions.values()) {
+            if(!flow.closing && flow.lagMillis(now) > maxLagMillis) disconnect(flow, now);
+        }
+    }
+
+    /**
+     * Transport
+     *
+     * Keeps the raw sessions so slow ones can be closed.
+     */
+    public WebSocketHandlerDecoratorFactory transport() {
+        return handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.computeIfAbsent(session.getId(), SessionFlow::new).session = session;
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                try {
+                    super.afterConnectionClosed(session, closeStatus);
+                } finally {
+                    sessions.remove(session.getId());
+                }
+            }
+        };
+    }
+
+    /**
+     * Session Lag
+     */
+    public Map<String, Object> getSessionStats(String sessionId) {
+        SessionFlow flow = sessions.get(sessionId);
+        return flow != null ? flow.toMap(System.currentTimeMillis()) : null;
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        long pendingBytes = 0;
+        int behind = 0;
+        List<SessionFlow> flows = new ArrayList<>(sessions.values());
+        for(SessionFlow flow : flows) {
+            pendingBytes += flow.pendingBytes.get();
+            if(flow.pendingMessages.get() > 0) behind++;
+        }
+        flows.sort(Comparator.comparingLong((SessionFlow flow) -> flow.pendingBytes.get()).reversed());
+
+        List<Map<String, Object>> slowest = new ArrayList<>();
+        for(int i = 0; i < Math.min(10, flows.size()); i++) {
+            if(flows.get(i).pendingMessages.get() == 0) break;
+            slowest.add(flows.get(i).toMap(now));
+        }
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("policy", policy.name());
+        res.put("softBytes", softBytes);
+        res.put("hardBytes", hardBytes);
+        res.put("maxLagMillis", maxLagMillis);
+        res.put("maxPendingMessages", maxPendingMessages);
+        res.put("sessions", flows.size());
+        res.put("sessionsBehind", behind);
+        res.put("pendingBytes", pendingBytes);
+        res.put("dropped", dropped.sum());
+        res.put("coalesced", coalesced.sum());
+        res.put("disconnected", disconnected.sum());
+        res.put("slowest", slowest);
+        return res;
+    }
+
+    private static class SessionFlow {
+        final String sessionId;
+        final AtomicLong pendingBytes = new AtomicLong();
+        final AtomicInteger pendingMessages = new AtomicInteger();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong coalesced = new AtomicLong();
+        final Map<String, Message<?>> latest = new ConcurrentHashMap<>();
+        /* enqueue times of pending frames, the session's lane sends them in this order */
+        final ArrayDeque<Long> enqueuedAt = new ArrayDeque<>();
+        volatile WebSocketSession session;
+        volatile long lastSentAt = 0;
+        volatile boolean closing = false;
+
+        SessionFlow(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        synchronized void queued(int bytes, long now) {
+            pendingBytes.addAndGet(bytes);
+            pendingMessages.incrementAndGet();
+            enqueuedAt.addLast(now);
+        }
+
+        /**
+         * Sent
+         *
+         * The lane hands frames over oldest first.
+         */
+        synchronized void sent(Message<?> message, int bytes, String destination) {
+            lastSentAt = System.currentTimeMillis();
+            enqueuedAt.pollFirst();
+            settle(message, bytes, destination);
+        }
+
+        /**
+         * Discarded
+         *
+         * Only a frame that found the lane full is discarded, and it is
+         * the newest one admitted.
+         */
+        synchronized void discarded(Message<?> message, int bytes, String destination) {
+            enqueuedAt.pollLast();
+            settle(message, bytes, destination);
+        }
+
+        private void settle(Message<?> message, int bytes, String destination) {
+            pendingBytes.addAndGet(-bytes);
+            /* by identity, an older frame can equal the newer one it lost to */
+            if(destination != null) latest.computeIfPresent(destination, (d, queued) -> queued == message ? null : queued);
+            pendingMessages.decrementAndGet();
+        }
+
+        synchronized long oldestPending() {
+            Long oldest = enqueuedAt.peekFirst();
+            return oldest != null ? oldest : 0;
+        }
+
+        /**
+         * Lag
+         *
+         * Age of the oldest frame not yet sent, a session that keeps up
+         * under constant traffic stays near 0.
+         */
+        long lagMillis(long now) {
+            long oldest = oldestPending();
+            return oldest > 0 ? now - oldest : 0;
+        }
+
+        Map<String, Object> toMap(long now) {
+            Map<String, Object> res = new LinkedHashMap<>();
+            res.put("sessionId", sessionId);
+            res.put("pendingBytes", pendingBytes.get());
+            res.put("pendingMessages", pendingMessages.get());
+            res.put("lagMillis", lagMillis(now));
+            res.put("lastSentAt", lastSentAt);
+            res.put("dropped", dropped.get());
+            res.put("coalesced", coalesced.get());
+            res.put("closing", closing);
+            return res;
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.app.main.root.app.__config;
 
+import com.app.main.root.app._auth.AuthFilter;
+import com.app.main.root.app._auth.TokenService;
+import com.app.main.root.app._service.SessionService;
+import com.app.main.root.app._service.UserService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(
+        HttpSecurity http,
+        TokenService tokenService,
+        @Lazy UserService userService,
+        @Lazy SessionService sessionService
+    ) throws Exception {
         http
             .authorizeHttpRequests(auth -> auth
                 .anyRequest().permitAll()
@@ -19,6 +30,10 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.ALWAYS)
+            )
+            .addFilterBefore(
+                new AuthFilter(tokenService, userService, sessionService),
+                UsernamePasswordAuthenticationFilter.class
             );
 
         return http.build();
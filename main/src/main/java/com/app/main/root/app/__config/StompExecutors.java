@@ -0,0 +1,132 @@
+package com.app.main.root.app.__config;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Executors for the STOMP channels.
+ *
+ * Client inbound and outbound work is ordered per session, broker work
+ * per destination, so messages within a chat keep their order while a
+ * slow handler only holds up its own session. Workers are virtual
+ * threads unless app.ws.virtualThreads is off, maxConcurrency caps how
+ * many tasks of a channel run at once either way.
+ *
+ * Only inbound submitters wait for room, they are the sessions' own
+ * socket readers. A full outbound lane is handed to OutboundFlowControl
+ * for that one session, and a full broker lane rejects the send, since
+ * waiting there would stall every other session.
+ */
+@Component
+public class StompExecutors {
+    @Autowired private OutboundFlowControl flowControl;
+
+    @Value("${app.ws.virtualThreads:true}")
+    private boolean virtualThreads;
+
+    @Value("${app.ws.inbound.maxConcurrency:256}")
+    private int inboundConcurrency;
+
+    @Value("${app.ws.inbound.maxQueued:10000}")
+    private int inboundQueued;
+
+    @Value("${app.ws.outbound.maxConcurrency:256}")
+    private int outboundConcurrency;
+
+    @Value("${app.ws.outbound.maxQueued:50000}")
+    private int outboundQueued;
+
+    @Value("${app.ws.broker.maxConcurrency:64}")
+    private int brokerConcurrency;
+
+    @Value("${app.ws.broker.maxQueued:50000}")
+    private int brokerQueued;
+
+    @Value("${app.ws.inbound.maxQueuedPerSession:1000}")
+    private int inboundQueuedPerKey;
+
+    @Value("${app.ws.outbound.maxQueuedPerSession:10000}")
+    private int outboundQueuedPerKey;
+
+    @Value("${app.ws.broker.maxQueuedPerDestination:10000}")
+    private int brokerQueuedPerKey;
+
+    @Value("${app.ws.inbound.submitTimeoutMillis:10000}")
+    private long submitTimeoutMillis;
+
+    private OrderedTaskExecutor inbound;
+    private OrderedTaskExecutor outbound;
+    private OrderedTaskExecutor broker;
+
+    @PostConstruct
+    public void init() {
+        inbound = new OrderedTaskExecutor(
+            "ws-inbound",
+            message -> SimpMessageHeaderAccessor.getSessionId(message.getHeaders()),
+            inboundConcurrency,
+            inboundQueued,
+            inboundQueuedPerKey,
+            submitTimeoutMillis,
+            null,
+            virtualThreads
+        );
+        outbound = new OrderedTaskExecutor(
+            "ws-outbound",
+            message -> SimpMessageHeaderAccessor.getSessionId(message.getHeaders()),
+            outboundConcurrency,
+            outboundQueued,
+            outboundQueuedPerKey,
+            0,
+            flowControl::overflow,
+            virtualThreads
+        );
+        broker = new OrderedTaskExecutor(
+            "ws-broker",
+            message -> {
+                String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+                return destination != null ? destination : SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            },
+            brokerConcurrency,
+            brokerQueued,
+            brokerQueuedPerKey,
+            0,
+            null,
+            virtualThreads
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        inbound.shutdown();
+        outbound.shutdown();
+        broker.shutdown();
+    }
+
+    public OrderedTaskExecutor getInbound() {
+        return inbound;
+    }
+
+    public OrderedTaskExecutor getOutbound() {
+        return outbound;
+    }
+
+    public OrderedTaskExecutor getBroker() {
+        return broker;
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("inbound", inbound.getStats());
+        res.put("outbound", outbound.getStats());
+        res.put("broker", broker.getStats());
+        return res;
+    }
+}
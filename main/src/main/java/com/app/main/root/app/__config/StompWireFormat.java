@@ -0,0 +1,242 @@
+package com.app.main.root.app.__config;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.sockjs.transport.session.AbstractSockJsSession;
+import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per session wire format for outbound STOMP frames.
+ *
+ * A client opts into CBOR by sending "content-type: application/cbor"
+ * on CONNECT, everyone else gets compact JSON. Payloads sent through
+ * send() travel the broker unserialised and are encoded on the way
+ * out to each session, once per format however many subscribers a
+ * destination has. Frames from other senders stay JSON, clients read
+ * the content-type header of each frame.
+ *
+ * CBOR frames are labelled "application/octet-stream;format=cbor",
+ * the STOMP handler only writes binary WebSocket frames for octet
+ * streams. SockJS transports are text only and always get JSON.
+ */
+@Component
+public class StompWireFormat {
+    public static final MimeType JSON = MimeTypeUtils.APPLICATION_JSON;
+    public static final MimeType CBOR = new MimeType("application", "cbor");
+    public static final MimeType CBOR_FRAME = new MimeType("application", "octet-stream", Map.of("format", "cbor"));
+
+    private final MappingJackson2MessageConverter jsonConverter;
+    private final MappingJackson2MessageConverter cborConverter;
+    private final Map<String, MimeType> sessionFormats = new ConcurrentHashMap<>();
+    private final Set<String> textOnlySessions = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder jsonFrames = new LongAdder();
+    private final LongAdder jsonBytes = new LongAdder();
+    private final LongAdder cborFrames = new LongAdder();
+    private final LongAdder cborBytes = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+
+    public StompWireFormat() {
+        this.jsonConverter = new MappingJackson2MessageConverter();
+
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        cborMapper.configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false);
+        cborMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.cborConverter = new MappingJackson2MessageConverter(CBOR);
+        this.cborConverter.setObjectMapper(cborMapper);
+        this.cborConverter.setStrictContentTypeMatch(true);
+    }
+
+    /**
+     * Converters
+     *
+     * CBOR first and strict, so only frames that declare it are
+     * decoded as CBOR, JSON stays the default.
+     */
+    public MappingJackson2MessageConverter getCborConverter() {
+        return cborConverter;
+    }
+
+    public MappingJackson2MessageConverter getJsonConverter() {
+        return jsonConverter;
+    }
+
+    /**
+     * Send
+     */
+    public void send(SimpMessagingTemplate template, String destination, Object data) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        template.send(destination, MessageBuilder.createMessage(new EncodedPayload(data), accessor.getMessageHeaders()));
+    }
+
+    public void removeSession(String sessionId) {
+        if(sessionId == null) return;
+        sessionFormats.remove(sessionId);
+        textOnlySessions.remove(sessionId);
+    }
+
+    public MimeType getFormat(String sessionId) {
+        if(sessionId == null) return JSON;
+        return sessionFormats.getOrDefault(sessionId, JSON);
+    }
+
+    /**
+     * Inbound
+     *
+     * Picks the session format from CONNECT.
+     */
+    public ChannelInterceptor inbound() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                String sessionId = accessor.getSessionId();
+                if(sessionId == null) return message;
+
+                if(StompCommand.CONNECT.equals(accessor.getCommand()) || StompCommand.STOMP.equals(accessor.getCommand())) {
+                    String contentType = accessor.getFirstNativeHeader("content-type");
+                    if(
+                        contentType != null &&
+                        !textOnlySessions.contains(sessionId) &&
+                        CBOR.isCompatibleWith(MimeTypeUtils.parseMimeType(contentType))
+                    ) {
+                        sessionFormats.put(sessionId, CBOR);
+                    }
+                }
+                return message;
+            }
+        };
+    }
+
+    /**
+     * Outbound
+     *
+     * Encodes deferred payloads in the format of the receiving session.
+     */
+    public ChannelInterceptor outbound() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if(!(message.getPayload() instanceof EncodedPayload payload)) return message;
+
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+                MimeType format = getFormat(accessor.getSessionId());
+                byte[] bytes = payload.encode(format);
+                accessor.setContentType(CBOR.equals(format) ? CBOR_FRAME : format);
+                return MessageBuilder.createMessage(bytes, accessor.getMessageHeaders());
+            }
+        };
+    }
+
+    /**
+     * Transport
+     *
+     * Notes which sessions run over a SockJS transport.
+     */
+    public WebSocketHandlerDecoratorFactory transport() {
+        return handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                if(session instanceof AbstractSockJsSession) textOnlySessions.add(session.getId());
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                try {
+                    super.afterConnectionClosed(session, closeStatus);
+                } finally {
+                    removeSession(session.getId());
+                }
+            }
+        };
+    }
+
+    private byte[] encode(Object data, MimeType format) {
+        MappingJackson2MessageConverter converter = CBOR.equals(format) ? cborConverter : jsonConverter;
+        long start = System.nanoTime();
+        try {
+            byte[] bytes = converter.getObjectMapper().writeValueAsBytes(data);
+            if(CBOR.equals(format)) {
+                cborFrames.increment();
+                cborBytes.add(bytes.length);
+            } else {
+                jsonFrames.increment();
+                jsonBytes.add(bytes.length);
+            }
+            return bytes;
+        } catch(Exception err) {
+            throw new MessageConversionException("Could not write " + format + ": " + err.getMessage(), err);
+        } finally {
+            encodeNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("cborSessions", sessionFormats.size());
+        res.put("jsonEncoded", jsonFrames.sum());
+        res.put("jsonBytes", jsonBytes.sum());
+        res.put("cborEncoded", cborFrames.sum());
+        res.put("cborBytes", cborBytes.sum());
+        res.put("encodeMillis", encodeNanos.sum() / 1_000_000.0);
+        return res;
+    }
+
+    /**
+     * Payload kept as an object until it reaches a session, with
+     * each format encoded at most once.
+     */
+    private class EncodedPayload {
+        private final Object data;
+        private volatile byte[] json;
+        private volatile byte[] cbor;
+
+        EncodedPayload(Object data) {
+            this.data = data;
+        }
+
+        byte[] encode(MimeType format) {
+            if(CBOR.equals(format)) {
+                byte[] bytes = cbor;
+                if(bytes == null) cbor = bytes = StompWireFormat.this.encode(data, CBOR);
+                return bytes;
+            }
+            byte[] bytes = json;
+            if(bytes == null) json = bytes = StompWireFormat.this.encode(data, JSON);
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(data);
+        }
+    }
+}
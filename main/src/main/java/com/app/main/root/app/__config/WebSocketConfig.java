@@ -1,5 +1,6 @@
 package com.app.main.root.app.__config;
 import com.app.main.root.EnvConfig;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
@@ -11,7 +12,6 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
-import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.converter.MessageConverter;
 import java.util.List;
 
@@ -22,12 +22,16 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     private WebSocketHandshakeInterceptor interceptor = new WebSocketHandshakeInterceptor();
     private String webUrl = EnvConfig.get("WEB_URL");
     private String apiUrl = EnvConfig.get("API_URL");
+    @Autowired private StompWireFormat wireFormat;
+    @Autowired private StompExecutors stompExecutors;
+    @Autowired private OutboundFlowControl flowControl;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue", "/user");
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
+        config.configureBrokerChannel().executor(stompExecutors.getBroker());
     }
 
     @Override
@@ -40,27 +44,35 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
-        registration.setSendTimeLimit(60 * 1000);
-        registration.setSendBufferSizeLimit(10 * 1024 * 1024);
+        registration.setSendTimeLimit((int) flowControl.getMaxLagMillis());
+        registration.setSendBufferSizeLimit((int) flowControl.getHardBytes());
         registration.setTimeToFirstMessage(30 * 1000);
+        registration.addDecoratorFactory(wireFormat.transport());
+        registration.addDecoratorFactory(flowControl.transport());
     }
 
     @Override
     public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
         messageConverters.clear();
-        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
-        converter.setPrettyPrint(true);
-        messageConverters.add(converter);
+        messageConverters.add(wireFormat.getCborConverter());
+        messageConverters.add(wireFormat.getJsonConverter());
         return false;
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.executor(stompExecutors.getInbound());
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
                 return message;
             }
-        });
+        }, wireFormat.inbound());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(stompExecutors.getOutbound());
+        registration.interceptors(wireFormat.outbound(), flowControl.outbound());
     }
 }
@@ -8,6 +8,7 @@ import com.app.main.root.app._service.SessionService;
 import com.app.main.root.app._types.User;
 import com.app.main.root.app._server.ConnectionTracker;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -20,6 +21,9 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -46,24 +50,25 @@ public class AuthController {
 
     /**
      * Register
+     *
+     * Answered asynchronously, the request thread is released while
+     * the password is hashed.
      */
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(
+    public CompletableFuture<ResponseEntity<?>> registerUser(
         @RequestBody RegisterRequest request, 
         HttpServletRequest httpRequest,
         HttpServletResponse response
     ) {
-        try {
-            System.out.println("Registration attempt for: " + request.getEmail());
-
-            Map<String, Object> result = serviceManager.getUserService().registerUser(
-                request.getUsername(),
-                request.getEmail(),
-                request.getPassword(),
-                request.getSessionId(),
-                connectionTracker.getClientIpAddress(httpRequest)
-            );
-
+        System.out.println("Registration attempt for: " + request.getEmail());
+
+        return serviceManager.getUserService().registerUser(
+            request.getUsername(),
+            request.getEmail(),
+            request.getPassword(),
+            request.getSessionId(),
+            connectionTracker.getClientIpAddress(httpRequest)
+        ).<ResponseEntity<?>>thenApply(result -> {
             String userId = (String) result.get("userId");
             String username = (String) result.get("username");
             String email = (String) result.get("email");
@@ -107,41 +112,45 @@ public class AuthController {
 
             System.out.println("Registered!:" + request.getEmail());
             return ResponseEntity.ok(result);
-        } catch(Exception err) {
-            System.err.println("Registration failed" + err.getMessage());
-            err.printStackTrace();
+        }).exceptionally(err -> {
+            Throwable cause = causeOf(err);
+            if(cause instanceof RejectedExecutionException rejected) return busy("REGISTRATION_BUSY", rejected);
+            System.err.println("Registration failed" + cause.getMessage());
+            cause.printStackTrace();
             return ResponseEntity.badRequest()
                 .body(
                     Map.of(
                         "error",
                         "REGISTRATION_FAILED",
                         "message",
-                        err.getMessage()
+                        String.valueOf(cause.getMessage())
                     )
                 );
-        }
+        });
     }
 
 
     /**
      * Login
+     *
+     * Answered asynchronously. The hash check is bounded by
+     * app.password.hash.loginTimeoutMs, past it the client gets 503
+     * and Retry-After instead of a held connection.
      */
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(
+    public CompletableFuture<ResponseEntity<?>> loginUser(
         @RequestBody LoginRequest request, 
         HttpServletRequest httpRequest,
         HttpServletResponse response
     ) {
-        try {
-            System.out.println("Login attempt for: " + request.getEmail());
-
-            Map<String, Object> result = serviceManager.getUserService().loginUser(
-                request.getEmail(),
-                request.getPassword(),
-                request.getSessionId(),
-                connectionTracker.getClientIpAddress(httpRequest)
-            );
-
+        System.out.println("Login attempt for: " + request.getEmail());
+
+        return serviceManager.getUserService().loginUser(
+            request.getEmail(),
+            request.getPassword(),
+            request.getSessionId(),
+            connectionTracker.getClientIpAddress(httpRequest)
+        ).<ResponseEntity<?>>thenApply(result -> {
             String userId = (String) result.get("userId");
             String username = (String) result.get("username");
             String email = (String) result.get("email");
@@ -217,17 +226,39 @@ public class AuthController {
 
             System.out.println("Logged!: " + request.getEmail());
             return ResponseEntity.ok(result);
-        } catch(Exception err) {
+        }).exceptionally(err -> {
+            Throwable cause = causeOf(err);
+            if(cause instanceof RejectedExecutionException rejected) return busy("LOGIN_BUSY", rejected);
             return ResponseEntity.badRequest()
                 .body(
                     Map.of(
                         "error",
                         "LOGIN_FAILED",
                         "message",
-                        err.getMessage()
+                        String.valueOf(cause.getMessage())
                     )
                 );
-        }
+        });
+    }
+
+    private static Throwable causeOf(Throwable err) {
+        return err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+    }
+
+    /**
+     * Password hashing is saturated, ask the client to retry
+     */
+    private ResponseEntity<?> busy(String error, RejectedExecutionException err) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header("Retry-After", "1")
+            .body(
+                Map.of(
+                    "error",
+                    error,
+                    "message",
+                    err.getMessage()
+                )
+            );
     }
 
     /**
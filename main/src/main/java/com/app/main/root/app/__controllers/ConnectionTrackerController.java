@@ -1,6 +1,10 @@
 package com.app.main.root.app.__controllers;
+import com.app.main.root.app.__config.OutboundFlowControl;
+import com.app.main.root.app.__config.StompExecutors;
+import com.app.main.root.app.__config.StompWireFormat;
 import com.app.main.root.app._server.ConnectionTracker;
 import com.app.main.root.app._server.ConnectionInfo;
+import com.app.main.root.app._server.GroupFanout;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Map;
@@ -10,9 +14,23 @@ import java.util.ArrayList;
 @RequestMapping("/api/connection-tracker")
 public class ConnectionTrackerController {
     private final ConnectionTracker connectionTracker;
+    private final GroupFanout groupFanout;
+    private final StompWireFormat wireFormat;
+    private final StompExecutors stompExecutors;
+    private final OutboundFlowControl flowControl;
 
-    public ConnectionTrackerController(ConnectionTracker connectionTracker) {
+    public ConnectionTrackerController(
+        ConnectionTracker connectionTracker,
+        GroupFanout groupFanout,
+        StompWireFormat wireFormat,
+        StompExecutors stompExecutors,
+        OutboundFlowControl flowControl
+    ) {
         this.connectionTracker = connectionTracker;
+        this.groupFanout = groupFanout;
+        this.wireFormat = wireFormat;
+        this.stompExecutors = stompExecutors;
+        this.flowControl = flowControl;
     }
 
     /**
@@ -107,6 +125,48 @@ public class ConnectionTrackerController {
         return connectionTracker.getConnection(socketId);
     }
 
+    /**
+     * Group Fan-out Stats
+     */
+    @GetMapping("/fanout/stats")
+    public Map<String, Object> getFanoutStats() {
+        return groupFanout.getStats();
+    }
+
+    /**
+     * Wire Format Stats
+     */
+    @GetMapping("/wire-format/stats")
+    public Map<String, Object> getWireFormatStats() {
+        return wireFormat.getStats();
+    }
+
+    /**
+     * Channel Executor Stats
+     */
+    @GetMapping("/executors/stats")
+    public Map<String, Object> getExecutorStats() {
+        return stompExecutors.getStats();
+    }
+
+    /**
+     * Outbound Flow Stats
+     */
+    @GetMapping("/flow/stats")
+    public Map<String, Object> getFlowStats() {
+        return flowControl.getStats();
+    }
+
+    /**
+     * Session Lag
+     */
+    @GetMapping("/flow/{socketId}")
+    public Map<String, Object> getSessionFlow(@PathVariable String socketId) {
+        Map<String, Object> flow = flowControl.getSessionStats(socketId);
+        if(flow == null) throw new RuntimeException("Connection not found");
+        return flow;
+    }
+
     /**
      * Active Connections
      */
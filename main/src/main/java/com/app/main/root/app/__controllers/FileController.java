@@ -1,22 +1,29 @@
 package com.app.main.root.app.__controllers;
 import com.app.main.root.app._cache.CacheService;
+import com.app.main.root.app._data.FileDownloadStream;
 import com.app.main.root.app._data.FileUploader;
 import com.app.main.root.app._service.ServiceManager;
 import com.app.main.root.app._service.SessionService;
 import com.app.main.root.app._types.File;
+import com.app.main.root.app.file_compressor.WrapperFileCompressor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.CacheControl;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.*;
 
@@ -158,12 +165,17 @@ public class FileController {
 
     /**
      * Download
+     *
+     * Streams the file straight from storage. Supports single byte
+     * ranges (Range / If-Range) and conditional requests against the
+     * ETag and Last-Modified of the stored content.
      */
     @GetMapping("/download/{userId}/{fileId}")
-    public ResponseEntity<byte[]> downloadFile(
+    public ResponseEntity<StreamingResponseBody> downloadFile(
         @PathVariable String userId, 
         @PathVariable String fileId,
-        HttpServletRequest request
+        HttpServletRequest request,
+        HttpServletResponse response
     ) {
         try {
             String authenticatedUserId = getAuthenticatedUserId(request);
@@ -171,25 +183,66 @@ public class FileController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
             
-            System.out.println("Starting download for fileId: " + fileId + ", userId: " + userId);
-            
-            Map<String, Object> data = serviceManager.getFileService()
+            FileDownloadStream file = serviceManager.getFileService()
                 .getFileDownloader()
-                .download(userId, fileId);
-
-            byte[] content = (byte[]) data.get("content");
-            String filename = (String) data.get("filename");
-            String mimeType = (String) data.get("mimeType");
-            
-            if(content == null || content.length == 0) {
-                System.err.println("ERROR: Downloaded content is null or empty for fileId: " + fileId);
+                .openStream(userId, fileId);
+            if(file == null || file.getLength() <= 0) {
+                System.err.println("ERROR: File not found or empty for fileId: " + fileId);
                 return ResponseEntity.notFound().build();
             }
-            
-            System.out.println("Content validated: " + content.length + " bytes");
-            
-            String filenameData = filename != null && !filename.isEmpty()
-                ? filename
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(file.getEtag());
+            if(file.getLastModified() > 0) headers.setLastModified(file.getLastModified());
+            headers.setCacheControl(CacheControl.noCache().getHeaderValue());
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.set(
+                "Access-Control-Expose-Headers", 
+                "Content-Disposition, Content-Length, Content-Range, Accept-Ranges, ETag"
+            );
+
+            ServletWebRequest webRequest = new ServletWebRequest(request, response);
+            if(webRequest.checkNotModified(file.getEtag(), file.getLastModified())) {
+                return ResponseEntity.status(response.getStatus()).headers(headers).build();
+            }
+
+            long length = file.getLength();
+            long start = 0;
+            long end = length - 1;
+            HttpStatus status = HttpStatus.OK;
+
+            String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+            if(rangeHeader != null && isRangeCurrent(request, file)) {
+                List<HttpRange> ranges;
+                try {
+                    ranges = HttpRange.parseRanges(rangeHeader);
+                } catch(IllegalArgumentException err) {
+                    ranges = List.of();
+                }
+
+                if(ranges.size() == 1) {
+                    try {
+                        start = ranges.get(0).getRangeStart(length);
+                        end = ranges.get(0).getRangeEnd(length);
+                    } catch(IllegalArgumentException err) {
+                        headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .headers(headers)
+                            .build();
+                    }
+                    if(start > end) {
+                        headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .headers(headers)
+                            .build();
+                    }
+                    status = HttpStatus.PARTIAL_CONTENT;
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            }
+
+            String filenameData = file.getFilename() != null && !file.getFilename().isEmpty()
+                ? file.getFilename()
                 : fileId;
 
             String contentDisposition = "attachment; filename=\"" + filenameData + "\"";
@@ -201,22 +254,26 @@ public class FileController {
                     "filename*=UTF-8''" + 
                     URLEncoder.encode(filenameData, "UTF-8").replace("+", "%20");
             }
-            
-            System.out.println("Sending file: " + filenameData + 
-                            ", Content-Length: " + content.length + 
-                            ", MIME: " + mimeType);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(mimeType));
+
+            headers.setContentType(MediaType.parseMediaType(file.getMimeType()));
             headers.setContentDisposition(ContentDisposition.parse(contentDisposition));
-            headers.setContentLength(content.length);
-            headers.setCacheControl(CacheControl.noCache().getHeaderValue());
-            headers.set("Access-Control-Expose-Headers", "Content-Disposition, Content-Length");
-            
-            System.out.println("Response headers set, returning content");
-            
-            return new ResponseEntity<>(content, headers, HttpStatus.OK);
-            
+            headers.setContentLength(end - start + 1);
+
+            if("HEAD".equalsIgnoreCase(request.getMethod())) {
+                return ResponseEntity.status(status).headers(headers).build();
+            }
+
+            final long rangeStart = start;
+            final long rangeEnd = end;
+            StreamingResponseBody body = output -> {
+                try {
+                    file.writeTo(output, rangeStart, rangeEnd);
+                } catch(IOException err) {
+                    System.err.println("Download stream error for fileId " + fileId + ": " + err.getMessage());
+                    throw err;
+                }
+            };
+            return new ResponseEntity<>(body, headers, status);
         } catch(Exception err) {
             System.err.println("Download error for fileId " + fileId + ": " + err.getMessage());
             err.printStackTrace();
@@ -224,6 +281,44 @@ public class FileController {
         }
     }
 
+    /**
+     * If-Range
+     *
+     * A Range header only applies when If-Range is absent or still
+     * matches the current representation, otherwise the full file is sent.
+     */
+    private boolean isRangeCurrent(HttpServletRequest request, FileDownloadStream file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if(ifRange == null || ifRange.isBlank()) return true;
+
+        ifRange = ifRange.trim();
+        if(ifRange.startsWith("\"")) return ifRange.equals(file.getEtag());
+        if(ifRange.startsWith("W/")) return false;
+
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return file.getLastModified() > 0 && date / 1000 == file.getLastModified() / 1000;
+        } catch(IllegalArgumentException err) {
+            return false;
+        }
+    }
+
+    /**
+     * Compression Stats
+     */
+    @GetMapping("/compression/stats")
+    public Map<String, Object> getCompressionStats() {
+        return WrapperFileCompressor.getStats();
+    }
+
+    /**
+     * Encoder Stats
+     */
+    @GetMapping("/encoders/stats")
+    public Map<String, Object> getEncoderStats() {
+        return serviceManager.getFileService().getEncoderPool().getStats();
+    }
+
     /**
      * Delete File
      */
@@ -2,6 +2,8 @@ package com.app.main.root.app.__controllers;
 import com.app.main.root.app._service.ServiceManager;
 import com.app.main.root.app._service.SessionService;
 import com.app.main.root.app._types.Message;
+import com.app.main.root.app._types.MessageCursor;
+import com.app.main.root.app._types.MessageEnvelope;
 import com.app.main.root.app._types.RecentChat;
 import com.app.main.root.app.main.chat.messages.MessageLog;
 import com.app.main.root.app.main.chat.messages.MessageTracker;
@@ -118,7 +120,7 @@ public class MessageController {
             String chatId = (String) data.get("chatId");
             MessageLog.MessageType messageType = MessageLog.MessageType.valueOf(((String) data.get("messageType")).toUpperCase());
             MessageLog.MessageDirection direction = MessageLog.MessageDirection.valueOf(((String) data.get("direction")).toUpperCase());
-            serviceManager.getMessageService().saveMessage(chatId, senderId, content, messageType.name(), username);
+            serviceManager.getMessageService().saveMessage(MessageEnvelope.fromMap(data), messageType.name());
             MessageLog log = new MessageLog(messageId, content, senderId, username, chatId, messageType, direction, time);
             messageTracker.track(
                 messageId, 
@@ -171,6 +173,27 @@ public class MessageController {
         }
     }
 
+    @GetMapping("/messages/chatId/{chatId}/history")
+    public ResponseEntity<?> getMessageHistory(
+        @PathVariable String chatId,
+        @RequestParam(required = false) String before,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
+        try {
+            MessageCursor cursor = MessageCursor.parse(before);
+            Map<String, Object> res = serviceManager.getMessageService().getMessagesBefore(chatId, cursor, limit);
+            return ResponseEntity.ok(res);
+        } catch(IllegalArgumentException err) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of(
+                    "error", "Invalid cursor",
+                    "message", err.getMessage()
+                ));
+        } catch(SQLException err) {
+            throw new RuntimeException("Error fetching message history for chat: " + chatId, err);
+        }
+    }
+
     @GetMapping("/messages/chatId/{chatId}/count")
     public Map<String, Object> getMessageCountByChatId(@PathVariable String chatId) {
         try {
@@ -300,6 +323,11 @@ public class MessageController {
         return messageTracker.getMessageStats();
     }
 
+    @GetMapping("/writer/stats")
+    public Map<String, Object> getWriterStats() {
+        return serviceManager.getMessageService().getWriterStats();
+    }
+
     /**
      * Count 
      */
@@ -15,6 +15,8 @@ import java.io.IOException;
 import java.util.List;
 
 public class AuthFilter extends OncePerRequestFilter {
+    public static final String CLAIMS_ATTRIBUTE = "tokenClaims";
+
     private final TokenService tokenService;
     private final SessionService sessionService;
     private final UserService userService;
@@ -41,10 +43,12 @@ public class AuthFilter extends OncePerRequestFilter {
         }
 
         String token = extractToken(request);
-        if(StringUtils.hasText(token) && tokenService.validateToken(token)) {
-            String userId = tokenService.extractUserId(token);
-            String sessionId = tokenService.extractSessionId(token);
-            if(sessionService.validateSession(sessionId)) {
+        TokenClaims claims = StringUtils.hasText(token) ? tokenService.verify(token) : null;
+        /* Only access tokens carry a session, a refresh token is not a login */
+        if(claims != null && "access".equals(claims.getType()) && claims.getSessionId() != null) {
+            String userId = claims.getUserId();
+            String sessionId = claims.getSessionId();
+            if(sessionService.getSession(sessionId) != null) {
                 UsernamePasswordAuthenticationToken auth =
                     new UsernamePasswordAuthenticationToken(
                         userId,
@@ -57,9 +61,11 @@ public class AuthFilter extends OncePerRequestFilter {
                     );
 
                 SecurityContextHolder.getContext().setAuthentication(auth);
-                sessionService.getSession(sessionId).updateActivity();
+                request.setAttribute(CLAIMS_ATTRIBUTE, claims);
             }
         }
+
+        filterChain.doFilter(request, response);
     }
 
     private String extractToken(HttpServletRequest request) {
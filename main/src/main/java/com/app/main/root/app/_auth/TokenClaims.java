@@ -0,0 +1,71 @@
+package com.app.main.root.app._auth;
+import io.jsonwebtoken.Claims;
+import java.util.Date;
+
+/**
+ * Verified claims of a token, read once from the parsed payload.
+ */
+public final class TokenClaims {
+    private final String userId;
+    private final String sessionId;
+    private final String username;
+    private final String email;
+    private final String type;
+    private final long expiresAt;
+
+    public TokenClaims(
+        String userId,
+        String sessionId,
+        String username,
+        String email,
+        String type,
+        long expiresAt
+    ) {
+        this.userId = userId;
+        this.sessionId = sessionId;
+        this.username = username;
+        this.email = email;
+        this.type = type;
+        this.expiresAt = expiresAt;
+    }
+
+    public static TokenClaims from(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return new TokenClaims(
+            claims.get("userId", String.class),
+            claims.get("sessionId", String.class),
+            claims.get("username", String.class),
+            claims.get("email", String.class),
+            claims.get("type", String.class),
+            expiration != null ? expiration.getTime() : Long.MAX_VALUE
+        );
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
@@ -1,8 +1,14 @@
 package com.app.main.root.app._auth;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import com.app.main.root.app.utils.TimingWheel;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
+import java.util.concurrent.atomic.LongAdder;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.*;
@@ -20,13 +26,35 @@ public class TokenService {
     @Value("${jwt.refresh-expiration:604800000}")
     private long refreshExpiration;
 
-    private final Map<String, String> tokenBlackList = new ConcurrentHashMap<>();
+    @Value("${jwt.cache.maxEntries:10000}")
+    private int cacheMaxEntries;
+
+    /**
+     * Token hash -> expiry millis
+     */
+    private final Map<String, Long> tokenBlackList = new ConcurrentHashMap<>();
+    private final TimingWheel<String> blacklistExpiry = new TimingWheel<>(1000, 4, System.currentTimeMillis());
+    private final Map<String, TokenClaims> verifiedTokens = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = buildSigningKey();
+        parser = Jwts.parser()
+            .verifyWith(signingKey)
+            .build();
+    }
 
     /**
      * Get Signing Key
      */
-    private SecretKey getSigningKey() {
+    private SecretKey buildSigningKey() {
         if(secretKey == null || secretKey.isEmpty()) {
+            System.out.println("jwt.secret not set, using a random key until restart");
             return Jwts.SIG.HS256.key().build();
         }
 
@@ -34,6 +62,10 @@ public class TokenService {
         return Keys.hmacShaKeyFor(keyByets);
     }
 
+    private SecretKey getSigningKey() {
+        return signingKey;
+    }
+
     /**
      * Generate Access Token
      */
@@ -81,104 +113,135 @@ public class TokenService {
     }
 
     /**
-     * Validate Token
+     * Verify
+     *
+     * Verifies the token once and returns its claims, or null when
+     * the token is invalid, expired or blacklisted. Verified tokens
+     * are cached by hash until they expire.
      */
-    public boolean validateToken(String key) {
+    public TokenClaims verify(String token) {
+        if(token == null || token.isEmpty()) return null;
         try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(key)
-                .getPayload();
-
-            if(tokenBlackList.containsKey(key)) {
-                return false;
-            }
-            return true;
+            String hash = hashToken(token);
+            if(tokenBlackList.containsKey(hash)) return null;
+
+            TokenClaims claims = claims(token, hash);
+            if(claims.isExpired(System.currentTimeMillis())) return null;
+            return claims;
         } catch(JwtException | IllegalArgumentException err) {
             System.out.println(err);
-            return false;
+            return null;
+        }
+    }
+
+    /**
+     * Validate Token
+     */
+    public boolean validateToken(String key) {
+        return verify(key) != null;
+    }
+
+    private TokenClaims claims(String token) {
+        return claims(token, hashToken(token));
+    }
+
+    private TokenClaims claims(String token, String hash) {
+        long now = System.currentTimeMillis();
+        TokenClaims cached = verifiedTokens.get(hash);
+        if(cached != null) {
+            if(!cached.isExpired(now)) {
+                cacheHits.increment();
+                return cached;
+            }
+            verifiedTokens.remove(hash, cached);
         }
+
+        cacheMisses.increment();
+        TokenClaims claims = TokenClaims.from(parser.parseSignedClaims(token).getPayload());
+        if(!claims.isExpired(now)) cache(hash, claims, now);
+        return claims;
     }
 
-    private<T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    private void cache(String hash, TokenClaims claims, long now) {
+        if(verifiedTokens.size() >= cacheMaxEntries) {
+            verifiedTokens.values().removeIf(entry -> entry.isExpired(now));
+            Iterator<String> it = verifiedTokens.keySet().iterator();
+            while(verifiedTokens.size() >= cacheMaxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        if(cacheMaxEntries > 0) verifiedTokens.put(hash, claims);
     }
 
-    private Claims extractAllClaims(String key) {
-        return Jwts.parser()
-            .verifyWith(getSigningKey())
-            .build()
-            .parseSignedClaims(key)
-            .getPayload();
+    private static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch(NoSuchAlgorithmException err) {
+            throw new IllegalStateException(err);
+        }
     }
 
     public String extractUserId(String token) {
-        return extractClaim(
-            token, 
-            claims -> claims.get(
-                "userId", 
-                String.class
-            )
-        );
+        return claims(token).getUserId();
     }
 
     public String extractSessionId(String token) {
-        return extractClaim(
-            token, 
-            claims -> claims.get(
-                "sessionId", 
-                String.class
-            )
-        );
+        return claims(token).getSessionId();
     }
 
     public String extractUsername(String token) {
-        return extractClaim(
-            token, 
-            claims -> claims.get(
-                "username", 
-                String.class
-            )
-        );
+        return claims(token).getUsername();
     }
 
     public String extractEmail(String token) {
-        return extractClaim(
-            token, 
-            claims -> claims.get(
-                "email", 
-                String.class
-            )
-        );
+        return claims(token).getEmail();
     }
 
     public String extractType(String token) {
-        return extractClaim(
-            token, 
-            claims -> claims.get(
-                "type", 
-                String.class
-            )
-        );
+        return claims(token).getType();
     }
 
     public boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return claims(token).isExpired(System.currentTimeMillis());
     }
 
     public void blacklistToken(String token) {
-        tokenBlackList.put(token, extractUserId(token));
+        String hash = hashToken(token);
+        long expiresAt = claims(token, hash).getExpiresAt();
+        if(tokenBlackList.putIfAbsent(hash, expiresAt) == null) {
+            blacklistExpiry.schedule(new TimingWheel.Timer<>(hash, expiresAt));
+        }
+        verifiedTokens.remove(hash);
     }
 
+    /**
+     * Clean Expired Blacklist
+     *
+     * Expired tokens fail verification on their own, so their
+     * blacklist and cache entries can go. Blacklisted tokens sit in a
+     * timing wheel by expiry and only the due ones are visited, the
+     * cache is bounded by cacheMaxEntries and still swept.
+     */
+    @Scheduled(fixedRate = 300000)
     public void cleanExpiredBlacklist() {
-        tokenBlackList.entrySet()
-            .removeIf(entry -> isTokenExpired(entry.getKey()));
+        long now = System.currentTimeMillis();
+        blacklistExpiry.advance(now, tokenBlackList::remove);
+        verifiedTokens.values().removeIf(claims -> claims.isExpired(now));
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Stats
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("cachedTokens", verifiedTokens.size());
+        res.put("maxEntries", cacheMaxEntries);
+        res.put("hits", cacheHits.sum());
+        res.put("misses", cacheMisses.sum());
+        res.put("blacklisted", tokenBlackList.size());
+        return res;
     }
 
     public String getSecretKey() {
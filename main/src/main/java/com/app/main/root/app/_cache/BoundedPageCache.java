@@ -0,0 +1,241 @@
+package com.app.main.root.app._cache;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.*;
+
+/**
+ * Page cache split into segments (one per chat, or per user+chat for files).
+ * The whole cache is bounded by estimated bytes; when it grows past the
+ * budget the least recently used segments are dropped until it is back
+ * under 90% of the budget.
+ */
+public abstract class BoundedPageCache<T> {
+    private final Map<String, Segment<T>> segments = new ConcurrentHashMap<>();
+    private final AtomicLongArray writeStamps = new AtomicLongArray(1024);
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final long maxBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    protected BoundedPageCache(long maxBytes) {
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+
+    protected abstract long estimateSize(T item);
+
+    /**
+     * Get Page
+     */
+    protected List<T> getPage(String segmentKey, String pageKey) {
+        Segment<T> segment = segments.get(segmentKey);
+        if(segment == null) {
+            misses.increment();
+            return null;
+        }
+
+        segment.lock.lock();
+        try {
+            List<T> page = segment.pages.get(pageKey);
+            if(page == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            segment.lastAccessTime = System.currentTimeMillis();
+            return new ArrayList<>(page);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Put Page
+     */
+    protected void putPage(String segmentKey, String pageKey, List<T> items, long stamp) {
+        if(items == null) return;
+        List<T> page = new ArrayList<>(items);
+        long pageBytes = bytesOf(page);
+
+        boolean stored = updateSegment(segmentKey, true, segment -> {
+            if(stamp >= 0 && readStamp(segmentKey) != stamp) return 0;
+            List<T> previous = segment.pages.put(pageKey, page);
+            return pageBytes - bytesOf(previous);
+        });
+        if(stored) evictIfNeeded();
+    }
+
+    /**
+     * Runs a mutation on a segment under its lock. The mutation returns
+     * how many estimated bytes it added or removed, so the accounting
+     * costs what changed rather than a walk of the whole segment.
+     * Returns false if the segment was evicted while the caller was
+     * waiting for it.
+     */
+    protected boolean updateSegment(String segmentKey, boolean create, ToLongFunction<Segment<T>> update) {
+        Segment<T> segment = create ?
+            segments.computeIfAbsent(segmentKey, k -> new Segment<>()) :
+            segments.get(segmentKey);
+        if(segment == null) return false;
+
+        segment.lock.lock();
+        try {
+            if(segment.removed) return false;
+            long delta = update.applyAsLong(segment);
+            if(delta != 0) {
+                segment.bytes += delta;
+                totalBytes.addAndGet(delta);
+            }
+            segment.lastAccessTime = System.currentTimeMillis();
+            return true;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    protected long bytesOf(List<T> page) {
+        if(page == null) return 0;
+        long bytes = 0;
+        for(T item : page) bytes += estimateSize(item);
+        return bytes;
+    }
+
+    /**
+     * Reads a segment under its lock without touching the byte
+     * accounting. Returns null if the segment is not cached.
+     */
+    protected <R> R readSegment(String segmentKey, Function<Segment<T>, R> read) {
+        Segment<T> segment = segments.get(segmentKey);
+        if(segment == null) return null;
+
+        segment.lock.lock();
+        try {
+            if(segment.removed) return null;
+            return read.apply(segment);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Write Stamps
+     */
+    public long readStamp(String segmentKey) {
+        return writeStamps.get(Math.floorMod(segmentKey.hashCode(), writeStamps.length()));
+    }
+
+    protected void bumpStamp(String segmentKey) {
+        writeStamps.set(Math.floorMod(segmentKey.hashCode(), writeStamps.length()), clock.incrementAndGet());
+    }
+
+    /**
+     * Invalidate
+     */
+    protected void invalidate(String segmentKey) {
+        bumpStamp(segmentKey);
+        Segment<T> segment = segments.remove(segmentKey);
+        if(segment != null) release(segment);
+    }
+
+    public void clear() {
+        for(String key : new ArrayList<>(segments.keySet())) invalidate(key);
+    }
+
+    private void release(Segment<T> segment) {
+        segment.lock.lock();
+        try {
+            if(segment.removed) return;
+            segment.removed = true;
+            totalBytes.addAndGet(-segment.bytes);
+            segment.bytes = 0;
+            segment.pages.clear();
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Eviction
+     */
+    private void evictIfNeeded() {
+        if(totalBytes.get() <= maxBytes) return;
+        if(!evictionLock.tryLock()) return;
+
+        try {
+            long target = maxBytes * 9 / 10;
+            List<Map.Entry<String, Segment<T>>> candidates = new ArrayList<>(segments.entrySet());
+            candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccessTime));
+
+            for(Map.Entry<String, Segment<T>> entry : candidates) {
+                if(totalBytes.get() <= target) break;
+                if(segments.remove(entry.getKey(), entry.getValue())) {
+                    release(entry.getValue());
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void evictExpired(long ttlMillis) {
+        long now = System.currentTimeMillis();
+        for(Map.Entry<String, Segment<T>> entry : segments.entrySet()) {
+            if(now - entry.getValue().lastAccessTime > ttlMillis) {
+                if(segments.remove(entry.getKey(), entry.getValue())) {
+                    release(entry.getValue());
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stats
+     */
+    public CacheStats getStats() {
+        int totalPages = 0;
+        int totalItems = 0;
+        for(Segment<T> segment : segments.values()) {
+            segment.lock.lock();
+            try {
+                totalPages += segment.pages.size();
+                for(List<T> page : segment.pages.values()) totalItems += page.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+
+        return new CacheStats(
+            segments.size(),
+            totalItems,
+            totalPages,
+            hits.sum(),
+            misses.sum(),
+            evictions.sum(),
+            totalBytes.get(),
+            maxBytes
+        );
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    protected static class Segment<T> {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<String, List<T>> pages = new HashMap<>();
+        volatile long lastAccessTime = System.currentTimeMillis();
+        long bytes = 0;
+        long totalItems = -1;
+        boolean removed = false;
+    }
+}
@@ -2,7 +2,6 @@ package com.app.main.root.app._cache;
 import com.app.main.root.app._types.Message;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -15,9 +14,6 @@ public class CacheService {
     private ChatCache chatCache;
     private FileCache fileCache;
 
-    private final Map<String, ChatCache> chatCacheMap = new ConcurrentHashMap<>();
-    private final Map<String, FileCache> fileCacheMap = new ConcurrentHashMap<>();
-
     private ScheduledExecutorService cleanupExecutor = Executors.newScheduledThreadPool(1);
 
     @Value("${app.cache.pageSize:100}")
@@ -26,10 +22,16 @@ public class CacheService {
     @Value("${app.cache.ttl.minutes:30}")
     private int cacheTtlMinutes;
 
+    @Value("${app.cache.chat.maxBytes:67108864}")
+    private long chatCacheMaxBytes;
+
+    @Value("${app.cache.file.maxBytes:16777216}")
+    private long fileCacheMaxBytes;
+
     @PostConstruct
     public void init() {
-        this.chatCache = new ChatCache(0, chatCacheMap);
-        this.fileCache = new FileCache(0, fileCacheMap);
+        this.chatCache = new ChatCache(chatCacheMaxBytes);
+        this.fileCache = new FileCache(fileCacheMaxBytes);
         cleanupExecutor.scheduleAtFixedRate(this::cleanupExpiredEntries, 1, 1, TimeUnit.MINUTES);
     }
 
@@ -41,12 +43,12 @@ public class CacheService {
     public Map<String, Object> getCachedChatData(String userId, String chatId, int page) {
         Map<String, Object> chatData = new HashMap<>();
 
-        List<Message> cachedMessages = chatCache.getCachedMessages(chatId, page);
+        List<Message> cachedMessages = chatCache.getCachedMessages(chatId, page, pageSize);
         if(cachedMessages != null) {
             chatData.put("messages", cachedMessages);
             chatData.put("messagesFromCache", true);
         }
-        List<Map<String, Object>> cachedFiles = fileCache.getCachedFilesPage(userId, chatId, page);
+        List<Map<String, Object>> cachedFiles = fileCache.getCachedFilesPage(userId, chatId, page, pageSize);
         if(cachedFiles != null) {
             chatData.put("files", cachedFiles);
             chatData.put("filesFromCache", true);
@@ -63,10 +65,10 @@ public class CacheService {
         List<Map<String, Object>> files
     ) {
         if(messages != null) {
-            chatCache.cacheMessages(chatId, page, messages);
+            chatCache.cacheMessages(chatId, page, pageSize, messages);
         }
         if(files != null) {
-            fileCache.cacheFilesPage(userId, chatId, page, files);
+            fileCache.cacheFilesPage(userId, chatId, page, pageSize, files, -1);
         }
     }
 
@@ -75,13 +77,15 @@ public class CacheService {
      * Cache Stats
      */
     public Map<String, Object> getCacheStats() {
+        CacheStats chatStats = chatCache.getStats();
+        CacheStats fileStats = fileCache.getStats();
+
         Map<String, Object> stats = new HashMap<>();
-        stats.put("messageCaches", chatCacheMap.size());
-        stats.put("fileCaches", fileCacheMap.size());
-        stats.put("totalCachedPages", 
-            chatCacheMap.values().stream().mapToInt(c -> c.cachedPages.size()).sum() +
-            fileCacheMap.values().stream().mapToInt(c -> c.cachedPages.size()).sum()
-        );
+        stats.put("messageCaches", chatStats.totalCachedChats);
+        stats.put("fileCaches", fileStats.totalCachedChats);
+        stats.put("totalCachedPages", chatStats.totalLoadedPages + fileStats.totalLoadedPages);
+        stats.put("chat", chatStats);
+        stats.put("file", fileStats);
         return stats;
     }
 
@@ -95,15 +99,9 @@ public class CacheService {
     
 
     private void cleanupExpiredEntries() {
-        long currentTime = System.currentTimeMillis();
         long ttlMillis = cacheTtlMinutes * 60 * 1000L;
-
-        chatCacheMap.entrySet().removeIf(entry ->
-            currentTime - entry.getValue().lastAccessTime > ttlMillis
-        );
-        fileCacheMap.entrySet().removeIf(entry ->
-            currentTime - entry.getValue().lastAccessTime > ttlMillis
-        );
+        chatCache.evictExpired(ttlMillis);
+        fileCache.evictExpired(ttlMillis);
     }
 
     
@@ -2,16 +2,33 @@ package com.app.main.root.app._cache;
 
 public class CacheStats {
     public final int totalCachedChats;
-    private final int totalCachedMessages;
-    private final int totalLoadedPages;
+    public final int totalCachedMessages;
+    public final int totalLoadedPages;
+    public final long hits;
+    public final long misses;
+    public final long evictions;
+    public final long estimatedBytes;
+    public final long maxBytes;
+    public final double hitRate;
 
     public CacheStats(
         int totalCachedChats,
         int totalCachedMessages,
-        int totalLoadedPages
+        int totalLoadedPages,
+        long hits,
+        long misses,
+        long evictions,
+        long estimatedBytes,
+        long maxBytes
     ) {
         this.totalCachedChats = totalCachedChats;
         this.totalCachedMessages = totalCachedMessages;
         this.totalLoadedPages = totalLoadedPages;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.estimatedBytes = estimatedBytes;
+        this.maxBytes = maxBytes;
+        this.hitRate = hits + misses > 0 ? (double) hits / (hits + misses) : 0.0;
     }
 }
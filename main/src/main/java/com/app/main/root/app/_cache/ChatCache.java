@@ -1,59 +1,166 @@
 package com.app.main.root.app._cache;
 import com.app.main.root.app._types.Message;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.*;
 
-public class ChatCache {
-    private Map<String, ChatCache> chatCacheMap = new ConcurrentHashMap<>();
-    public final Map<String, List<Message>> cachedPages = new ConcurrentHashMap<>();
-    public final Set<Integer> loadedPages = ConcurrentHashMap.newKeySet();
+/**
+ * Message pages per chat. Pages are ordered newest first, so a new
+ * message is prepended to page 0 and the overflow of every cached
+ * page is carried into the next one instead of dropping the chat.
+ */
+public class ChatCache extends BoundedPageCache<Message> {
+    private static final String PAGE_PREFIX = "page_";
 
-    public final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    public long lastAccessTime;
-    public int totalMessages;
+    public ChatCache(long maxBytes) {
+        super(maxBytes);
+    }
 
-    public ChatCache(int totalMessages, Map<String, ChatCache> chatCacheMap) {
-        this.chatCacheMap = chatCacheMap;
-        this.totalMessages = totalMessages;
-        this.lastAccessTime = System.currentTimeMillis();
+    private static String pageKey(int page, int pageSize) {
+        return PAGE_PREFIX + page + "_" + pageSize;
     }
 
-    public ReentrantReadWriteLock.ReadLock readLock() {
-        return lock.readLock();
+    /**
+     * Get Cached Messages
+     */
+    public List<Message> getCachedMessages(String chatId, int page, int pageSize) {
+        return getPage(chatId, pageKey(page, pageSize));
     }
 
-    public ReentrantReadWriteLock.WriteLock writeLock() {
-        return lock.writeLock();
+    /**
+     * Cache Messages
+     */
+    public void cacheMessages(String chatId, int page, int pageSize, List<Message> messages, long stamp) {
+        putPage(chatId, pageKey(page, pageSize), messages, stamp);
     }
 
-    public List<Message> getCachedMessages(String chatId, int page) {
-        ChatCache cache = chatCacheMap.get(chatId);
-        if(cache == null) return null;
+    public void cacheMessages(String chatId, int page, int pageSize, List<Message> messages) {
+        cacheMessages(chatId, page, pageSize, messages, -1);
+    }
 
-        cache.readLock().lock();
-        try {
-            String pageKey = "page_" + page;
-            return cache.cachedPages.get(pageKey);
-        } finally {
-            cache.readLock().unlock();
-        }
+    /**
+     * Append Message
+     */
+    public void appendMessage(String chatId, Message message) {
+        bumpStamp(chatId);
+        boolean[] stale = { false };
+
+        updateSegment(chatId, false, segment -> {
+            Set<Integer> pageSizes = new HashSet<>();
+            for(String key : segment.pages.keySet()) {
+                pageSizes.add(Integer.parseInt(key.substring(key.lastIndexOf('_') + 1)));
+            }
+
+            for(int pageSize : pageSizes) {
+                List<Message> first = segment.pages.get(pageKey(0, pageSize));
+                if(first != null && !first.isEmpty() && !isNewer(message, first.get(0))) {
+                    stale[0] = true;
+                    return 0;
+                }
+            }
+
+            long delta = 0;
+            for(int pageSize : pageSizes) delta += shiftPages(segment, pageSize, message);
+            if(segment.totalItems >= 0) segment.totalItems++;
+            return delta;
+        });
+
+        if(stale[0]) invalidateMessageCache(chatId);
     }
 
-    public void cacheMessages(String chatId, int page, List<Message> messages) {
-        ChatCache cache = chatCacheMap.computeIfAbsent(chatId, k -> new ChatCache(0, chatCacheMap));
-        cache.writeLock().lock();
+    /**
+     * Carries one message down the chain of cached pages. The first
+     * missing page breaks the chain, so every page after it is
+     * dropped because its offsets are no longer known. Returns the
+     * change in estimated bytes.
+     */
+    private long shiftPages(Segment<Message> segment, int pageSize, Message message) {
+        Message carry = message;
+        long delta = 0;
+        int page = 0;
+
+        while(carry != null) {
+            String key = pageKey(page, pageSize);
+            List<Message> current = segment.pages.get(key);
+            if(current == null) break;
 
-        try {
-            String pageKey = "page_" + page;
-            cache.cachedPages.put(pageKey, messages);
-            cache.lastAccessTime = System.currentTimeMillis();
-        } finally {
-            cache.writeLock().unlock();
+            current.add(0, carry);
+            delta += estimateSize(carry);
+            carry = current.size() > pageSize ? current.remove(current.size() - 1) : null;
+            if(carry != null) delta -= estimateSize(carry);
+            page++;
         }
+
+        if(carry == null) return delta;
+        String suffix = "_" + pageSize;
+        Iterator<Map.Entry<String, List<Message>>> it = segment.pages.entrySet().iterator();
+        while(it.hasNext()) {
+            Map.Entry<String, List<Message>> entry = it.next();
+            String key = entry.getKey();
+            if(!key.endsWith(suffix)) continue;
+            int n = Integer.parseInt(key.substring(PAGE_PREFIX.length(), key.length() - suffix.length()));
+            if(n > page) {
+                delta -= bytesOf(entry.getValue());
+                it.remove();
+            }
+        }
+        return delta;
+    }
+
+    private static boolean isNewer(Message message, Message head) {
+        long time = message.getCreatedAt() != null ? message.getCreatedAt().getTime() : 0L;
+        long headTime = head.getCreatedAt() != null ? head.getCreatedAt().getTime() : 0L;
+        if(time != headTime) return time > headTime;
+        return message.getId() > head.getId();
+    }
+
+    /**
+     * Total Messages
+     */
+    public int getTotalMessages(String chatId) {
+        Long total = readSegment(chatId, segment -> segment.totalItems);
+        return total != null ? total.intValue() : -1;
     }
 
+    public void cacheTotalMessages(String chatId, int total, long stamp) {
+        updateSegment(chatId, true, segment -> {
+            if(stamp >= 0 && readStamp(chatId) != stamp) return 0;
+            segment.totalItems = total;
+            return 0;
+        });
+    }
+
+    /**
+     * Page Info
+     */
+    public PageInfo getPageInfo(String chatId, int page, int pageSize) {
+        PageInfo info = readSegment(chatId, segment -> {
+            int total = (int) segment.totalItems;
+            boolean loaded = segment.pages.containsKey(pageKey(page, pageSize));
+            boolean hasMore = total < 0 || (long) (page + 1) * pageSize < total;
+            return new PageInfo(loaded, hasMore, total);
+        });
+        return info != null ? info : new PageInfo(false, true, -1);
+    }
+
+    /**
+     * Invalidate
+     */
     public void invalidateMessageCache(String chatId) {
-        chatCacheMap.remove(chatId);
+        invalidate(chatId);
+    }
+
+    @Override
+    protected long estimateSize(Message message) {
+        long size = 96;
+        size += stringSize(message.getChatId());
+        size += stringSize(message.getSenderId());
+        size += stringSize(message.getContent());
+        size += stringSize(message.getMessageType());
+        size += stringSize(message.getUsername());
+        if(message.getContentBytes() != null) size += 16 + message.getContentBytes().length;
+        return size;
+    }
+
+    private static long stringSize(String value) {
+        return value != null ? 40 + 2L * value.length() : 0;
     }
 }
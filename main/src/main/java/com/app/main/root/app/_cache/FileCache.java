@@ -1,73 +1,58 @@
 package com.app.main.root.app._cache;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.*;
 
-public class FileCache {
-    private Map<String, FileCache> fileCacheMap = new ConcurrentHashMap<>();
-    public final Map<String, List<Map<String, Object>>> cachedPages = new ConcurrentHashMap<>();
-    public final Set<String> loadedPages = ConcurrentHashMap.newKeySet();
-
-    public final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    public long lastAccessTime;
-    public int totalFileCount;
-
-    public FileCache(int totalFileCount, Map<String, FileCache> fileCacheMap) {
-        this.fileCacheMap = fileCacheMap;
-        this.totalFileCount = totalFileCount;
+public class FileCache extends BoundedPageCache<Map<String, Object>> {
+    public FileCache(long maxBytes) {
+        super(maxBytes);
     }
 
-    public ReentrantReadWriteLock.ReadLock readLock() {
-        return lock.readLock();
+    private static String cacheKey(String userId, String chatId) {
+        return userId + "_" + chatId;
     }
 
-    public ReentrantReadWriteLock.WriteLock writeLock() {
-        return lock.writeLock();
+    private static String pageKey(String chatId, int page, int pageSize) {
+        return chatId + "_page_" + page + "_" + pageSize;
     }
 
-    public List<Map<String, Object>> getCachedFilesPage(String userId, String chatId, int page) {
-        String cacheKey = userId + "_" + chatId;
-        
-        synchronized(fileCacheMap) {
-            FileCache cache = fileCacheMap.get(cacheKey);
-            if(cache == null) return null;
-            
-            cache.readLock().lock();
-            try {
-                String pageKey = chatId + "_page_" + page;
-                return cache.cachedPages.get(pageKey);
-            } finally {
-                cache.readLock().unlock();
-            }
-        }
+    public List<Map<String, Object>> getCachedFilesPage(String userId, String chatId, int page, int pageSize) {
+        return getPage(cacheKey(userId, chatId), pageKey(chatId, page, pageSize));
     }
 
     /**
      * Cache Files Page
      */
-    public void cacheFilesPage(String userId, String chatId, int page, List<Map<String, Object>> files) {
-        String cacheKey = userId + "_" + chatId;
-        
-        synchronized(fileCacheMap) {
-            FileCache cache = fileCacheMap.computeIfAbsent(cacheKey, k -> new FileCache(0, fileCacheMap));
-            cache.writeLock().lock();
-            
-            try {
-                String pageKey = chatId + "_page_" + page;
-                cache.cachedPages.put(pageKey, files);
-                cache.loadedPages.add(pageKey);
-                cache.lastAccessTime = System.currentTimeMillis();
-            } finally {
-                cache.writeLock().unlock();
-            }
-        }
+    public void cacheFilesPage(
+        String userId,
+        String chatId,
+        int page,
+        int pageSize,
+        List<Map<String, Object>> files,
+        long stamp
+    ) {
+        putPage(cacheKey(userId, chatId), pageKey(chatId, page, pageSize), files, stamp);
+    }
+
+    public long getStamp(String userId, String chatId) {
+        return readStamp(cacheKey(userId, chatId));
     }
 
     /**
      * Invalidate
      */
     public void invalidateFileCache(String userId, String chatId) {
-        String cacheKey = userId + "_" + chatId;
-        fileCacheMap.remove(cacheKey);
+        invalidate(cacheKey(userId, chatId));
+    }
+
+    @Override
+    protected long estimateSize(Map<String, Object> file) {
+        long size = 64;
+        for(Map.Entry<String, Object> entry : file.entrySet()) {
+            size += 32 + 40 + 2L * entry.getKey().length();
+            Object value = entry.getValue();
+            if(value instanceof String str) size += 40 + 2L * str.length();
+            else if(value instanceof byte[] bytes) size += 16 + bytes.length;
+            else size += 24;
+        }
+        return size;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package com.app.main.root.app._crypto.file_encoder;
+
+/**
+ * Handle to a native decryption stream. Not thread safe, one
+ * stream belongs to one download.
+ */
+public class FileDecryptStream implements AutoCloseable {
+    private long handle;
+    private final boolean verifying;
+
+    FileDecryptStream(long handle, boolean verifying) {
+        this.handle = handle;
+        this.verifying = verifying;
+    }
+
+    /**
+     * Update
+     */
+    public int update(byte[] input, int length, byte[] output) {
+        if(handle == 0) throw new IllegalStateException("Decrypt stream closed");
+        if(length == 0) return 0;
+
+        int written = FileEncoderWrapper.decryptStreamUpdate(handle, input, length, output);
+        if(written < 0) {
+            throw new IllegalStateException("Stream decryption failed with error code: " + written);
+        }
+        return written;
+    }
+
+    /**
+     * Finish
+     *
+     * Returns true when the tag matched, or when the stream was
+     * positioned and has no tag to check.
+     */
+    public boolean finish(byte[] tag) {
+        if(handle == 0) throw new IllegalStateException("Decrypt stream closed");
+        return FileEncoderWrapper.decryptStreamFinal(handle, verifying ? tag : null);
+    }
+
+    public boolean isVerifying() {
+        return verifying;
+    }
+
+    @Override
+    public void close() {
+        if(handle != 0) {
+            FileEncoderWrapper.closeDecryptStream(handle);
+            handle = 0;
+        }
+    }
+}
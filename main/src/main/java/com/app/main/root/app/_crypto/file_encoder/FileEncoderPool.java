@@ -0,0 +1,192 @@
+package com.app.main.root.app._crypto.file_encoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of native file encoders. An encoder keeps the key, IV
+ * and tag of the file it is working on in its native context, so it
+ * belongs to one caller from acquire until the lease is closed.
+ * Encoders are created on first demand up to the pool size, callers
+ * wait for a free one after that. Closing a lease wipes the key, the
+ * native context stays allocated while the encoder is idle and is
+ * rekeyed for the next file. Contexts are freed on close.
+ */
+public class FileEncoderPool {
+    private static final long ACQUIRE_TIMEOUT_MS = 30_000;
+
+    private final int size;
+    private volatile boolean closed = false;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<FileEncoderWrapper> idle = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final LongAdder nativeAllocations = new LongAdder();
+    private final LongAdder rekeys = new LongAdder();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder returns = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public FileEncoderPool(int size) {
+        this.size = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.permits = new Semaphore(this.size, true);
+    }
+
+    /**
+     * Acquire
+     *
+     * Checks out an encoder set up for the key. Waits while every
+     * encoder is in use and gives up after the acquire timeout.
+     */
+    public Lease acquire(byte[] key, FileEncoderWrapper.EncryptionAlgorithm algorithm) {
+        if(!permits.tryAcquire()) {
+            waits.increment();
+            long start = System.nanoTime();
+            try {
+                if(!permits.tryAcquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    timeouts.increment();
+                    throw new IllegalStateException("No file encoder free after " + ACQUIRE_TIMEOUT_MS + "ms");
+                }
+            } catch(InterruptedException err) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a file encoder", err);
+            } finally {
+                waitNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        FileEncoderWrapper encoder = idle.poll();
+        try {
+            if(encoder == null) {
+                encoder = new FileEncoderWrapper();
+                created.incrementAndGet();
+            }
+            if(encoder.rekey(key, algorithm)) {
+                nativeAllocations.increment();
+            } else {
+                rekeys.increment();
+            }
+        } catch(RuntimeException | Error err) {
+            if(encoder != null) idle.offer(encoder);
+            permits.release();
+            throw err;
+        }
+
+        checkouts.increment();
+        peakInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+        return new Lease(encoder);
+    }
+
+    public Lease acquire(byte[] key) {
+        return acquire(key, FileEncoderWrapper.EncryptionAlgorithm.AES_256_GCM);
+    }
+
+    private void release(FileEncoderWrapper encoder) {
+        try {
+            encoder.wipe();
+            idle.offer(encoder);
+            if(closed) close();
+        } finally {
+            inUse.decrementAndGet();
+            returns.increment();
+            permits.release();
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Close
+     *
+     * Frees the native context of every idle encoder. Encoders still
+     * leased are freed when they come back after this.
+     */
+    public void close() {
+        closed = true;
+        FileEncoderWrapper encoder;
+        while((encoder = idle.poll()) != null) encoder.cleanup();
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        long waited = waits.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("created", created.get());
+        stats.put("nativeAllocations", nativeAllocations.sum());
+        stats.put("rekeys", rekeys.sum());
+        stats.put("idle", idle.size());
+        stats.put("inUse", inUse.get());
+        stats.put("peakInUse", peakInUse.get());
+        stats.put("checkouts", checkouts.sum());
+        stats.put("returns", returns.sum());
+        stats.put("waits", waited);
+        stats.put("timeouts", timeouts.sum());
+        stats.put("avgWaitMicros", waited > 0 ? waitNanos.sum() / waited / 1000 : 0);
+        return stats;
+    }
+
+    /**
+     * One checked out encoder. Not thread safe, close it once the
+     * file is done.
+     */
+    public final class Lease implements AutoCloseable {
+        private FileEncoderWrapper encoder;
+
+        private Lease(FileEncoderWrapper encoder) {
+            this.encoder = encoder;
+        }
+
+        private FileEncoderWrapper encoder() {
+            if(encoder == null) throw new IllegalStateException("Encoder lease already closed");
+            return encoder;
+        }
+
+        /**
+         * Encrypt
+         *
+         * Returns IV | ciphertext | tag under a fresh IV.
+         */
+        public byte[] encrypt(byte[] data) {
+            return encoder().encrypt(data);
+        }
+
+        /**
+         * Decrypt
+         */
+        public byte[] decrypt(byte[] encryptedData) {
+            return encoder().decrypt(encryptedData);
+        }
+
+        /**
+         * IV and tag of the last encrypt
+         */
+        public byte[] getIV() {
+            return encoder().getIV();
+        }
+
+        public byte[] getTag() {
+            return encoder().getTag();
+        }
+
+        @Override
+        public void close() {
+            if(encoder == null) return;
+            FileEncoderWrapper returned = encoder;
+            encoder = null;
+            release(returned);
+        }
+    }
+}
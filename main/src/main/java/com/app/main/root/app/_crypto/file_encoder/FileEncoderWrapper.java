@@ -152,6 +152,38 @@ public class FileEncoderWrapper {
         nativePtr = init(key, algorithm.getValue());
     }
     
+    /**
+     * Rekey
+     *
+     * Sets the encoder up for a new key on its existing native context,
+     * allocating a context only when there is none yet. Returns true
+     * when one was allocated.
+     */
+    public boolean rekey(byte[] key, EncryptionAlgorithm algorithm) {
+        synchronized(lock) {
+            if(nativePtr == 0) {
+                nativePtr = init(key, algorithm.getValue());
+                if(nativePtr == 0) throw new IllegalStateException("Failed to initialize file encoder");
+                return true;
+            }
+            if(!rekey(nativePtr, key, algorithm.getValue())) {
+                throw new IllegalStateException("Failed to rekey file encoder");
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Wipe
+     *
+     * Zeroes the key, IV and tag, the native context stays allocated.
+     */
+    public void wipe() {
+        synchronized(lock) {
+            if(nativePtr != 0) wipe(nativePtr);
+        }
+    }
+
     public void initEncoder(String password, byte[] salt, EncryptionAlgorithm algorithm) {
         if(nativePtr != 0) {
             cleanup();
@@ -185,6 +217,8 @@ public class FileEncoderWrapper {
     
     private native long init(byte[] key, int algorithm);
     private native void cleanup(long handle);
+    private native boolean rekey(long handle, byte[] key, int algorithm);
+    private native void wipe(long handle);
     private native byte[] encryptData(long handle, byte[] data);
     private native byte[] decryptData(long handle, byte[] encryptedData);
     private native boolean encryptFile(long handle, String inputPath, String outputPath);
@@ -192,6 +226,11 @@ public class FileEncoderWrapper {
     private native byte[] generateIV(long handle);
     private native byte[] deriveKey(String password, byte[] salt, int keyLength);
     private native int getEncryptedSize(int inputSize, int algorithm);
+
+    static native long openDecryptStream(byte[] key, int algorithm, byte[] iv, long offset, boolean verify);
+    static native int decryptStreamUpdate(long stream, byte[] input, int length, byte[] output);
+    static native boolean decryptStreamFinal(long stream, byte[] tag);
+    static native void closeDecryptStream(long stream);
     
     public byte[] encrypt(byte[] data) {
         synchronized(lock) {
@@ -291,6 +330,27 @@ public class FileEncoderWrapper {
         }
     }
     
+    /**
+     * Decrypt Stream
+     *
+     * Opens an independent native decryption stream over a stored blob,
+     * positioned at the given plaintext offset. Only a verifying stream
+     * (offset 0, whole ciphertext) checks the authentication tag.
+     */
+    public static FileDecryptStream openDecryptStream(
+        byte[] key,
+        EncryptionAlgorithm algorithm,
+        byte[] iv,
+        long offset,
+        boolean verify
+    ) {
+        long handle = openDecryptStream(key, algorithm.getValue(), iv, offset, verify);
+        if(handle == 0) {
+            throw new IllegalStateException("Failed to open decrypt stream at offset " + offset);
+        }
+        return new FileDecryptStream(handle, verify && offset == 0);
+    }
+    
     public byte[] generateIV() {
         if(nativePtr == 0) {
             throw new IllegalStateException("Encoder not initialized");
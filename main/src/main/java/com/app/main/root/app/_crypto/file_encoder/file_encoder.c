@@ -41,6 +41,62 @@ int init(
     return ENCODER_SUCCESS;
 }
 
+/**
+ * Rekey
+ *
+ * Points a live context at a new key. The key, IV and tag buffers are
+ * reused when the algorithm keeps their sizes, otherwise they are
+ * allocated again.
+ */
+int rekey(
+    EncoderContext* ctx,
+    const uint8_t* key,
+    size_t keyLength,
+    EncryptionAlgo algo
+) {
+    if(!ctx || !key || keyLength == 0) {
+        return ENCODER_ERROR_INVALID_PARAM;
+    }
+
+    const EVP_CIPHER* cipher = getCipher(algo);
+    if(!cipher || keyLength != (size_t)EVP_CIPHER_key_length(cipher)) return ENCODER_ERROR_INVALID_PARAM;
+
+    size_t ivLength = getIVSize(algo);
+    size_t tagLength = getTagSize(algo);
+    if(!ctx->key || !ctx->iv || !ctx->tag ||
+        ctx->keyLength != keyLength || ctx->ivLength != ivLength || ctx->tagLength != tagLength) {
+        cleanup(ctx);
+        int result = init(ctx, key, keyLength, algo);
+        if(result != ENCODER_SUCCESS) {
+            ctx->key = NULL;
+            ctx->iv = NULL;
+            ctx->tag = NULL;
+            ctx->keyLength = 0;
+            ctx->ivLength = 0;
+            ctx->tagLength = 0;
+        }
+        return result;
+    }
+
+    memcpy(ctx->key, key, keyLength);
+    memset(ctx->iv, 0, ivLength);
+    memset(ctx->tag, 0, tagLength);
+    ctx->algo = algo;
+    return ENCODER_SUCCESS;
+}
+
+/**
+ * Wipe
+ *
+ * Zeroes the key, IV and tag but keeps the buffers for the next rekey.
+ */
+void wipe(EncoderContext* ctx) {
+    if(!ctx) return;
+    if(ctx->key) memset(ctx->key, 0, ctx->keyLength);
+    if(ctx->iv) memset(ctx->iv, 0, ctx->ivLength);
+    if(ctx->tag) memset(ctx->tag, 0, ctx->tagLength);
+}
+
 /**
  * Encrypt Data
  */
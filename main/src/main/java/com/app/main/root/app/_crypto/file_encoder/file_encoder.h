@@ -9,6 +9,7 @@ extern "C" {
 #include "context.h"
 #include "iv/iv.h"
 #include "cipher/cipher.h"
+#include "stream/decrypt_stream.h"
 
 int init(
     EncoderContext* ctx,
@@ -17,6 +18,14 @@ int init(
     EncryptionAlgo algo
 );
 
+int rekey(
+    EncoderContext* ctx,
+    const uint8_t* key,
+    size_t keyLength,
+    EncryptionAlgo algo
+);
+void wipe(EncoderContext* ctx);
+
 int encryptData(
     EncoderContext* ctx,
     const uint8_t* input,
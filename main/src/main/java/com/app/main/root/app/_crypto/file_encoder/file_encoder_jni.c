@@ -104,6 +104,45 @@ Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_cleanup(
     }
 }
 
+/**
+ * Rekey
+ *
+ * Reuses a pooled context for the next file's key.
+ */
+JNIEXPORT jboolean JNICALL 
+Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_rekey(
+    JNIEnv *env, 
+    jobject obj, 
+    jlong handle,
+    jbyteArray keyArray,
+    jint algorithm
+) {
+    EncoderContext *ctx = (EncoderContext*)(intptr_t)handle;
+    if(!ctx) {
+        return JNI_FALSE;
+    }
+
+    uint8_t *keyData = NULL;
+    size_t keyLen = 0;
+    if(getByteArray(env, keyArray, &keyData, &keyLen) != ENCODER_SUCCESS) {
+        return JNI_FALSE;
+    }
+
+    int result = rekey(ctx, keyData, keyLen, (EncryptionAlgo)algorithm);
+    memset(keyData, 0, keyLen);
+    free(keyData);
+    return result == ENCODER_SUCCESS ? JNI_TRUE : JNI_FALSE;
+}
+
+JNIEXPORT void JNICALL 
+Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_wipe(
+    JNIEnv *env, 
+    jobject obj, 
+    jlong handle
+) {
+    wipe((EncoderContext*)(intptr_t)handle);
+}
+
 JNIEXPORT jbyteArray JNICALL 
 Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_encryptData(
     JNIEnv *env, 
@@ -419,9 +458,138 @@ Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_getTag(
     return resultArray;
 }
 
+JNIEXPORT jlong JNICALL 
+Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_openDecryptStream(
+    JNIEnv *env, 
+    jclass clazz, 
+    jbyteArray keyArray,
+    jint algorithm,
+    jbyteArray ivArray,
+    jlong offset,
+    jboolean verify
+) {
+    uint8_t *keyData = NULL;
+    size_t keyLen = 0;
+    uint8_t *ivData = NULL;
+    size_t ivLen = 0;
+
+    if(offset < 0) {
+        return 0;
+    }
+    if(getByteArray(env, keyArray, &keyData, &keyLen) != ENCODER_SUCCESS) {
+        return 0;
+    }
+    if(getByteArray(env, ivArray, &ivData, &ivLen) != ENCODER_SUCCESS) {
+        memset(keyData, 0, keyLen);
+        free(keyData);
+        return 0;
+    }
+
+    DecryptStream *stream = (DecryptStream*)malloc(sizeof(DecryptStream));
+    int result = stream ? decryptStreamInit(
+        stream,
+        keyData,
+        keyLen,
+        (EncryptionAlgo)algorithm,
+        ivData,
+        ivLen,
+        (uint64_t)offset,
+        verify == JNI_TRUE
+    ) : ENCODER_ERROR_MEMORY;
+
+    memset(keyData, 0, keyLen);
+    free(keyData);
+    free(ivData);
+
+    if(result != ENCODER_SUCCESS) {
+        free(stream);
+        return 0;
+    }
+    return (jlong)(intptr_t)stream;
+}
+
+JNIEXPORT jint JNICALL 
+Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_decryptStreamUpdate(
+    JNIEnv *env, 
+    jclass clazz, 
+    jlong handle,
+    jbyteArray inputArray,
+    jint length,
+    jbyteArray outputArray
+) {
+    DecryptStream *stream = (DecryptStream*)(intptr_t)handle;
+    if(!stream || !inputArray || !outputArray || length <= 0) {
+        return ENCODER_ERROR_INVALID_PARAM;
+    }
+    if((*env)->GetArrayLength(env, inputArray) < length ||
+        (*env)->GetArrayLength(env, outputArray) < length) {
+        return ENCODER_ERROR_INVALID_PARAM;
+    }
+
+    jbyte *input = (*env)->GetPrimitiveArrayCritical(env, inputArray, NULL);
+    jbyte *output = (*env)->GetPrimitiveArrayCritical(env, outputArray, NULL);
+    size_t outputLen = 0;
+    int result = ENCODER_ERROR_MEMORY;
+    if(input && output) {
+        result = decryptStreamUpdate(
+            stream,
+            (const uint8_t*)input,
+            (size_t)length,
+            (uint8_t*)output,
+            &outputLen
+        );
+    }
+    if(output) (*env)->ReleasePrimitiveArrayCritical(env, outputArray, output, 0);
+    if(input) (*env)->ReleasePrimitiveArrayCritical(env, inputArray, input, JNI_ABORT);
+
+    return result == ENCODER_SUCCESS ? (jint)outputLen : result;
+}
+
+JNIEXPORT jboolean JNICALL 
+Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_decryptStreamFinal(
+    JNIEnv *env, 
+    jclass clazz, 
+    jlong handle,
+    jbyteArray tagArray
+) {
+    DecryptStream *stream = (DecryptStream*)(intptr_t)handle;
+    if(!stream) {
+        return JNI_FALSE;
+    }
+
+    uint8_t *tag = NULL;
+    size_t tagLen = 0;
+    if(tagArray && getByteArray(env, tagArray, &tag, &tagLen) != ENCODER_SUCCESS) {
+        return JNI_FALSE;
+    }
+    if(tag && tagLen != stream->tagLength) {
+        free(tag);
+        return JNI_FALSE;
+    }
+
+    int result = decryptStreamFinal(stream, tag);
+    free(tag);
+    return result == ENCODER_SUCCESS ? JNI_TRUE : JNI_FALSE;
+}
+
+JNIEXPORT void JNICALL 
+Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_closeDecryptStream(
+    JNIEnv *env, 
+    jclass clazz, 
+    jlong handle
+) {
+    DecryptStream *stream = (DecryptStream*)(intptr_t)handle;
+    if(stream) {
+        decryptStreamFree(stream);
+        free(stream);
+    }
+}
+
 static JNINativeMethod methods[] = {
     { "init", "([BI)J", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_init },
     { "cleanup", "(J)V", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_cleanup },
+    { "rekey", "(J[BI)Z", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_rekey },
+    { "wipe", "(J)V", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_wipe },
     { "encryptData", "(J[B)[B", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_encryptData },
     { "decryptData", "(J[B)[B", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_decryptData },
     { "encryptFile", "(JLjava/lang/String;Ljava/lang/String;)Z", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_encryptFile },
@@ -431,7 +599,11 @@ static JNINativeMethod methods[] = {
     { "getEncryptedSize", "(II)I", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_getEncryptedSize },
     { "getIV", "(J)[B", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_getIV },
     { "setIV", "(J[B)V", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_setIV },
-    { "getTag", "(J)[B", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_getTag }
+    { "getTag", "(J)[B", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_getTag },
+    { "openDecryptStream", "([BI[BJZ)J", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_openDecryptStream },
+    { "decryptStreamUpdate", "(J[BI[B)I", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_decryptStreamUpdate },
+    { "decryptStreamFinal", "(J[B)Z", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_decryptStreamFinal },
+    { "closeDecryptStream", "(J)V", (void*)Java_com_app_main_root_app__1crypto_file_1encoder_FileEncoderWrapper_closeDecryptStream }
 };
 
 JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved) {
@@ -0,0 +1,163 @@
+#include "decrypt_stream.h"
+#include "../cipher/cipher.h"
+#include <string.h>
+
+/**
+ * Counter Block
+ *
+ * AES-GCM with a 96 bit IV encrypts the payload with counter
+ * blocks IV || 2, IV || 3 ... (counter 1 is kept for the tag), and
+ * ChaCha20-Poly1305 starts the ChaCha20 block counter at 1. Both
+ * keystreams can be entered at any block.
+ */
+static int positionKeystream(
+    EVP_CIPHER_CTX* ctx,
+    const uint8_t* key,
+    EncryptionAlgo algo,
+    const uint8_t* iv,
+    size_t ivLength,
+    uint64_t offset
+) {
+    uint8_t counter[16];
+    size_t skip;
+
+    if(ivLength != 12) return ENCODER_ERROR_INVALID_PARAM;
+
+    switch(algo) {
+        case ALGO_AES_256_GCM: {
+            uint32_t block = (uint32_t)(2 + offset / 16);
+            memcpy(counter, iv, 12);
+            counter[12] = (uint8_t)(block >> 24);
+            counter[13] = (uint8_t)(block >> 16);
+            counter[14] = (uint8_t)(block >> 8);
+            counter[15] = (uint8_t)block;
+            skip = (size_t)(offset % 16);
+            if(EVP_DecryptInit_ex(ctx, EVP_aes_256_ctr(), NULL, key, counter) != 1) {
+                return ENCODER_ERROR_CRYPTO;
+            }
+            break;
+        }
+        case ALGO_CHACHA20_POLY1305: {
+            uint32_t block = (uint32_t)(1 + offset / 64);
+            counter[0] = (uint8_t)block;
+            counter[1] = (uint8_t)(block >> 8);
+            counter[2] = (uint8_t)(block >> 16);
+            counter[3] = (uint8_t)(block >> 24);
+            memcpy(counter + 4, iv, 12);
+            skip = (size_t)(offset % 64);
+            if(EVP_DecryptInit_ex(ctx, EVP_chacha20(), NULL, key, counter) != 1) {
+                return ENCODER_ERROR_CRYPTO;
+            }
+            break;
+        }
+        default:
+            return ENCODER_ERROR_INVALID_PARAM;
+    }
+
+    if(skip > 0) {
+        uint8_t discard[64];
+        int discardLen = 0;
+        memset(discard, 0, sizeof(discard));
+        if(EVP_DecryptUpdate(ctx, discard, &discardLen, discard, (int)skip) != 1) {
+            return ENCODER_ERROR_CRYPTO;
+        }
+    }
+    return ENCODER_SUCCESS;
+}
+
+/**
+ * Init
+ */
+int decryptStreamInit(
+    DecryptStream* stream,
+    const uint8_t* key,
+    size_t keyLength,
+    EncryptionAlgo algo,
+    const uint8_t* iv,
+    size_t ivLength,
+    uint64_t offset,
+    int verify
+) {
+    if(!stream || !key || !iv || keyLength != 32) {
+        return ENCODER_ERROR_INVALID_PARAM;
+    }
+
+    stream->ctx = EVP_CIPHER_CTX_new();
+    stream->authenticated = verify && offset == 0;
+    stream->tagLength = getTagSize(algo);
+    if(!stream->ctx) return ENCODER_ERROR_MEMORY;
+
+    int result = ENCODER_SUCCESS;
+    if(stream->authenticated) {
+        if(EVP_DecryptInit_ex(stream->ctx, getCipher(algo), NULL, NULL, NULL) != 1 ||
+            EVP_CIPHER_CTX_ctrl(stream->ctx, EVP_CTRL_AEAD_SET_IVLEN, (int)ivLength, NULL) != 1 ||
+            EVP_DecryptInit_ex(stream->ctx, NULL, NULL, key, iv) != 1) {
+            result = ENCODER_ERROR_CRYPTO;
+        }
+    } else {
+        result = positionKeystream(stream->ctx, key, algo, iv, ivLength, offset);
+    }
+
+    if(result != ENCODER_SUCCESS) {
+        EVP_CIPHER_CTX_free(stream->ctx);
+        stream->ctx = NULL;
+    }
+    return result;
+}
+
+/**
+ * Update
+ */
+int decryptStreamUpdate(
+    DecryptStream* stream,
+    const uint8_t* input,
+    size_t inputLength,
+    uint8_t* output,
+    size_t* outputLength
+) {
+    if(!stream || !stream->ctx || !input || !output || !outputLength) {
+        return ENCODER_ERROR_INVALID_PARAM;
+    }
+
+    int outLen = 0;
+    if(EVP_DecryptUpdate(stream->ctx, output, &outLen, input, (int)inputLength) != 1) {
+        return ENCODER_ERROR_CRYPTO;
+    }
+    *outputLength = (size_t)outLen;
+    return ENCODER_SUCCESS;
+}
+
+/**
+ * Final
+ *
+ * Verifies the tag for streams that covered the whole ciphertext,
+ * positioned streams have nothing to verify.
+ */
+int decryptStreamFinal(DecryptStream* stream, const uint8_t* tag) {
+    if(!stream || !stream->ctx) return ENCODER_ERROR_INVALID_STATE;
+    if(!stream->authenticated) return ENCODER_SUCCESS;
+    if(!tag) return ENCODER_ERROR_INVALID_PARAM;
+
+    if(EVP_CIPHER_CTX_ctrl(
+        stream->ctx,
+        EVP_CTRL_AEAD_SET_TAG,
+        (int)stream->tagLength,
+        (void*)tag
+    ) != 1) {
+        return ENCODER_ERROR_CRYPTO;
+    }
+
+    uint8_t tail[16];
+    int tailLen = 0;
+    if(EVP_DecryptFinal_ex(stream->ctx, tail, &tailLen) != 1) {
+        return ENCODER_ERROR_CRYPTO;
+    }
+    return ENCODER_SUCCESS;
+}
+
+void decryptStreamFree(DecryptStream* stream) {
+    if(stream && stream->ctx) {
+        EVP_CIPHER_CTX_free(stream->ctx);
+        stream->ctx = NULL;
+    }
+}
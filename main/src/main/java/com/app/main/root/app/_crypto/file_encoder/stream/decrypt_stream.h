@@ -0,0 +1,35 @@
+#pragma once
+#include "../context.h"
+
+/**
+ * Incremental decryption of a stored blob (IV | ciphertext | tag).
+ * A verifying stream runs the AEAD cipher over the whole ciphertext
+ * and checks the tag at the end, any other stream runs the underlying
+ * keystream positioned at the requested offset, so byte ranges can
+ * be served without decrypting what comes before them.
+ */
+typedef struct {
+    EVP_CIPHER_CTX* ctx;
+    int authenticated;
+    size_t tagLength;
+} DecryptStream;
+
+int decryptStreamInit(
+    DecryptStream* stream,
+    const uint8_t* key,
+    size_t keyLength,
+    EncryptionAlgo algo,
+    const uint8_t* iv,
+    size_t ivLength,
+    uint64_t offset,
+    int verify
+);
+int decryptStreamUpdate(
+    DecryptStream* stream,
+    const uint8_t* input,
+    size_t inputLength,
+    uint8_t* output,
+    size_t* outputLength
+);
+int decryptStreamFinal(DecryptStream* stream, const uint8_t* tag);
+void decryptStreamFree(DecryptStream* stream);
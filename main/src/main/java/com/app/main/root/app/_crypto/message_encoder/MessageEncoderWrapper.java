@@ -128,9 +128,7 @@ public class MessageEncoderWrapper {
         if(!init) {
             throw new IllegalStateException("MessageEncoder not initialized");
         }
-        byte[] result = encryptMessage(recipientId, message.getBytes());
-        saveSessionsNow();
-        return result;
+        return encryptMessage(recipientId, message.getBytes());
     }
     
     public String decryptMessageToString(String senderId, byte[] ciphertext) {
@@ -138,7 +136,6 @@ public class MessageEncoderWrapper {
             throw new IllegalStateException("MessageEncoder not initialized");
         }
         byte[] plaintext = decryptMessage(senderId, ciphertext);
-        saveSessionsNow();
         return new String(plaintext);
     }
 
@@ -71,9 +71,7 @@ public class SecureMessageService {
             return false;
         }
 
-        boolean result = messageEncoder.initSession(recipientId, theirBundle);
-        if(result) messageEncoder.saveSessions();
-        return result;
+        return messageEncoder.initSession(recipientId, theirBundle);
     }
     
     public byte[] encryptMessage(String recipientId, String message) {
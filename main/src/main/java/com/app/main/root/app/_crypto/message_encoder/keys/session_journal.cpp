@@ -0,0 +1,205 @@
+#include "session_journal.h"
+#include <stdexcept>
+#include <fstream>
+#include <iostream>
+
+static uint32_t checksum(
+    uint8_t op,
+    const std::string& participantId,
+    const std::vector<unsigned char>& payload
+) {
+    uint32_t hash = 2166136261u;
+    hash = (hash ^ op) * 16777619u;
+    for(unsigned char c : participantId) hash = (hash ^ c) * 16777619u;
+    for(unsigned char c : payload) hash = (hash ^ c) * 16777619u;
+    return hash;
+}
+
+/**
+ * Byte Helpers
+ */
+void writeU32(std::vector<unsigned char>& data, uint32_t value) {
+    data.insert(
+        data.end(),
+        reinterpret_cast<const unsigned char*>(&value),
+        reinterpret_cast<const unsigned char*>(&value) + sizeof(value)
+    );
+}
+
+void writeBytes(std::vector<unsigned char>& data, const std::vector<unsigned char>& bytes) {
+    writeU32(data, static_cast<uint32_t>(bytes.size()));
+    data.insert(data.end(), bytes.begin(), bytes.end());
+}
+
+uint32_t readU32(const std::vector<unsigned char>& data, size_t& offset) {
+    uint32_t value;
+    if(offset + sizeof(value) > data.size()) throw std::runtime_error("Truncated journal payload");
+    std::copy(
+        data.begin() + offset,
+        data.begin() + offset + sizeof(value),
+        reinterpret_cast<unsigned char*>(&value)
+    );
+    offset += sizeof(value);
+    return value;
+}
+
+std::vector<unsigned char> readBytes(const std::vector<unsigned char>& data, size_t& offset) {
+    uint32_t len = readU32(data, offset);
+    if(offset + len > data.size()) throw std::runtime_error("Truncated journal payload");
+    std::vector<unsigned char> bytes(data.begin() + offset, data.begin() + offset + len);
+    offset += len;
+    return bytes;
+}
+
+SessionJournal::SessionJournal(const std::string& path) : path(path) {}
+
+SessionJournal::~SessionJournal() {
+    close();
+}
+
+/**
+ * Open
+ */
+bool SessionJournal::open() {
+    std::lock_guard<std::mutex> lock(mutex);
+    if(file) return true;
+
+    file = std::fopen(path.c_str(), "ab");
+    if(!file) {
+        std::cerr << "Failed to open session journal: " << path << std::endl;
+        return false;
+    }
+    std::fseek(file, 0, SEEK_END);
+    long end = std::ftell(file);
+    bytes = end > 0 ? static_cast<uint64_t>(end) : 0;
+    return true;
+}
+
+void SessionJournal::close() {
+    std::lock_guard<std::mutex> lock(mutex);
+    if(file) {
+        std::fflush(file);
+        std::fclose(file);
+        file = nullptr;
+    }
+}
+
+/**
+ * Append
+ */
+bool SessionJournal::append(
+    JournalOp op,
+    const std::string& participantId,
+    const std::vector<unsigned char>& payload
+) {
+    std::vector<unsigned char> record;
+    record.reserve(1 + 4 + participantId.size() + 4 + payload.size() + 4);
+    record.push_back(static_cast<unsigned char>(op));
+    writeU32(record, static_cast<uint32_t>(participantId.size()));
+    record.insert(record.end(), participantId.begin(), participantId.end());
+    writeBytes(record, payload);
+    writeU32(record, checksum(static_cast<uint8_t>(op), participantId, payload));
+
+    std::lock_guard<std::mutex> lock(mutex);
+    if(!file) return false;
+    if(std::fwrite(record.data(), 1, record.size(), file) != record.size()) {
+        std::cerr << "Failed to append to session journal: " << path << std::endl;
+        return false;
+    }
+    std::fflush(file);
+    bytes += record.size();
+    records++;
+    return true;
+}
+
+/**
+ * Rotate
+ *
+ * Moves the current journal aside so a snapshot can be written
+ * while new changes keep going to a fresh file. If a previous
+ * rotation was never compacted its file is extended instead.
+ */
+bool SessionJournal::rotate(const std::string& rotatedPath) {
+    std::lock_guard<std::mutex> lock(mutex);
+    if(file) {
+        std::fflush(file);
+        std::fclose(file);
+        file = nullptr;
+    }
+
+    bool ok = true;
+    std::ifstream rotated(rotatedPath, std::ios::binary);
+    bool hasRotated = rotated.good();
+    rotated.close();
+
+    if(hasRotated) {
+        std::ifstream in(path, std::ios::binary);
+        std::ofstream out(rotatedPath, std::ios::binary | std::ios::app);
+        if(in && out) out << in.rdbuf();
+        ok = static_cast<bool>(out);
+        in.close();
+        out.close();
+        if(ok) std::remove(path.c_str());
+    } else {
+        std::ifstream current(path, std::ios::binary);
+        bool hasCurrent = current.good();
+        current.close();
+        if(hasCurrent) ok = std::rename(path.c_str(), rotatedPath.c_str()) == 0;
+    }
+
+    file = std::fopen(path.c_str(), "ab");
+    if(!file) {
+        std::cerr << "Failed to reopen session journal: " << path << std::endl;
+        return false;
+    }
+    std::fseek(file, 0, SEEK_END);
+    long end = std::ftell(file);
+    bytes = end > 0 ? static_cast<uint64_t>(end) : 0;
+    return ok;
+}
+
+/**
+ * Replay
+ */
+bool SessionJournal::replay(
+    const std::string& path,
+    const std::function<void(JournalOp, const std::string&, const std::vector<unsigned char>&)>& apply
+) {
+    std::ifstream file(path, std::ios::binary);
+    if(!file) return false;
+
+    uint64_t applied = 0;
+    while(true) {
+        char op;
+        if(!file.read(&op, 1)) break;
+
+        uint32_t idLength;
+        if(!file.read(reinterpret_cast<char*>(&idLength), sizeof(idLength))) break;
+        if(idLength > (1u << 16)) break;
+        std::string participantId(idLength, '\0');
+        if(!file.read(&participantId[0], idLength)) break;
+
+        uint32_t payloadLength;
+        if(!file.read(reinterpret_cast<char*>(&payloadLength), sizeof(payloadLength))) break;
+        if(payloadLength > (1u << 26)) break;
+        std::vector<unsigned char> payload(payloadLength);
+        if(payloadLength > 0 && !file.read(reinterpret_cast<char*>(payload.data()), payloadLength)) break;
+
+        uint32_t stored;
+        if(!file.read(reinterpret_cast<char*>(&stored), sizeof(stored))) break;
+        if(stored != checksum(static_cast<uint8_t>(op), participantId, payload)) {
+            std::cerr << "Corrupt session journal record in " << path << ", stopping replay" << std::endl;
+            break;
+        }
+
+        try {
+            apply(static_cast<JournalOp>(op), participantId, payload);
+            applied++;
+        } catch(const std::exception& err) {
+            std::cerr << "Failed to apply session journal record: " << err.what() << std::endl;
+        }
+    }
+
+    std::cout << "Replayed " << applied << " session journal records from " << path << std::endl;
+    return true;
+}
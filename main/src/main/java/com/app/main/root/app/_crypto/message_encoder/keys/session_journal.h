@@ -0,0 +1,68 @@
+#ifndef SESSION_JOURNAL_H
+#define SESSION_JOURNAL_H
+
+#include <vector>
+#include <cstdint>
+#include <cstdio>
+#include <string>
+#include <mutex>
+#include <atomic>
+#include <functional>
+
+enum class JournalOp : uint8_t {
+    PUT = 1,
+    REMOVE = 2,
+    RATCHET = 3
+};
+
+/**
+ * Append-only log of session changes. Every record is
+ * [op][idLen][id][payloadLen][payload][checksum], replay stops
+ * at the first torn or corrupt record.
+ */
+class SessionJournal {
+private:
+    std::string path;
+    std::FILE* file = nullptr;
+    std::mutex mutex;
+    std::atomic<uint64_t> bytes{0};
+    std::atomic<uint64_t> records{0};
+
+public:
+    explicit SessionJournal(const std::string& path);
+    ~SessionJournal();
+
+    bool open();
+    void close();
+    bool append(
+        JournalOp op,
+        const std::string& participantId,
+        const std::vector<unsigned char>& payload
+    );
+    bool rotate(const std::string& rotatedPath);
+
+    uint64_t size() const {
+        return bytes.load();
+    }
+    uint64_t recordCount() const {
+        return records.load();
+    }
+    std::string getPath() const {
+        return path;
+    }
+
+    static bool replay(
+        const std::string& path,
+        const std::function<void(JournalOp, const std::string&, const std::vector<unsigned char>&)>& apply
+    );
+};
+
+/**
+ * Byte Helpers
+ */
+void writeU32(std::vector<unsigned char>& data, uint32_t value);
+void writeBytes(std::vector<unsigned char>& data, const std::vector<unsigned char>& bytes);
+uint32_t readU32(const std::vector<unsigned char>& data, size_t& offset);
+std::vector<unsigned char> readBytes(const std::vector<unsigned char>& data, size_t& offset);
+
+#endif
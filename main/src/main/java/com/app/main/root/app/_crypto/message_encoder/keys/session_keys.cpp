@@ -5,6 +5,8 @@
 #include <sstream>
 #include <iomanip>
 #include <cstdlib>
+#include <cstdio>
+#include <filesystem>
 
 std::string bytesToHex(const std::vector<unsigned char>& data) {
     std::stringstream ss;
@@ -45,6 +47,29 @@ static std::string getSessionKeysPath() {
     return "src/main/java/com/app/main/root/app/_crypto/message_encoder/keys/session-keys.dat";
 }
 
+static uint64_t getEnvNumber(const char* name, uint64_t fallback) {
+    const char* value = std::getenv(name);
+    if(value == nullptr || value[0] == '\0') return fallback;
+    char* end = nullptr;
+    unsigned long long parsed = std::strtoull(value, &end, 10);
+    return end != value ? static_cast<uint64_t>(parsed) : fallback;
+}
+
+/**
+ * Key Limits
+ */
+KeyLimits KeyLimits::fromEnv() {
+    KeyLimits limits;
+    limits.maxSkipped = static_cast<uint32_t>(getEnvNumber("SESSION_MAX_SKIPPED_KEYS", limits.maxSkipped));
+    limits.maxDecrypted = static_cast<uint32_t>(getEnvNumber("SESSION_MAX_DECRYPTED_KEYS", limits.maxDecrypted));
+
+    const char* policy = std::getenv("SESSION_KEY_EVICTION");
+    if(policy != nullptr && std::string(policy) == "window") {
+        limits.policy = KeyEvictionPolicy::WINDOW;
+    }
+    return limits;
+}
+
 /**
  * Serialize
  */
@@ -287,34 +312,113 @@ SessionKeys SessionKeys::deserialize(const std::vector<unsigned char>& data) {
     return session;
 }
 
-SessionManager::SessionManager() : storagePath(getSessionKeysPath()) {
+SessionManager::SessionManager() : SessionManager(getSessionKeysPath()) {}
+
+SessionManager::SessionManager(const std::string& storagePath) :
+    storagePath(storagePath),
+    journal(storagePath + ".journal"),
+    keyLimits(KeyLimits::fromEnv()),
+    compactThresholdBytes(getEnvNumber("SESSION_JOURNAL_MAX_BYTES", 4ull * 1024 * 1024)),
+    compactInterval(std::chrono::seconds(getEnvNumber("SESSION_COMPACT_INTERVAL_SECONDS", 60))) 
+{
     std::cout << "SessionManager initialized with path: " << storagePath << std::endl;
     loadSessions();
+    journal.open();
+    startCompactor();
 }
 
-SessionManager::SessionManager(const std::string& storagePath) : storagePath(storagePath) {
-    std::cout << "SessionManager initialized with custom path: " << storagePath << std::endl;
-    loadSessions();
+SessionManager::~SessionManager() {
+    {
+        std::lock_guard<std::mutex> lock(compactorMutex);
+        stopping = true;
+    }
+    compactorCv.notify_all();
+    if(compactor.joinable()) compactor.join();
+
+    if(journal.size() > 0) saveSessions();
+    journal.close();
+}
+
+/**
+ * Compactor
+ */
+void SessionManager::startCompactor() {
+    compactor = std::thread(&SessionManager::compactorLoop, this);
+}
+
+void SessionManager::compactorLoop() {
+    std::unique_lock<std::mutex> lock(compactorMutex);
+    while(!stopping) {
+        compactorCv.wait_for(lock, compactInterval);
+        if(stopping) break;
+        if(journal.size() == 0) continue;
+
+        lock.unlock();
+        saveSessions();
+        lock.lock();
+    }
+}
+
+void SessionManager::journalAppend(
+    JournalOp op,
+    const std::string& participantId,
+    const std::vector<unsigned char>& payload
+) {
+    journal.append(op, participantId, payload);
+    if(journal.size() >= compactThresholdBytes) compactorCv.notify_one();
 }
 
 /**
  * Save Session
+ *
+ * Compacts the journal into a full snapshot. The journal is
+ * rotated first so writers are never blocked by the snapshot,
+ * changes made while it is written stay in the new journal.
  */
 bool SessionManager::saveSessions() {
+    std::lock_guard<std::mutex> guard(compactionMutex);
+    std::string rotatedPath = journal.getPath() + ".old";
+
+    if(!journal.rotate(rotatedPath)) {
+        std::cerr << "Failed to rotate session journal" << std::endl;
+        return false;
+    }
+    if(!writeSnapshot()) return false;
+
+    std::remove(rotatedPath.c_str());
+    return true;
+}
+
+bool SessionManager::writeSnapshot() {
+    std::vector<std::pair<std::string, std::shared_ptr<SessionEntry>>> entries;
+    {
+        std::shared_lock<std::shared_mutex> lock(sessionsMutex);
+        entries.assign(sessions.begin(), sessions.end());
+    }
+
+    std::vector<std::pair<std::string, std::vector<unsigned char>>> snapshot;
+    snapshot.reserve(entries.size());
+    for(auto& pair : entries) {
+        std::lock_guard<std::mutex> lock(pair.second->lock);
+        if(pair.second->removed) continue;
+        snapshot.emplace_back(pair.first, pair.second->keys.serialize());
+    }
+
+    std::string tmpPath = storagePath + ".tmp";
     try {
-        std::ofstream file(storagePath, std::ios::binary);
+        std::ofstream file(tmpPath, std::ios::binary | std::ios::trunc);
         if(!file) {
-            std::cerr << "Failed to open session file for writing: " << storagePath << std::endl;
+            std::cerr << "Failed to open session file for writing: " << tmpPath << std::endl;
             return false;
         }
 
-        uint32_t sessionCount = sessions.size();
+        uint32_t sessionCount = snapshot.size();
         file.write(
             reinterpret_cast<const char*>(&sessionCount),
             sizeof(sessionCount)
         );
 
-        for(const auto& pair : sessions) {
+        for(const auto& pair : snapshot) {
             uint32_t idLength = pair.first.length();
             file.write(
                 reinterpret_cast<const char*>(&idLength),
@@ -325,20 +429,21 @@ bool SessionManager::saveSessions() {
                 idLength
             );
 
-            auto sessionData = pair.second.serialize();
-            uint32_t dataLength = sessionData.size();
+            uint32_t dataLength = pair.second.size();
             file.write(
                 reinterpret_cast<const char*>(&dataLength),
                 sizeof(dataLength)
             );
             file.write(
-                reinterpret_cast<const char*>(sessionData.data()),
+                reinterpret_cast<const char*>(pair.second.data()),
                 dataLength
             );
         }
 
         file.close();
-        //std::cout << "Saved " << sessions.size() << " sessions to " << storagePath << std::endl;
+        if(!file) throw std::runtime_error("Write failed");
+        std::filesystem::rename(tmpPath, storagePath);
+        //std::cout << "Saved " << snapshot.size() << " sessions to " << storagePath << std::endl;
         return true;
     } catch(const std::exception& err) {
         std::cerr << "Failed to save sessions: " << err.what() << std::endl;
@@ -348,79 +453,236 @@ bool SessionManager::saveSessions() {
 
 /**
  * Load Session
+ *
+ * Reads the last snapshot and replays any journal written after
+ * it, a rotated journal left by an interrupted compaction first.
  */
 bool SessionManager::loadSessions() {
+    std::lock_guard<std::mutex> guard(compactionMutex);
+    std::unordered_map<std::string, SessionKeys> loaded;
+    bool found = false;
+
     try {
         std::ifstream file(storagePath, std::ios::binary);
         if(!file) {
             std::cout << "No existing session file found at: " << storagePath << " (will be created on first save)" << std::endl;
-            return false;
-        }
-        sessions.clear();
-
-        uint32_t sessionCount;
-        file.read(
-            reinterpret_cast<char*>(&sessionCount),
-            sizeof(sessionCount)
-        );
-
-        for(uint32_t i = 0; i < sessionCount; i++) {
-            uint32_t idLength;
-            file.read(
-                reinterpret_cast<char*>(&idLength),
-                sizeof(idLength)
-            );
-
-            std::string participantId(idLength, '\0');
-            file.read(&participantId[0], idLength);
-
-            uint32_t dataLength;
-            file.read(
-                reinterpret_cast<char*>(&dataLength),
-                sizeof(dataLength)
-            );
-
-            std::vector<unsigned char> sessionData(dataLength);
+        } else {
+            uint32_t sessionCount;
             file.read(
-                reinterpret_cast<char*>(sessionData.data()),
-                dataLength
+                reinterpret_cast<char*>(&sessionCount),
+                sizeof(sessionCount)
             );
 
-            SessionKeys session = SessionKeys::deserialize(sessionData);
-            sessions[participantId] = session;
+            for(uint32_t i = 0; i < sessionCount && file; i++) {
+                uint32_t idLength;
+                file.read(
+                    reinterpret_cast<char*>(&idLength),
+                    sizeof(idLength)
+                );
+
+                std::string participantId(idLength, '\0');
+                file.read(&participantId[0], idLength);
+
+                uint32_t dataLength;
+                file.read(
+                    reinterpret_cast<char*>(&dataLength),
+                    sizeof(dataLength)
+                );
+
+                std::vector<unsigned char> sessionData(dataLength);
+                file.read(
+                    reinterpret_cast<char*>(sessionData.data()),
+                    dataLength
+                );
+
+                loaded[participantId] = SessionKeys::deserialize(sessionData);
+            }
+            file.close();
+            found = true;
         }
-
-        file.close();
-        std::cout << "Loaded " << sessions.size() << " sessions from " << storagePath << std::endl;
-        return true;
     } catch(const std::exception& err) {
         std::cerr << "Failed to load sessions: " << err.what() << std::endl;
-        sessions.clear();
-        return false;
+        loaded.clear();
+    }
+
+    auto apply = [&](JournalOp op, const std::string& participantId, const std::vector<unsigned char>& payload) {
+        switch(op) {
+            case JournalOp::PUT:
+                loaded[participantId] = SessionKeys::deserialize(payload);
+                break;
+            case JournalOp::REMOVE:
+                loaded.erase(participantId);
+                break;
+            case JournalOp::RATCHET: {
+                auto it = loaded.find(participantId);
+                if(it == loaded.end()) break;
+                SessionKeys& keys = it->second;
+                size_t offset = 0;
+                keys.chainKeySend = readBytes(payload, offset);
+                keys.chainKeyReceive = readBytes(payload, offset);
+                keys.messageCountSend = readU32(payload, offset);
+                keys.messageCountReceive = readU32(payload, offset);
+                for(uint32_t n = readU32(payload, offset); n > 0; n--) {
+                    uint32_t counter = readU32(payload, offset);
+                    keys.skippedMessageKeys[counter] = readBytes(payload, offset);
+                }
+                for(uint32_t n = readU32(payload, offset); n > 0; n--) {
+                    uint32_t counter = readU32(payload, offset);
+                    keys.decryptedMessageKeys[counter] = readBytes(payload, offset);
+                }
+                for(uint32_t n = readU32(payload, offset); n > 0; n--) {
+                    keys.skippedMessageKeys.erase(readU32(payload, offset));
+                }
+                for(uint32_t n = readU32(payload, offset); n > 0; n--) {
+                    keys.decryptedMessageKeys.erase(readU32(payload, offset));
+                }
+                break;
+            }
+        }
+    };
+    if(SessionJournal::replay(journal.getPath() + ".old", apply)) found = true;
+    if(SessionJournal::replay(journal.getPath(), apply)) found = true;
+
+    std::unique_lock<std::shared_mutex> lock(sessionsMutex);
+    for(auto& pair : sessions) {
+        std::lock_guard<std::mutex> entryLock(pair.second->lock);
+        pair.second->removed = true;
+    }
+    sessions.clear();
+
+    for(auto& pair : loaded) {
+        auto entry = std::make_shared<SessionEntry>();
+        entry->keys = std::move(pair.second);
+        SessionDelta ignored;
+        enforceKeyLimits(entry->keys, ignored);
+        sessions[pair.first] = entry;
     }
+
+    std::cout << "Loaded " << sessions.size() << " sessions from " << storagePath << std::endl;
+    return found;
 }
 
 bool SessionManager::hasSession(const std::string& participantId) {
+    std::shared_lock<std::shared_mutex> lock(sessionsMutex);
     return sessions.find(participantId) != sessions.end();
 }
 
-SessionKeys& SessionManager::getSession(const std::string& participantId) {
+std::shared_ptr<SessionEntry> SessionManager::getEntry(const std::string& participantId) {
+    std::shared_lock<std::shared_mutex> lock(sessionsMutex);
     auto it = sessions.find(participantId);
-    if(it == sessions.end()) {
-        throw std::runtime_error("No session found for participant: " + participantId);
-    }
-    return it->second;
+    return it != sessions.end() ? it->second : nullptr;
 }
 
 void SessionManager::createSession(
     const std::string& participantId, 
     const SessionKeys& keys
 ) {
-    sessions[participantId] = keys;
-    saveSessions();
+    auto entry = std::make_shared<SessionEntry>();
+    entry->keys = keys;
+    std::lock_guard<std::mutex> entryLock(entry->lock);
+
+    {
+        std::unique_lock<std::shared_mutex> lock(sessionsMutex);
+        auto it = sessions.find(participantId);
+        if(it != sessions.end()) {
+            std::lock_guard<std::mutex> previousLock(it->second->lock);
+            it->second->removed = true;
+        }
+        sessions[participantId] = entry;
+    }
+    journalAppend(JournalOp::PUT, participantId, entry->keys.serialize());
 }
 
 void SessionManager::removeSession(const std::string& participantId) {
-    sessions.erase(participantId);
-    saveSessions();
-}
\ No newline at end of file
+    std::shared_ptr<SessionEntry> entry;
+    {
+        std::unique_lock<std::shared_mutex> lock(sessionsMutex);
+        auto it = sessions.find(participantId);
+        if(it == sessions.end()) return;
+        entry = it->second;
+        sessions.erase(it);
+    }
+
+    std::lock_guard<std::mutex> entryLock(entry->lock);
+    entry->removed = true;
+    journalAppend(JournalOp::REMOVE, participantId, {});
+}
+
+/**
+ * Journal Records
+ *
+ * Both must be called with the session entry lock held so the
+ * journal order for a session matches the order of its changes.
+ */
+void SessionManager::recordSession(const std::string& participantId, const SessionKeys& keys) {
+    journalAppend(JournalOp::PUT, participantId, keys.serialize());
+}
+
+void SessionManager::recordRatchet(
+    const std::string& participantId,
+    const SessionKeys& keys,
+    const SessionDelta& delta
+) {
+    std::vector<unsigned char> payload;
+    writeBytes(payload, keys.chainKeySend);
+    writeBytes(payload, keys.chainKeyReceive);
+    writeU32(payload, keys.messageCountSend);
+    writeU32(payload, keys.messageCountReceive);
+
+    writeU32(payload, static_cast<uint32_t>(delta.addedSkipped.size()));
+    for(const auto& pair : delta.addedSkipped) {
+        writeU32(payload, pair.first);
+        writeBytes(payload, pair.second);
+    }
+    writeU32(payload, static_cast<uint32_t>(delta.addedDecrypted.size()));
+    for(const auto& pair : delta.addedDecrypted) {
+        writeU32(payload, pair.first);
+        writeBytes(payload, pair.second);
+    }
+    writeU32(payload, static_cast<uint32_t>(delta.droppedSkipped.size()));
+    for(uint32_t counter : delta.droppedSkipped) writeU32(payload, counter);
+    writeU32(payload, static_cast<uint32_t>(delta.droppedDecrypted.size()));
+    for(uint32_t counter : delta.droppedDecrypted) writeU32(payload, counter);
+
+    journalAppend(JournalOp::RATCHET, participantId, payload);
+}
+
+/**
+ * Enforce Key Limits
+ */
+static void evictKeys(
+    std::map<uint32_t, std::vector<unsigned char>>& keys,
+    uint32_t limit,
+    KeyEvictionPolicy policy,
+    uint32_t current,
+    std::vector<uint32_t>& dropped
+) {
+    if(policy == KeyEvictionPolicy::WINDOW) {
+        uint32_t floor = current > limit ? current - limit : 0;
+        while(!keys.empty() && keys.begin()->first < floor) {
+            dropped.push_back(keys.begin()->first);
+            keys.erase(keys.begin());
+        }
+    }
+    while(keys.size() > limit) {
+        dropped.push_back(keys.begin()->first);
+        keys.erase(keys.begin());
+    }
+}
+
+void SessionManager::enforceKeyLimits(SessionKeys& keys, SessionDelta& delta) const {
+    evictKeys(
+        keys.skippedMessageKeys,
+        keyLimits.maxSkipped,
+        keyLimits.policy,
+        keys.messageCountReceive,
+        delta.droppedSkipped
+    );
+    evictKeys(
+        keys.decryptedMessageKeys,
+        keyLimits.maxDecrypted,
+        keyLimits.policy,
+        keys.messageCountReceive,
+        delta.droppedDecrypted
+    );
+}
@@ -1,10 +1,18 @@
 #ifndef SESSION_KEYS_H
 #define SESSION_KEYS_H
 
+#include "session_journal.h"
 #include <vector>
 #include <cstdint>
 #include <string>
 #include <map>
+#include <memory>
+#include <mutex>
+#include <shared_mutex>
+#include <unordered_map>
+#include <thread>
+#include <condition_variable>
+#include <chrono>
 
 struct SessionKeys {
     std::vector<unsigned char> rootKey;
@@ -18,28 +26,97 @@ struct SessionKeys {
     static SessionKeys deserialize(const std::vector<unsigned char>& data);
 };
 
+/**
+ * Keys added or dropped by one ratchet step, journaled
+ * instead of the whole session.
+ */
+struct SessionDelta {
+    std::vector<std::pair<uint32_t, std::vector<unsigned char>>> addedSkipped;
+    std::vector<std::pair<uint32_t, std::vector<unsigned char>>> addedDecrypted;
+    std::vector<uint32_t> droppedSkipped;
+    std::vector<uint32_t> droppedDecrypted;
+};
+
+struct SessionEntry {
+    std::mutex lock;
+    SessionKeys keys;
+    bool removed = false;
+};
+
+enum class KeyEvictionPolicy {
+    OLDEST,
+    WINDOW
+};
+
+/**
+ * Limits for the skipped/decrypted key maps. OLDEST drops the
+ * lowest counters once a map is over its size, WINDOW drops keys
+ * whose counter is more than the limit behind the receive chain.
+ */
+struct KeyLimits {
+    uint32_t maxSkipped = 1000;
+    uint32_t maxDecrypted = 2000;
+    KeyEvictionPolicy policy = KeyEvictionPolicy::OLDEST;
+    static KeyLimits fromEnv();
+};
+
 class SessionManager {
 private:
-    std::map<std::string, SessionKeys> sessions;
+    std::unordered_map<std::string, std::shared_ptr<SessionEntry>> sessions;
+    mutable std::shared_mutex sessionsMutex;
     std::string storagePath;
+    SessionJournal journal;
+    KeyLimits keyLimits;
+
+    std::mutex compactionMutex;
+    std::thread compactor;
+    std::mutex compactorMutex;
+    std::condition_variable compactorCv;
+    bool stopping = false;
+    uint64_t compactThresholdBytes;
+    std::chrono::seconds compactInterval;
+
+    void startCompactor();
+    void compactorLoop();
+    bool writeSnapshot();
+    void journalAppend(
+        JournalOp op,
+        const std::string& participantId,
+        const std::vector<unsigned char>& payload
+    );
 
 public:
     SessionManager();
     SessionManager(const std::string& storagePath);
+    ~SessionManager();
     
     bool hasSession(const std::string& participantId);
-    SessionKeys& getSession(const std::string& participantId);
+    std::shared_ptr<SessionEntry> getEntry(const std::string& participantId);
     void createSession(
         const std::string& participantId, 
         const SessionKeys& keys
     );
     void removeSession(const std::string& participantId);
 
+    void recordSession(const std::string& participantId, const SessionKeys& keys);
+    void recordRatchet(
+        const std::string& participantId,
+        const SessionKeys& keys,
+        const SessionDelta& delta
+    );
+    void enforceKeyLimits(SessionKeys& keys, SessionDelta& delta) const;
+    const KeyLimits& getKeyLimits() const {
+        return keyLimits;
+    }
+
     bool saveSessions();
     bool loadSessions();
     std::string getStoragePath() const {
         return storagePath;
     }
+    uint64_t getJournalSize() const {
+        return journal.size();
+    }
 };
 
 #endif
\ No newline at end of file
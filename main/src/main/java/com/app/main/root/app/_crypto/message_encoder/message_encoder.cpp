@@ -34,6 +34,7 @@ std::vector<unsigned char> MessageEncoder::getIdentityPublicKey() {
 }
 
 PreKeyBundle MessageEncoder::getPreKeyBundle() {
+    std::lock_guard<std::mutex> lock(preKeyMutex);
     return preKeyManager.getPreKeyBundle(identityManager.getPublicKey());
 }
 
@@ -52,10 +53,7 @@ bool MessageEncoder::initSession(
     const std::string& recipientId,
     const PreKeyBundle& bundle
 ) {
-    std::lock_guard<std::mutex> lock(sessionMutex);
-
     try {
-        if(sessionManager.hasSession(recipientId)) sessionManager.removeSession(recipientId);
 
         EC_KEY* identityKeyPublic = CryptoOperations::deserializePublicKey(bundle.identityKey);
         EC_KEY* signedPreKeyPublic = CryptoOperations::deserializePublicKey(bundle.signedPreKey);
@@ -114,10 +112,9 @@ bool MessageEncoder::initSession(
         EC_KEY_free(signedPreKeyPublic);
         EC_KEY_free(ourEphemeralKey);
         if(!bundle.preKey.empty() && bundle.preKeyId != 0) {
+            std::lock_guard<std::mutex> lock(preKeyMutex);
             preKeyManager.removePreKey(bundle.preKeyId);
         }
-                  
-        sessionManager.saveSessions();
         return true;
     } catch(const std::exception& err) {
         std::cerr << "Session initialization failed for " << recipientId << ": " << err.what() << std::endl;
@@ -134,10 +131,15 @@ bool MessageEncoder::loadSessions() {
 }
 
 void MessageEncoder::performKeyRotation(const std::string& recipientId) {
-    if(!sessionManager.hasSession(recipientId)) {
+    auto entry = sessionManager.getEntry(recipientId);
+    if(!entry) {
+        throw std::runtime_error("No session found for key rotation: " + recipientId);
+    }
+    std::lock_guard<std::mutex> lock(entry->lock);
+    if(entry->removed) {
         throw std::runtime_error("No session found for key rotation: " + recipientId);
     }
-    SessionKeys& session = sessionManager.getSession(recipientId);
+    SessionKeys& session = entry->keys;
 
     EC_KEY* newDhKey = CryptoOperations::generateECKey();
     if(!newDhKey) {
@@ -154,6 +156,9 @@ void MessageEncoder::performKeyRotation(const std::string& recipientId) {
         session.chainKeyReceive = session.chainKeySend;
         session.messageCountSend = 0;
         session.messageCountReceive = 0;
+        session.skippedMessageKeys.clear();
+        session.decryptedMessageKeys.clear();
+        sessionManager.recordSession(recipientId, session);
         
         EC_KEY_free(newDhKey);
     } catch(...) {
@@ -166,12 +171,15 @@ std::vector<unsigned char> MessageEncoder::encryptMessage(
     const std::string& recipientId,
     const std::vector<unsigned char>& plainText
 ) {
-    std::lock_guard<std::mutex> lock(sessionMutex);
-    
-    if(!sessionManager.hasSession(recipientId)) {
+    auto entry = sessionManager.getEntry(recipientId);
+    if(!entry) {
+        throw std::runtime_error("No session found for recipient: " + recipientId);
+    }
+    std::lock_guard<std::mutex> lock(entry->lock);
+    if(entry->removed) {
         throw std::runtime_error("No session found for recipient: " + recipientId);
     }
-    SessionKeys& session = sessionManager.getSession(recipientId);
+    SessionKeys& session = entry->keys;
     
     auto keys = KeyDerivation::KDF_CK(session.chainKeySend);
     if(keys.size() < 64) throw std::runtime_error("Invalid key derivation output");
@@ -194,7 +202,7 @@ std::vector<unsigned char> MessageEncoder::encryptMessage(
     );
     result.insert(result.end(), encrypted.begin(), encrypted.end());
 
-    sessionManager.saveSessions();
+    sessionManager.recordRatchet(recipientId, session, SessionDelta());
     return result;
 }
 
@@ -202,12 +210,16 @@ std::vector<unsigned char> MessageEncoder::decryptMessage(
     const std::string& senderId,
     const std::vector<unsigned char>& cipherText
 ) {
-    std::lock_guard<std::mutex> lock(sessionMutex);
-
-    if(!sessionManager.hasSession(senderId)) {
+    auto entry = sessionManager.getEntry(senderId);
+    if(!entry) {
+        throw std::runtime_error("No session found for sender: " + senderId);
+    }
+    std::lock_guard<std::mutex> lock(entry->lock);
+    if(entry->removed) {
         throw std::runtime_error("No session found for sender: " + senderId);
     }
-    SessionKeys& session = sessionManager.getSession(senderId);
+    SessionKeys& session = entry->keys;
+    SessionDelta delta;
 
     if(cipherText.size() < sizeof(uint32_t)) {
         throw std::runtime_error("Ciphertext too short for counter");
@@ -230,53 +242,76 @@ std::vector<unsigned char> MessageEncoder::decryptMessage(
         throw std::runtime_error("Encrypted data too short");
     }
 
+    /*
+     * The counter is not authenticated, so the ratchet step is worked
+     * out on the side and applied only once the tag checks out. A
+     * forged counter leaves the session and the journal untouched.
+     */
     std::vector<unsigned char> messageKey;
+    std::vector<unsigned char> nextChainKey;
+    bool advances = false;
+    bool cached = false;
     auto decryptedIt = session.decryptedMessageKeys.find(messageCounter);
     if(decryptedIt != session.decryptedMessageKeys.end()) {
         messageKey = decryptedIt->second;
-    } else {
-        if(messageCounter == session.messageCountReceive + 1) {
-            auto keys = KeyDerivation::KDF_CK(session.chainKeyReceive);
+        cached = true;
+    } else if(messageCounter == session.messageCountReceive + 1) {
+        auto keys = KeyDerivation::KDF_CK(session.chainKeyReceive);
+        if(keys.size() < 64) {
+            throw std::runtime_error("Key derivation failed");
+        }
+        messageKey = std::vector<unsigned char>(keys.begin(), keys.begin() + 32);
+        nextChainKey = std::vector<unsigned char>(keys.begin() + 32, keys.end());
+        advances = true;
+    } else if(messageCounter > session.messageCountReceive + 1) {
+        /* Keys below this would be evicted by the skipped-key limit right away */
+        uint32_t maxSkipped = sessionManager.getKeyLimits().maxSkipped;
+        uint32_t firstKept = messageCounter > maxSkipped ? messageCounter - maxSkipped : 0;
+
+        std::vector<unsigned char> currentChainKey = session.chainKeyReceive;
+        for(uint32_t i = session.messageCountReceive + 1; i <= messageCounter; i++) {
+            auto keys = KeyDerivation::KDF_CK(currentChainKey);
             if(keys.size() < 64) {
-                throw std::runtime_error("Key derivation failed");
+                throw std::runtime_error("Key derivation failed at step " + std::to_string(i));
             }
-            messageKey = std::vector<unsigned char>(keys.begin(), keys.begin() + 32);
-            session.chainKeyReceive = std::vector<unsigned char>(keys.begin() + 32, keys.end());
-            session.messageCountReceive = messageCounter;
-        } else if(messageCounter > session.messageCountReceive + 1) {
-            std::vector<unsigned char> currentChainKey = session.chainKeyReceive;
-            for(uint32_t i = session.messageCountReceive + 1; i <= messageCounter; i++) {
-                auto keys = KeyDerivation::KDF_CK(currentChainKey);
-                if(keys.size() < 64) {
-                    throw std::runtime_error("Key derivation failed at step " + std::to_string(i));
-                }
-                auto currentMessageKey = std::vector<unsigned char>(keys.begin(), keys.begin() + 32);
-                currentChainKey = std::vector<unsigned char>(keys.begin() + 32, keys.end());
-                if(i < messageCounter) {
-                    session.skippedMessageKeys[i] = currentMessageKey;
-                } else {
-                    messageKey = currentMessageKey;
-                }
-            }
-            session.chainKeyReceive = currentChainKey;
-            session.messageCountReceive = messageCounter;
-        } else if(messageCounter <= session.messageCountReceive) {
-            auto skippedIt = session.skippedMessageKeys.find(messageCounter);
-            if(skippedIt != session.skippedMessageKeys.end()) {
-                messageKey = skippedIt->second;
+            auto currentMessageKey = std::vector<unsigned char>(keys.begin(), keys.begin() + 32);
+            currentChainKey = std::vector<unsigned char>(keys.begin() + 32, keys.end());
+            if(i < messageCounter) {
+                if(i >= firstKept) delta.addedSkipped.emplace_back(i, currentMessageKey);
             } else {
-                throw std::runtime_error("Duplicate message or missing key for counter: " + std::to_string(messageCounter));
+                messageKey = currentMessageKey;
             }
         }
-        session.decryptedMessageKeys[messageCounter] = messageKey;
+        nextChainKey = currentChainKey;
+        advances = true;
+    } else {
+        auto skippedIt = session.skippedMessageKeys.find(messageCounter);
+        if(skippedIt != session.skippedMessageKeys.end()) {
+            messageKey = skippedIt->second;
+        } else {
+            throw std::runtime_error("Duplicate message or missing key for counter: " + std::to_string(messageCounter));
+        }
     }
 
     auto decrypted = AESOperations::aesGcmDecrypt(encryptedData, messageKey, {});
+
+    if(!cached) {
+        if(advances) {
+            for(const auto& skipped : delta.addedSkipped) {
+                session.skippedMessageKeys[skipped.first] = skipped.second;
+            }
+            session.chainKeyReceive = nextChainKey;
+            session.messageCountReceive = messageCounter;
+        }
+        session.decryptedMessageKeys[messageCounter] = messageKey;
+        delta.addedDecrypted.emplace_back(messageCounter, messageKey);
+        sessionManager.enforceKeyLimits(session, delta);
+        sessionManager.recordRatchet(senderId, session, delta);
+    }
     if(decrypted.empty()) throw std::runtime_error("Decryption returned empty data");
 
     //std::cout << "Successfully decrypted message from " << senderId << " with counter " << messageCounter << std::endl;
 
-    sessionManager.saveSessions();
     return decrypted;
 }
 
@@ -363,11 +398,9 @@ bool MessageEncoder::hasActiveSession(const std::string& participantId) {
 }
 
 bool MessageEncoder::saveSessionsNow() {
-    std::lock_guard<std::mutex> lock(sessionMutex);
     return sessionManager.saveSessions();
 }
 
 bool MessageEncoder::loadSessionsNow() {
-    std::lock_guard<std::mutex> lock(sessionMutex);
     return sessionManager.loadSessions();
 }
\ No newline at end of file
@@ -14,7 +14,7 @@
 
 class MessageEncoder {
 private:
-    std::mutex sessionMutex;
+    std::mutex preKeyMutex;
     IdentityKeyManager identityManager;
     PreKeyManager preKeyManager;
     SessionManager sessionManager;
@@ -100,6 +100,8 @@ public class PasswordEncoderWrapper {
         }
     }
     
+    public static final int DEFAULT_ITERATIONS = 1000;
+
     private long nativePtr;
     private final Object lock = new Object();
 
@@ -110,24 +112,50 @@ public class PasswordEncoderWrapper {
 
     private native long createNativeObject();
     private native void destroyNativeObject(long nativePtr);
-    private native String encodeNative(long nativePtr, String password);
+    private native String encodeNative(long nativePtr, String password, int iterations);
     private native boolean matchesNative(long nativePtr, String password, String encodedPassword);
     private native boolean isPasswordStrongNative(long nativePtr, String password);
     private native String generateSecurePasswordNative(long nativePtr, int length);
 
-    public String encode(String password) {
+    /**
+     * Encode
+     *
+     * The native encoder only reads its pepper after construction, so
+     * encode and matches run without the lock and scale with callers.
+     */
+    public String encode(String password, int iterations) {
         if(password == null || password.trim().isEmpty()) {
             throw new IllegalArgumentException("Password cannot be empty");
         }
-        synchronized(lock) {
-            return encodeNative(nativePtr, password);
-        }
+        String encoded = encodeNative(nativePtr, password, iterations);
+        if(encoded == null) throw new IllegalStateException("Password encoding failed");
+        return encoded;
+    }
+
+    public String encode(String password) {
+        return encode(password, DEFAULT_ITERATIONS);
     }
 
     public boolean matches(String password, String encodedPassword) {
         if(password == null || encodedPassword == null) return false;
-        synchronized(lock) {
-            return matchesNative(nativePtr, password, encodedPassword);
+        return matchesNative(nativePtr, password, encodedPassword);
+    }
+
+    /**
+     * Iterations
+     *
+     * Cost stored in an encoded hash (version$iterations$salt$hash),
+     * -1 if it cannot be read.
+     */
+    public static int iterationsOf(String encodedPassword) {
+        if(encodedPassword == null) return -1;
+        int first = encodedPassword.indexOf('$');
+        int second = first < 0 ? -1 : encodedPassword.indexOf('$', first + 1);
+        if(second < 0) return -1;
+        try {
+            return Integer.parseInt(encodedPassword.substring(first + 1, second));
+        } catch(NumberFormatException err) {
+            return -1;
         }
     }
 
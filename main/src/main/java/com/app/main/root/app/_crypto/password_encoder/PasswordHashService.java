@@ -0,0 +1,214 @@
+package com.app.main.root.app._crypto.password_encoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing off the request and STOMP threads. Hashes are
+ * computed on a fixed pool with a bounded queue, so a login storm
+ * costs at most the pool's CPUs. Work that does not fit the queue is
+ * rejected right away, and work that waited past the timeout is
+ * dropped before it is hashed since its caller has already given up.
+ *
+ * Every future ends within its timeout, login checks within the
+ * shorter loginTimeoutMs. A timeout or a full queue fails it with
+ * RejectedExecutionException, so callers can answer with a retry.
+ * Futures complete on virtual threads, not the hash pool, so work a
+ * caller chains onto them does not take a hashing thread.
+ *
+ * New hashes use the configured iteration count. Stored hashes carry
+ * their own count and are checked with it, needsRehash tells when a
+ * login should store a fresh hash.
+ */
+@Component
+public class PasswordHashService {
+    private final PasswordEncoderWrapper passwordEncoder;
+    private final int threads;
+    private final int queueCapacity;
+    private final long timeoutMs;
+    private final long loginTimeoutMs;
+    private final int iterations;
+    private ThreadPoolExecutor executor;
+    private ExecutorService callbacks;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+
+    public PasswordHashService(
+        @Lazy PasswordEncoderWrapper passwordEncoder,
+        @Value("${app.password.hash.threads:0}") int threads,
+        @Value("${app.password.hash.queueCapacity:256}") int queueCapacity,
+        @Value("${app.password.hash.timeoutMs:10000}") long timeoutMs,
+        @Value("${app.password.hash.loginTimeoutMs:2000}") long loginTimeoutMs,
+        @Value("${app.password.hash.iterations:1000}") int iterations
+    ) {
+        this.passwordEncoder = passwordEncoder;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.timeoutMs = timeoutMs;
+        this.loginTimeoutMs = Math.min(loginTimeoutMs, timeoutMs);
+        this.iterations = iterations;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            task -> {
+                Thread thread = new Thread(task, "password-hash-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        callbacks = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("password-hash-done-", 0).factory());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if(executor != null) executor.shutdownNow();
+        if(callbacks != null) callbacks.shutdown();
+    }
+
+    /**
+     * Encode
+     */
+    public CompletableFuture<String> encode(String password) {
+        int cost = iterations;
+        return submit(() -> passwordEncoder.encode(password, cost), timeoutMs);
+    }
+
+    /**
+     * Matches
+     *
+     * Bounded by loginTimeoutMs, a login waiting on a saturated pool
+     * is better told to retry than held open.
+     */
+    public CompletableFuture<Boolean> matches(String password, String encodedPassword) {
+        if(password == null || encodedPassword == null) return CompletableFuture.completedFuture(false);
+        return submit(() -> passwordEncoder.matches(password, encodedPassword), loginTimeoutMs);
+    }
+
+    /**
+     * Needs Rehash
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return PasswordEncoderWrapper.iterationsOf(encodedPassword) != iterations;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> hash, long timeoutMs) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        long deadline = queuedAt + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        submitted.increment();
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                queueNanos.add(start - queuedAt);
+                if(future.isDone() || start - deadline > 0) {
+                    expired.increment();
+                    future.completeExceptionally(new TimeoutException("Password hash waited too long"));
+                    return;
+                }
+                try {
+                    future.complete(hash.get());
+                    completed.increment();
+                } catch(Exception err) {
+                    failed.increment();
+                    future.completeExceptionally(err);
+                } finally {
+                    hashNanos.add(System.nanoTime() - start);
+                }
+            });
+        } catch(RejectedExecutionException err) {
+            rejected.increment();
+            future.completeExceptionally(new RejectedExecutionException("Password hashing is busy, try again"));
+        }
+        return future
+            .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .handleAsync((result, err) -> {
+                if(err == null) return result;
+                Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+                if(cause instanceof TimeoutException) {
+                    throw new RejectedExecutionException("Password hashing timed out, try again");
+                }
+                if(cause instanceof RuntimeException runtime) throw runtime;
+                throw new CompletionException(cause);
+            }, callbacks);
+    }
+
+    /**
+     * Await
+     *
+     * Waits for a hash on the calling thread, the future itself is
+     * already bounded by its timeout.
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch(InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for password hash", err);
+        } catch(ExecutionException err) {
+            Throwable cause = err.getCause() != null ? err.getCause() : err;
+            if(cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        long done = completed.sum() + failed.sum();
+        long started = done + expired.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", threads);
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("iterations", iterations);
+        stats.put("timeoutMs", timeoutMs);
+        stats.put("loginTimeoutMs", loginTimeoutMs);
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("expired", expired.sum());
+        stats.put("avgQueueMicros", started > 0 ? queueNanos.sum() / started / 1000 : 0);
+        stats.put("avgHashMicros", done > 0 ? hashNanos.sum() / done / 1000 : 0);
+        return stats;
+    }
+}
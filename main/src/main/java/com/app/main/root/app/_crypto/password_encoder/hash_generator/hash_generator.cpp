@@ -5,15 +5,19 @@
 
 std::vector<unsigned char> HashGenerator::generateSecureHash(
     const std::vector<unsigned char>& pepperedPassword,
-    const std::vector<unsigned char>& salt
+    const std::vector<unsigned char>& salt,
+    int iterations
 ) {
+    if(iterations < 1 || iterations > MAX_ITERATIONS) {
+        throw std::invalid_argument("PBKDF2 iterations out of range");
+    }
     std::vector<unsigned char> key(HASH_KEY_LENGTH / 8);
     if(PKCS5_PBKDF2_HMAC(
        reinterpret_cast<const char*>(pepperedPassword.data()),
        static_cast<int>(pepperedPassword.size()),
        salt.data(),
        static_cast<int>(salt.size()),
-       HASH_ITERATIONS,
+       iterations,
        EVP_sha512(),
        static_cast<int>(key.size()),
        key.data()) != 1
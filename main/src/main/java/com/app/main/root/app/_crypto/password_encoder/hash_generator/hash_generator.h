@@ -7,12 +7,15 @@
 class HashGenerator {
 private:
     static const int HASH_KEY_LENGTH = 128;
-    static const int HASH_ITERATIONS = 1000;
 
 public:
+    static const int DEFAULT_ITERATIONS = 1000;
+    static const int MAX_ITERATIONS = 10000000;
+
     static std::vector<unsigned char> generateSecureHash(
         const std::vector<unsigned char>& pepperedPassword,
-        const std::vector<unsigned char>& salt
+        const std::vector<unsigned char>& salt,
+        int iterations = DEFAULT_ITERATIONS
     );
     
     static std::vector<unsigned char> applyMemoryHardFunction(
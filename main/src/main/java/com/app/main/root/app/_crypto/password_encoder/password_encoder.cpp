@@ -6,17 +6,17 @@
 PasswordEncoder::PasswordEncoder() {}
 PasswordEncoder::~PasswordEncoder() {}
 
-std::string PasswordEncoder::encode(const std::string& password) {
+std::string PasswordEncoder::encode(const std::string& password, int iterations) {
     if(password.empty()) {
         throw std::invalid_argument("Password cannot be empty!");
     }
 
     auto salt = SaltGenerator::generateSalt();
     auto pepperedPassword = pepperManager.applyPepper(password);
-    auto hash = HashGenerator::generateSecureHash(pepperedPassword, salt);
+    auto hash = HashGenerator::generateSecureHash(pepperedPassword, salt, iterations);
 
     std::stringstream ss;
-    ss << "2$" << 1000 << "$";
+    ss << "2$" << iterations << "$";
 
     auto saltB64 = Base64Manager::encode(salt);
     auto hashB64 = Base64Manager::encode(hash);
@@ -53,11 +53,12 @@ bool PasswordEncoder::matches(
         std::string saltStr = encodedPassword.substr(secondDelim + 1, thirdDelim - secondDelim - 1);
         std::string storedHashStr = encodedPassword.substr(thirdDelim + 1);
 
+        int iterations = std::stoi(iterationsStr);
         std::vector<unsigned char> salt = Base64Manager::decode(saltStr);
         std::vector<unsigned char> storedHash = Base64Manager::decode(storedHashStr);
         
         std::vector<unsigned char> peppered = pepperManager.applyPepper(password);
-        std::vector<unsigned char> newHash = HashGenerator::generateSecureHash(peppered, salt);
+        std::vector<unsigned char> newHash = HashGenerator::generateSecureHash(peppered, salt, iterations);
         
         bool result = HashGenerator::constantTimeEquals(newHash, storedHash);
         return result;
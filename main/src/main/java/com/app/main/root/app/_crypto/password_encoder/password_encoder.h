@@ -17,7 +17,7 @@ public:
     PasswordEncoder();
     ~PasswordEncoder();
 
-    std::string encode(const std::string& password);
+    std::string encode(const std::string& password, int iterations = HashGenerator::DEFAULT_ITERATIONS);
     bool matches(const std::string& password, const std::string& encodedPassword);
     bool isPasswordStrong(const std::string& password);
     std::string generateSecurePassword(int length = 12);
@@ -42,7 +42,8 @@ JNI_EXPORT JNIEXPORT jstring JNICALL Java_com_app_main_root_app__1crypto_passwor
     JNIEnv *env, 
     jobject obj,
     jlong nativePtr,
-    jstring password
+    jstring password,
+    jint iterations
 ) {
     if(nativePtr == 0 || password == NULL) {
         return NULL;
@@ -55,7 +56,7 @@ JNI_EXPORT JNIEXPORT jstring JNICALL Java_com_app_main_root_app__1crypto_passwor
         passwordStr = env->GetStringUTFChars(password, NULL);
         if(!passwordStr) return NULL;
         
-        std::string result = encoder->encode(std::string(passwordStr));
+        std::string result = encoder->encode(std::string(passwordStr), (int)iterations);
         env->ReleaseStringUTFChars(password, passwordStr);
         
         return env->NewStringUTF(result.c_str());
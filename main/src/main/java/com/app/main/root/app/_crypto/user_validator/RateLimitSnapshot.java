@@ -0,0 +1,116 @@
+package com.app.main.root.app._crypto.user_validator;
+import com.app.main.root.app._db.CommandQueryManager;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Keeps the native rate limiter state in a local SQLite file, so
+ * limits survive a restart and processes on one host see each other's
+ * counts. A sync runs in one write transaction: the limiter rebases on
+ * the file's counts, adding the attempts it recorded since its last
+ * sync, and the sum is written back. Attempts from several processes
+ * add up instead of the largest one winning. If reading fails they go
+ * out with the next sync. If the write fails after the export, they
+ * count here until the next sync but never reach the file.
+ *
+ * Rows use the limiter's snapshot layout: per key a uint16 length and
+ * the key, then seven little endian int64 fields.
+ */
+class RateLimitSnapshot {
+    private static final long IDLE_MS = 2 * 3600000L;
+    private static final int FIELDS = 7;
+    private static final int BUSY_TIMEOUT_MS = 5000;
+
+    private final String path;
+
+    RateLimitSnapshot(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Sync
+     *
+     * Returns the number of keys read from the file.
+     */
+    int sync(UserValidatorWrapper limiter) throws SQLException {
+        File file = new File(path);
+        if(file.getParentFile() != null) file.getParentFile().mkdirs();
+
+        try(
+            Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+            Statement stmt = conn.createStatement();
+        ) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            stmt.execute(CommandQueryManager.CREATE_RATE_LIMITS_TABLE.get());
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                long cutoff = System.currentTimeMillis() - IDLE_MS;
+                int imported = limiter.importRateLimits(read(conn, cutoff));
+                write(conn, limiter.exportRateLimits(), cutoff);
+                stmt.execute("COMMIT");
+                return imported;
+            } catch(Exception err) {
+                stmt.execute("ROLLBACK");
+                throw err;
+            }
+        }
+    }
+
+    private byte[] read(Connection conn, long cutoff) throws SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String query = CommandQueryManager.GET_RATE_LIMITS.get();
+        try(PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setLong(1, cutoff);
+            try(ResultSet rs = stmt.executeQuery()) {
+                ByteBuffer fields = ByteBuffer.allocate(FIELDS * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                while(rs.next()) {
+                    byte[] key = rs.getString(1).getBytes(StandardCharsets.UTF_8);
+                    if(key.length > 0xFFFF) continue;
+
+                    out.write(key.length & 0xFF);
+                    out.write(key.length >> 8);
+                    out.write(key, 0, key.length);
+                    fields.clear();
+                    for(int i = 0; i < FIELDS; i++) fields.putLong(rs.getLong(i + 2));
+                    out.write(fields.array(), 0, fields.capacity());
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void write(Connection conn, byte[] state, long cutoff) throws SQLException {
+        if(state != null) {
+            String query = CommandQueryManager.SAVE_RATE_LIMIT.get();
+            try(PreparedStatement stmt = conn.prepareStatement(query)) {
+                ByteBuffer buffer = ByteBuffer.wrap(state).order(ByteOrder.LITTLE_ENDIAN);
+                while(buffer.remaining() >= 2) {
+                    int keyLength = (buffer.get() & 0xFF) | ((buffer.get() & 0xFF) << 8);
+                    if(buffer.remaining() < keyLength + FIELDS * Long.BYTES) break;
+
+                    byte[] key = new byte[keyLength];
+                    buffer.get(key);
+                    stmt.setString(1, new String(key, StandardCharsets.UTF_8));
+                    for(int i = 0; i < FIELDS; i++) stmt.setLong(i + 2, buffer.getLong());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+
+        String query = CommandQueryManager.DELETE_IDLE_RATE_LIMITS.get();
+        try(PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setLong(1, cutoff);
+            stmt.executeUpdate();
+        }
+    }
+}
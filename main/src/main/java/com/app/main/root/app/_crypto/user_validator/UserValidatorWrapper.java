@@ -1,9 +1,25 @@
 package com.app.main.root.app._crypto.user_validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Validation and per IP rate limits in native code. The validators are
+ * read only after construction and the limiter locks one of its shards
+ * per call, so calls go straight through from any thread.
+ *
+ * With app.ratelimit.snapshot.path set, limits are restored from and
+ * synced to that SQLite file on startup, on every maintenance run and
+ * on shutdown.
+ */
 @Component
 public class UserValidatorWrapper {
     private static final String DLL_PATH = "src/main/java/com/app/main/root/app/_crypto/user_validator/.build/";
@@ -100,14 +116,26 @@ public class UserValidatorWrapper {
         }
     }
 
-    private long nativePtr;
-    private final Object lock = new Object();
+    private volatile long nativePtr;
+    private RateLimitSnapshot snapshot;
+
+    @Value("${app.ratelimit.snapshot.path:}")
+    private String snapshotPath;
+
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder snapshotSyncs = new LongAdder();
+    private final LongAdder snapshotErrors = new LongAdder();
 
     public UserValidatorWrapper() {
         this.nativePtr = createNativeObject();
         Runtime.getRuntime().addShutdownHook(new Thread(this::destroy));
     }
 
+    public UserValidatorWrapper(String snapshotPath) {
+        this();
+        this.snapshotPath = snapshotPath;
+    }
+
     private native long createNativeObject();
     private native void destroyNativeObject(long nativePtr);
     private native boolean validateRegistrationNative(
@@ -127,6 +155,53 @@ public class UserValidatorWrapper {
     private native void recordLoginAttemptNative(long nativePtr, String ipAddress);
     private native boolean isRegistrationRateLimitedNative(long nativePtr, String ipAddress);
     private native boolean isLoginRateLimitedNative(long nativePtr, String ipAddress);
+    private native int evictIdleRateLimitsNative(long nativePtr);
+    private native int rateLimitSizeNative(long nativePtr);
+    private native byte[] exportRateLimitsNative(long nativePtr);
+    private native int importRateLimitsNative(long nativePtr, byte[] state);
+
+    @PostConstruct
+    public void init() {
+        if(snapshotPath == null || snapshotPath.isBlank()) return;
+        snapshot = new RateLimitSnapshot(snapshotPath);
+        int restored = syncSnapshot();
+        System.out.println("Restored " + restored + " rate limits from " + snapshotPath);
+    }
+
+    /**
+     * Maintain
+     *
+     * Drops idle keys and syncs the snapshot. The limiter also sweeps a
+     * shard on its own when recording into it, this covers the quiet ones.
+     */
+    @Scheduled(fixedRateString = "${app.ratelimit.maintenance.intervalMs:60000}")
+    public void maintain() {
+        if(nativePtr == 0) return;
+        evicted.add(evictIdleRateLimitsNative(nativePtr));
+        syncSnapshot();
+    }
+
+    private synchronized int syncSnapshot() {
+        if(snapshot == null || nativePtr == 0) return 0;
+        try {
+            int imported = snapshot.sync(this);
+            snapshotSyncs.increment();
+            return imported;
+        } catch(Exception err) {
+            snapshotErrors.increment();
+            System.err.println("Rate limit snapshot failed: " + err.getMessage());
+            return 0;
+        }
+    }
+
+    byte[] exportRateLimits() {
+        return nativePtr != 0 ? exportRateLimitsNative(nativePtr) : null;
+    }
+
+    int importRateLimits(byte[] state) {
+        if(nativePtr == 0 || state == null || state.length == 0) return 0;
+        return importRateLimitsNative(nativePtr, state);
+    }
 
     public boolean validateRegistration(
         String username,
@@ -142,15 +217,13 @@ public class UserValidatorWrapper {
         ) {
             return false;
         }
-        synchronized(lock) {
-            return validateRegistrationNative(
-                nativePtr, 
-                username, 
-                email, 
-                password, 
-                ipAddress
-            );
-        }
+        return validateRegistrationNative(
+            nativePtr, 
+            username, 
+            email, 
+            password, 
+            ipAddress
+        );
     }
 
     public boolean validateLogin(String email, String password, String ipAddress) {
@@ -161,47 +234,56 @@ public class UserValidatorWrapper {
         ) {
             return false;
         }
-        synchronized(lock) {
-            return validateLoginNative(
-                nativePtr, 
-                email, 
-                password, 
-                ipAddress
-            );
-        }
+        return validateLoginNative(
+            nativePtr, 
+            email, 
+            password, 
+            ipAddress
+        );
     }
 
     public void recordRegistrationAttempt(String ipAddress) {
         if(ipAddress != null) {
-            synchronized(lock) {
-                recordRegistrationAttemptNative(nativePtr, ipAddress);
-            }
+            recordRegistrationAttemptNative(nativePtr, ipAddress);
         }
     }
 
     public void recordLoginAttempt(String ipAddress) {
         if(ipAddress != null) {
-            synchronized(lock) {
-                recordLoginAttemptNative(nativePtr, ipAddress);
-            }
+            recordLoginAttemptNative(nativePtr, ipAddress);
         }
     }
 
     public boolean isRegistrationRateLimited(String ipAddress) {
         if(ipAddress == null) return false;
-        synchronized(lock) {
-            return isRegistrationRateLimitedNative(nativePtr, ipAddress);
-        }
+        return isRegistrationRateLimitedNative(nativePtr, ipAddress);
     }
 
     public boolean isLoginRateLimited(String ipAddress) {
         if(ipAddress == null) return false;
-        synchronized(lock) {
-            return isLoginRateLimitedNative(nativePtr, ipAddress);
-        }
+        return isLoginRateLimitedNative(nativePtr, ipAddress);
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getRateLimitStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", nativePtr != 0 ? rateLimitSizeNative(nativePtr) : 0);
+        stats.put("evicted", evicted.sum());
+        stats.put("snapshotEnabled", snapshot != null);
+        stats.put("snapshotSyncs", snapshotSyncs.sum());
+        stats.put("snapshotErrors", snapshotErrors.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        syncSnapshot();
+        destroy();
     }
 
-    public void destroy() {
+    public synchronized void destroy() {
         if(nativePtr != 0) {
             destroyNativeObject(nativePtr);
             nativePtr = 0;
@@ -1,73 +1,249 @@
 #include "rate_limiter.h"
 #include <algorithm>
+#include <chrono>
+#include <functional>
+
+/*
+ * Snapshot layout, little endian: per key a uint16 length and the key
+ * bytes, then registration start/current/previous, login
+ * start/current/previous and last seen as int64.
+ */
+static const size_t SNAPSHOT_FIELDS = 7;
+
+static void putInt64(std::vector<unsigned char>& out, int64_t value) {
+    uint64_t bits = static_cast<uint64_t>(value);
+    for(int i = 0; i < 8; i++) out.push_back(static_cast<unsigned char>(bits >> (i * 8)));
+}
+
+static int64_t getInt64(const unsigned char* p) {
+    uint64_t bits = 0;
+    for(int i = 7; i >= 0; i--) bits = (bits << 8) | p[i];
+    return static_cast<int64_t>(bits);
+}
+
+int64_t RateLimiter::nowMs() {
+    return std::chrono::duration_cast<std::chrono::milliseconds>(
+        std::chrono::system_clock::now().time_since_epoch()
+    ).count();
+}
+
+RateLimiter::Shard& RateLimiter::shardFor(const std::string& key) {
+    return shards[std::hash<std::string>{}(key) % SHARD_COUNT];
+}
+
+/**
+ * Roll
+ *
+ * Moves a window to the one holding now. One step keeps the count as
+ * previous, more than one clears both.
+ */
+void RateLimiter::roll(Window& window, int64_t now) {
+    int64_t aligned = now - now % RATE_LIMIT_WINDOW_MS;
+    if(window.start >= aligned) return;
+    if(window.start + RATE_LIMIT_WINDOW_MS == aligned) {
+        window.previous = window.current;
+        window.unsyncedPrevious = window.unsyncedCurrent;
+    } else {
+        window.previous = 0;
+        window.unsyncedPrevious = 0;
+    }
+    window.current = 0;
+    window.unsyncedCurrent = 0;
+    window.start = aligned;
+}
+
+/**
+ * Estimate
+ *
+ * Attempts in the last hour, counting the previous window by the part
+ * of it still inside.
+ */
+double RateLimiter::estimate(Window window, int64_t now) {
+    roll(window, now);
+    double overlap = 1.0 - static_cast<double>(now - window.start) / RATE_LIMIT_WINDOW_MS;
+    return window.previous * overlap + window.current;
+}
+
+/**
+ * Rebase
+ *
+ * Takes the shared counts as the base and puts back what this process
+ * recorded since its last export, which the shared row does not have
+ * yet.
+ */
+void RateLimiter::rebase(Window& into, Window from, int64_t now) {
+    roll(into, now);
+    roll(from, now);
+    if(from.start != into.start) return;
+    into.current = from.current + into.unsyncedCurrent;
+    into.previous = from.previous + into.unsyncedPrevious;
+}
+
+size_t RateLimiter::sweep(Shard& shard, int64_t now) {
+    size_t removed = 0;
+    for(auto it = shard.entries.begin(); it != shard.entries.end();) {
+        if(now - it->second.lastSeen >= 2 * RATE_LIMIT_WINDOW_MS) {
+            it = shard.entries.erase(it);
+            removed++;
+        } else {
+            ++it;
+        }
+    }
+    shard.lastSweep = now;
+    return removed;
+}
+
+void RateLimiter::record(const std::string& ipAddress, bool registration) {
+    int64_t now = nowMs();
+    Shard& shard = shardFor(ipAddress);
+    std::lock_guard<std::mutex> lock(shard.mutex);
+    if(now - shard.lastSweep >= SWEEP_INTERVAL_MS) sweep(shard, now);
+
+    Entry& entry = shard.entries[ipAddress];
+    Window& window = registration ? entry.registration : entry.login;
+    roll(window, now);
+    window.current++;
+    window.unsyncedCurrent++;
+    entry.lastSeen = now;
+}
 
 void RateLimiter::recordRegistrationAttempt(const std::string& ipAddress) {
-    std::lock_guard<std::mutex> lock(rateLimitMutex);
-    auto& attempts = registrationAttempts[ipAddress];
-    attempts.push_back(std::chrono::steady_clock::now());
-    cleanOldAttempts(attempts);
+    record(ipAddress, true);
 }
 
 void RateLimiter::recordLoginAttempt(const std::string& ipAddress) {
-    std::lock_guard<std::mutex> lock(rateLimitMutex);
-    auto& attempts = loginAttempts[ipAddress];
-    attempts.push_back(std::chrono::steady_clock::now());
-    cleanOldAttempts(attempts);
+    record(ipAddress, false);
 }
 
 bool RateLimiter::isRegistrationRateLimited(const std::string& ipAddress) {
-    return isRateLimited(ipAddress, registrationAttempts, MAX_REGISTRATION_ATTEMPTS_PER_HOUR);
+    Shard& shard = shardFor(ipAddress);
+    std::lock_guard<std::mutex> lock(shard.mutex);
+    auto it = shard.entries.find(ipAddress);
+    if(it == shard.entries.end()) return false;
+    return estimate(it->second.registration, nowMs()) >= MAX_REGISTRATION_ATTEMPTS_PER_HOUR;
 }
 
 bool RateLimiter::isLoginRateLimited(const std::string& ipAddress) {
-    return isRateLimited(ipAddress, loginAttempts, MAX_LOGIN_ATTEMPTS_PER_HOUR);
+    Shard& shard = shardFor(ipAddress);
+    std::lock_guard<std::mutex> lock(shard.mutex);
+    auto it = shard.entries.find(ipAddress);
+    if(it == shard.entries.end()) return false;
+    return estimate(it->second.login, nowMs()) >= MAX_LOGIN_ATTEMPTS_PER_HOUR;
 }
 
 bool RateLimiter::hasSuspiciousActivity(const std::string& ipAddress) {
-    std::lock_guard<std::mutex> lock(rateLimitMutex);
-    auto regIt = registrationAttempts.find(ipAddress);
-    auto loginIt = loginAttempts.find(ipAddress);
-    int totalRecentAttempts = 0;
-
-    if(regIt != registrationAttempts.end()) {
-        cleanOldAttempts(regIt->second);
-        totalRecentAttempts += regIt->second.size();
+    Shard& shard = shardFor(ipAddress);
+    std::lock_guard<std::mutex> lock(shard.mutex);
+    auto it = shard.entries.find(ipAddress);
+    if(it == shard.entries.end()) return false;
+
+    int64_t now = nowMs();
+    double total = estimate(it->second.registration, now) + estimate(it->second.login, now);
+    return total > (MAX_REGISTRATION_ATTEMPTS_PER_HOUR + MAX_LOGIN_ATTEMPTS_PER_HOUR);
+}
+
+void RateLimiter::clearRateLimit(const std::string& ipAddress) {
+    Shard& shard = shardFor(ipAddress);
+    std::lock_guard<std::mutex> lock(shard.mutex);
+    shard.entries.erase(ipAddress);
+}
+
+/**
+ * Evict Idle
+ */
+size_t RateLimiter::evictIdle() {
+    int64_t now = nowMs();
+    size_t removed = 0;
+    for(Shard& shard : shards) {
+        std::lock_guard<std::mutex> lock(shard.mutex);
+        removed += sweep(shard, now);
     }
-    if(loginIt != loginAttempts.end()) {
-        cleanOldAttempts(loginIt->second);
-        totalRecentAttempts += loginIt->second.size();
+    return removed;
+}
+
+size_t RateLimiter::size() {
+    size_t total = 0;
+    for(Shard& shard : shards) {
+        std::lock_guard<std::mutex> lock(shard.mutex);
+        total += shard.entries.size();
     }
+    return total;
+}
+
+/**
+ * Export State
+ *
+ * Live keys in the snapshot layout, one shard locked at a time. The
+ * exported totals become the synced state, so each attempt reaches
+ * the shared row once. Attempts recorded after a key is exported stay
+ * unsynced for the next export.
+ */
+std::vector<unsigned char> RateLimiter::exportState() {
+    int64_t now = nowMs();
+    std::vector<unsigned char> out;
+    for(Shard& shard : shards) {
+        std::lock_guard<std::mutex> lock(shard.mutex);
+        for(auto& item : shard.entries) {
+            const std::string& key = item.first;
+            Entry& entry = item.second;
+            if(key.size() > 0xFFFF || now - entry.lastSeen >= 2 * RATE_LIMIT_WINDOW_MS) continue;
+            roll(entry.registration, now);
+            roll(entry.login, now);
+            entry.registration.unsyncedCurrent = entry.registration.unsyncedPrevious = 0;
+            entry.login.unsyncedCurrent = entry.login.unsyncedPrevious = 0;
 
-    return totalRecentAttempts > (MAX_REGISTRATION_ATTEMPTS_PER_HOUR + MAX_LOGIN_ATTEMPTS_PER_HOUR);
+            out.push_back(static_cast<unsigned char>(key.size() & 0xFF));
+            out.push_back(static_cast<unsigned char>(key.size() >> 8));
+            out.insert(out.end(), key.begin(), key.end());
+            putInt64(out, entry.registration.start);
+            putInt64(out, entry.registration.current);
+            putInt64(out, entry.registration.previous);
+            putInt64(out, entry.login.start);
+            putInt64(out, entry.login.current);
+            putInt64(out, entry.login.previous);
+            putInt64(out, entry.lastSeen);
+        }
+    }
+    return out;
 }
 
-void RateLimiter::clearRateLimit(const std::string& ipAddress) {
-    std::lock_guard<std::mutex> lock(rateLimitMutex);
-    registrationAttempts.erase(ipAddress);
-    loginAttempts.erase(ipAddress);
-}
-
-void RateLimiter::cleanOldAttempts(std::vector<std::chrono::steady_clock::time_point>& attempts) {
-    auto now = std::chrono::steady_clock::now();
-    auto threshold = now - std::chrono::milliseconds(RATE_LIMIT_WINDOW_MS);
-    attempts.erase(
-        std::remove_if(
-            attempts.begin(), attempts.end(),
-            [threshold](const auto& attempt) {
-                return attempt < threshold;
-            }
-        ),
-        attempts.end()
-    );
-}
-
-bool RateLimiter::isRateLimited(
-    const std::string& id,
-    std::unordered_map<std::string, std::vector<std::chrono::steady_clock::time_point>>& attemptsMap,
-    int maxAttempts
-) {
-    std::lock_guard<std::mutex> lock(rateLimitMutex);
-    auto& attempts = attemptsMap[id];
-    cleanOldAttempts(attempts);
-    return attempts.size() >= maxAttempts;
-}
\ No newline at end of file
+/**
+ * Import State
+ *
+ * Rebases on a snapshot: its counts replace the synced part of ours
+ * and unsynced attempts are added on top, so importing the same state
+ * twice changes nothing. Returns the number of keys read, a truncated
+ * snapshot stops at the last whole key.
+ */
+size_t RateLimiter::importState(const unsigned char* data, size_t length) {
+    int64_t now = nowMs();
+    size_t pos = 0;
+    size_t imported = 0;
+    while(pos + 2 <= length) {
+        size_t keyLength = data[pos] | (data[pos + 1] << 8);
+        if(pos + 2 + keyLength + SNAPSHOT_FIELDS * 8 > length) break;
+
+        std::string key(reinterpret_cast<const char*>(data + pos + 2), keyLength);
+        const unsigned char* fields = data + pos + 2 + keyLength;
+        pos += 2 + keyLength + SNAPSHOT_FIELDS * 8;
+
+        Entry from;
+        from.registration.start = getInt64(fields);
+        from.registration.current = getInt64(fields + 8);
+        from.registration.previous = getInt64(fields + 16);
+        from.login.start = getInt64(fields + 24);
+        from.login.current = getInt64(fields + 32);
+        from.login.previous = getInt64(fields + 40);
+        from.lastSeen = getInt64(fields + 48);
+        if(now - from.lastSeen >= 2 * RATE_LIMIT_WINDOW_MS) continue;
+
+        Shard& shard = shardFor(key);
+        std::lock_guard<std::mutex> lock(shard.mutex);
+        Entry& entry = shard.entries[key];
+        rebase(entry.registration, from.registration, now);
+        rebase(entry.login, from.login, now);
+        entry.lastSeen = (std::max)(entry.lastSeen, from.lastSeen);
+        imported++;
+    }
+    return imported;
+}
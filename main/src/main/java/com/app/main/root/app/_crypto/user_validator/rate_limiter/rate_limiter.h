@@ -4,15 +4,47 @@
 #include <string>
 #include <unordered_map>
 #include <vector>
-#include <chrono>
 #include <mutex>
+#include <cstdint>
 
+/*
+ * Per IP limits kept as sliding window counters: the count of the
+ * current fixed window plus the previous one, weighted by how much of
+ * it still overlaps the last hour. Every key costs the same few bytes
+ * and is found with one hash lookup. Keys live in lock striped shards
+ * and are dropped once idle for two windows, when both counts are 0.
+ *
+ * Counts are totals across every process sharing a snapshot. The
+ * unsynced part of each count is what this process recorded since its
+ * last export, a sync adds only that part to the shared row.
+ */
 class RateLimiter {
 private:
     static const long long RATE_LIMIT_WINDOW_MS = 3600000;
-    std::unordered_map<std::string, std::vector<std::chrono::steady_clock::time_point>> registrationAttempts;
-    std::unordered_map<std::string, std::vector<std::chrono::steady_clock::time_point>> loginAttempts;
-    std::mutex rateLimitMutex;
+    static const long long SWEEP_INTERVAL_MS = 60000;
+    static const int SHARD_COUNT = 64;
+
+    struct Window {
+        int64_t start = 0;
+        int64_t current = 0;
+        int64_t previous = 0;
+        int64_t unsyncedCurrent = 0;
+        int64_t unsyncedPrevious = 0;
+    };
+
+    struct Entry {
+        Window registration;
+        Window login;
+        int64_t lastSeen = 0;
+    };
+
+    struct Shard {
+        std::mutex mutex;
+        std::unordered_map<std::string, Entry> entries;
+        int64_t lastSweep = 0;
+    };
+
+    Shard shards[SHARD_COUNT];
 
 public:
     static const int MAX_REGISTRATION_ATTEMPTS_PER_HOUR = 5;
@@ -25,13 +57,20 @@ public:
     bool hasSuspiciousActivity(const std::string& ipAddress);
     void clearRateLimit(const std::string& ipAddress);
 
+    size_t evictIdle();
+    size_t size();
+    std::vector<unsigned char> exportState();
+    size_t importState(const unsigned char* data, size_t length);
+
 private:
-    void cleanOldAttempts(std::vector<std::chrono::steady_clock::time_point>& attempts);
-    bool isRateLimited(
-        const std::string& id,
-        std::unordered_map<std::string, std::vector<std::chrono::steady_clock::time_point>>& attemptsMap,
-        int maxAttempts
-    );
+    Shard& shardFor(const std::string& key);
+    void record(const std::string& ipAddress, bool registration);
+    size_t sweep(Shard& shard, int64_t now);
+
+    static int64_t nowMs();
+    static void roll(Window& window, int64_t now);
+    static double estimate(Window window, int64_t now);
+    static void rebase(Window& into, Window from, int64_t now);
 };
 
-#endif
\ No newline at end of file
+#endif
@@ -65,6 +65,22 @@ void UserValidator::clearRateLimit(const std::string& ipAddress) {
     rateLimiter.clearRateLimit(ipAddress);
 }
 
+size_t UserValidator::evictIdleRateLimits() {
+    return rateLimiter.evictIdle();
+}
+
+size_t UserValidator::rateLimitSize() {
+    return rateLimiter.size();
+}
+
+std::vector<unsigned char> UserValidator::exportRateLimits() {
+    return rateLimiter.exportState();
+}
+
+size_t UserValidator::importRateLimits(const unsigned char* data, size_t length) {
+    return rateLimiter.importState(data, length);
+}
+
 std::string UserValidator::sanitizeInput(const std::string& input) {
     return InputSanitizer::sanitizeInput(input);
 }
@@ -7,6 +7,7 @@
 #include "rate_limiter/rate_limiter.h"
 #include "input_sanitizer/input_sanitizer.h"
 #include <string>
+#include <vector>
 
 class UserValidator {
 private:
@@ -42,6 +43,10 @@ public:
     bool isLoginRateLimited(const std::string& ipAddress);
     bool hasSuspiciousActivity(const std::string& ipAddress);
     void clearRateLimit(const std::string& ipAddress);
+    size_t evictIdleRateLimits();
+    size_t rateLimitSize();
+    std::vector<unsigned char> exportRateLimits();
+    size_t importRateLimits(const unsigned char* data, size_t length);
     
     std::string sanitizeInput(const std::string& input);
     bool containsSuspiciousPatterns(const std::string& input);
@@ -277,7 +277,86 @@ JNI_EXPORT JNIEXPORT jboolean JNICALL Java_com_app_main_root_app__1crypto_user_1
     }
 }
 
+JNI_EXPORT JNIEXPORT jint JNICALL Java_com_app_main_root_app__1crypto_user_1validator_UserValidatorWrapper_evictIdleRateLimitsNative(
+    JNIEnv *env,
+    jobject obj,
+    jlong nativePtr
+) {
+    if(nativePtr == 0) return 0;
+    UserValidator* validator = reinterpret_cast<UserValidator*>(nativePtr);
+    return static_cast<jint>(validator->evictIdleRateLimits());
+}
+
+JNI_EXPORT JNIEXPORT jint JNICALL Java_com_app_main_root_app__1crypto_user_1validator_UserValidatorWrapper_rateLimitSizeNative(
+    JNIEnv *env,
+    jobject obj,
+    jlong nativePtr
+) {
+    if(nativePtr == 0) return 0;
+    UserValidator* validator = reinterpret_cast<UserValidator*>(nativePtr);
+    return static_cast<jint>(validator->rateLimitSize());
+}
+
+JNI_EXPORT JNIEXPORT jbyteArray JNICALL Java_com_app_main_root_app__1crypto_user_1validator_UserValidatorWrapper_exportRateLimitsNative(
+    JNIEnv *env,
+    jobject obj,
+    jlong nativePtr
+) {
+    if(nativePtr == 0) return NULL;
+    UserValidator* validator = reinterpret_cast<UserValidator*>(nativePtr);
+
+    try {
+        std::vector<unsigned char> state = validator->exportRateLimits();
+        jbyteArray result = env->NewByteArray(static_cast<jsize>(state.size()));
+        if(!result) return NULL;
+        env->SetByteArrayRegion(
+            result,
+            0,
+            static_cast<jsize>(state.size()),
+            reinterpret_cast<const jbyte*>(state.data())
+        );
+        return result;
+    } catch(const std::exception& err) {
+        std::cerr << "Error exporting rate limits: " << err.what() << std::endl;
+        return NULL;
+    } catch(...) {
+        std::cerr << "Unknown error exporting rate limits" << std::endl;
+        return NULL;
+    }
+}
+
+JNI_EXPORT JNIEXPORT jint JNICALL Java_com_app_main_root_app__1crypto_user_1validator_UserValidatorWrapper_importRateLimitsNative(
+    JNIEnv *env,
+    jobject obj,
+    jlong nativePtr,
+    jbyteArray state
+) {
+    if(nativePtr == 0 || state == NULL) return 0;
+
+    UserValidator* validator = reinterpret_cast<UserValidator*>(nativePtr);
+    jsize length = env->GetArrayLength(state);
+    jbyte* bytes = NULL;
+
+    try {
+        bytes = env->GetByteArrayElements(state, NULL);
+        if(!bytes) return 0;
+        size_t imported = validator->importRateLimits(
+            reinterpret_cast<const unsigned char*>(bytes),
+            static_cast<size_t>(length)
+        );
+        env->ReleaseByteArrayElements(state, bytes, JNI_ABORT);
+        return static_cast<jint>(imported);
+    } catch(const std::exception& err) {
+        std::cerr << "Error importing rate limits: " << err.what() << std::endl;
+        if(bytes) env->ReleaseByteArrayElements(state, bytes, JNI_ABORT);
+        return 0;
+    } catch(...) {
+        std::cerr << "Unknown error importing rate limits" << std::endl;
+        if(bytes) env->ReleaseByteArrayElements(state, bytes, JNI_ABORT);
+        return 0;
+    }
+}
+
 #ifdef __cplusplus
 }
 #endif
-
@@ -0,0 +1,148 @@
+package com.app.main.root.app._data;
+import com.app.main.root.app._db.CommandQueryManager;
+import com.app.main.root.app._service.FileService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves content still held in the image, video, audio and document
+ * BLOB tables into the blob store. Files are walked in file_id order
+ * and each one is streamed out in windows, so it can be stopped and
+ * run again at any point. Content of deleted files is dropped
+ * instead of moved. Migrated blobs have no content hash, the key
+ * is not at hand here, so they are not shared with later uploads.
+ */
+public class BlobMigrator {
+    private static final int PAGE_SIZE = 100;
+
+    private final FileService fileService;
+    private final Map<String, JdbcTemplate> jdbcTemplates;
+    private final BlobStore blobStore;
+    private final int windowBytes;
+
+    public BlobMigrator(
+        FileService fileService,
+        Map<String, JdbcTemplate> jdbcTemplates,
+        BlobStore blobStore,
+        int windowBytes
+    ) {
+        this.fileService = fileService;
+        this.jdbcTemplates = jdbcTemplates;
+        this.blobStore = blobStore;
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * Run
+     *
+     * Returns the number of files moved. With vacuum set, every
+     * content database that lost rows is vacuumed at the end so the
+     * space goes back to the filesystem.
+     */
+    public int run(boolean vacuum) {
+        JdbcTemplate metadataTemplate = jdbcTemplates.get(FileService.METADATA_DB);
+        if(metadataTemplate == null) return 0;
+
+        int moved = 0;
+        int dropped = 0;
+        int failed = 0;
+        Set<String> touched = new HashSet<>();
+        String lastFileId = "";
+
+        while(true) {
+            List<Map<String, Object>> rows = metadataTemplate.queryForList(
+                CommandQueryManager.GET_LEGACY_CONTENT_FILES.get(),
+                lastFileId,
+                PAGE_SIZE
+            );
+            if(rows.isEmpty()) break;
+
+            for(Map<String, Object> row : rows) {
+                String fileId = (String) row.get("file_id");
+                lastFileId = fileId;
+
+                String dbType = (String) row.get("database_name");
+                if(dbType == null || dbType.isEmpty()) {
+                    dbType = fileService.getDatabaseForMimeType((String) row.get("mime_type"));
+                }
+                JdbcTemplate contentTemplate = jdbcTemplates.get(dbType);
+                if(contentTemplate == null) continue;
+
+                try {
+                    if(isDeleted(row.get("is_deleted"))) {
+                        if(dropContent(contentTemplate, dbType, fileId)) {
+                            touched.add(dbType);
+                            dropped++;
+                        }
+                        continue;
+                    }
+                    if(moveFile(metadataTemplate, contentTemplate, dbType, fileId)) {
+                        touched.add(dbType);
+                        moved++;
+                    }
+                } catch(Exception err) {
+                    failed++;
+                    System.err.println("Blob migration failed for file " + fileId + ": " + err.getMessage());
+                }
+            }
+        }
+
+        if(vacuum) {
+            for(String dbType : touched) {
+                try {
+                    jdbcTemplates.get(dbType).execute(CommandQueryManager.EXEC_VACUUM.get());
+                } catch(Exception err) {
+                    System.err.println("Vacuum failed for " + dbType + ": " + err.getMessage());
+                }
+            }
+        }
+
+        if(moved > 0 || dropped > 0 || failed > 0) {
+            System.out.println(
+                "Blob migration: moved " + moved +
+                ", dropped " + dropped +
+                ", failed " + failed
+            );
+        }
+        return moved;
+    }
+
+    private boolean moveFile(
+        JdbcTemplate metadataTemplate,
+        JdbcTemplate contentTemplate,
+        String dbType,
+        String fileId
+    ) throws Exception {
+        long length = FileContentInputStream.contentLength(contentTemplate, dbType, fileId);
+        if(length <= 0) return false;
+
+        String hash;
+        try(InputStream input = new FileContentInputStream(contentTemplate, dbType, fileId, 0, length, windowBytes)) {
+            hash = blobStore.write(input);
+        }
+        blobStore.register(hash, null, length);
+
+        int updated = metadataTemplate.update(CommandQueryManager.SET_FILE_BLOB_HASH.get(), hash, fileId);
+        if(updated == 0) {
+            blobStore.release(hash);
+            return false;
+        }
+        dropContent(contentTemplate, dbType, fileId);
+        return true;
+    }
+
+    private boolean dropContent(JdbcTemplate contentTemplate, String dbType, String fileId) {
+        String query = String.format(CommandQueryManager.DELETE_FILE_CONTENT.get(), dbType);
+        return contentTemplate.update(query, fileId) > 0;
+    }
+
+    private boolean isDeleted(Object value) {
+        if(value instanceof Boolean flag) return flag;
+        if(value instanceof Number number) return number.intValue() != 0;
+        return value != null && "true".equalsIgnoreCase(value.toString());
+    }
+}
@@ -0,0 +1,301 @@
+package com.app.main.root.app._data;
+import com.app.main.root.app._db.CommandQueryManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content addressed store for file payloads. Each blob is the stored
+ * bytes of a file (IV | ciphertext | tag) named by their SHA-256 and
+ * kept under root/ab/cd/<hash>, so no directory grows too large.
+ *
+ * Reference counts live in the file_blobs table next to
+ * files_metadata. Counts are always raised before a metadata row
+ * points at a blob and lowered after it stops, so a crash in between
+ * can only leave a blob that is never collected, never a row that
+ * points at a missing blob.
+ */
+public class BlobStore {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_DIR = "tmp";
+
+    private final JdbcTemplate metadataTemplate;
+    private volatile Path root;
+
+    public BlobStore(JdbcTemplate metadataTemplate, Path root) {
+        this.metadataTemplate = metadataTemplate;
+        this.root = root;
+    }
+
+    public void setRoot(Path root) {
+        this.root = root;
+    }
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Path
+     */
+    public Path path(String hash) {
+        boolean valid = hash != null && hash.length() == 64;
+        for(int i = 0; valid && i < hash.length(); i++) {
+            valid = HexFormat.isHexDigit(hash.charAt(i));
+        }
+        if(!valid) throw new IllegalArgumentException("Invalid blob hash: " + hash);
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * Write
+     *
+     * Stores the bytes and returns their hash. The blob is written to
+     * a temp file, synced and moved into place, so a blob path either
+     * holds the complete content or does not exist.
+     */
+    public String write(byte[] content) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(content);
+        String hash = HexFormat.of().formatHex(digest.digest());
+        Path target = path(hash);
+        if(Files.exists(target)) return hash;
+
+        Path temp = createTemp();
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while(buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        } catch(IOException err) {
+            Files.deleteIfExists(temp);
+            throw err;
+        }
+        return commit(temp, hash);
+    }
+
+    /**
+     * Write Stream
+     */
+    public String write(InputStream input) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = createTemp();
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while((count = input.read(buffer)) > 0) {
+                digest.update(buffer, 0, count);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, count);
+                while(chunk.hasRemaining()) channel.write(chunk);
+            }
+            channel.force(true);
+        } catch(IOException err) {
+            Files.deleteIfExists(temp);
+            throw err;
+        }
+        return commit(temp, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private Path createTemp() throws IOException {
+        Path tempDir = root.resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        return Files.createTempFile(tempDir, "blob", ".tmp");
+    }
+
+    private String commit(Path temp, String hash) throws IOException {
+        Path target = path(hash);
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch(FileAlreadyExistsException err) {
+            Files.deleteIfExists(temp);
+        } catch(IOException err) {
+            Files.deleteIfExists(temp);
+            if(!Files.exists(target)) throw err;
+        }
+        return hash;
+    }
+
+    /**
+     * Source
+     */
+    public ContentSource source(String hash) {
+        return new BlobSource(path(hash));
+    }
+
+    /**
+     * Read
+     */
+    public byte[] read(String hash) throws IOException {
+        return Files.readAllBytes(path(hash));
+    }
+
+    /**
+     * Register
+     *
+     * Adds a reference to a blob that was just written, creating its
+     * row on first use.
+     */
+    public void register(String hash, String contentHash, long size) {
+        metadataTemplate.update(
+            CommandQueryManager.ADD_FILE_BLOB_REF.get(),
+            hash,
+            contentHash,
+            size,
+            System.currentTimeMillis()
+        );
+    }
+
+    /**
+     * Acquire
+     *
+     * Adds a reference to a blob that is already shared. False if the
+     * blob was collected in the meantime.
+     */
+    public boolean acquire(String hash) {
+        return metadataTemplate.update(CommandQueryManager.ACQUIRE_FILE_BLOB.get(), hash) > 0;
+    }
+
+    /**
+     * Release
+     *
+     * Drops one reference and deletes the blob once nothing points
+     * at it. True if the blob was collected.
+     */
+    public boolean release(String hash) {
+        metadataTemplate.update(CommandQueryManager.RELEASE_FILE_BLOB.get(), hash);
+        int deleted = metadataTemplate.update(CommandQueryManager.DELETE_UNREFERENCED_FILE_BLOB.get(), hash);
+        if(deleted == 0) return false;
+
+        try {
+            Files.deleteIfExists(path(hash));
+        } catch(IOException err) {
+            System.err.println("Failed to delete blob " + hash + ": " + err.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Find By Content
+     *
+     * A live file whose blob holds the given content, with what is
+     * needed to share it. Null if there is none.
+     */
+    public Map<String, Object> findByContent(String contentHash) {
+        List<Map<String, Object>> rows = metadataTemplate.queryForList(
+            CommandQueryManager.FIND_FILE_BLOB_BY_CONTENT.get(),
+            contentHash
+        );
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Content Hash
+     *
+     * Hash of the bytes that get encrypted, with the compression type
+     * in front so the same plaintext stored two ways is never shared.
+     */
+    public static String contentHash(byte[] data, int compressionType) {
+        MessageDigest digest = sha256();
+        digest.update((byte) compressionType);
+        digest.update(data);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException err) {
+            throw new IllegalStateException(err);
+        }
+    }
+
+    /**
+     * Reads a blob with positional channel reads, ranges start at
+     * their offset instead of reading up to it.
+     */
+    private static class BlobSource implements ContentSource {
+        private final Path path;
+
+        BlobSource(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public long length() throws IOException {
+            return Files.size(path);
+        }
+
+        @Override
+        public InputStream open(long start, long end) throws IOException {
+            return new ChannelInputStream(FileChannel.open(path, StandardOpenOption.READ), start, end);
+        }
+
+        @Override
+        public byte[] readRange(long start, int length) throws IOException {
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(length, channel.size() - start)));
+                while(buffer.hasRemaining()) {
+                    if(channel.read(buffer, start + buffer.position()) < 0) break;
+                }
+                return buffer.array();
+            }
+        }
+    }
+
+    private static class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        ChannelInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if(length == 0) return 0;
+            if(position >= end) return -1;
+
+            int count = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+            if(count < 0) throw new IOException("Blob ended early at " + position);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.app.main.root.app._data;
 import com.app.main.root.app.EventTracker;
+import com.app.main.root.app.__config.OutboundFlowControl;
 import com.app.main.root.app._db.DbService;
 import com.app.main.root.app._server.EventRegistry;
 import com.app.main.root.app.main.chat.messages.MessageTracker;
@@ -34,6 +35,7 @@ public class ConfigSocketEvents implements ApplicationListener<BrokerAvailabilit
     private final ConnectionTracker connectionTracker;
     private final DbService dbService;
     private final SocketMethods socketMethods;
+    private final OutboundFlowControl flowControl;
     private final Map<String, InvocableHandlerMethod> handlerMethods = new ConcurrentHashMap<>();
     private final Map<String, EventConfig> eventConfigs = new ConcurrentHashMap<>();
 
@@ -45,7 +47,8 @@ public class ConfigSocketEvents implements ApplicationListener<BrokerAvailabilit
         ConnectionTracker connectionTracker,
         DbService dbService,
         SocketMethods socketMethods,
-        EventList eventList
+        EventList eventList,
+        OutboundFlowControl flowControl
     ) {
         this.messageHandler = messageHandler;
         this.eventRegistry = eventRegistry;
@@ -55,6 +58,7 @@ public class ConfigSocketEvents implements ApplicationListener<BrokerAvailabilit
         this.dbService = dbService;
         this.socketMethods = socketMethods;
         this.eventList = eventList;
+        this.flowControl = flowControl;
     }
 
     @Override
@@ -83,6 +87,8 @@ public class ConfigSocketEvents implements ApplicationListener<BrokerAvailabilit
 
     private void registerEventHandler(String eventName, EventConfig config) {
         eventConfigs.put(eventName, config);
+        flowControl.register(eventName, config.getPriority());
+        flowControl.register(config.getDestination(), config.getPriority());
     }
 
     private void useEventRegistry(String eventName, EventConfig config) {
@@ -0,0 +1,25 @@
+package com.app.main.root.app._data;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stored bytes of one file (IV | ciphertext | tag), wherever they live.
+ */
+public interface ContentSource {
+    /**
+     * Length
+     */
+    long length() throws IOException;
+
+    /**
+     * Open
+     *
+     * Stream of bytes start (inclusive) to end (exclusive).
+     */
+    InputStream open(long start, long end) throws IOException;
+
+    /**
+     * Read Range
+     */
+    byte[] readRange(long start, int length) throws IOException;
+}
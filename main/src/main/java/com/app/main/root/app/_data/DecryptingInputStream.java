@@ -0,0 +1,92 @@
+package com.app.main.root.app._data;
+import com.app.main.root.app._crypto.file_encoder.FileDecryptStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decrypts a ciphertext stream through a native decrypt stream in
+ * small buffers. When the stream is verifying, the tag that follows
+ * the ciphertext is read and checked before end of stream is reported.
+ */
+public class DecryptingInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final FileDecryptStream decryptStream;
+    private final int tagLength;
+    private long remaining;
+    private boolean finished = false;
+
+    private final byte[] input = new byte[BUFFER_SIZE];
+    private final byte[] output = new byte[BUFFER_SIZE];
+    private int outputPos = 0;
+    private int outputLen = 0;
+
+    public DecryptingInputStream(
+        InputStream source,
+        FileDecryptStream decryptStream,
+        long cipherLength,
+        int tagLength
+    ) {
+        this.source = source;
+        this.decryptStream = decryptStream;
+        this.remaining = cipherLength;
+        this.tagLength = tagLength;
+    }
+
+    private boolean fill() throws IOException {
+        if(remaining <= 0) {
+            finish();
+            return false;
+        }
+
+        int count = source.read(input, 0, (int) Math.min(input.length, remaining));
+        if(count < 0) throw new IOException("Ciphertext ended early, " + remaining + " bytes missing");
+
+        outputLen = decryptStream.update(input, count, output);
+        outputPos = 0;
+        remaining -= count;
+        return true;
+    }
+
+    private void finish() throws IOException {
+        if(finished) return;
+        finished = true;
+        if(!decryptStream.isVerifying()) return;
+
+        byte[] tag = source.readNBytes(tagLength);
+        if(tag.length != tagLength || !decryptStream.finish(tag)) {
+            throw new IOException("Authentication tag mismatch");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        while(outputPos >= outputLen) {
+            if(!fill()) return -1;
+        }
+        return output[outputPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if(length == 0) return 0;
+        while(outputPos >= outputLen) {
+            if(!fill()) return -1;
+        }
+
+        int count = Math.min(length, outputLen - outputPos);
+        System.arraycopy(output, outputPos, buffer, offset, count);
+        outputPos += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            source.close();
+        } finally {
+            decryptStream.close();
+        }
+    }
+}
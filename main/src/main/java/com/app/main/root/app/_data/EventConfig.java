@@ -5,15 +5,26 @@ public class EventConfig {
     private final EventHandler handler;
     private final String destination;
     private final boolean broadcast;
+    private final EventPriority priority;
 
     public EventConfig(
         EventHandler handler,
         String destination,
         boolean broadcast
+    ) {
+        this(handler, destination, broadcast, EventPriority.NORMAL);
+    }
+
+    public EventConfig(
+        EventHandler handler,
+        String destination,
+        boolean broadcast,
+        EventPriority priority
     ) {
         this.handler = handler;
         this.destination = destination;
         this.broadcast = broadcast;
+        this.priority = priority;
     }
 
     /**
@@ -36,4 +47,11 @@ public class EventConfig {
     public boolean isBroadcast() {
         return broadcast;
     }
+
+    /**
+     * Priority
+     */
+    public EventPriority getPriority() {
+        return priority;
+    }
 }
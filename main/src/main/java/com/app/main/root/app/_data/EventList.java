@@ -3,17 +3,20 @@ import com.app.main.root.app._server.MessageRouter;
 import com.app.main.root.app._service.ServiceManager;
 import com.app.main.root.EnvConfig;
 import com.app.main.root.app.EventTracker;
-import com.app.main.root.app._crypto.file_encoder.FileEncoderWrapper;
+import com.app.main.root.app._crypto.file_encoder.FileEncoderPool;
 import com.app.main.root.app._crypto.file_encoder.KeyManagerService;
 import com.app.main.root.app._crypto.message_encoder.SecureMessageService;
 import com.app.main.root.app.EventLog.EventDirection;
 import com.app.main.root.app._server.ConnectionTracker;
 import com.app.main.root.app._types.File;
 import com.app.main.root.app._types.Message;
+import com.app.main.root.app._types.MessageCursor;
+import com.app.main.root.app._types.MessageEnvelope;
 import com.app.main.root.app._types.User;
 import com.app.main.root.app.main.chat.messages.MessageTracker;
 import com.app.main.root.app._server.ConnectionInfo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
@@ -34,6 +37,12 @@ public class EventList {
     @Autowired @Lazy private SecureMessageService secureMessageService;
     @Autowired @Lazy private KeyManagerService keyManagerService;
 
+    @Value("${app.stream.batchItems:50}")
+    private int streamBatchItems;
+
+    @Value("${app.stream.batchBytes:65536}")
+    private int streamBatchBytes;
+
     private final Map<String, Long> activeDecryptionRequests = new ConcurrentHashMap<>();
     private final Object decryptionLock = new Object();
 
@@ -57,6 +66,21 @@ public class EventList {
         this.messageAnalyzer = messageAnalyzer;
     }
 
+    /**
+     * Batched streams are opt in with "batch": true, "batchSize" can
+     * lower the item limit per frame.
+     */
+    private StreamBatcher batcher(String sessionId, String destination, Map<String, Object> data) {
+        if(!Boolean.TRUE.equals(data.get("batch"))) return null;
+
+        int items = streamBatchItems;
+        Object batchSize = data.get("batchSize");
+        if(batchSize instanceof Number size && size.intValue() > 0) {
+            items = Math.min(items, size.intValue());
+        }
+        return new StreamBatcher(socketMethods, sessionId, destination, items, streamBatchBytes);
+    }
+
     public Map<String, EventConfig> list() {
         Map<String, EventConfig> configs = new HashMap<>();
 
@@ -341,18 +365,22 @@ public class EventList {
                         return Collections.emptyMap();
                     }
 
-                    List<Map<String, Object>> chats = 
+                    Map<String, Object> chatPage =
                         serviceManager
                         .getChatService()
-                        .getUserChats(authenticatedUserId, page, pageSize);
-
-                    List<Map<String, Object>> allChats =
-                        serviceManager
-                        .getChatService()
-                        .getChats(authenticatedUserId);
-                    int totalCount = allChats.size();
+                        .getUserChatsPage(authenticatedUserId, page, pageSize);
+                    List<Map<String, Object>> chats = (List<Map<String, Object>>) chatPage.get("chats");
+                    int totalCount = (int) chatPage.get("total");
 
+                    StreamBatcher batcher = batcher(sessionId, "/queue/user-chats-stream", data);
+                    if(batcher != null) {
+                        batcher.begin("CHAT_BATCH", "chats", Map.of("page", page, "total", totalCount));
+                    }
                     for(Map<String, Object> chat : chats) {
+                        if(batcher != null) {
+                            batcher.add(chat);
+                            continue;
+                        }
                         Map<String, Object> chatEvent = new HashMap<>();
                         chatEvent.put("type", "CHAT_DATA");
                         chatEvent.put("chat", chat);
@@ -368,6 +396,7 @@ public class EventList {
                     completionEvent.put("page", page);
                     completionEvent.put("total", totalCount);
 
+                    if(batcher != null) return batcher.end(completionEvent);
                     return completionEvent;
                 } catch(Exception err) {
                     Map<String, Object> errorEvent = new HashMap<>();
@@ -379,7 +408,8 @@ public class EventList {
                 }
             },
             "/queue/user-chats-stream",
-            false
+            false,
+            EventPriority.BULK
         ));
         /* Stream Chat Data  */
         configs.put("stream-chat-data", new EventConfig(
@@ -393,20 +423,53 @@ public class EventList {
                     boolean includeFiles = (boolean) data.getOrDefault("includeFiles", false);
                     boolean includeMessages = (boolean) data.getOrDefault("includeMessages", true);
 
+                    boolean useCursor = data.containsKey("cursor");
+                    if(page == 0 && !useCursor) serviceManager.getChatSummaryService().markRead(chatId, userId);
+                    String nextCursor = null;
+                    boolean hasMore = false;
+                    StreamBatcher batcher = batcher(sessionId, "/queue/chat-data-stream", data);
+
                     /* Messages */
                     if(includeMessages) {
-                        List<Message> messages = 
+                        List<Message> messages;
+                        if(useCursor) {
+                            MessageCursor cursor = MessageCursor.parse((String) data.get("cursor"));
+                            Map<String, Object> history =
+                                serviceManager
+                                .getMessageService()
+                                .getMessagesBefore(chatId, cursor, pageSize);
+                            messages = (List<Message>) history.get("messages");
+                            nextCursor = (String) history.get("nextCursor");
+                            hasMore = (boolean) history.get("hasMore");
+                        } else {
+                            messages = 
+                                serviceManager
+                                .getMessageService()
+                                .getMessagesByChatId(chatId, page, pageSize);
+                        }
+
+                        int totalMessages =
                             serviceManager
                             .getMessageService()
-                            .getMessagesByChatId(chatId, page, pageSize);
-
+                            .getMessageCountByChatId(chatId);
+                        if(batcher != null) {
+                            batcher.begin(
+                                "MESSAGE_BATCH",
+                                "messages",
+                                Map.of("chatId", chatId, "page", page, "total", totalMessages)
+                            );
+                        }
                         for(Message message : messages) {
+                            if(batcher != null) {
+                                batcher.add(message);
+                                continue;
+                            }
                             Map<String, Object> messageEvent = new HashMap<>();
                             messageEvent.put("type", "MESSAGE_DATA");
                             messageEvent.put("chatId", chatId);
                             messageEvent.put("message", message);
                             messageEvent.put("page", page);
-                            messageEvent.put("total", messages.size());
+                            messageEvent.put("total", totalMessages);
 
                             socketMethods.send(sessionId, "/queue/chat-data-stream", messageEvent);
                         }
@@ -423,13 +486,28 @@ public class EventList {
                                     pageSize
                                 );
 
+                        int totalFiles =
+                            serviceManager
+                            .getFileService()
+                            .countTotalFiles(userId, chatId);
+                        if(batcher != null) {
+                            batcher.begin(
+                                "FILE_BATCH",
+                                "files",
+                                Map.of("chatId", chatId, "page", page, "total", totalFiles)
+                            );
+                        }
                         for(File file : files) {
+                            if(batcher != null) {
+                                batcher.add(file);
+                                continue;
+                            }
                             Map<String, Object> fileEvent = new HashMap<>();
                             fileEvent.put("type", "FILE_DATA");
                             fileEvent.put("chatId", chatId);
                             fileEvent.put("file", file);
                             fileEvent.put("page", page);
-                            fileEvent.put("total", files.size());
+                            fileEvent.put("total", totalFiles);
 
                             socketMethods.send(sessionId, "/queue/chat-data-stream", fileEvent);
                         }
@@ -439,6 +517,11 @@ public class EventList {
                     completionEvent.put("type", "STREAM_COMPLETE");
                     completionEvent.put("chatId", chatId);
                     completionEvent.put("page", page);
+                    if(useCursor) {
+                        completionEvent.put("nextCursor", nextCursor);
+                        completionEvent.put("hasMore", hasMore);
+                    }
+                    if(batcher != null) return batcher.end(completionEvent);
                     return completionEvent;
                 } catch(Exception err) {
                     Map<String, Object> errorEvent = new HashMap<>();
@@ -450,7 +533,8 @@ public class EventList {
                 }
             },
             "/queue/chat-data-stream",
-            false
+            false,
+            EventPriority.BULK
         ));
         /* Chat */
         configs.put("chat", new EventConfig(
@@ -520,7 +604,8 @@ public class EventList {
                 return Collections.emptyMap();
             },
             "/queue/messages",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         configs.put("notification", new EventConfig(
             (sessionId, payload, headerAccessor) -> {
@@ -550,7 +635,8 @@ public class EventList {
                 return Collections.emptyMap();
             },
             "/queue/notifications",
-            false
+            false,
+            EventPriority.COALESCE
         ));
         /* File Message */
         configs.put("file", new EventConfig(
@@ -595,14 +681,7 @@ public class EventList {
                     
                     if(isGroupChat) {
                         String destination = "/user/queue/messages/group/" + chatId;
-                        List<User> groupMembers = serviceManager.getGroupService().getGroupMembers(chatId);
-                        
-                        for(User member : groupMembers) {
-                            String memberSessionId = serviceManager.getUserService().getSessionByUserId(member.getId());
-                            if(memberSessionId != null) {
-                                socketMethods.send(memberSessionId, destination, fileMessage);
-                            }
-                        }
+                        serviceManager.getGroupService().publishToGroup(chatId, destination, fileMessage);
                     } else if(isDirectChat) {
                         String destination = "/user/queue/messages/direct/" + chatId;
                         socketMethods.send(sessionId, destination, fileMessage);
@@ -635,7 +714,8 @@ public class EventList {
                 }
             },
             "/queue/messages",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         /* Get Decrypted Messages */
         configs.put("get-decrypted-messages", new EventConfig(
@@ -682,7 +762,8 @@ public class EventList {
                 }
             },
             "/queue/decrypted-messages-scss",
-            false
+            false,
+            EventPriority.BULK
         ));
         /* Decrypt Files */
         configs.put("get-decrypted-files", new EventConfig(
@@ -745,24 +826,18 @@ public class EventList {
                                 continue;
                             }
                             
-                            FileEncoderWrapper fileEncoder = new FileEncoderWrapper();
-                            try {
-                                fileEncoder.initEncoder(encryptionKey, FileEncoderWrapper.EncryptionAlgorithm.AES_256_GCM);
-
+                            try(FileEncoderPool.Lease fileEncoder = serviceManager.getFileService().getEncoderPool().acquire(encryptionKey)) {
                                 byte[] decryptedBytes = fileEncoder.decrypt(encryptedBytes);
                                 if(decryptedBytes == null) {
                                     processedFiles.add(processedFile);
                                     continue;
                                 }
                                 
-                                String base64Decrypted = Base64.getEncoder().encodeToString(decryptedBytes);
-                                processedFile.put("content", base64Decrypted);
+                                /* Raw bytes: base64 in JSON frames, a byte string in CBOR */
+                                processedFile.put("content", decryptedBytes);
                                 processedFile.put("isDecrypted", true);
                                 processedFile.put("originalSize", decryptedBytes.length);
                                 processedFile.put("originalFileName", originalFileName);
-                                
-                            } finally {
-                                fileEncoder.cleanup();
                             }
                             
                             processedFiles.add(processedFile);
@@ -809,7 +884,8 @@ public class EventList {
                 }
             },
             "/queue/decrypted-files-scss",
-            false
+            false,
+            EventPriority.BULK
         ));
         configs.put("direct", new EventConfig(
             (sessionId, payload, headerAcessor) -> {
@@ -830,7 +906,7 @@ public class EventList {
                     String routeType = messageAnalyzer.extractRouteType(sessionId, payloadData);
                     if(chatId != null && chatId.startsWith("direct_")) {
                         String destination = "/user/queue/messages/direct/" + chatId;
-                        Object data = serviceManager.getMessageService().payload(
+                        MessageEnvelope data = serviceManager.getMessageService().payload(
                             routeType, 
                             payloadData, 
                             chatId, 
@@ -841,14 +917,7 @@ public class EventList {
 
                         String recipientSession = serviceManager.getUserService().getSessionByUserId(recipientId);
                         if(recipientSession != null) {
-                            Object recipientData = serviceManager.getMessageService().payload(
-                                routeType, 
-                                payloadData, 
-                                chatId, 
-                                sessionId, 
-                                currentUserId
-                            );
-                            socketMethods.send(recipientSession, destination, recipientData);
+                            socketMethods.send(recipientSession, destination, data);
                         }
                     }
 
@@ -866,7 +935,8 @@ public class EventList {
                 return Collections.emptyMap();
             },
             "",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         configs.put("get-direct-chat-id", new EventConfig(
             (sessionId, payload, headerAccessor) -> {
@@ -916,13 +986,12 @@ public class EventList {
                     String actualGroupId = chatId != null ? chatId : groupId;
                     String currentUserId = serviceManager.getUserService().getUserIdBySession(sessionId);
                     String routeType = messageAnalyzer.extractRouteType(sessionId, payloadData);
-                    Map<String, Object> messageWithPerspective = messageAnalyzer.applyPerspective(sessionId, payloadData);
 
                     if(actualGroupId != null && actualGroupId.startsWith("group_")) {
                         String destination = "/user/queue/messages/group/" + actualGroupId;
-                        Object data = serviceManager.getMessageService().payload(
+                        MessageEnvelope data = serviceManager.getMessageService().payload(
                             routeType, 
-                            messageWithPerspective, 
+                            payloadData, 
                             actualGroupId, 
                             sessionId,
                             currentUserId
@@ -942,7 +1011,8 @@ public class EventList {
                 return Collections.emptyMap();
             },
             "",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         /* Create Group */
         configs.put("create-group", new EventConfig(
@@ -1015,7 +1085,8 @@ public class EventList {
                 }
             },
             "/user/queue/group-creation-scss",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         /* Join Group */
         configs.put("join-group", new EventConfig(
@@ -1101,7 +1172,8 @@ public class EventList {
                 }
             },
             "/user/queue/join-group-scss",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         /* Exit User */
         configs.put("exit-group", new EventConfig(
@@ -1196,7 +1268,8 @@ public class EventList {
                 }
             },
             "/user/queue/exit-group-scss",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         /* Add User Group */
         configs.put("add-user-group", new EventConfig(
@@ -1322,7 +1395,8 @@ public class EventList {
                 }
             },
             "/user/queue/add-user-group-scss",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         /* Remove User Group */
         configs.put("remove-user-group", new EventConfig(
@@ -1451,7 +1525,8 @@ public class EventList {
                 }
             },
             "/user/queue/remove-user-group-scss",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         /* Get User Groups */
         configs.put("get-user-chats", new EventConfig(
@@ -1678,7 +1753,8 @@ public class EventList {
                 }
             },
             "/queue/password-reset-request-scss",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         /* Validate Reset Token */
         configs.put("validate-reset-token", new EventConfig(
@@ -1718,7 +1794,8 @@ public class EventList {
                 }
             },
             "/queue/token-validation-scss",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
         /* Reset Password */
         configs.put("reset-password", new EventConfig(
@@ -1728,9 +1805,11 @@ public class EventList {
                     String token = (String) data.get("token");
                     String newPassword = (String) data.get("newPassword");
 
+                    /* the reply is this handler's result, waiting holds only this session's inbound lane */
                     Map<String, Object> res = serviceManager
                         .getPasswordResetService()
-                        .resetPassword(token, newPassword);
+                        .resetPassword(token, newPassword)
+                        .join();
 
                     socketMethods.send(
                         sessionId, 
@@ -1759,7 +1838,8 @@ public class EventList {
                 }
             },
             "/queue/password-reset-scss",
-            false
+            false,
+            EventPriority.CRITICAL
         ));
 
         return configs;
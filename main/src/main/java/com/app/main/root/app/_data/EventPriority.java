@@ -0,0 +1,19 @@
+package com.app.main.root.app._data;
+
+/**
+ * How an outbound event is treated when its session falls behind.
+ */
+public enum EventPriority {
+    /** Chat traffic and account flows, never dropped. */
+    CRITICAL,
+    /** Request replies, dropped only past the hard limit. */
+    NORMAL,
+    /** State updates, a newer one replaces any still queued. */
+    COALESCE,
+    /** Bulk streams, dropped first, clients refetch on a sequence gap. */
+    BULK;
+
+    public boolean isDroppable() {
+        return this != CRITICAL;
+    }
+}
@@ -0,0 +1,104 @@
+package com.app.main.root.app._data;
+import com.app.main.root.app._db.CommandQueryManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a byte range of a stored content BLOB in fixed windows
+ * through substr(), so only one window is ever on the heap.
+ * SQLite still loads the whole value for every substr() call, so
+ * windows are kept large to keep the number of round trips low.
+ */
+public class FileContentInputStream extends InputStream {
+    private final JdbcTemplate jdbcTemplate;
+    private final String query;
+    private final String fileId;
+    private final int windowBytes;
+    private final long end;
+
+    private long position;
+    private byte[] window = new byte[0];
+    private int windowPos = 0;
+
+    public FileContentInputStream(
+        JdbcTemplate jdbcTemplate,
+        String table,
+        String fileId,
+        long start,
+        long end,
+        int windowBytes
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.query = String.format(CommandQueryManager.GET_FILE_CONTENT_RANGE.get(), table);
+        this.fileId = fileId;
+        this.position = start;
+        this.end = end;
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * Content Length
+     */
+    public static long contentLength(JdbcTemplate jdbcTemplate, String table, String fileId) {
+        String query = String.format(CommandQueryManager.GET_FILE_CONTENT_LENGTH.get(), table);
+        Long length = jdbcTemplate.queryForObject(query, Long.class, fileId);
+        return length != null ? length : -1;
+    }
+
+    /**
+     * Read Range
+     */
+    public static byte[] readRange(JdbcTemplate jdbcTemplate, String table, String fileId, long start, int length) {
+        String query = String.format(CommandQueryManager.GET_FILE_CONTENT_RANGE.get(), table);
+        byte[] data = jdbcTemplate.queryForObject(query, byte[].class, start + 1, length, fileId);
+        return data != null ? data : new byte[0];
+    }
+
+    private boolean fill() throws IOException {
+        if(position >= end) return false;
+
+        int length = (int) Math.min(windowBytes, end - position);
+        try {
+            window = jdbcTemplate.queryForObject(query, byte[].class, position + 1, length, fileId);
+        } catch(Exception err) {
+            throw new IOException("Failed to read content window for file " + fileId, err);
+        }
+        if(window == null || window.length == 0) {
+            throw new IOException("Content ended early for file " + fileId + " at " + position);
+        }
+
+        position += window.length;
+        windowPos = 0;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if(windowPos >= window.length && !fill()) return -1;
+        return window[windowPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if(length == 0) return 0;
+        if(windowPos >= window.length && !fill()) return -1;
+
+        int count = Math.min(length, window.length - windowPos);
+        System.arraycopy(window, windowPos, buffer, offset, count);
+        windowPos += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return window.length - windowPos;
+    }
+
+    @Override
+    public void close() {
+        window = new byte[0];
+        windowPos = 0;
+        position = end;
+    }
+}
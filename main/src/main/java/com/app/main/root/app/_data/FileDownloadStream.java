@@ -0,0 +1,286 @@
+package com.app.main.root.app._data;
+import com.app.main.root.app._crypto.file_encoder.FileDecryptStream;
+import com.app.main.root.app._crypto.file_encoder.FileEncoderWrapper;
+import com.app.main.root.app.file_compressor.WrapperFileCompressor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A file opened for streaming download. Holds the metadata needed
+ * for response headers and writes any byte range of the plaintext
+ * straight to an output stream. Uncompressed files are decrypted
+ * only over the requested range, compressed files are decoded from
+ * the start and trimmed to the range.
+ *
+ * Chunked rows (type 10) decode in bounded memory. Older rows were
+ * compressed in one native call (types 1-5), which can only decode
+ * whole arrays, so they hold the compressed and decompressed copies
+ * at once. The uploader only wrote those for files up to
+ * SINGLE_SHOT_MAX_BYTES, larger ones are refused rather than risk
+ * the heap.
+ */
+public class FileDownloadStream {
+    public static final int IV_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+    public static final long SINGLE_SHOT_MAX_BYTES = 50L * 1024 * 1024;
+
+    private final String fileId;
+    private final String filename;
+    private final String mimeType;
+    private final long length;
+    private final long lastModified;
+    private final String etag;
+    private final int compressionType;
+
+    private final ContentSource source;
+    private final long contentLength;
+    private final int windowBytes;
+    private final Supplier<byte[]> keyLoader;
+    private final Map<String, byte[]> ivCache;
+
+    public FileDownloadStream(
+        String fileId,
+        String filename,
+        String mimeType,
+        long length,
+        long lastModified,
+        String etag,
+        int compressionType,
+        JdbcTemplate contentTemplate,
+        String table,
+        long contentLength,
+        int windowBytes,
+        Supplier<byte[]> keyLoader,
+        Map<String, byte[]> ivCache
+    ) {
+        this(
+            fileId,
+            filename,
+            mimeType,
+            length,
+            lastModified,
+            etag,
+            compressionType,
+            new TableContentSource(contentTemplate, table, fileId, windowBytes),
+            contentLength,
+            windowBytes,
+            keyLoader,
+            ivCache
+        );
+    }
+
+    public FileDownloadStream(
+        String fileId,
+        String filename,
+        String mimeType,
+        long length,
+        long lastModified,
+        String etag,
+        int compressionType,
+        ContentSource source,
+        long contentLength,
+        int windowBytes,
+        Supplier<byte[]> keyLoader,
+        Map<String, byte[]> ivCache
+    ) {
+        this.fileId = fileId;
+        this.filename = filename;
+        this.mimeType = mimeType;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.etag = etag;
+        this.compressionType = compressionType;
+        this.source = source;
+        this.contentLength = contentLength;
+        this.windowBytes = windowBytes;
+        this.keyLoader = keyLoader;
+        this.ivCache = ivCache;
+    }
+
+    /**
+     * Write Range
+     *
+     * Writes plaintext bytes start..end (inclusive) to the output.
+     */
+    public void writeTo(OutputStream output, long start, long end) throws IOException {
+        if(start < 0 || end >= length || start > end) {
+            throw new IllegalArgumentException("Invalid range " + start + "-" + end + " for length " + length);
+        }
+
+        byte[] key = keyLoader.get();
+        if(key == null) {
+            throw new IOException("Failed to retrieve encryption key for file: " + fileId);
+        }
+
+        try {
+            if(compressionType > 0) {
+                writeDecompressed(output, key, start, end);
+            } else {
+                writePlain(output, key, start, end);
+            }
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    private void writePlain(OutputStream output, byte[] key, long start, long end) throws IOException {
+        boolean whole = start == 0 && end == length - 1;
+        long cipherStart = IV_LENGTH + start;
+        long sourceEnd = whole ? contentLength : IV_LENGTH + end + 1;
+
+        byte[] iv = ivCache.get(fileId);
+        boolean ivInline = iv == null && cipherStart < windowBytes;
+        if(iv == null && !ivInline) {
+            iv = source.readRange(0, IV_LENGTH);
+            if(iv.length != IV_LENGTH) throw new IOException("Missing IV for file: " + fileId);
+            ivCache.put(fileId, iv);
+        }
+
+        InputStream input = ivInline ? source.open(0, sourceEnd) : source.open(cipherStart, sourceEnd);
+        FileDecryptStream decryptStream;
+        try {
+            if(ivInline) {
+                iv = readIV(input);
+                input.skipNBytes(start);
+            }
+            decryptStream = openDecryptStream(key, iv, start, whole);
+        } catch(IOException err) {
+            input.close();
+            throw err;
+        }
+
+        try(InputStream plain = new DecryptingInputStream(input, decryptStream, end - start + 1, TAG_LENGTH)) {
+            plain.transferTo(output);
+        }
+    }
+
+    private void writeDecompressed(OutputStream output, byte[] key, long start, long end) throws IOException {
+        long cipherLength = contentLength - IV_LENGTH - TAG_LENGTH;
+        if(compressionType != 10 && (length > SINGLE_SHOT_MAX_BYTES || cipherLength > SINGLE_SHOT_MAX_BYTES)) {
+            throw new IOException("Single-shot compressed file too large to decode: " + fileId);
+        }
+
+        InputStream encrypted = source.open(0, contentLength);
+        FileDecryptStream decryptStream;
+        try {
+            decryptStream = openDecryptStream(key, readIV(encrypted), 0, true);
+        } catch(IOException err) {
+            encrypted.close();
+            throw err;
+        }
+
+        try(InputStream input = new DecryptingInputStream(encrypted, decryptStream, cipherLength, TAG_LENGTH)) {
+            OutputStream rangeOutput = new RangeOutputStream(output, start, end - start + 1);
+            if(compressionType == 10) {
+                WrapperFileCompressor.decompressStream(input, rangeOutput);
+                input.transferTo(OutputStream.nullOutputStream());
+            } else {
+                byte[] compressed = input.readNBytes((int) cipherLength);
+                /* reading past the end checks the tag before anything is written */
+                if(input.read() != -1) throw new IOException("Unexpected trailing content in file: " + fileId);
+                byte[] decompressed = WrapperFileCompressor.decompressData(compressed, compressionType);
+                if(decompressed == null) throw new IOException("Decompression failed for file: " + fileId);
+                rangeOutput.write(decompressed);
+            }
+        } catch(IOException err) {
+            throw err;
+        } catch(Exception err) {
+            throw new IOException("Failed to decompress file: " + fileId, err);
+        }
+    }
+
+    private byte[] readIV(InputStream input) throws IOException {
+        byte[] iv = input.readNBytes(IV_LENGTH);
+        if(iv.length != IV_LENGTH) throw new IOException("Missing IV for file: " + fileId);
+        ivCache.put(fileId, iv);
+        return iv;
+    }
+
+    private FileDecryptStream openDecryptStream(byte[] key, byte[] iv, long offset, boolean verify) throws IOException {
+        try {
+            return FileEncoderWrapper.openDecryptStream(
+                key,
+                FileEncoderWrapper.EncryptionAlgorithm.AES_256_GCM,
+                iv,
+                offset,
+                verify
+            );
+        } catch(IllegalStateException err) {
+            throw new IOException(err.getMessage(), err);
+        }
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public boolean isCompressed() {
+        return compressionType > 0;
+    }
+
+    /**
+     * Passes through only the bytes that fall inside the range.
+     */
+    private static class RangeOutputStream extends FilterOutputStream {
+        private long skip;
+        private long remaining;
+
+        RangeOutputStream(OutputStream output, long skip, long length) {
+            super(output);
+            this.skip = skip;
+            this.remaining = length;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if(skip > 0) {
+                skip--;
+            } else if(remaining > 0) {
+                out.write(b);
+                remaining--;
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            if(skip >= length) {
+                skip -= length;
+                return;
+            }
+
+            int from = offset + (int) skip;
+            int count = (int) Math.min(length - skip, remaining);
+            skip = 0;
+            if(count > 0) {
+                out.write(buffer, from, count);
+                remaining -= count;
+            }
+        }
+    }
+}
@@ -1,31 +1,47 @@
 package com.app.main.root.app._data;
-import com.app.main.root.app._crypto.file_encoder.FileEncoderWrapper;
+import com.app.main.root.app._crypto.file_encoder.FileEncoderPool;
 import com.app.main.root.app._crypto.file_encoder.KeyManagerService;
 import com.app.main.root.app._db.CommandQueryManager;
 import com.app.main.root.app._service.FileService;
 import com.app.main.root.app.file_compressor.WrapperFileCompressor;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.DigestUtils;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.util.*;
 
 public class FileDownloader {  
     private final FileService fileService;
     private final Map<String, JdbcTemplate> jdbcTemplates;
-    private final FileEncoderWrapper fileEncoderWrapper;
+    private final FileEncoderPool encoderPool;
     private final KeyManagerService keyManagerService;
+    private final BlobStore blobStore;
 
     private String downloadUrl;
+    private int windowBytes = 8 * 1024 * 1024;
+    private final Map<String, byte[]> ivCache = Collections.synchronizedMap(
+        new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > 1024;
+            }
+        }
+    );
 
     public FileDownloader(
         FileService fileService, 
         Map<String, JdbcTemplate> jdbcTemplates,
-        FileEncoderWrapper fileEncoderWrapper,
-        KeyManagerService keyManagerService
+        FileEncoderPool encoderPool,
+        KeyManagerService keyManagerService,
+        BlobStore blobStore
     ) {
         this.fileService = fileService;
         this.jdbcTemplates = jdbcTemplates;
-        this.fileEncoderWrapper = fileEncoderWrapper;
+        this.encoderPool = encoderPool;
         this.keyManagerService = keyManagerService;
+        this.blobStore = blobStore;
     }
 
     public void setDownloadUrl(String url) {
@@ -35,6 +51,94 @@ public class FileDownloader {
         return downloadUrl;
     }
 
+    public void setWindowBytes(int windowBytes) {
+        this.windowBytes = Math.max(64 * 1024, windowBytes);
+    }
+
+    /**
+     * Open Stream
+     *
+     * Looks up everything needed to answer a download without touching
+     * the content itself. The key is only fetched once bytes are
+     * actually written, so conditional requests never load it.
+     * Content comes from the blob store, files not yet migrated are
+     * still read from their BLOB table.
+     * Returns null if the file does not exist for this user.
+     */
+    public FileDownloadStream openStream(String userId, String fileId) throws IOException {
+        String query = CommandQueryManager.GET_FILE_INFO.get();
+        List<Map<String, Object>> rows = jdbcTemplates
+            .get(FileService.METADATA_DB)
+            .queryForList(query, fileId, userId);
+        if(rows.isEmpty()) return null;
+
+        Map<String, Object> metadata = rows.get(0);
+        String mimeType = (String) metadata.get("mime_type");
+        String dbType = (String) metadata.get("database_name");
+        if(dbType == null || dbType.isEmpty()) {
+            dbType = fileService.getDatabaseForMimeType(mimeType);
+        }
+        Number compression = (Number) metadata.get("compression_type");
+        int compressionType = compression != null ? compression.intValue() : 0;
+
+        String blobHash = (String) metadata.get("blob_hash");
+        ContentSource source;
+        if(blobHash != null) {
+            source = blobStore.source(blobHash);
+        } else {
+            JdbcTemplate contentTemplate = jdbcTemplates.get(dbType);
+            if(contentTemplate == null) {
+                throw new RuntimeException("No database configured for type: " + dbType);
+            }
+            source = new TableContentSource(contentTemplate, dbType, fileId, windowBytes);
+        }
+        long contentLength = source.length();
+        long overhead = FileDownloadStream.IV_LENGTH + FileDownloadStream.TAG_LENGTH;
+        if(contentLength <= overhead) {
+            throw new RuntimeException("File content not found in " + dbType);
+        }
+
+        long length = compressionType > 0 ?
+            ((Number) metadata.get("file_size")).longValue() :
+            contentLength - overhead;
+        long uploadedAt = toEpochMillis(metadata.get("uploaded_at"));
+        String etag = "\"" + DigestUtils.md5DigestAsHex(
+            (fileId + ":" + contentLength + ":" + uploadedAt).getBytes(StandardCharsets.UTF_8)
+        ) + "\"";
+
+        return new FileDownloadStream(
+            fileId,
+            (String) metadata.get("original_filename"),
+            mimeType,
+            length,
+            uploadedAt,
+            etag,
+            compressionType,
+            source,
+            contentLength,
+            windowBytes,
+            () -> keyManagerService.retrieveKey(fileId, userId),
+            ivCache
+        );
+    }
+
+    private long toEpochMillis(Object value) {
+        if(value instanceof Number number) return number.longValue();
+        if(value instanceof java.util.Date date) return date.getTime();
+        if(value instanceof String text) {
+            try {
+                return Long.parseLong(text);
+            } catch(NumberFormatException err) {
+                try {
+                    return Timestamp.valueOf(text).getTime();
+                } catch(IllegalArgumentException ignored) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
     /**
      * Download File
      */
@@ -57,7 +161,8 @@ public class FileDownloader {
                 String originalFileName = (String) metadata.get("original_filename");
                 String mimeType = (String) metadata.get("mime_type");
                 String dbType = (String) metadata.get("database_name");
-                Integer compressionType = (Integer) metadata.get("compression_type");
+                Number compression = (Number) metadata.get("compression_type");
+                Integer compressionType = compression != null ? compression.intValue() : null;
                 byte[] storedIV = (byte[]) metadata.get("iv");
                 byte[] storedTag = (byte[]) metadata.get("tag");
                 
@@ -73,10 +178,16 @@ public class FileDownloader {
                     compressionType = 0;
                 }
                 
-                String contentQuery = getContent(dbType);
-                List<Map<String, Object>> contentRes = jdbcTemplates
-                    .get(dbType)
-                    .queryForList(contentQuery, fileId);
+                String blobHash = (String) metadata.get("blob_hash");
+                List<Map<String, Object>> contentRes;
+                if(blobHash != null) {
+                    contentRes = List.of(Map.of("content", blobStore.read(blobHash)));
+                } else {
+                    String contentQuery = getContent(dbType);
+                    contentRes = jdbcTemplates
+                        .get(dbType)
+                        .queryForList(contentQuery, fileId);
+                }
 
                 if(!contentRes.isEmpty()) {
                     byte[] encryptedContent = (byte[]) contentRes.get(0).get("content");
@@ -89,60 +200,11 @@ public class FileDownloader {
                         throw new RuntimeException("Failed to retrieve encryption key for file: " + fileId);
                     }
 
-                    fileEncoderWrapper.initEncoder(encryptionKey, FileEncoderWrapper.EncryptionAlgorithm.AES_256_GCM);
-                    
-                    if(storedIV != null) {
-                        fileEncoderWrapper.setIV(storedIV);
-                    } else {
-                        System.err.println("WARNING: No IV found in metadata for file: " + fileId);
-                    }
-                    
-                    if(storedTag != null) {
-                        try {
-                            fileEncoderWrapper.getTag();
-                            System.out.println("DEBUG: Authentication tag set successfully");
-                        } catch(Exception e) {
-                            System.err.println("WARNING: Failed to set authentication tag: " + e.getMessage());
-                        }
-                    } else {
-                        System.err.println("WARNING: No authentication tag found in metadata for file: " + fileId);
-                    }
-                    
-                    byte[] decryptedContent = null;
-                    try {
-                        decryptedContent = fileEncoderWrapper.decrypt(encryptedContent);
-                        System.out.println("DEBUG: Decryption successful with tag verification");
+                    byte[] decryptedContent;
+                    try(FileEncoderPool.Lease encoder = encoderPool.acquire(encryptionKey)) {
+                        decryptedContent = encoder.decrypt(encryptedContent);
                     } catch(IllegalArgumentException e) {
-                        if(e.getMessage().contains("Failed to set authentication tag") || 
-                        e.getMessage().contains("Decryption failed")) {
-                            
-                            System.err.println("WARNING: Decryption with tag failed, trying without tag...");
-                            
-                            try {
-                                fileEncoderWrapper.initEncoder(encryptionKey, FileEncoderWrapper.EncryptionAlgorithm.AES_256_GCM);
-                                if(storedIV != null) {
-                                    fileEncoderWrapper.setIV(storedIV);
-                                }
-                                
-                                System.out.println("DEBUG: Decryption successful WITHOUT tag verification");
-                            } catch(Exception e2) {
-                                System.err.println("ERROR: Decryption without tag also failed: " + e2.getMessage());
-                                
-                                try {
-                                    System.err.println("Trying CBC mode as fallback...");
-                                    fileEncoderWrapper.initEncoder(encryptionKey, FileEncoderWrapper.EncryptionAlgorithm.AES_256_GCM);
-                                    if(storedIV != null) {
-                                        fileEncoderWrapper.setIV(storedIV);
-                                    }
-                                    decryptedContent = fileEncoderWrapper.decrypt(encryptedContent);
-                                    System.out.println("DEBUG: Decryption successful with CBC fallback");
-                                } catch(Exception e3) {
-                                    throw new RuntimeException("All decryption methods failed: " + e3.getMessage());
-                                }
-                            }
-                        } else {
-                            throw e;
-                        }
+                        throw new RuntimeException("Decryption failed: " + e.getMessage());
                     }
                     
                     if(decryptedContent == null || decryptedContent.length == 0) {
@@ -155,7 +217,9 @@ public class FileDownloader {
                     if(compressionType != null && compressionType > 0) {
                         try {
                             System.out.println("DEBUG: Attempting decompression with type: " + compressionType);
-                            byte[] decompressed = WrapperFileCompressor.decompressData(decryptedContent, compressionType);
+                            byte[] decompressed = compressionType == 10 ?
+                                WrapperFileCompressor.decompressStream(decryptedContent) :
+                                WrapperFileCompressor.decompressData(decryptedContent, compressionType);
                             
                             if(decompressed != null && decompressed.length > 0) {
                                 decryptedContent = decompressed;
@@ -1,4 +1,5 @@
 package com.app.main.root.app._data;
+import com.app.main.root.app._crypto.file_encoder.FileEncoderPool;
 import com.app.main.root.app._crypto.file_encoder.FileEncoderWrapper;
 import com.app.main.root.app._crypto.file_encoder.KeyManagerService;
 import com.app.main.root.app._db.CommandQueryManager;
@@ -8,8 +9,12 @@ import com.app.main.root.app.file_compressor.WithCompressionResult;
 import com.app.main.root.app.file_compressor.WrapperFileCompressor;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Timestamp;
 import java.sql.SQLException;
 import java.time.Instant;
@@ -20,8 +25,9 @@ public class FileUploader {
     private final FileService fileService;
     private final Map<String, JdbcTemplate> jdbcTemplates;
     private final ServiceManager serviceManager;
-    private final FileEncoderWrapper fileEncoderWrapper;
+    private final FileEncoderPool encoderPool;
     private final KeyManagerService keyManagerService;
+    private final BlobStore blobStore;
 
     private String fileId;
     private String fileName;
@@ -37,14 +43,16 @@ public class FileUploader {
         FileService fileService, 
         Map<String, JdbcTemplate> jdbcTemplates,
         ServiceManager serviceManager,
-        FileEncoderWrapper fileEncoderWrapper,
-        KeyManagerService keyManagerService
+        FileEncoderPool encoderPool,
+        KeyManagerService keyManagerService,
+        BlobStore blobStore
     ) {
         this.fileService = fileService;
         this.jdbcTemplates = jdbcTemplates;
         this.serviceManager = serviceManager;
-        this.fileEncoderWrapper = fileEncoderWrapper;
+        this.encoderPool = encoderPool;
         this.keyManagerService = keyManagerService;
+        this.blobStore = blobStore;
     } 
 
     /**
@@ -56,8 +64,8 @@ public class FileUploader {
         String chatId
     ) throws SQLException {
         try {            
-            if(fileEncoderWrapper == null) {
-                throw new RuntimeException("fileEncoderWrapper is null!");
+            if(encoderPool == null) {
+                throw new RuntimeException("encoderPool is null!");
             }
             if(keyManagerService == null) {
                 throw new RuntimeException("keyManagerService is null!");
@@ -92,13 +100,8 @@ public class FileUploader {
                 System.err.println("ERROR: No files_metadata database configured");
                 throw new SQLException("No files_metadata database configured");
             }
-            JdbcTemplate jdbcTemplate = jdbcTemplates.get(targetDb);
-            if(jdbcTemplate == null) {
-                System.err.println("ERROR: No database configured for type: " + targetDb);
-                throw new SQLException("No database configured for type: " + targetDb);
-            }
 
-            byte[] fileBytes = file.getBytes();
+            byte[] fileBytes;
             int compressionType = 0;
             boolean shouldCompress = fileService.shouldCompress(fileSize, mimeType);
             if(shouldCompress) {
@@ -108,23 +111,32 @@ public class FileUploader {
                     if(fileSize > 50 * 1024 * 1024) {
                         System.out.println("DEBUG: Large file detected, using streaming compression");
                         
-                        InputStream inputStream = file.getInputStream();
-                        WithCompressionResult compressionResult = 
-                            WrapperFileCompressor.compressStream(inputStream, fileSize, mimeType);
-                        
-                        fileBytes = compressionResult.getData();
-                        compressionType = compressionResult.getCompressionType();
-                        
-                        long compressedSize = fileBytes.length;
-                        double ratio = (double) compressedSize / fileSize;
-                        
-                        if(compressionType == 10 && ratio < 0.95) {
-                            this.compressed = true;
-                            System.out.println("  Using stream-compressed data");
-                        } else {
-                            this.compressed = false;
-                            compressionType = 0;
-                            System.out.println("  Streaming compression not beneficial");
+                        Path temp = Files.createTempFile("upload", ".cmps");
+                        try {
+                            int compressedFrames;
+                            try(
+                                InputStream inputStream = file.getInputStream();
+                                OutputStream sink = new BufferedOutputStream(Files.newOutputStream(temp));
+                            ) {
+                                compressedFrames = WrapperFileCompressor.compressStream(inputStream, fileSize, sink);
+                            }
+
+                            long compressedSize = Files.size(temp);
+                            double ratio = (double) compressedSize / fileSize;
+
+                            if(compressedFrames > 0 && ratio < 0.95) {
+                                fileBytes = Files.readAllBytes(temp);
+                                compressionType = 10;
+                                this.compressed = true;
+                                System.out.println("  Using stream-compressed data");
+                            } else {
+                                this.compressed = false;
+                                compressionType = 0;
+                                fileBytes = file.getBytes();
+                                System.out.println("  Streaming compression not beneficial");
+                            }
+                        } finally {
+                            Files.deleteIfExists(temp);
                         }
                     } else {
                         System.out.println("DEBUG: Using normal compression");
@@ -161,37 +173,37 @@ public class FileUploader {
                 compressionType = 0;
             }
 
-            byte[] encryptionKey = FileEncoderWrapper.generateKey(32);
-            fileEncoderWrapper.initEncoder(encryptionKey, FileEncoderWrapper.EncryptionAlgorithm.AES_256_GCM);
-
-            byte[] encryptedContent = fileEncoderWrapper.encrypt(fileBytes);
-            insertFileContent(targetDb, fileId, encryptedContent, mimeType);
-            
-            byte[] iv = fileEncoderWrapper.generateIV();
-            byte[] tag = fileEncoderWrapper.getTag();
-
-            byte[] ivEncrypted = new byte[iv.length + encryptedContent.length];
-            System.arraycopy(iv, 0, ivEncrypted, 0, iv.length);
-            System.arraycopy(encryptedContent, 0, ivEncrypted, iv.length, encryptedContent.length);
+            String contentHash = BlobStore.contentHash(fileBytes, compressionType);
+            StoredBlob blob = shareBlob(contentHash);
+            if(blob == null) {
+                blob = writeBlob(fileBytes, contentHash);
+            }
 
-            metadataTemplate.update(
-                query,
-                fileId,
-                userId,
-                originalFileName,
-                fileSize,
-                mimeType,
-                fileType, 
-                targetDb,
-                chatId,
-                uploadedAt,
-                iv,
-                tag
-            );
+            try {
+                metadataTemplate.update(
+                    query,
+                    fileId,
+                    userId,
+                    originalFileName,
+                    fileSize,
+                    mimeType,
+                    fileType, 
+                    targetDb,
+                    chatId,
+                    uploadedAt,
+                    blob.iv,
+                    blob.tag,
+                    compressionType,
+                    blob.hash
+                );
+            } catch(RuntimeException err) {
+                blobStore.release(blob.hash);
+                throw err;
+            }
             keyManagerService.storeKey(
                 fileId, 
                 userId, 
-                encryptionKey
+                blob.key
             );
 
             if(serviceManager.getCacheService() != null) {
@@ -216,33 +228,63 @@ public class FileUploader {
     }
 
     /**
-     * Insert File Content
+     * Share Blob
+     *
+     * Keys are per file, so equal content only encrypts to the same
+     * blob when the key is shared too. A live file with the same
+     * content lends its blob, IV, tag and key, the new file stores its
+     * own copy of the key. Null if there is nothing to share.
      */
-    private void insertFileContent(
-        String dbType,
-        String fileId,
-        byte[] content,
-        String mimeType
-    ) {
-        String query;
-        switch(dbType) {
-            case FileService.IMAGE_DB:
-                query = CommandQueryManager.ADD_IMAGE.get();
-                break;
-            case FileService.VIDEO_DB:
-                query = CommandQueryManager.ADD_VIDEO.get();
-                break;
-            case FileService.AUDIO_DB:
-                query = CommandQueryManager.ADD_AUDIO.get();
-                break;
-            case FileService.DOCUMENT_DB:
-                query = CommandQueryManager.ADD_DOCUMENT.get();
-                break;
-            default:
-                query = CommandQueryManager.ADD_DOCUMENT.get();
+    private StoredBlob shareBlob(String contentHash) {
+        try {
+            Map<String, Object> donor = blobStore.findByContent(contentHash);
+            if(donor == null) return null;
+
+            byte[] key = keyManagerService.retrieveKey(
+                (String) donor.get("file_id"),
+                (String) donor.get("user_id")
+            );
+            String hash = (String) donor.get("blob_hash");
+            if(key == null || !blobStore.acquire(hash)) return null;
+            return new StoredBlob(hash, key, (byte[]) donor.get("iv"), (byte[]) donor.get("tag"));
+        } catch(Exception err) {
+            System.err.println("Blob lookup failed, storing a new copy: " + err.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write Blob
+     */
+    private StoredBlob writeBlob(byte[] fileBytes, String contentHash) throws IOException {
+        byte[] encryptionKey = FileEncoderWrapper.generateKey(32);
+        byte[] encryptedContent;
+        byte[] iv;
+        byte[] tag;
+        try(FileEncoderPool.Lease encoder = encoderPool.acquire(encryptionKey)) {
+            encryptedContent = encoder.encrypt(fileBytes);
+            if(encryptedContent == null) throw new IOException("Encryption failed");
+            iv = encoder.getIV();
+            tag = encoder.getTag();
         }
 
-        jdbcTemplates.get(dbType).update(query, fileId, content);
+        String hash = blobStore.write(encryptedContent);
+        blobStore.register(hash, contentHash, encryptedContent.length);
+        return new StoredBlob(hash, encryptionKey, iv, tag);
+    }
+
+    private static class StoredBlob {
+        final String hash;
+        final byte[] key;
+        final byte[] iv;
+        final byte[] tag;
+
+        StoredBlob(String hash, byte[] key, byte[] iv, byte[] tag) {
+            this.hash = hash;
+            this.key = key;
+            this.iv = iv;
+            this.tag = tag;
+        }
     }
 
     /**
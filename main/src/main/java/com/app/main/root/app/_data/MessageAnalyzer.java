@@ -4,6 +4,7 @@ import com.app.main.root.app.EventLog.EventDirection;
 import com.app.main.root.app._server.MessageRouter;
 import com.app.main.root.app._service.MessagePerspectiveService;
 import com.app.main.root.app._service.ServiceManager;
+import com.app.main.root.app._types.MessageEnvelope;
 import org.springframework.stereotype.Component;
 import java.util.*;
 
@@ -26,13 +27,14 @@ public class MessageAnalyzer {
     /**
      * Orginze and Route
      */
-    public void organizeAndRoute(String sessionId, Map<String, Object> payload) {
+    public MessageEnvelope organizeAndRoute(String sessionId, Map<String, Object> payload) {
         MessageContext context = analyzeContext(sessionId, payload);
         String[] routes = determineRoutes(context);
-        Map<String, Object> setMessage = setMessage(context);
+        MessageEnvelope envelope = setMessage(context);
         
-        routeMessage(context, setMessage, routes);
+        messageRouter.routeMessage(context.sessionId, envelope, routes);
         trackMessage(context);
+        return envelope;
     }
 
     /**
@@ -45,6 +47,7 @@ public class MessageAnalyzer {
         String userId = (String) payload.get("userId");
         String groupId = (String) payload.get("groupId");
         String targetUserId = (String) payload.get("targetUserId");
+        String recipientId = (String) payload.get("recipientId");
         String username = (String) payload.get("username");
         boolean isGroup = (chatId != null && chatId.startsWith("group_")) ||
                             (groupId != null) ||
@@ -61,6 +64,7 @@ public class MessageAnalyzer {
             messageId,
             chatId,
             targetUserId, 
+            recipientId,
             username, 
             isDirect, 
             isGroup,
@@ -72,40 +76,39 @@ public class MessageAnalyzer {
     /**
      * Set
      */
-    private Map<String, Object> setMessage(MessageContext context) {
+    private MessageEnvelope setMessage(MessageContext context) {
         String messageId = context.messageId != null ? context.messageId : 
             "msg_" + System.currentTimeMillis() + "_" + UUID.randomUUID().toString().substring(0, 8);
         String type = getMessageType(context);
         long time = System.currentTimeMillis();
 
-        Map<String, Object> message = new HashMap<>();
-        message.put("username", context.username);
-        message.put("content", context.content);
-        message.put("senderId", context.userId);
-        message.put("userId", context.userId);
-        message.put("chatId", context.chatId);
-        message.put("targetUserId", context.targetUserId);
-        message.put("messageId", messageId);
-        message.put("timestamp", time);
-        message.put("type", type);
-        message.put("isDirect", context.isDirect);
-        message.put("isGroup", context.isGroup);
-        message.put("isSystem", context.isSystem);
-        message.put("isBroadcast", context.isBroadcast);
-
-        Map<String, Object> routingMetadata = new HashMap<>();
-        routingMetadata.put("sessionId", context.sessionId);
-        routingMetadata.put("userId", context.userId);
-        routingMetadata.put("messageType", type);
-        routingMetadata.put("messageId", messageId);
-        routingMetadata.put("isDirect", context.isDirect);
-        routingMetadata.put("isGroup", context.isGroup);
-        routingMetadata.put("isBroadcast", context.isBroadcast);
-        routingMetadata.put("priority", "NORMAL");
-        message.put("routingMetadata", routingMetadata);
-
-        message = applyPerspective(context.sessionId, message);
-        return message;
+        MessageEnvelope.RoutingMetadata routingMetadata = new MessageEnvelope.RoutingMetadata(
+            context.sessionId,
+            context.userId,
+            type,
+            messageId,
+            context.isDirect,
+            context.isGroup,
+            context.isBroadcast,
+            "NORMAL"
+        );
+        return new MessageEnvelope(
+            messageId,
+            context.chatId,
+            context.userId,
+            context.username,
+            MessageEnvelope.utf8(context.content),
+            time,
+            type,
+            context.targetUserId,
+            context.recipientId,
+            null,
+            context.isDirect,
+            context.isGroup,
+            context.isSystem,
+            context.isBroadcast,
+            routingMetadata
+        );
     }
 
     /**
@@ -118,22 +121,6 @@ public class MessageAnalyzer {
         return "BROADCAST_MESSAGE";
     }
 
-    /**
-     * Route
-     */
-    private void routeMessage(
-        MessageContext context,
-        Map<String, Object> message,
-        String[] routes
-    ) {
-        messageRouter.routeMessage(
-            context.sessionId,
-            message,
-            message,
-            routes
-        );
-    }
-
     /**
      * Determine
      */
@@ -7,6 +7,7 @@ public class MessageContext {
     public final String messageId;
     public final String chatId;
     public final String targetUserId;
+    public final String recipientId;
     public final String username;
     public final boolean isDirect;
     public final boolean isGroup;
@@ -20,6 +21,7 @@ public class MessageContext {
         String messageId,
         String chatId,
         String targetUserId,
+        String recipientId,
         String username,
         boolean isDirect,
         boolean isGroup,
@@ -32,6 +34,7 @@ public class MessageContext {
         this.messageId = messageId;
         this.chatId = chatId;
         this.targetUserId = targetUserId;
+        this.recipientId = recipientId;
         this.username = username;
         this.isDirect = isDirect;
         this.isGroup = isGroup;
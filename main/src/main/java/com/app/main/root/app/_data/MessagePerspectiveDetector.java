@@ -1,6 +1,7 @@
 package com.app.main.root.app._data;
 import org.springframework.stereotype.Component;
 import com.app.main.root.app._service.ServiceManager;
+import com.app.main.root.app._types.MessageEnvelope;
 import java.util.*;
 
 @Component
@@ -44,6 +45,31 @@ public class MessagePerspectiveDetector {
         }
     }
 
+    /**
+     * Envelope
+     *
+     * Same decision as the map version, read from the envelope's
+     * fields instead of looking keys up.
+     */
+    public MessagePerspectiveResult detectPerspective(String sessionId, MessageEnvelope envelope) {
+        MessagePerspectiveResult result = new MessagePerspectiveResult();
+        String chatId = envelope.getChatId();
+        String currentUserId = serviceManager.getUserService().getUserIdBySession(sessionId);
+
+        boolean isGroup = envelope.isGroup() || (chatId != null && chatId.startsWith("group_"));
+        boolean isSelf = currentUserId != null && currentUserId.equals(envelope.getSenderId());
+        String displayUsername = determineDisplayUsername(isSelf, isGroup, envelope.getUsername());
+
+        if(envelope.isSystem() && isSelf) {
+            return serviceManager.getSystemMessageService().createPerspective(result, true);
+        }
+        if(isSelf || envelope.isSystem()) {
+            return serviceManager.getMessageService().createSelfPerspective(result, isGroup, displayUsername, sessionId);
+        } else {
+            return serviceManager.getMessageService().createOtherPerspective(result, isGroup, displayUsername, sessionId);
+        }
+    }
+
     public boolean isAboutCurrentUser(
         Map<String, Object> data,
         String sessionId
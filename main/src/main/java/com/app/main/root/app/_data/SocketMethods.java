@@ -4,19 +4,23 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 import com.app.main.root.app.EventTracker;
+import com.app.main.root.app.__config.StompWireFormat;
 import com.app.main.root.app.EventLog.EventDirection;
 
 @Component
 public class SocketMethods {
     private final SimpMessagingTemplate messagingTemplate;
     private final EventTracker eventTracker;
+    private final StompWireFormat wireFormat;
 
     public SocketMethods(
         SimpMessagingTemplate messagingTemplate,
-        EventTracker eventTracker
+        EventTracker eventTracker,
+        StompWireFormat wireFormat
     ) {
         this.messagingTemplate = messagingTemplate;
         this.eventTracker = eventTracker;
+        this.wireFormat = wireFormat;
     }
 
     /**
@@ -40,7 +44,7 @@ public class SocketMethods {
                 sessionId, 
                 "system"
             );
-            messagingTemplate.convertAndSend(destination, data);
+            wireFormat.send(messagingTemplate, destination, data);
         } catch(Exception err) {
             System.err.println("Error sending message to " + destination + ": " + err.getMessage());
             err.printStackTrace();
@@ -59,7 +63,8 @@ public class SocketMethods {
                 "broadcast",
                 "system"
             );
-            messagingTemplate.convertAndSend(
+            wireFormat.send(
+                messagingTemplate,
                 "/topic/" + event,
                 data
             );
@@ -80,7 +85,7 @@ public class SocketMethods {
                 "broadcast",
                 "system"
             );
-            messagingTemplate.convertAndSend(destination, data);
+            wireFormat.send(messagingTemplate, destination, data);
         } catch(Exception err) {
             System.err.println("Error broadcasting to " + destination + ": " + err.getMessage());
         }
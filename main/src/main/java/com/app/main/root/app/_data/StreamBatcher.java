@@ -0,0 +1,122 @@
+package com.app.main.root.app._data;
+import com.app.main.root.app._types.File;
+import com.app.main.root.app._types.Message;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups stream items into frames of at most maxItems items or about
+ * maxBytes of payload. Every frame carries a sequence number and the
+ * stream ends with a STREAM_COMPLETE frame holding the next sequence
+ * number, so clients can tell a gap from the end.
+ */
+public class StreamBatcher {
+    private final SocketMethods socketMethods;
+    private final String sessionId;
+    private final String destination;
+    private final int maxItems;
+    private final int maxBytes;
+
+    private String type;
+    private String itemsKey;
+    private Map<String, Object> fields;
+    private List<Object> items = new ArrayList<>();
+    private int bytes = 0;
+    private int seq = 0;
+    private int sentItems = 0;
+
+    public StreamBatcher(
+        SocketMethods socketMethods,
+        String sessionId,
+        String destination,
+        int maxItems,
+        int maxBytes
+    ) {
+        this.socketMethods = socketMethods;
+        this.sessionId = sessionId;
+        this.destination = destination;
+        this.maxItems = Math.max(1, maxItems);
+        this.maxBytes = Math.max(1024, maxBytes);
+    }
+
+    /**
+     * Begin
+     *
+     * Starts a run of frames of one type, flushing the previous one.
+     */
+    public void begin(String type, String itemsKey, Map<String, Object> fields) {
+        flush();
+        this.type = type;
+        this.itemsKey = itemsKey;
+        this.fields = fields;
+    }
+
+    public void add(Object item) {
+        int size = estimate(item);
+        if(!items.isEmpty() && bytes + size > maxBytes) flush();
+        items.add(item);
+        bytes += size;
+        if(items.size() >= maxItems) flush();
+    }
+
+    public void flush() {
+        if(items.isEmpty()) return;
+
+        Map<String, Object> frame = new HashMap<>(fields);
+        frame.put("type", type);
+        frame.put("seq", seq++);
+        frame.put("count", items.size());
+        frame.put(itemsKey, items);
+        socketMethods.send(sessionId, destination, frame);
+
+        sentItems += items.size();
+        items = new ArrayList<>();
+        bytes = 0;
+    }
+
+    /**
+     * End
+     *
+     * Flushes what is left and sends the end of stream marker.
+     */
+    public Map<String, Object> end(Map<String, Object> completionEvent) {
+        flush();
+        completionEvent.put("seq", seq++);
+        completionEvent.put("frames", seq - 1);
+        completionEvent.put("items", sentItems);
+        socketMethods.send(sessionId, destination, completionEvent);
+        return completionEvent;
+    }
+
+    /**
+     * Rough serialized size, close enough to keep frames near the limit.
+     */
+    static int estimate(Object value) {
+        if(value == null) return 4;
+        if(value instanceof CharSequence text) return text.length() + 2;
+        if(value instanceof Number || value instanceof Boolean) return 8;
+        if(value instanceof byte[] data) return data.length * 4 / 3 + 2;
+        if(value instanceof Message message) {
+            return 160 + estimate(message.getContent()) + estimate(message.getContentBytes()) + estimate(message.getUsername());
+        }
+        if(value instanceof File file) {
+            return 240 + estimate(file.getOriginalFileName()) + estimate(file.getMimeType());
+        }
+        if(value instanceof Map<?, ?> map) {
+            int size = 2;
+            for(Map.Entry<?, ?> entry : map.entrySet()) {
+                size += estimate(entry.getKey()) + estimate(entry.getValue()) + 2;
+            }
+            return size;
+        }
+        if(value instanceof Collection<?> collection) {
+            int size = 2;
+            for(Object item : collection) size += estimate(item) + 1;
+            return size;
+        }
+        return 64;
+    }
+}
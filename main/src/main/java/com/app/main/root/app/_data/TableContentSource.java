@@ -0,0 +1,41 @@
+package com.app.main.root.app._data;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content still held in one of the legacy BLOB tables, read in
+ * windows through FileContentInputStream.
+ */
+public class TableContentSource implements ContentSource {
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String fileId;
+    private final int windowBytes;
+
+    public TableContentSource(JdbcTemplate jdbcTemplate, String table, String fileId, int windowBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.fileId = fileId;
+        this.windowBytes = windowBytes;
+    }
+
+    @Override
+    public long length() {
+        return FileContentInputStream.contentLength(jdbcTemplate, table, fileId);
+    }
+
+    @Override
+    public InputStream open(long start, long end) {
+        return new FileContentInputStream(jdbcTemplate, table, fileId, start, end, windowBytes);
+    }
+
+    @Override
+    public byte[] readRange(long start, int length) throws IOException {
+        try {
+            return FileContentInputStream.readRange(jdbcTemplate, table, fileId, start, length);
+        } catch(Exception err) {
+            throw new IOException("Failed to read content range for file " + fileId, err);
+        }
+    }
+}
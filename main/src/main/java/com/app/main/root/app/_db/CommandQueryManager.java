@@ -43,6 +43,17 @@ public enum CommandQueryManager {
     GET_GROUP_NAME(
         "SELECT name FROM groups WHERE id = ?"
     ),
+    GET_GROUPS_BY_IDS(
+        """
+            SELECT g.id, g.name, g.creator_id, g.created_at,
+                (SELECT COUNT(*) FROM group_members gm WHERE gm.group_id = g.id) as member_count
+            FROM groups g
+            WHERE g.id IN (%s)
+        """
+    ),
+    GET_ALL_GROUP_MEMBERS(
+        "SELECT group_id, user_id FROM group_members"
+    ),
     GET_GROUP_MEMBERS(
         """
             SELECT
@@ -143,6 +154,9 @@ public enum CommandQueryManager {
     GET_USERNAME(
         "SELECT username FROM users WHERE id = ?"
     ),
+    GET_USERNAMES_BY_IDS(
+        "SELECT id, username FROM users WHERE id IN (%s)"
+    ),
     GET_USER_BY_EMAIL(
         "SELECT * FROM users WHERE email = ?"
     ),
@@ -251,46 +265,156 @@ public enum CommandQueryManager {
             LIMIT ? OFFSET ? 
         """
     ),
+    GET_MESSAGES_BY_CHAT_ID_LATEST(
+        """
+            SELECT m.*
+            FROM messages m
+            WHERE m.chat_id = ?
+            ORDER BY m.created_at DESC, m.id DESC
+            LIMIT ?
+        """
+    ),
+    GET_MESSAGES_BY_CHAT_ID_BEFORE(
+        """
+            SELECT m.*
+            FROM messages m
+            WHERE m.chat_id = ? AND (m.created_at, m.id) < (?, ?)
+            ORDER BY m.created_at DESC, m.id DESC
+            LIMIT ?
+        """
+    ),
+    EXEC_INDEX_MESSAGES_CHAT(
+        "CREATE INDEX IF NOT EXISTS idx_messages_chat_created ON messages(chat_id, created_at, id)"
+    ),
     GET_MESSAGE_COUNT_BY_CHAT_ID(
         "SELECT COUNT(*) as count FROM messages WHERE chat_id = ?"
     ),
-    GET_RECENT_CHATS(
-        """
-        SELECT
-            chat_id,
-            MAX(created_at) as last_message_time,
-            (
-                SELECT content FROM messages m2
-                WHERE m2.chat_id = m.chat_id
-                ORDER BY m2.created_at DESC LIMIT 1
-            ) as last_message,
-            (
-                SELECT m3.username FROM messages m3
-                WHERE m3.chat_id = m.chat_id
-                ORDER BY m3.created_at DESC LIMIT 1
-            ) as last_sender,
-            CASE
-                WHEN chat_id LIKE 'group_%' THEN 'group'
-                ELSE 'direct'
-            END as chat_type
-        FROM messages m
-        WHERE chat_id IN 
-        (
-            SELECT DISTINCT chat_id
-            FROM messages
-            WHERE sender_id = ? 
-                OR (chat_id LIKE 'direct_%' AND chat_id LIKE ?)
-        )
-        GROUP BY chat_id
-        ORDER BY last_message_time DESC
-        LIMIT ? OFFSET ?
+    EXEC_CREATE_CHAT_SUMMARY(
+        """
+            CREATE TABLE IF NOT EXISTS chat_summary (
+                chat_id TEXT NOT NULL,
+                user_id TEXT NOT NULL,
+                chat_type TEXT NOT NULL,
+                last_message_id INTEGER,
+                last_message_time DATETIME,
+                last_sender_id TEXT,
+                last_sender TEXT,
+                preview BLOB,
+                preview_encrypted INTEGER DEFAULT 0,
+                unread_count INTEGER DEFAULT 0,
+                activity_at INTEGER NOT NULL,
+                PRIMARY KEY (chat_id, user_id)
+            )
+        """
+    ),
+    EXEC_INDEX_CHAT_SUMMARY_USER(
+        "CREATE INDEX IF NOT EXISTS idx_chat_summary_user_activity ON chat_summary(user_id, activity_at DESC, chat_id)"
+    ),
+    UPDATE_CHAT_SUMMARY(
+        """
+            UPDATE chat_summary SET
+                last_message_id = ?,
+                last_message_time = ?,
+                last_sender_id = ?,
+                last_sender = ?,
+                preview = ?,
+                preview_encrypted = ?,
+                activity_at = ?,
+                unread_count = CASE WHEN user_id = ? THEN 0 ELSE unread_count + 1 END
+            WHERE chat_id = ?
         """
     ),
-    GET_RECENT_CHATS_COUNT(
+    INSERT_CHAT_SUMMARY(
         """
-            SELECT COUNT(DISTINCT chat_id) as total_chats
-            FROM messages
-            WHERE sender_id = ? OR (chat_id LIKE 'direct_%' AND chat_id LIKE ?)  
+            INSERT OR IGNORE INTO chat_summary(
+                chat_id,
+                user_id,
+                chat_type,
+                last_message_id,
+                last_message_time,
+                last_sender_id,
+                last_sender,
+                preview,
+                preview_encrypted,
+                unread_count,
+                activity_at
+            )
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """
+    ),
+    ADD_CHAT_SUMMARY_PARTICIPANT(
+        """
+            INSERT OR IGNORE INTO chat_summary(
+                chat_id,
+                user_id,
+                chat_type,
+                last_message_id,
+                last_message_time,
+                last_sender_id,
+                last_sender,
+                preview,
+                preview_encrypted,
+                unread_count,
+                activity_at
+            )
+            SELECT ?, ?, ?,
+                s.last_message_id,
+                s.last_message_time,
+                s.last_sender_id,
+                s.last_sender,
+                s.preview,
+                COALESCE(s.preview_encrypted, 0),
+                0,
+                COALESCE(s.activity_at, ?)
+            FROM (SELECT 1) one
+            LEFT JOIN (SELECT * FROM chat_summary WHERE chat_id = ? LIMIT 1) s ON 1 = 1
+        """
+    ),
+    REMOVE_CHAT_SUMMARY_PARTICIPANT(
+        "DELETE FROM chat_summary WHERE chat_id = ? AND user_id = ?"
+    ),
+    MARK_CHAT_SUMMARY_READ(
+        "UPDATE chat_summary SET unread_count = 0 WHERE chat_id = ? AND user_id = ? AND unread_count > 0"
+    ),
+    GET_CHAT_SUMMARIES(
+        """
+            SELECT *
+            FROM chat_summary
+            WHERE user_id = ?
+            ORDER BY activity_at DESC, chat_id
+            LIMIT ? OFFSET ?
+        """
+    ),
+    GET_CHAT_SUMMARIES_COUNT(
+        "SELECT COUNT(*) AS total_chats FROM chat_summary WHERE user_id = ?"
+    ),
+    GET_RECENT_CHAT_SUMMARIES(
+        """
+            SELECT *
+            FROM chat_summary
+            WHERE user_id = ? AND last_message_id IS NOT NULL
+            ORDER BY activity_at DESC, chat_id
+            LIMIT ? OFFSET ?
+        """
+    ),
+    GET_RECENT_CHAT_SUMMARIES_COUNT(
+        "SELECT COUNT(*) AS total_chats FROM chat_summary WHERE user_id = ? AND last_message_id IS NOT NULL"
+    ),
+    GET_CHAT_SUMMARY_GROUPS(
+        "SELECT DISTINCT chat_id FROM chat_summary WHERE chat_type = 'group'"
+    ),
+    REMOVE_CHAT_SUMMARY_CHAT(
+        "DELETE FROM chat_summary WHERE chat_id = ?"
+    ),
+    HAS_CHAT_SUMMARY(
+        "SELECT 1 FROM chat_summary LIMIT 1"
+    ),
+    GET_LAST_MESSAGE_PER_CHAT(
+        """
+            SELECT m.id, m.chat_id, m.sender_id, m.username, m.content, m.created_at
+            FROM messages m
+            JOIN (SELECT chat_id, MAX(id) AS id FROM messages GROUP BY chat_id) last
+                ON last.id = m.id
         """
     ),
     GET_ALL_MESSAGES(
@@ -350,8 +474,10 @@ public enum CommandQueryManager {
                 chat_id,
                 uploaded_at,
                 iv,
-                tag
-            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                tag,
+                compression_type,
+                blob_hash
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """
     ),
     DOWNLOAD_FILE(
@@ -412,7 +538,7 @@ public enum CommandQueryManager {
         """
            UPDATE files_metadata
            SET is_deleted = TRUE
-           WHERE file_id = ? AND user_id = ?
+           WHERE file_id = ? AND user_id = ? AND is_deleted = FALSE
         """
     ),
     GET_FILE_DATABASE(
@@ -441,7 +567,9 @@ public enum CommandQueryManager {
                 uploaded_at,
                 last_modified,
                 iv,
-                tag
+                tag,
+                compression_type,
+                blob_hash
             FROM files_metadata
             WHERE file_id = ? AND user_id = ? AND is_deleted = FALSE     
         """
@@ -451,6 +579,93 @@ public enum CommandQueryManager {
             SELECT content FROM %s WHERE file_id = ?
         """
     ),
+    GET_FILE_CONTENT_LENGTH(
+        "SELECT length(content) AS content_length FROM %s WHERE file_id = ?"
+    ),
+    GET_FILE_CONTENT_RANGE(
+        "SELECT substr(content, ?, ?) AS content FROM %s WHERE file_id = ?"
+    ),
+    GET_METADATA_COLUMNS(
+        "PRAGMA table_info(files_metadata)"
+    ),
+    EXEC_ADD_COMPRESSION_TYPE_COLUMN(
+        "ALTER TABLE files_metadata ADD COLUMN compression_type INTEGER DEFAULT 0"
+    ),
+    EXEC_ADD_BLOB_HASH_COLUMN(
+        "ALTER TABLE files_metadata ADD COLUMN blob_hash TEXT"
+    ),
+    EXEC_INDEX_FILES_METADATA_BLOB(
+        "CREATE INDEX IF NOT EXISTS idx_files_metadata_blob ON files_metadata(blob_hash)"
+    ),
+    GET_FILE_BLOB_HASH(
+        "SELECT blob_hash FROM files_metadata WHERE file_id = ? AND user_id = ?"
+    ),
+    SET_FILE_BLOB_HASH(
+        "UPDATE files_metadata SET blob_hash = ? WHERE file_id = ? AND blob_hash IS NULL"
+    ),
+    GET_LEGACY_CONTENT_FILES(
+        """
+            SELECT file_id, database_name, mime_type, is_deleted
+            FROM files_metadata
+            WHERE blob_hash IS NULL AND file_id > ?
+            ORDER BY file_id
+            LIMIT ?
+        """
+    ),
+    DELETE_FILE_CONTENT(
+        "DELETE FROM %s WHERE file_id = ?"
+    ),
+    EXEC_VACUUM(
+        "VACUUM"
+    ),
+
+    /*
+    * ~~~ FILE BLOBS ~~~ 
+    */
+    EXEC_CREATE_FILE_BLOBS(
+        """
+            CREATE TABLE IF NOT EXISTS file_blobs(
+                blob_hash TEXT PRIMARY KEY,
+                content_hash TEXT,
+                size BIGINT NOT NULL,
+                ref_count INTEGER NOT NULL DEFAULT 0,
+                created_at INTEGER
+            )
+        """
+    ),
+    EXEC_INDEX_FILE_BLOBS_CONTENT(
+        "CREATE INDEX IF NOT EXISTS idx_file_blobs_content ON file_blobs(content_hash)"
+    ),
+    ADD_FILE_BLOB_REF(
+        """
+            INSERT INTO file_blobs(blob_hash, content_hash, size, ref_count, created_at)
+            VALUES (?, ?, ?, 1, ?)
+            ON CONFLICT(blob_hash) DO UPDATE SET ref_count = ref_count + 1
+        """
+    ),
+    ACQUIRE_FILE_BLOB(
+        "UPDATE file_blobs SET ref_count = ref_count + 1 WHERE blob_hash = ? AND ref_count > 0"
+    ),
+    RELEASE_FILE_BLOB(
+        "UPDATE file_blobs SET ref_count = ref_count - 1 WHERE blob_hash = ? AND ref_count > 0"
+    ),
+    DELETE_UNREFERENCED_FILE_BLOB(
+        "DELETE FROM file_blobs WHERE blob_hash = ? AND ref_count <= 0"
+    ),
+    FIND_FILE_BLOB_BY_CONTENT(
+        """
+            SELECT
+                b.blob_hash,
+                m.file_id,
+                m.user_id,
+                m.iv,
+                m.tag
+            FROM file_blobs b
+            JOIN files_metadata m ON m.blob_hash = b.blob_hash AND m.is_deleted = FALSE
+            WHERE b.content_hash = ? AND b.ref_count > 0
+            LIMIT 1
+        """
+    ),
 
     /*
     * ~~~ IMAGE DATA ~~~ 
@@ -563,6 +778,9 @@ public enum CommandQueryManager {
     UPDATE_USER_PASSWORD(
         "UPDATE users SET password_hash = ? WHERE id = ?"
     ),
+    REHASH_USER_PASSWORD(
+        "UPDATE users SET password_hash = ? WHERE id = ? AND password_hash = ?"
+    ),
     INVALIDATE_USER_TOKENS(
         "UPDATE password_reset SET used = TRUE WHERE user_id = ?"
     ),
@@ -572,6 +790,131 @@ public enum CommandQueryManager {
            JOIN password_reset prt ON u.id = prt.user_id
            WHERE prt.token = ? AND prt.expires_at > ? AND prt.used = FALSE     
         """
+    ),
+
+    /*
+    * ~~~ RATE LIMIT SNAPSHOT ~~~ 
+    */
+    CREATE_RATE_LIMITS_TABLE(
+        """
+            CREATE TABLE IF NOT EXISTS rate_limits(
+                ip_address TEXT PRIMARY KEY,
+                registration_start INTEGER NOT NULL,
+                registration_current INTEGER NOT NULL,
+                registration_previous INTEGER NOT NULL,
+                login_start INTEGER NOT NULL,
+                login_current INTEGER NOT NULL,
+                login_previous INTEGER NOT NULL,
+                last_seen INTEGER NOT NULL
+            )
+        """
+    ),
+    GET_RATE_LIMITS(
+        """
+            SELECT
+                ip_address,
+                registration_start,
+                registration_current,
+                registration_previous,
+                login_start,
+                login_current,
+                login_previous,
+                last_seen
+            FROM rate_limits
+            WHERE last_seen >= ?
+        """
+    ),
+    SAVE_RATE_LIMIT(
+        """
+            INSERT OR REPLACE INTO rate_limits(
+                ip_address,
+                registration_start,
+                registration_current,
+                registration_previous,
+                login_start,
+                login_current,
+                login_previous,
+                last_seen
+            )
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        """
+    ),
+    DELETE_IDLE_RATE_LIMITS(
+        "DELETE FROM rate_limits WHERE last_seen < ?"
+    ),
+
+    /*
+    * ~~~ EMAIL OUTBOX ~~~ 
+    */
+    EXEC_CREATE_EMAIL_OUTBOX(
+        """
+            CREATE TABLE IF NOT EXISTS email_outbox (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                to_email TEXT NOT NULL,
+                subject TEXT NOT NULL,
+                body TEXT NOT NULL,
+                status TEXT NOT NULL DEFAULT 'pending',
+                attempts INTEGER NOT NULL DEFAULT 0,
+                last_error TEXT,
+                created_at INTEGER NOT NULL,
+                next_attempt_at INTEGER NOT NULL
+            )
+        """
+    ),
+    EXEC_INDEX_EMAIL_OUTBOX_DUE(
+        "CREATE INDEX IF NOT EXISTS idx_email_outbox_due ON email_outbox(status, next_attempt_at)"
+    ),
+    INSERT_OUTBOX_EMAIL(
+        """
+            INSERT INTO email_outbox(
+                to_email,
+                subject,
+                body,
+                created_at,
+                next_attempt_at
+            )
+            VALUES (?, ?, ?, ?, ?)
+        """
+    ),
+    GET_DUE_OUTBOX_EMAILS(
+        """
+            SELECT
+                id,
+                to_email,
+                subject,
+                body,
+                attempts,
+                created_at
+            FROM email_outbox
+            WHERE status = 'pending' AND next_attempt_at <= ?
+            ORDER BY next_attempt_at
+            LIMIT ?
+        """
+    ),
+    CLAIM_OUTBOX_EMAIL(
+        "UPDATE email_outbox SET status = 'sending', next_attempt_at = ? WHERE id = ? AND status = 'pending'"
+    ),
+    REQUEUE_EXPIRED_OUTBOX_EMAILS(
+        "UPDATE email_outbox SET status = 'pending' WHERE status = 'sending' AND next_attempt_at <= ?"
+    ),
+    DELETE_OUTBOX_EMAIL(
+        "DELETE FROM email_outbox WHERE id = ?"
+    ),
+    RETRY_OUTBOX_EMAIL(
+        """
+            UPDATE email_outbox
+            SET status = 'pending', attempts = ?, next_attempt_at = ?, last_error = ?
+            WHERE id = ?
+        """
+    ),
+    FAIL_OUTBOX_EMAIL(
+        "UPDATE email_outbox SET status = 'failed', attempts = ?, last_error = ? WHERE id = ?"
+    ),
+    RESET_SENDING_OUTBOX_EMAILS(
+        "UPDATE email_outbox SET status = 'pending' WHERE status = 'sending'"
+    ),
+    COUNT_OUTBOX_EMAILS(
+        "SELECT status, COUNT(*) FROM email_outbox GROUP BY status"
     );
 
     /* Main */
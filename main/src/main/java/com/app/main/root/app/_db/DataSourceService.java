@@ -24,4 +24,15 @@ public class DataSourceService {
     public DataSource setDb(String name) {
         return getDataSource(name);
     }
+
+    /**
+     * Pool Stats
+     */
+    public Map<String, Object> getPoolStats() {
+        Map<String, Object> stats = new HashMap<>();
+        dataSources.forEach((dbName, source) -> {
+            if(source instanceof DbPool pool) stats.put(dbName, pool.getStats());
+        });
+        return stats;
+    }
 }
@@ -1,4 +1,5 @@
 package com.app.main.root.app._db;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
@@ -15,13 +16,39 @@ import java.util.*;
     HibernateJpaAutoConfiguration.class
 })
 public class DbConfig {
+    @Value("${app.db.pool.readers:0}")
+    private int readers;
+
+    @Value("${app.db.pool.connectionTimeoutMs:30000}")
+    private long connectionTimeoutMs;
+
+    @Value("${app.db.pragma.busyTimeoutMs:5000}")
+    private int busyTimeoutMs;
+
+    @Value("${app.db.pragma.synchronous:NORMAL}")
+    private String synchronous;
+
+    @Value("${app.db.pragma.mmapSize:268435456}")
+    private long mmapSize;
+
+    @Value("${app.db.pragma.cacheSizeKb:16384}")
+    private int cacheSizeKb;
+
     public void verify() {
         System.out.println("Database Config initialized...");
     }
 
     @Bean
     public DbManager dbManager() {
-        return new DbManager();
+        int poolReaders = readers > 0 ? readers : DbPoolConfig.defaults().readers;
+        return new DbManager(new DbPoolConfig(
+            poolReaders,
+            connectionTimeoutMs,
+            busyTimeoutMs,
+            synchronous.toUpperCase(),
+            mmapSize,
+            cacheSizeKb
+        ));
     }
 
     @Bean
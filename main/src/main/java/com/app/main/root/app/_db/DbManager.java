@@ -1,5 +1,4 @@
 package com.app.main.root.app._db;
-import org.sqlite.SQLiteDataSource;
 import javax.sql.DataSource;
 import java.io.File;
 import java.nio.file.Files;
@@ -9,14 +8,25 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import java.util.*;
 
 public class DbManager {
     private static final String DATA_DIR = getDataDir();
     private static final String SQL_DIR = getSqlDir();
+    private final DbPoolConfig poolConfig;
+    private final Map<String, DbPool> pools = new ConcurrentHashMap<>();
+
+    public DbManager() {
+        this(DbPoolConfig.defaults());
+    }
+
+    public DbManager(DbPoolConfig poolConfig) {
+        this.poolConfig = poolConfig;
+    }
     
-    private static String getDataDir() {
+    public static String getDataDir() {
         String dir = System.getenv("DB_DATA_DIR");
           if(dir == null || dir.isEmpty()) {
             dir = "./src/main/java/com/app/main/root/app/_db/data/";
@@ -38,8 +48,12 @@ public class DbManager {
         System.out.println("SQL_DIR: " + SQL_DIR);
     }
 
-    public Map<String, DataSource> initAllDatabases() {
+    public synchronized Map<String, DataSource> initAllDatabases() {
         Map<String, DataSource> dataSources = new HashMap<>();
+        if(!pools.isEmpty()) {
+            dataSources.putAll(pools);
+            return dataSources;
+        }
 
         try {
             ensureDir();
@@ -49,11 +63,12 @@ public class DbManager {
                 String dbName = entry.getKey();
                 String sqlFileName = entry.getValue();
                 String dbFileName = dbName + ".db";
-                SQLiteDataSource dataSource = createAndInitDb(
+                DbPool dataSource = createAndInitDb(
                     dbName,
                     dbFileName,
                     sqlFileName
                 );
+                pools.put(dbName, dataSource);
                 dataSources.put(dbName, dataSource);
                 System.out.println("Initialized: " + dbName + " -> " + dbFileName);
             }
@@ -101,21 +116,20 @@ public class DbManager {
         return sqlFiles;
     }
 
-    private SQLiteDataSource createAndInitDb(
+    private DbPool createAndInitDb(
         String dbName,
         String dbFileName,
         String sqlFileName
     ) throws SQLException {
         String dbPath = DATA_DIR + dbFileName;
-        SQLiteDataSource dataSource = new SQLiteDataSource();
-        dataSource.setUrl("jdbc:sqlite:" + dbPath);
-
         File dbFile = new File(dbPath);
         boolean shouldInit = !dbFile.exists() || dbFile.length() == 0 || !isValidDatabase(dbFile);
+        DbPool dataSource = new DbPool(dbName, dbPath, poolConfig);
+
         if(shouldInit) {
             System.out.println("Initializing database: " + dbName + " at " + dbPath);
             try(
-                Connection conn = dataSource.getConnection();
+                Connection conn = dataSource.getWriteConnection();
                 Statement stmt = conn.createStatement();
             ) {
                 String sqlContent = readSqlFile(sqlFileName);
@@ -123,6 +137,7 @@ public class DbManager {
             } catch(Exception err) {
                 System.err.println("Failed to initialize database: " + dbFileName);
                 err.printStackTrace();
+                dataSource.close();
                 throw new SQLException("Failed to init db: " + dbFileName, err);
             }
         } else {
@@ -202,4 +217,9 @@ public class DbManager {
         System.out.println("  Data: " + dataPath.toAbsolutePath());
         System.out.println("  SQL: " + sqlPath.toAbsolutePath());
     }
+
+    public void close() {
+        pools.values().forEach(DbPool::close);
+        pools.clear();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,231 @@
+package com.app.main.root.app._db;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Pooled SQLite data source. Every database runs in WAL mode
+ * with a single writer connection and a bounded set of read-only
+ * connections, connections handed out by getConnection() pick
+ * the pool from the statements they run.
+ */
+public class DbPool implements DataSource, AutoCloseable {
+    private final String dbName;
+    private final HikariDataSource writer;
+    private final HikariDataSource readers;
+    private final ThreadLocal<WriterLease> writerLease = new ThreadLocal<>();
+
+    private final AtomicLong writerAcquired = new AtomicLong();
+    private final AtomicLong readerAcquired = new AtomicLong();
+    private final AtomicLong writerWaitNanos = new AtomicLong();
+    private final AtomicLong readerWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public DbPool(String dbName, String dbPath, DbPoolConfig config) {
+        this.dbName = dbName;
+        String url = "jdbc:sqlite:" + dbPath;
+        this.writer = createPool(dbName + "-writer", url, config, 1, false);
+        this.readers = createPool(dbName + "-reader", url, config, config.readers, true);
+    }
+
+    private static HikariDataSource createPool(
+        String poolName,
+        String url,
+        DbPoolConfig config,
+        int size,
+        boolean readOnly
+    ) {
+        SQLiteConfig sqliteConfig = new SQLiteConfig();
+        sqliteConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        sqliteConfig.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(config.synchronous));
+        sqliteConfig.setBusyTimeout(config.busyTimeoutMs);
+        sqliteConfig.setCacheSize(-config.cacheSizeKb);
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(config.mmapSize));
+
+        SQLiteDataSource sqliteDataSource = new SQLiteDataSource(sqliteConfig);
+        sqliteDataSource.setUrl(url);
+
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName(poolName);
+        hikariConfig.setDataSource(sqliteDataSource);
+        hikariConfig.setMaximumPoolSize(size);
+        hikariConfig.setMinimumIdle(1);
+        hikariConfig.setConnectionTimeout(config.connectionTimeoutMs);
+        hikariConfig.setAutoCommit(true);
+        if(readOnly) hikariConfig.setConnectionInitSql("PRAGMA query_only = 1");
+        return new HikariDataSource(hikariConfig);
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    /**
+     * Routed Connection
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            new DbPoolConnection(this)
+        );
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Writer
+     */
+    Connection acquireWriter() throws SQLException {
+        WriterLease lease = writerLease.get();
+        if(lease != null) {
+            lease.depth++;
+            return lease.conn;
+        }
+
+        long start = System.nanoTime();
+        Connection conn = writer.getConnection();
+        recordWait(writerWaitNanos, System.nanoTime() - start);
+        writerAcquired.incrementAndGet();
+
+        writerLease.set(new WriterLease(conn));
+        return conn;
+    }
+
+    void releaseWriter(Connection conn) throws SQLException {
+        WriterLease lease = writerLease.get();
+        if(lease == null || lease.conn != conn) {
+            conn.close();
+            return;
+        }
+        if(--lease.depth > 0) return;
+
+        writerLease.remove();
+        lease.conn.close();
+    }
+
+    /**
+     * Reader
+     */
+    Connection acquireReader() throws SQLException {
+        if(writerLease.get() != null) return null;
+
+        long start = System.nanoTime();
+        Connection conn = readers.getConnection();
+        recordWait(readerWaitNanos, System.nanoTime() - start);
+        readerAcquired.incrementAndGet();
+        return conn;
+    }
+
+    public Connection getWriteConnection() throws SQLException {
+        return writer.getConnection();
+    }
+
+    private void recordWait(AtomicLong total, long nanos) {
+        total.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("writer", poolStats(writer, writerAcquired, writerWaitNanos));
+        stats.put("readers", poolStats(readers, readerAcquired, readerWaitNanos));
+        stats.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private Map<String, Object> poolStats(
+        HikariDataSource pool,
+        AtomicLong acquired,
+        AtomicLong waitNanos
+    ) {
+        Map<String, Object> stats = new HashMap<>();
+        HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+        long count = acquired.get();
+
+        stats.put("acquired", count);
+        stats.put("active", mx != null ? mx.getActiveConnections() : 0);
+        stats.put("idle", mx != null ? mx.getIdleConnections() : 0);
+        stats.put("total", mx != null ? mx.getTotalConnections() : 0);
+        stats.put("waiting", mx != null ? mx.getThreadsAwaitingConnection() : 0);
+        stats.put("maxSize", pool.getMaximumPoolSize());
+        stats.put("totalWaitMs", waitNanos.get() / 1_000_000.0);
+        stats.put("avgWaitMs", count > 0 ? waitNanos.get() / 1_000_000.0 / count : 0.0);
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        readers.close();
+        writer.close();
+    }
+
+    /**
+     * DataSource
+     */
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return writer.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        writer.setLogWriter(out);
+        readers.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        writer.setLoginTimeout(seconds);
+        readers.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return writer.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if(iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    private static class WriterLease {
+        final Connection conn;
+        int depth = 1;
+
+        WriterLease(Connection conn) {
+            this.conn = conn;
+        }
+    }
+}
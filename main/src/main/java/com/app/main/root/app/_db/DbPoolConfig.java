@@ -0,0 +1,37 @@
+package com.app.main.root.app._db;
+
+public class DbPoolConfig {
+    public final int readers;
+    public final long connectionTimeoutMs;
+    public final int busyTimeoutMs;
+    public final String synchronous;
+    public final long mmapSize;
+    public final int cacheSizeKb;
+
+    public DbPoolConfig(
+        int readers,
+        long connectionTimeoutMs,
+        int busyTimeoutMs,
+        String synchronous,
+        long mmapSize,
+        int cacheSizeKb
+    ) {
+        this.readers = Math.max(1, readers);
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.busyTimeoutMs = busyTimeoutMs;
+        this.synchronous = synchronous;
+        this.mmapSize = mmapSize;
+        this.cacheSizeKb = cacheSizeKb;
+    }
+
+    public static DbPoolConfig defaults() {
+        return new DbPoolConfig(
+            Math.max(4, Runtime.getRuntime().availableProcessors()),
+            30000,
+            5000,
+            "NORMAL",
+            256L * 1024 * 1024,
+            16384
+        );
+    }
+}
@@ -0,0 +1,129 @@
+package com.app.main.root.app._db;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Logical connection handed out by DbPool. Physical connections
+ * are taken lazily: SELECTs outside a transaction run on a reader,
+ * everything else (and everything after setAutoCommit(false))
+ * runs on the writer.
+ */
+class DbPoolConnection implements InvocationHandler {
+    private final DbPool pool;
+    private Connection reader;
+    private Connection writer;
+    private boolean inTransaction = false;
+    private boolean closed = false;
+
+    DbPoolConnection(DbPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch(name) {
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed;
+            case "toString":
+                return "DbPoolConnection[" + pool.getDbName() + "]";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+        }
+        if(closed) throw new SQLException("Connection is closed");
+
+        switch(name) {
+            case "prepareStatement":
+            case "prepareCall":
+                String sql = (String) args[0];
+                return call(isRead(sql) && !inTransaction ? reader() : writer(), method, args);
+            case "createStatement":
+                return call(writer(), method, args);
+            case "setAutoCommit":
+                boolean autoCommit = (Boolean) args[0];
+                if(!autoCommit) inTransaction = true;
+                if(autoCommit && writer == null) return null;
+                call(writer(), method, args);
+                if(autoCommit) inTransaction = false;
+                return null;
+            case "getAutoCommit":
+                return writer != null ? writer.getAutoCommit() : true;
+            case "commit":
+            case "rollback":
+            case "setSavepoint":
+            case "releaseSavepoint":
+                if(writer == null && !inTransaction) return null;
+                return call(writer(), method, args);
+            default:
+                return call(current(), method, args);
+        }
+    }
+
+    private Connection reader() throws SQLException {
+        if(writer != null) return writer;
+        if(reader == null) {
+            reader = pool.acquireReader();
+            if(reader == null) return writer();
+        }
+        return reader;
+    }
+
+    private Connection writer() throws SQLException {
+        if(writer == null) writer = pool.acquireWriter();
+        return writer;
+    }
+
+    private Connection current() throws SQLException {
+        if(writer != null) return writer;
+        if(reader != null) return reader;
+        return writer();
+    }
+
+    private void close() throws SQLException {
+        if(closed) return;
+        closed = true;
+
+        SQLException error = null;
+        if(reader != null) {
+            try {
+                reader.close();
+            } catch(SQLException err) {
+                error = err;
+            }
+            reader = null;
+        }
+        if(writer != null) {
+            try {
+                pool.releaseWriter(writer);
+            } catch(SQLException err) {
+                error = err;
+            }
+            writer = null;
+        }
+        if(error != null) throw error;
+    }
+
+    private static Object call(Connection target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch(InvocationTargetException err) {
+            throw err.getCause();
+        }
+    }
+
+    static boolean isRead(String sql) {
+        if(sql == null) return false;
+        int i = 0;
+        int len = sql.length();
+        while(i < len && Character.isWhitespace(sql.charAt(i))) i++;
+        return sql.regionMatches(true, i, "SELECT", 0, 6);
+    }
+}
@@ -14,5 +14,19 @@ CREATE TABLE IF NOT EXISTS files_metadata(
     version INTEGER DEFAULT 1,
     thumbnail_path TEXT,
     iv BLOB,
-    tag BLOB
+    tag BLOB,
+    compression_type INTEGER DEFAULT 0,
+    blob_hash TEXT
 );
+
+CREATE INDEX IF NOT EXISTS idx_files_metadata_blob ON files_metadata(blob_hash);
+
+CREATE TABLE IF NOT EXISTS file_blobs(
+    blob_hash TEXT PRIMARY KEY,
+    content_hash TEXT,
+    size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    created_at INTEGER
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_blobs_content ON file_blobs(content_hash);
@@ -7,4 +7,23 @@ CREATE TABLE IF NOT EXISTS messages (
     username TEXT,
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (sender_id) REFERENCES users(id)
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS idx_messages_chat_created ON messages(chat_id, created_at, id);
+
+CREATE TABLE IF NOT EXISTS chat_summary (
+    chat_id TEXT NOT NULL,
+    user_id TEXT NOT NULL,
+    chat_type TEXT NOT NULL,
+    last_message_id INTEGER,
+    last_message_time DATETIME,
+    last_sender_id TEXT,
+    last_sender TEXT,
+    preview BLOB,
+    preview_encrypted INTEGER DEFAULT 0,
+    unread_count INTEGER DEFAULT 0,
+    activity_at INTEGER NOT NULL,
+    PRIMARY KEY (chat_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_chat_summary_user_activity ON chat_summary(user_id, activity_at DESC, chat_id);
@@ -68,7 +68,6 @@ public class ConnectionTracker {
 
             String userId = serviceManager.getUserService().getUserIdBySession(socketId);
             if(userId != null) {
-                serviceManager.getGroupService().removeUserFromAllGroups(userId);
                 serviceManager.getUserService().unlinkUserSession(socketId);
             }
 
@@ -138,7 +137,7 @@ public class ConnectionTracker {
      * Group Sessions
      */
     public Set<String> getGroupSessions(String groupId) {
-        return serviceManager.getGroupService().groupSessions.getOrDefault(groupId, Collections.emptySet());
+        return serviceManager.getGroupService().getGroupFanout().getSessions(groupId);
     }
 
     /**
@@ -178,14 +177,9 @@ public class ConnectionTracker {
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalConnections", connections.size());
         stats.put("activeConnections", getActiveConnectionsCount());
-        stats.put("totalGroups", serviceManager.getGroupService().groupSessions.size());
+        stats.put("totalGroups", serviceManager.getGroupService().getGroupFanout().getGroupCount());
         stats.put("totalUsers", serviceManager.getUserService().userToSessionMap.size());
-
-        Map<String, Integer> groupSizes = new HashMap<>();
-        for(Map.Entry<String, Set<String>> entry : serviceManager.getGroupService().groupSessions.entrySet()) {
-            groupSizes.put(entry.getKey(), entry.getValue().size());
-        }
-        stats.put("groupSizes", groupSizes);
+        stats.put("groupSizes", serviceManager.getGroupService().getGroupFanout().getGroupSizes());
 
         return stats;
     }
@@ -0,0 +1,273 @@
+package com.app.main.root.app._server;
+import com.app.main.root.app.__config.StompWireFormat;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index of group id to live session ids, kept up to date
+ * from connection tracking and membership changes, so a group send
+ * is one publish to the group destination instead of one per member.
+ */
+@Component
+public class GroupFanout {
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ConnectionTracker connectionTracker;
+    private final StompWireFormat wireFormat;
+
+    private final Map<String, Set<String>> groupSessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sessionGroups = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> userGroups = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> userSessions = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>();
+
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder fanoutTotal = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxFanout = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public GroupFanout(
+        SimpMessagingTemplate messagingTemplate,
+        ConnectionTracker connectionTracker,
+        StompWireFormat wireFormat
+    ) {
+        this.messagingTemplate = messagingTemplate;
+        this.connectionTracker = connectionTracker;
+        this.wireFormat = wireFormat;
+    }
+
+    @PostConstruct
+    public void init() {
+        connectionTracker.onDisconnection(info -> removeSession(info.socketId));
+    }
+
+    /**
+     * Bind Session
+     */
+    public synchronized void bindSession(String userId, String sessionId) {
+        if(userId == null || sessionId == null) return;
+        String previous = sessionUsers.put(sessionId, userId);
+        if(previous != null && !previous.equals(userId)) {
+            unbindUser(previous, sessionId);
+            unlinkAll(sessionId);
+        }
+
+        userSessions.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
+        for(String groupId : userGroups.getOrDefault(userId, Collections.emptySet())) {
+            link(groupId, sessionId);
+        }
+    }
+
+    public boolean isBound(String sessionId) {
+        return sessionUsers.containsKey(sessionId);
+    }
+
+    /**
+     * Remove Session
+     *
+     * Memberships of a user are dropped with their last session and
+     * reloaded on the next bind.
+     */
+    public synchronized void removeSession(String sessionId) {
+        if(sessionId == null) return;
+        unlinkAll(sessionId);
+
+        String userId = sessionUsers.remove(sessionId);
+        if(userId != null && unbindUser(userId, sessionId)) {
+            userGroups.remove(userId);
+        }
+    }
+
+    public boolean hasMemberships(String userId) {
+        return userGroups.containsKey(userId);
+    }
+
+    /**
+     * Add Member
+     */
+    public synchronized void addMember(String userId, String groupId) {
+        if(userId == null || groupId == null) return;
+        userGroups.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(groupId);
+        for(String sessionId : userSessions.getOrDefault(userId, Collections.emptySet())) {
+            link(groupId, sessionId);
+        }
+    }
+
+    /**
+     * Remove Member
+     */
+    public synchronized void removeMember(String userId, String groupId) {
+        if(userId == null || groupId == null) return;
+        Set<String> groups = userGroups.get(userId);
+        if(groups != null) groups.remove(groupId);
+        for(String sessionId : userSessions.getOrDefault(userId, Collections.emptySet())) {
+            unlink(groupId, sessionId);
+        }
+    }
+
+    public synchronized void removeUser(String userId) {
+        Set<String> groups = userGroups.remove(userId);
+        if(groups == null) return;
+        for(String sessionId : userSessions.getOrDefault(userId, Collections.emptySet())) {
+            for(String groupId : groups) unlink(groupId, sessionId);
+        }
+    }
+
+    private void link(String groupId, String sessionId) {
+        groupSessions.computeIfAbsent(groupId, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
+        sessionGroups.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet()).add(groupId);
+    }
+
+    private void unlink(String groupId, String sessionId) {
+        Set<String> sessions = groupSessions.get(groupId);
+        if(sessions != null) {
+            sessions.remove(sessionId);
+            if(sessions.isEmpty()) groupSessions.remove(groupId);
+        }
+        Set<String> groups = sessionGroups.get(sessionId);
+        if(groups != null) {
+            groups.remove(groupId);
+            if(groups.isEmpty()) sessionGroups.remove(sessionId);
+        }
+    }
+
+    private void unlinkAll(String sessionId) {
+        Set<String> groups = sessionGroups.remove(sessionId);
+        if(groups == null) return;
+        for(String groupId : groups) {
+            Set<String> sessions = groupSessions.get(groupId);
+            if(sessions != null) {
+                sessions.remove(sessionId);
+                if(sessions.isEmpty()) groupSessions.remove(groupId);
+            }
+        }
+    }
+
+    private boolean unbindUser(String userId, String sessionId) {
+        Set<String> sessions = userSessions.get(userId);
+        if(sessions == null) return true;
+        sessions.remove(sessionId);
+        if(sessions.isEmpty()) {
+            userSessions.remove(userId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sessions
+     */
+    public Set<String> getSessions(String groupId) {
+        Set<String> sessions = groupSessions.get(groupId);
+        return sessions != null ? Collections.unmodifiableSet(sessions) : Collections.emptySet();
+    }
+
+    public boolean isSessionInGroup(String sessionId, String groupId) {
+        Set<String> groups = sessionGroups.get(sessionId);
+        return groups != null && groups.contains(groupId);
+    }
+
+    public int getGroupCount() {
+        return groupSessions.size();
+    }
+
+    public Map<String, Integer> getGroupSizes() {
+        Map<String, Integer> sizes = new HashMap<>();
+        for(Map.Entry<String, Set<String>> entry : groupSessions.entrySet()) {
+            sizes.put(entry.getKey(), entry.getValue().size());
+        }
+        return sizes;
+    }
+
+    /**
+     * Publish
+     *
+     * One broker publish to the shared group destination, every
+     * subscribed member gets it from the broker. Returns the number
+     * of live sessions it fanned out to.
+     */
+    public int publish(String groupId, String destination, Object data) {
+        int fanout = getSessions(groupId).size();
+        long start = System.nanoTime();
+        try {
+            wireFormat.send(messagingTemplate, destination, data);
+        } catch(Exception err) {
+            failures.increment();
+            System.err.println("Error publishing to group " + groupId + ": " + err.getMessage());
+        }
+        record(fanout, System.nanoTime() - start);
+        return fanout;
+    }
+
+    /**
+     * Deliver to Sessions
+     *
+     * Per user delivery for destinations that resolve per session.
+     * The payload is converted once and the same message is handed
+     * to each session.
+     */
+    public int deliverToSessions(String groupId, String destination, Object data) {
+        Set<String> sessions = getSessions(groupId);
+        if(sessions.isEmpty()) return 0;
+
+        long start = System.nanoTime();
+        int delivered = 0;
+        try {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            Message<?> message = messagingTemplate.getMessageConverter().toMessage(data, accessor.getMessageHeaders());
+            String prefix = messagingTemplate.getUserDestinationPrefix();
+            for(String sessionId : sessions) {
+                if(message != null) {
+                    messagingTemplate.send(prefix + sessionId.replace("/", "%2F") + destination, message);
+                } else {
+                    messagingTemplate.convertAndSendToUser(sessionId, destination, data);
+                }
+                delivered++;
+            }
+        } catch(Exception err) {
+            failures.increment();
+            System.err.println("Error delivering to group " + groupId + ": " + err.getMessage());
+        }
+        record(delivered, System.nanoTime() - start);
+        return delivered;
+    }
+
+    private void record(int fanout, long nanos) {
+        deliveries.increment();
+        fanoutTotal.add(fanout);
+        latencyNanos.add(nanos);
+        maxFanout.accumulateAndGet(fanout, Math::max);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        long count = deliveries.sum();
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("groups", groupSessions.size());
+        res.put("sessions", sessionUsers.size());
+        res.put("users", userSessions.size());
+        res.put("deliveries", count);
+        res.put("failures", failures.sum());
+        res.put("avgFanout", count > 0 ? (double) fanoutTotal.sum() / count : 0.0);
+        res.put("maxFanout", maxFanout.get());
+        res.put("avgLatencyMicros", count > 0 ? latencyNanos.sum() / 1000.0 / count : 0.0);
+        res.put("maxLatencyMicros", maxLatencyNanos.get() / 1000.0);
+        return res;
+    }
+}
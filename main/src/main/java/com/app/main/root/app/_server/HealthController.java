@@ -1,4 +1,5 @@
 package com.app.main.root.app._server;
+import com.app.main.root.app._db.DataSourceService;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import java.util.Map;
@@ -7,10 +8,16 @@ import java.util.Map;
 public class HealthController {
     private final ConnectionTracker connectionTracker;
     private final LoadBalancer loadBalancer;
+    private final DataSourceService dataSourceService;
     
-    public HealthController(ConnectionTracker connectionTracker, LoadBalancer loadBalancer) {
+    public HealthController(
+        ConnectionTracker connectionTracker,
+        LoadBalancer loadBalancer,
+        DataSourceService dataSourceService
+    ) {
         this.connectionTracker = connectionTracker;
         this.loadBalancer = loadBalancer;
+        this.dataSourceService = dataSourceService;
     }
     
     @GetMapping("/health")
@@ -24,7 +31,13 @@ public class HealthController {
             "status", "OK",
             "connections", connectionTracker.getActiveConnectionsCount(),
             "loadBalancer", loadBalancer.getStats(),
+            "databases", dataSourceService.getPoolStats(),
             "timestamp", System.currentTimeMillis()
         );
     }
+
+    @GetMapping("/health/db")
+    public Map<String, Object> dbPoolHealth() {
+        return dataSourceService.getPoolStats();
+    }
 }
\ No newline at end of file
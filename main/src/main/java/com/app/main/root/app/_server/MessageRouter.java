@@ -3,9 +3,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 import com.app.main.root.app.EventTracker;
+import com.app.main.root.app.__config.StompWireFormat;
 import com.app.main.root.app.EventLog.EventDirection;
 import com.app.main.root.app._server.RouteContext.RouteHandler;
 import com.app.main.root.app._service.ServiceManager;
+import com.app.main.root.app._types.MessageEnvelope;
 import com.app.main.root.app.utils.ColorConverter;
 import java.util.*;
 
@@ -17,6 +19,7 @@ public class MessageRouter {
     private final ConnectionTracker connectionTracker;
     private final Map<String, RouteHandler> routeHandlers;
     @Autowired private ColorConverter colorConverter;
+    @Autowired private StompWireFormat wireFormat;
 
     public MessageRouter(
         SimpMessagingTemplate messagingTemplate,
@@ -85,7 +88,7 @@ public class MessageRouter {
      * Session
      */
     private void handleSessionRoute(RouteContext context) {
-        String targetSession = (String) context.message.get("targetSession");
+        String targetSession = context.envelope.getTargetSession();
         if(targetSession != null) {
             context.targetSessions.add(targetSession);
             if(targetSession.equals(context.sessionId)) {
@@ -96,35 +99,67 @@ public class MessageRouter {
         }
     }
 
+    /**
+     * Route
+     *
+     * The perspective is worked out once for the sending session and
+     * laid over the envelope, every route and queue shares that one
+     * object.
+     */
+    public void routeMessage(
+        String sessionId,
+        MessageEnvelope envelope,
+        String[] routes
+    ) {
+        Object message = envelope;
+        try {
+            if(serviceManager == null || serviceManager.getMessagePerspectiveService() == null) {
+                System.err.println("ERR. PerspectiveService not available >:(. Routing without perspective :/");
+            } else {
+                message = serviceManager.getMessagePerspectiveService().applyPerspective(sessionId, envelope);
+            }
+        } catch(Exception err) {
+            System.err.println("ERR. Routes" + err.getMessage());
+            err.printStackTrace();
+        }
+        routeToDestination(sessionId, envelope, message, routes);
+    }
+
+    /**
+     * Route Map
+     *
+     * For messages still built as maps, system messages mostly.
+     */
     public void routeMessage(
         String sessionId,
         Object payload,
         Map<String, Object> message,
         String[] routes
     ) {
+        MessageEnvelope envelope = MessageEnvelope.fromMap(message);
         try {
             if(serviceManager == null || serviceManager.getMessagePerspectiveService() == null) {
                 System.err.println("ERR. PerspectiveService not available >:(. Routing without perspective :/");
-                routeToDestination(sessionId, payload, message, routes);
+                routeToDestination(sessionId, envelope, message, routes);
                 return;
             }
             Map<String, Object> messageWithPerspective = this.serviceManager.getMessagePerspectiveService()
                 .applyPerspective(sessionId, message);
-            routeToDestination(sessionId, payload, messageWithPerspective, routes);
+            routeToDestination(sessionId, envelope, messageWithPerspective, routes);
         } catch(Exception err) {
             System.err.println("ERR. Routes" + err.getMessage());
             err.printStackTrace();
-            routeToDestination(sessionId, payload, message, routes);
+            routeToDestination(sessionId, envelope, message, routes);
         }
     }
 
     private void routeToDestination(
         String sessionId,
-        Object payload,
-        Map<String, Object> message,
+        MessageEnvelope envelope,
+        Object message,
         String[] routes
     ) {
-        RouteContext context = new RouteContext(sessionId, payload, message);
+        RouteContext context = new RouteContext(sessionId, envelope, message);
         for(String route : routes) {
             RouteHandler handler = routeHandlers.get(route);
             if(handler != null) {
@@ -135,19 +170,22 @@ public class MessageRouter {
     }
 
     private void execRouting(RouteContext context) {
-        String baseQueue = (String) context.metadata.getOrDefault("queue", "/queue/messages");
-
+        Map<String, Integer> queues = new LinkedHashMap<>();
         for(String targetSession : context.targetSessions) {
-            String finalQueue = baseQueue;
+            String finalQueue;
             if(targetSession.equals(context.sessionId)) {
                 finalQueue = "/user/queue/messages/self";
             } else {
                 finalQueue = "/user/queue/messages/others";
             }
+            queues.merge(finalQueue, 1, Integer::sum);
+        }
 
-            String msg = colorConverter.style("Sending to session " + targetSession + " via queue" + finalQueue, "magenta", "italic");
+        /* Queues are shared destinations, one publish reaches every session */
+        for(Map.Entry<String, Integer> entry : queues.entrySet()) {
+            String msg = colorConverter.style("Sending to " + entry.getValue() + " session(s) via queue" + entry.getKey(), "magenta", "italic");
             System.out.println(msg);
-            sendToUser(targetSession, finalQueue, context.message);
+            sendToUser(context.sessionId, entry.getKey(), context.message);
         }
 
         eventTracker.track(
@@ -165,7 +203,7 @@ public class MessageRouter {
         Object data
     ) {
         try {
-            messagingTemplate.convertAndSend(destination, data);
+            wireFormat.send(messagingTemplate, destination, data);
         } catch(Exception err) {
             System.err.println("Error routing message: " + err.getMessage());
         }
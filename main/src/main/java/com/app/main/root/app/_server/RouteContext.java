@@ -1,21 +1,22 @@
 package com.app.main.root.app._server;
+import com.app.main.root.app._types.MessageEnvelope;
 import java.util.*;
 
 public class RouteContext {
     public final String sessionId;
-    public final Object payload;
+    public final MessageEnvelope envelope;
     public final String destination; 
-    public final Map<String, Object> message;
+    public final Object message;
     public final Set<String> targetSessions;
     public final Map<String, Object> metadata;
 
     public RouteContext(
         String sessionId,
-        Object payload,
-        Map<String, Object> message
+        MessageEnvelope envelope,
+        Object message
     ) {
         this.sessionId = sessionId;
-        this.payload = payload;
+        this.envelope = envelope;
         this.message = message;
         this.destination = "";
         this.targetSessions = new HashSet<>();
@@ -0,0 +1,104 @@
+package com.app.main.root.app._service;
+import com.app.main.root.app._db.CommandQueryManager;
+import com.app.main.root.app._db.DataSourceService;
+import org.springframework.stereotype.Component;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up display names for a whole page of chats at once, one IN
+ * query per database instead of one query per chat.
+ */
+@Component
+public class ChatNameResolver {
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final DataSourceService dataSourceService;
+
+    public ChatNameResolver(DataSourceService dataSourceService) {
+        this.dataSourceService = dataSourceService;
+    }
+
+    /**
+     * Groups
+     *
+     * Group id to the same fields getUserGroups returns, groups that
+     * no longer exist are left out.
+     */
+    public Map<String, Map<String, Object>> groups(Collection<String> groupIds) throws SQLException {
+        Map<String, Map<String, Object>> res = new HashMap<>();
+        for(List<String> chunk : chunks(groupIds)) {
+            String query = String.format(CommandQueryManager.GET_GROUPS_BY_IDS.get(), placeholders(chunk.size()));
+            try(
+                Connection conn = dataSourceService.setDb("group_service").getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)
+            ) {
+                bind(stmt, chunk);
+                try(ResultSet rs = stmt.executeQuery()) {
+                    while(rs.next()) {
+                        Map<String, Object> group = new HashMap<>();
+                        group.put("id", rs.getString("id"));
+                        group.put("name", rs.getString("name"));
+                        group.put("creatorId", rs.getString("creator_id"));
+                        group.put("createdAt", rs.getString("created_at"));
+                        group.put("memberCount", rs.getString("member_count"));
+                        res.put(rs.getString("id"), group);
+                    }
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Usernames
+     */
+    public Map<String, String> usernames(Collection<String> userIds) throws SQLException {
+        Map<String, String> res = new HashMap<>();
+        for(List<String> chunk : chunks(userIds)) {
+            String query = String.format(CommandQueryManager.GET_USERNAMES_BY_IDS.get(), placeholders(chunk.size()));
+            try(
+                Connection conn = dataSourceService.setDb("user_service").getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)
+            ) {
+                bind(stmt, chunk);
+                try(ResultSet rs = stmt.executeQuery()) {
+                    while(rs.next()) {
+                        res.put(rs.getString("id"), rs.getString("username"));
+                    }
+                }
+            }
+        }
+        return res;
+    }
+
+    private List<List<String>> chunks(Collection<String> ids) {
+        if(ids == null || ids.isEmpty()) return Collections.emptyList();
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        unique.remove(null);
+        List<List<String>> chunks = new ArrayList<>();
+        for(int i = 0; i < unique.size(); i += MAX_IDS_PER_QUERY) {
+            chunks.add(unique.subList(i, Math.min(i + MAX_IDS_PER_QUERY, unique.size())));
+        }
+        return chunks;
+    }
+
+    private String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private void bind(PreparedStatement stmt, List<String> ids) throws SQLException {
+        for(int i = 0; i < ids.size(); i++) {
+            stmt.setString(i + 1, ids.get(i));
+        }
+    }
+}
@@ -1,5 +1,4 @@
 package com.app.main.root.app._service;
-import com.app.main.root.app._crypto.message_encoder.ChatDecryptionService;
 import com.app.main.root.app._data.CommandSystemMessageList;
 import com.app.main.root.app._types.File;
 import com.app.main.root.app._types.Message;
@@ -8,116 +7,37 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 @Component
 public class ChatService {
     private final ServiceManager serviceManager;
-    private final ChatDecryptionService chatDecryptionService;
 
-    public ChatService(@Lazy ServiceManager serviceManager, @Lazy ChatDecryptionService ChatDecryptionService) {
+    public ChatService(@Lazy ServiceManager serviceManager) {
         this.serviceManager = serviceManager;
-        this.chatDecryptionService = ChatDecryptionService;
     }
 
-    private List<Map<String, Object>> getUserDirectChats(String userId) throws SQLException {
-        List<Map<String, Object>> chatData = serviceManager.getUserService().getUserDirect(userId);
-        List<Map<String, Object>> chats = new ArrayList<>();
-        for(Map<String, Object> chat : chatData) {
-            String chatId = (String) chat.get("id");
-            Map<String, Object> lastMessage = serviceManager.getMessageService().getLastMessagesByChatId(chatId);
-            Map<String, Object> c = new HashMap<>(chat);
-            if(lastMessage != null) {
-                byte[] encryptedContent = (byte[]) lastMessage.get("contentBytes");
-                String content;
-                if(encryptedContent != null) {
-                    content = chatDecryptionService.decryptMessage(chatId, encryptedContent);
-                } else {
-                    content = "";
-                }
-                String senderId = (String) lastMessage.get("senderId");
-
-                if(!content.isEmpty()) {
-                    c.put("lastMessageTime", lastMessage.get("timestamp"));
-                    c.put("lastMessageContent", content);
-                    c.put("lastMessageSender", senderId);
-                    chats.add(c);
-                }
-
-                c.put("lastMessageTime", lastMessage.get("timestamp"));
-                c.put("lastMessageContent", content);
-                c.put("lastMessageSender", senderId);
-            }
-        }
-        return chats;
-    }
-
-    private List<Map<String, Object>> getUserGroupChats(String userId) throws SQLException {
-        List<Map<String, Object>> chatData = serviceManager.getUserService().getUserGroups(userId);
-        List<Map<String, Object>> chats = new ArrayList<>();
-        for(Map<String, Object> chat : chatData) {
-            String chatId = (String) chat.get("id");
-            Map<String, Object> lastMessage = serviceManager.getMessageService().getLastMessagesByChatId(chatId);
-            Map<String, Object> c = new HashMap<>(chat);
-            if(lastMessage != null) {
-                byte[] encryptedContent = (byte[]) lastMessage.get("contentBytes");
-                String content;
-                if(encryptedContent != null) {
-                    content = chatDecryptionService.decryptMessage(chatId, encryptedContent);
-                } else {
-                    content = "";
-                }
-                String senderId = (String) lastMessage.get("senderId");
-
-                c.put("lastMessageTime", lastMessage.get("timestamp"));
-                c.put("lastMessageContent", content);
-                c.put("lastMessageSender", senderId);
-            }
-            chats.add(c);
-        }
-        return chats;
+    public List<Map<String, Object>> getUserChats(String userId, int page, int pageSize) throws SQLException {
+        return serviceManager.getChatSummaryService().getChats(userId, pageSize, page * pageSize);
     }
 
-    public List<Map<String, Object>> getUserChats(String userId, int page, int pageSize) throws SQLException {
-        List<Map<String, Object>> allChats = getChats(userId);
-        
-        int startIndex = page * pageSize;
-        int endIndex = Math.min(startIndex + pageSize, allChats.size());
-        if(startIndex >= allChats.size()) return new ArrayList<>();
-        
-        return allChats.subList(startIndex, endIndex);
+    /**
+     * Get User Chats Page
+     *
+     * One page and the total, both read from chat_summary.
+     */
+    public Map<String, Object> getUserChatsPage(String userId, int page, int pageSize) throws SQLException {
+        Map<String, Object> res = new HashMap<>();
+        res.put("chats", getUserChats(userId, page, pageSize));
+        res.put("total", serviceManager.getChatSummaryService().count(userId));
+        return res;
     }
 
     /**
      * Get Chats
      */
     public List<Map<String, Object>> getChats(String userId) throws SQLException {
-        List<Map<String, Object>> allChats = new ArrayList<>();
-        List<Map<String, Object>> directChats = getUserDirectChats(userId);
-        List<Map<String, Object>> groupChats = getUserGroupChats(userId);
-        allChats.addAll(directChats);
-        allChats.addAll(groupChats);
-
-        allChats.sort((a, b) -> {
-            Timestamp timeA = getTimestamp(a.get("lastMessageTime"));
-            Timestamp timeB = getTimestamp(b.get("lastMessageTime"));
-            Timestamp createA = parseCreatedAt((String) a.get("createdAt"));
-            Timestamp createB = parseCreatedAt((String) b.get("createdAt"));
-
-            if(timeA != null && timeB != null) {
-                return timeB.compareTo(timeA);
-            } else if(timeA != null) {
-                return -1;
-            } else if(timeB != null) {
-                return -1;
-            } else {
-                return createB.compareTo(createA);
-            }
-        });
-
-        return allChats;
+        return serviceManager.getChatSummaryService().getChats(userId, Integer.MAX_VALUE, 0);
     }
 
     public boolean userHasAccessToChat(String userId, String chatId) throws SQLException {
@@ -150,6 +70,7 @@ public class ChatService {
         }
         
         Map<String, Object> chatData = new HashMap<>();
+        if(page == 0) serviceManager.getChatSummaryService().markRead(chatId, userId);
         
         try {
             List<Message> messages = serviceManager.getMessageService().getMessagesByChatId(chatId, page, pageSize);
@@ -340,37 +261,6 @@ public class ChatService {
         return 0L;
     }
 
-    private Timestamp getTimestamp(Object timestampObj) {
-        if(timestampObj == null) return null;
-        if(timestampObj instanceof Timestamp) {
-            return (Timestamp) timestampObj;
-        } else if(timestampObj instanceof String) {
-            try {
-                Timestamp.valueOf((String) timestampObj);
-            } catch(Exception err) {
-                return null;
-            }
-        }
-        return null;
-    }
-
-    private Timestamp parseCreatedAt(String createdAt) {
-        if(createdAt == null) return new Timestamp(0);
-        try {
-            if(createdAt.contains("T") || createdAt.contains("t")) {
-                LocalDateTime dateTime = LocalDateTime.parse(
-                    createdAt, 
-                    DateTimeFormatter.ISO_LOCAL_DATE_TIME
-                );
-                return Timestamp.valueOf(dateTime);
-            } else {
-                return Timestamp.valueOf(createdAt);
-            }
-        } catch(Exception err) {
-            return new Timestamp(System.currentTimeMillis());
-        }
-    }
-
     /**
      * 
      * Perspective
@@ -0,0 +1,572 @@
+package com.app.main.root.app._service;
+import com.app.main.root.app._crypto.message_encoder.ChatDecryptionService;
+import com.app.main.root.app._db.CommandQueryManager;
+import com.app.main.root.app._db.DataSourceService;
+import com.app.main.root.app._types.RecentChat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chat list per user, kept in the chat_summary table.
+ *
+ * One row per chat and participant with the chat's last message,
+ * a preview and the participant's unread count. Rows are updated by
+ * the message batch writer in the same transaction as the insert, so
+ * listing a user's chats is one range read on (user_id, activity_at)
+ * plus one batched name lookup per page. Encrypted previews are kept
+ * as stored and decrypted on read, only for the rows on the page.
+ */
+@Component
+public class ChatSummaryService {
+    private final DataSourceService dataSourceService;
+    private final ChatNameResolver nameResolver;
+    @Autowired @Lazy private ChatDecryptionService chatDecryptionService;
+
+    @Value("${app.chats.previewChars:200}")
+    private int previewChars;
+
+    public ChatSummaryService(DataSourceService dataSourceService, ChatNameResolver nameResolver) {
+        this.dataSourceService = dataSourceService;
+        this.nameResolver = nameResolver;
+        this.createTable();
+    }
+
+    private Connection getConnection() throws SQLException {
+        return dataSourceService.setDb("message_service").getConnection();
+    }
+
+    /**
+     * Create Table
+     */
+    public void createTable() {
+        try(
+            Connection conn = getConnection();
+            Statement stmt = conn.createStatement();
+        ) {
+            stmt.execute(CommandQueryManager.EXEC_CREATE_CHAT_SUMMARY.get());
+            stmt.execute(CommandQueryManager.EXEC_INDEX_CHAT_SUMMARY_USER.get());
+        } catch(Exception err) {
+            err.printStackTrace();
+            System.err.println("Chat summary table error");
+        }
+    }
+
+    /**
+     * Recorder
+     *
+     * Statements for recording saved messages on the writer's own
+     * connection, prepared once per batch.
+     */
+    public Recorder recorder(Connection conn) throws SQLException {
+        return new Recorder(conn);
+    }
+
+    public class Recorder implements AutoCloseable {
+        private final PreparedStatement update;
+        private final PreparedStatement insert;
+
+        private Recorder(Connection conn) throws SQLException {
+            this.update = conn.prepareStatement(CommandQueryManager.UPDATE_CHAT_SUMMARY.get());
+            this.insert = conn.prepareStatement(CommandQueryManager.INSERT_CHAT_SUMMARY.get());
+        }
+
+        /**
+         * Record
+         *
+         * Moves every participant row of the chat to this message. The
+         * first message of a chat nobody has a row for yet seeds the
+         * rows from the chat's participants.
+         */
+        public void record(
+            int messageId,
+            String chatId,
+            String senderId,
+            String username,
+            byte[] content,
+            boolean encrypted,
+            Timestamp createdAt
+        ) throws SQLException {
+            byte[] preview = preview(content, encrypted);
+            long activityAt = createdAt.getTime();
+
+            update.setInt(1, messageId);
+            update.setTimestamp(2, createdAt);
+            update.setString(3, senderId);
+            update.setString(4, username);
+            update.setBytes(5, preview);
+            update.setInt(6, encrypted ? 1 : 0);
+            update.setLong(7, activityAt);
+            update.setString(8, senderId);
+            update.setString(9, chatId);
+            if(update.executeUpdate() > 0) return;
+
+            for(String userId : participantsOf(chatId, senderId)) {
+                insert.setString(1, chatId);
+                insert.setString(2, userId);
+                insert.setString(3, chatTypeOf(chatId));
+                insert.setInt(4, messageId);
+                insert.setTimestamp(5, createdAt);
+                insert.setString(6, senderId);
+                insert.setString(7, username);
+                insert.setBytes(8, preview);
+                insert.setInt(9, encrypted ? 1 : 0);
+                insert.setInt(10, userId.equals(senderId) ? 0 : 1);
+                insert.setLong(11, activityAt);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                update.close();
+            } finally {
+                insert.close();
+            }
+        }
+    }
+
+    /**
+     * Participants
+     */
+    public void addParticipant(String chatId, String userId) {
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.ADD_CHAT_SUMMARY_PARTICIPANT.get())
+        ) {
+            addParticipant(stmt, chatId, userId, System.currentTimeMillis());
+            stmt.executeUpdate();
+        } catch(SQLException err) {
+            System.err.println("Chat summary add participant failed: " + err.getMessage());
+        }
+    }
+
+    private void addParticipant(PreparedStatement stmt, String chatId, String userId, long activityAt) throws SQLException {
+        stmt.setString(1, chatId);
+        stmt.setString(2, userId);
+        stmt.setString(3, chatTypeOf(chatId));
+        stmt.setLong(4, activityAt);
+        stmt.setString(5, chatId);
+    }
+
+    public void removeParticipant(String chatId, String userId) {
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.REMOVE_CHAT_SUMMARY_PARTICIPANT.get())
+        ) {
+            stmt.setString(1, chatId);
+            stmt.setString(2, userId);
+            stmt.executeUpdate();
+        } catch(SQLException err) {
+            System.err.println("Chat summary remove participant failed: " + err.getMessage());
+        }
+    }
+
+    /**
+     * Mark Read
+     */
+    public void markRead(String chatId, String userId) {
+        if(chatId == null || userId == null) return;
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.MARK_CHAT_SUMMARY_READ.get())
+        ) {
+            stmt.setString(1, chatId);
+            stmt.setString(2, userId);
+            stmt.executeUpdate();
+        } catch(SQLException err) {
+            System.err.println("Chat summary mark read failed: " + err.getMessage());
+        }
+    }
+
+    /**
+     * Count
+     */
+    public int count(String userId) throws SQLException {
+        return count(CommandQueryManager.GET_CHAT_SUMMARIES_COUNT, userId);
+    }
+
+    public int countRecent(String userId) throws SQLException {
+        return count(CommandQueryManager.GET_RECENT_CHAT_SUMMARIES_COUNT, userId);
+    }
+
+    private int count(CommandQueryManager query, String userId) throws SQLException {
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(query.get())
+        ) {
+            stmt.setString(1, userId);
+            try(ResultSet rs = stmt.executeQuery()) {
+                if(rs.next()) return rs.getInt("total_chats");
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Chats
+     *
+     * Same fields ChatService used to build from the direct and group
+     * lists, newest activity first.
+     */
+    public List<Map<String, Object>> getChats(String userId, int limit, int offset) throws SQLException {
+        List<Row> rows = load(CommandQueryManager.GET_CHAT_SUMMARIES, userId, limit, offset);
+        Set<String> groupIds = new HashSet<>();
+        Set<String> contactIds = new HashSet<>();
+        for(Row row : rows) {
+            if(row.isGroup()) {
+                groupIds.add(row.chatId);
+            } else {
+                contactIds.add(otherUserId(row.chatId, userId));
+            }
+        }
+        Map<String, Map<String, Object>> groups = nameResolver.groups(groupIds);
+        Map<String, String> usernames = nameResolver.usernames(contactIds);
+
+        List<Map<String, Object>> chats = new ArrayList<>(rows.size());
+        for(Row row : rows) {
+            Map<String, Object> chat;
+            if(row.isGroup()) {
+                Map<String, Object> group = groups.get(row.chatId);
+                if(group == null) continue;
+                chat = new HashMap<>(group);
+                chat.put("type", "GROUP");
+            } else {
+                String contactId = otherUserId(row.chatId, userId);
+                chat = new HashMap<>();
+                chat.put("id", row.chatId);
+                chat.put("contactId", contactId);
+                chat.put("contactUsername", usernames.get(contactId));
+                chat.put("type", "DIRECT");
+            }
+            if(row.lastMessageId != null) {
+                chat.put("lastMessageTime", row.lastMessageTime);
+                chat.put("lastMessageContent", previewText(row));
+                chat.put("lastMessageSender", row.lastSenderId);
+            }
+            chat.put("unreadCount", row.unreadCount);
+            chats.add(chat);
+        }
+        return chats;
+    }
+
+    /**
+     * Recent Chats
+     */
+    public List<RecentChat> getRecentChats(String userId, int limit, int offset) throws SQLException {
+        List<Row> rows = load(CommandQueryManager.GET_RECENT_CHAT_SUMMARIES, userId, limit, offset);
+        Set<String> groupIds = new HashSet<>();
+        Set<String> contactIds = new HashSet<>();
+        for(Row row : rows) {
+            if(row.isGroup()) {
+                groupIds.add(row.chatId);
+            } else {
+                contactIds.add(otherUserId(row.chatId, userId));
+            }
+        }
+        Map<String, Map<String, Object>> groups = nameResolver.groups(groupIds);
+        Map<String, String> usernames = nameResolver.usernames(contactIds);
+
+        List<RecentChat> chats = new ArrayList<>(rows.size());
+        for(Row row : rows) {
+            String chatName;
+            if(row.isGroup()) {
+                Map<String, Object> group = groups.get(row.chatId);
+                chatName = group != null ? (String) group.get("name") : "Group Chat*";
+            } else {
+                String name = usernames.get(otherUserId(row.chatId, userId));
+                chatName = name != null ? name : "User*";
+            }
+
+            RecentChat chat = new RecentChat();
+            chat.setChatId(row.chatId);
+            chat.setLastMessageTime(row.lastMessageTimestamp);
+            chat.setLastMessage(previewText(row));
+            chat.setLastSender(row.lastSender);
+            chat.setChatType(row.chatType);
+            chat.setChatName(chatName);
+            chat.setUnreadCount(row.unreadCount);
+            chats.add(chat);
+        }
+        return chats;
+    }
+
+    private List<Row> load(CommandQueryManager query, String userId, int limit, int offset) throws SQLException {
+        List<Row> rows = new ArrayList<>();
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(query.get())
+        ) {
+            stmt.setString(1, userId);
+            stmt.setInt(2, limit);
+            stmt.setInt(3, Math.max(0, offset));
+            try(ResultSet rs = stmt.executeQuery()) {
+                while(rs.next()) {
+                    Row row = new Row();
+                    row.chatId = rs.getString("chat_id");
+                    row.chatType = rs.getString("chat_type");
+                    int lastMessageId = rs.getInt("last_message_id");
+                    row.lastMessageId = rs.wasNull() ? null : lastMessageId;
+                    row.lastMessageTime = rs.getString("last_message_time");
+                    row.lastMessageTimestamp = row.lastMessageId != null ? rs.getTimestamp("last_message_time") : null;
+                    row.lastSenderId = rs.getString("last_sender_id");
+                    row.lastSender = rs.getString("last_sender");
+                    row.preview = rs.getBytes("preview");
+                    row.encrypted = rs.getInt("preview_encrypted") == 1;
+                    row.unreadCount = rs.getInt("unread_count");
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reconcile
+     *
+     * Fills the table from existing messages the first time it runs
+     * on an older database, then brings group rows in line with
+     * group_members, which the group service rebuilds on startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        try {
+            Map<String, List<String>> members = groupMembers();
+            if(isEmpty()) backfill(members);
+            syncGroups(members);
+        } catch(Exception err) {
+            System.err.println("Chat summary reconcile failed: " + err.getMessage());
+        }
+    }
+
+    private boolean isEmpty() throws SQLException {
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.HAS_CHAT_SUMMARY.get());
+            ResultSet rs = stmt.executeQuery()
+        ) {
+            return !rs.next();
+        }
+    }
+
+    private void backfill(Map<String, List<String>> members) throws SQLException {
+        int chats = 0;
+        try(Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try(
+                PreparedStatement select = conn.prepareStatement(CommandQueryManager.GET_LAST_MESSAGE_PER_CHAT.get());
+                PreparedStatement insert = conn.prepareStatement(CommandQueryManager.INSERT_CHAT_SUMMARY.get());
+                ResultSet rs = select.executeQuery()
+            ) {
+                while(rs.next()) {
+                    String chatId = rs.getString("chat_id");
+                    String senderId = rs.getString("sender_id");
+                    byte[] content = rs.getBytes("content");
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    boolean encrypted = !isPlainText(content);
+                    byte[] preview = preview(content, encrypted);
+
+                    List<String> participants = chatId.startsWith("group_") ?
+                        members.getOrDefault(chatId, List.of()) :
+                        participantsOf(chatId, senderId);
+                    for(String userId : participants) {
+                        insert.setString(1, chatId);
+                        insert.setString(2, userId);
+                        insert.setString(3, chatTypeOf(chatId));
+                        insert.setInt(4, rs.getInt("id"));
+                        insert.setTimestamp(5, createdAt);
+                        insert.setString(6, senderId);
+                        insert.setString(7, rs.getString("username"));
+                        insert.setBytes(8, preview);
+                        insert.setInt(9, encrypted ? 1 : 0);
+                        insert.setInt(10, 0);
+                        insert.setLong(11, createdAt != null ? createdAt.getTime() : 0L);
+                        insert.addBatch();
+                    }
+                    chats++;
+                }
+                insert.executeBatch();
+                conn.commit();
+            } catch(SQLException err) {
+                conn.rollback();
+                throw err;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        System.out.println("Chat summary backfilled from " + chats + " chats");
+    }
+
+    private void syncGroups(Map<String, List<String>> members) throws SQLException {
+        try(Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try(
+                PreparedStatement select = conn.prepareStatement(CommandQueryManager.GET_CHAT_SUMMARY_GROUPS.get());
+                PreparedStatement remove = conn.prepareStatement(CommandQueryManager.REMOVE_CHAT_SUMMARY_CHAT.get());
+                PreparedStatement add = conn.prepareStatement(CommandQueryManager.ADD_CHAT_SUMMARY_PARTICIPANT.get())
+            ) {
+                try(ResultSet rs = select.executeQuery()) {
+                    while(rs.next()) {
+                        String chatId = rs.getString("chat_id");
+                        if(members.containsKey(chatId)) continue;
+                        remove.setString(1, chatId);
+                        remove.addBatch();
+                    }
+                }
+                remove.executeBatch();
+
+                long now = System.currentTimeMillis();
+                for(Map.Entry<String, List<String>> entry : members.entrySet()) {
+                    for(String userId : entry.getValue()) {
+                        addParticipant(add, entry.getKey(), userId, now);
+                        add.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch(SQLException err) {
+                conn.rollback();
+                throw err;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private Map<String, List<String>> groupMembers() throws SQLException {
+        Map<String, List<String>> members = new HashMap<>();
+        try(
+            Connection conn = dataSourceService.setDb("group_service").getConnection();
+            PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.GET_ALL_GROUP_MEMBERS.get());
+            ResultSet rs = stmt.executeQuery()
+        ) {
+            while(rs.next()) {
+                members.computeIfAbsent(rs.getString("group_id"), k -> new ArrayList<>()).add(rs.getString("user_id"));
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Participants of a chat, for seeding rows on its first message.
+     */
+    private List<String> participantsOf(String chatId, String senderId) throws SQLException {
+        List<String> participants = new ArrayList<>();
+        participants.add(senderId);
+        if(chatId.startsWith("direct_")) {
+            String otherId = otherUserId(chatId, senderId);
+            if(otherId != null && !otherId.equals(senderId)) participants.add(otherId);
+        } else if(chatId.startsWith("group_")) {
+            try(
+                Connection conn = dataSourceService.setDb("group_service").getConnection();
+                PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.GET_MEMBER_ID.get())
+            ) {
+                stmt.setString(1, chatId);
+                try(ResultSet rs = stmt.executeQuery()) {
+                    while(rs.next()) {
+                        String userId = rs.getString("user_id");
+                        if(!userId.equals(senderId)) participants.add(userId);
+                    }
+                }
+            }
+        }
+        return participants;
+    }
+
+    /**
+     * Other User
+     *
+     * Direct chat ids are "direct_" plus both user ids sorted and
+     * joined by '_', the known id is cut off whole so ids containing
+     * '_' still split right.
+     */
+    private String otherUserId(String chatId, String userId) {
+        if(!chatId.startsWith("direct_")) return null;
+        String ids = chatId.substring("direct_".length());
+        if(ids.startsWith(userId + "_")) return ids.substring(userId.length() + 1);
+        if(ids.endsWith("_" + userId)) return ids.substring(0, ids.length() - userId.length() - 1);
+        int i = ids.indexOf('_');
+        return i > 0 ? ids.substring(i + 1) : ids;
+    }
+
+    private String chatTypeOf(String chatId) {
+        return chatId.startsWith("group_") ? "group" : "direct";
+    }
+
+    /**
+     * Preview
+     *
+     * Plain text is cut to previewChars, ciphertext is kept whole so
+     * it can still be decrypted.
+     */
+    private byte[] preview(byte[] content, boolean encrypted) {
+        if(content == null || encrypted) return content;
+        String text = new String(content, StandardCharsets.UTF_8);
+        if(text.length() <= previewChars) return content;
+        int end = previewChars;
+        if(end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) end--;
+        return text.substring(0, end).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String previewText(Row row) {
+        if(row.preview == null) return "";
+        if(!row.encrypted) return new String(row.preview, StandardCharsets.UTF_8);
+        String text = chatDecryptionService.decryptMessage(row.chatId, row.preview);
+        return text.length() > previewChars ? text.substring(0, previewChars) : text;
+    }
+
+    private boolean isPlainText(byte[] content) {
+        if(content == null) return true;
+        try {
+            String text = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(content))
+                .toString();
+            for(int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if(c < 32 && c != '\t' && c != '\n' && c != '\r') return false;
+            }
+            return true;
+        } catch(CharacterCodingException err) {
+            return false;
+        }
+    }
+
+    private static class Row {
+        String chatId;
+        String chatType;
+        Integer lastMessageId;
+        String lastMessageTime;
+        Timestamp lastMessageTimestamp;
+        String lastSenderId;
+        String lastSender;
+        byte[] preview;
+        boolean encrypted;
+        int unreadCount;
+
+        boolean isGroup() {
+            return "group".equals(chatType);
+        }
+    }
+}
@@ -78,9 +78,9 @@ public class DirectService {
     }
 
     private void hadleDirectMessageRoute(RouteContext context) {
-        String chatId = (String) context.message.get("chatId");
-        String recipientId = (String) context.message.get("recipientId");
-        String senderId = (String) context.message.get("senderId");
+        String chatId = context.envelope.getChatId();
+        String recipientId = context.envelope.getRecipientId();
+        String senderId = context.envelope.getSenderId();
 
         if(chatId != null && chatId.startsWith("direct_")) {
             try {
@@ -120,8 +120,8 @@ public class DirectService {
     }
 
     private void handleOthersRoute(RouteContext context) {
-        String recipientId = (String) context.message.get("recipientId");
-        String senderId = (String) context.message.get("senderId");
+        String recipientId = context.envelope.getRecipientId();
+        String senderId = context.envelope.getSenderId();
         if(recipientId != null && senderId != null) {
             try {
                 if(serviceManager.getContactService().isContact(senderId, senderId)) {
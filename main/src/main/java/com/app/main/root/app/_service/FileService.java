@@ -2,16 +2,25 @@ package com.app.main.root.app._service;
 import com.app.main.root.app._db.CommandQueryManager;
 import com.app.main.root.app._db.DbManager;
 import com.app.main.root.app._types.File;
+import com.app.main.root.app.file_compressor.ChunkedCompressor;
 import com.app.main.root.app.file_compressor.WrapperFileCompressor;
 import com.app.main.root.app._cache.CacheService;
-import com.app.main.root.app._crypto.file_encoder.FileEncoderWrapper;
+import com.app.main.root.app._crypto.file_encoder.FileEncoderPool;
 import com.app.main.root.app._crypto.file_encoder.KeyManagerService;
+import com.app.main.root.app._data.BlobMigrator;
+import com.app.main.root.app._data.BlobStore;
 import com.app.main.root.app._data.FileDownloader;
 import com.app.main.root.app._data.FileUploader;
 import com.app.main.root.app._data.MimeToDb;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.jdbc.core.JdbcTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -26,12 +35,14 @@ public class FileService {
     private final DbManager dbManager;
     private final ServiceManager serviceManager;
     private final CacheService cacheService;
-    public FileEncoderWrapper fileEncoderWrapper;
+    private final FileEncoderPool encoderPool;
     private KeyManagerService keyManagerService;
     private WrapperFileCompressor fileCompressor;
 
     private FileUploader fileUploader;
     private FileDownloader fileDownloader;
+    private BlobStore blobStore;
+    private BlobMigrator blobMigrator;
 
     public static final String METADATA_DB = "files_metadata";
     public static final String IMAGE_DB = "image_data";
@@ -42,32 +53,122 @@ public class FileService {
     private static final long COMPRESSION_MIN_SIZE = 1024 * 100;
     private static final long COMPRESSION_MAX_SIZE = 1024 * 1024 * 500;
 
+    @Value("${app.files.download.windowBytes:8388608}")
+    private int downloadWindowBytes;
+
+    @Value("${app.files.compression.threads:0}")
+    private int compressionThreads;
+
+    @Value("${app.files.compression.chunkBytes:5242880}")
+    private int compressionChunkBytes;
+
+    @Value("${app.files.blobs.dir:}")
+    private String blobDir;
+
+    @Value("${app.files.blobs.migrate:false}")
+    private boolean migrateBlobs;
+
+    @Value("${app.files.blobs.vacuum:false}")
+    private boolean vacuumAfterMigrate;
+
     public FileService(
         Map<String, JdbcTemplate> jdbcTemplates,
         @Lazy ServiceManager serviceManager,
         @Lazy DbManager dbManager,
-        CacheService cacheService
+        CacheService cacheService,
+        @Value("${app.files.encoders.size:0}") int encoderPoolSize
     ) {
         this.jdbcTemplates = jdbcTemplates;
         this.serviceManager = serviceManager;
         this.dbManager = dbManager;
         this.cacheService = cacheService;
         this.fileCompressor = new WrapperFileCompressor();
-        this.fileEncoderWrapper = new FileEncoderWrapper();
+        this.encoderPool = new FileEncoderPool(encoderPoolSize);
         this.keyManagerService = new KeyManagerService(jdbcTemplates);
+        this.blobStore = new BlobStore(
+            jdbcTemplates.get(METADATA_DB),
+            Paths.get(DbManager.getDataDir(), "blobs")
+        );
         this.fileUploader = new FileUploader(
             this, 
             jdbcTemplates, 
             serviceManager,
-            fileEncoderWrapper, 
-            keyManagerService
+            encoderPool, 
+            keyManagerService,
+            blobStore
         );
         this.fileDownloader = new FileDownloader(
             this, 
             jdbcTemplates, 
-            fileEncoderWrapper, 
-            keyManagerService
+            encoderPool, 
+            keyManagerService,
+            blobStore
         );
+        this.migrateMetadata();
+    }
+
+    @PostConstruct
+    public void init() {
+        fileDownloader.setWindowBytes(downloadWindowBytes);
+        ChunkedCompressor.configure(compressionThreads, compressionChunkBytes);
+        if(blobDir != null && !blobDir.isBlank()) {
+            blobStore.setRoot(Paths.get(blobDir));
+        }
+        this.blobMigrator = new BlobMigrator(this, jdbcTemplates, blobStore, downloadWindowBytes);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        encoderPool.close();
+    }
+
+    /**
+     * Migrate Blobs
+     *
+     * Opt in with app.files.blobs.migrate, runs off the startup
+     * thread since it copies every stored file once.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateBlobs() {
+        if(!migrateBlobs) return;
+        Thread.ofVirtual().name("blob-migrator").start(() -> {
+            try {
+                blobMigrator.run(vacuumAfterMigrate);
+            } catch(Exception err) {
+                System.err.println("Blob migration stopped: " + err.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Migrate Metadata
+     */
+    private void migrateMetadata() {
+        JdbcTemplate metadataTemplate = jdbcTemplates.get(METADATA_DB);
+        if(metadataTemplate == null) return;
+
+        try {
+            List<Map<String, Object>> columns = metadataTemplate.queryForList(
+                CommandQueryManager.GET_METADATA_COLUMNS.get()
+            );
+            boolean hasCompressionType = columns.stream()
+                .anyMatch(column -> "compression_type".equals(column.get("name")));
+            if(!hasCompressionType) {
+                metadataTemplate.execute(CommandQueryManager.EXEC_ADD_COMPRESSION_TYPE_COLUMN.get());
+                System.out.println("Added compression_type column to files_metadata");
+            }
+            boolean hasBlobHash = columns.stream()
+                .anyMatch(column -> "blob_hash".equals(column.get("name")));
+            if(!hasBlobHash) {
+                metadataTemplate.execute(CommandQueryManager.EXEC_ADD_BLOB_HASH_COLUMN.get());
+                System.out.println("Added blob_hash column to files_metadata");
+            }
+            metadataTemplate.execute(CommandQueryManager.EXEC_INDEX_FILES_METADATA_BLOB.get());
+            metadataTemplate.execute(CommandQueryManager.EXEC_CREATE_FILE_BLOBS.get());
+            metadataTemplate.execute(CommandQueryManager.EXEC_INDEX_FILE_BLOBS_CONTENT.get());
+        } catch(Exception err) {
+            System.err.println("Failed to migrate files_metadata: " + err.getMessage());
+        }
     }
 
     /**
@@ -118,11 +219,13 @@ public class FileService {
                 .getCachedFilesPage(
                     userId, 
                     chatId, 
-                    page
+                    page,
+                    pageSize
                 );
         if(cachedFiles != null) {
             return convertToFileList(cachedFiles);
         }
+        long stamp = cacheService.getFileCache().getStamp(userId, chatId);
 
         JdbcTemplate metadataTemplate = jdbcTemplates.get(METADATA_DB);
         if(metadataTemplate == null) throw new RuntimeException("files_metadata database not available");
@@ -142,7 +245,9 @@ public class FileService {
             userId, 
             chatId, 
             page, 
-            files
+            pageSize,
+            files,
+            stamp
         );
 
         return convertToFileList(files);
@@ -217,6 +322,11 @@ public class FileService {
                 System.out.println("DEBUG: Cache invalidated for folder: " + parentchatId);
             }
 
+            String blobHash = (String) info.get("blob_hash");
+            if(res && blobHash != null && blobStore.release(blobHash)) {
+                System.out.println("Collected blob " + blobHash);
+            }
+
             cacheService.getFileCache().invalidateFileCache(userId, chatId);
             return res;
         } catch(Exception err) {
@@ -262,6 +372,21 @@ public class FileService {
         return fileDownloader;
     }
 
+    /* Get Encoder Pool */
+    public FileEncoderPool getEncoderPool() {
+        return encoderPool;
+    }
+
+    /* Get Blob Store */
+    public BlobStore getBlobStore() {
+        return blobStore;
+    }
+
+    /* Get Blob Migrator */
+    public BlobMigrator getBlobMigrator() {
+        return blobMigrator;
+    }
+
     /**
      * Find File Database
      */
@@ -401,6 +526,16 @@ public class FileService {
                 return null;
             }
 
+            String blobHash = jdbcTemplates.get(METADATA_DB).queryForObject(
+                CommandQueryManager.GET_FILE_BLOB_HASH.get(),
+                String.class,
+                fileId,
+                userId
+            );
+            if(blobHash != null) {
+                return blobStore.read(blobHash);
+            }
+
             String dbName = findFileDatabase(userId, null, fileId);
             if(dbName == null) {
                 System.err.println("Could not find database for file: " + fileId);
@@ -7,14 +7,13 @@ import com.app.main.root.app._crypto.message_encoder.PreKeyBundle;
 import com.app.main.root.app._data.MemberVerifier;
 import com.app.main.root.app._db.CommandQueryManager;
 import com.app.main.root.app._db.DataSourceService;
+import com.app.main.root.app._server.GroupFanout;
 import com.app.main.root.app._server.MessageRouter;
 import com.app.main.root.app._server.RouteContext;
 import com.app.main.root.app._data.SocketMethods;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 import java.util.Date;
@@ -35,10 +34,7 @@ public class GroupService {
     private final MemberVerifier memberVerifier;
     private final ServiceManager serviceManager;
     private final SocketMethods socketMethods;
-
-    public final Map<String, Set<String>> groupSessions = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> userGroups = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> sessionGroups = new ConcurrentHashMap<>();
+    private final GroupFanout groupFanout;
 
     public GroupService(
         DataSourceService dataSourceService, 
@@ -47,7 +43,8 @@ public class GroupService {
         MessageRouter messageRouter,
         MemberVerifier memberVerifier,
         ServiceManager serviceManager,
-        SocketMethods socketMethods
+        SocketMethods socketMethods,
+        GroupFanout groupFanout
     ) {
         this.dataSourceService = dataSourceService;
         this.messagingTemplate = messagingTemplate;
@@ -61,6 +58,7 @@ public class GroupService {
         this.memberVerifier = memberVerifier;
         this.serviceManager = serviceManager;
         this.socketMethods = socketMethods;
+        this.groupFanout = groupFanout;
     }
 
     private Connection getConnection() throws SQLException {
@@ -176,6 +174,7 @@ public class GroupService {
         }
 
         if(added) {
+            serviceManager.getChatSummaryService().addParticipant(groupId, userId);
             MemberVerifier.VerificationResult verification = memberVerifier
                 .verifyMember(groupId, userId, username);
             
@@ -216,9 +215,10 @@ public class GroupService {
         String groupId, 
         String sessionId
     ) {
-        userGroups.computeIfAbsent(userId, k -> new CopyOnWriteArraySet<>()).add(groupId);
-        groupSessions.computeIfAbsent(groupId, k -> new CopyOnWriteArraySet<>()).add(sessionId);
-        sessionGroups.computeIfAbsent(sessionId, k -> new CopyOnWriteArraySet<>()).add(groupId);
+        if(sessionId != null && !groupFanout.isBound(sessionId)) {
+            groupFanout.bindSession(userId, sessionId);
+        }
+        groupFanout.addMember(userId, groupId);
     }
 
     public Group getGroupId(String id) throws SQLException {
@@ -306,8 +306,11 @@ public class GroupService {
     }
 
     public Set<String> getGroupSessionIds(String groupId) {
-        Set<String> sessions = groupSessions.get(groupId);
-        return sessions != null ? new HashSet<>(sessions) : new HashSet<>();
+        return new HashSet<>(groupFanout.getSessions(groupId));
+    }
+
+    public GroupFanout getGroupFanout() {
+        return groupFanout;
     }
     
     /**
@@ -315,8 +318,8 @@ public class GroupService {
      */
     public void sendToGroup(String groupId, String event, Object data) {
         try {
-            Set<String> sessions = groupSessions.get(groupId);
-            if(sessions != null && !sessions.isEmpty()) {
+            Set<String> sessions = groupFanout.getSessions(groupId);
+            if(!sessions.isEmpty()) {
                 eventTracker.track(
                     event,
                     data,
@@ -325,13 +328,9 @@ public class GroupService {
                     "system"
                 );
 
-                for(String sessionId : sessions) {
-                    if(isSessionInGroup(sessionId, groupId)) {
-                        String destination = "/user/queue/messages/group/" + groupId; 
-                        messagingTemplate.convertAndSend(destination, data);
-                    }
-                }
-                System.out.println("Broadcasted to " + sessions.size() + " group members in group " + groupId);
+                String destination = "/user/queue/messages/group/" + groupId;
+                int fanout = groupFanout.publish(groupId, destination, data);
+                System.out.println("Broadcasted to " + fanout + " group members in group " + groupId);
             } else {
                 System.out.println("No active sessions found for group " + groupId);
             }
@@ -342,8 +341,8 @@ public class GroupService {
 
     public void sendToUserGroup(String groupId, String event, Object data) {
         try {
-            Set<String> sessions = groupSessions.get(groupId);
-            if(sessions != null && !sessions.isEmpty()) {
+            Set<String> sessions = groupFanout.getSessions(groupId);
+            if(!sessions.isEmpty()) {
                 eventTracker.track(
                     event,
                     data,
@@ -352,17 +351,9 @@ public class GroupService {
                     "system"
                 );
 
-                for(String sessionId : sessions) {
-                    if(isSessionInGroup(sessionId, groupId)) {
-                        String destination = "/user/queue/messages/group/" + groupId; 
-                        messagingTemplate.convertAndSendToUser(
-                            sessionId,
-                            destination,
-                            data
-                        );
-                    }
-                }
-                System.out.println("Broadcasted to " + sessions.size() + " group members in group " + groupId);
+                String destination = "/user/queue/messages/group/" + groupId;
+                int fanout = groupFanout.deliverToSessions(groupId, destination, data);
+                System.out.println("Broadcasted to " + fanout + " group members in group " + groupId);
             } else {
                 System.out.println("No active sessions found for group " + groupId);
             }
@@ -371,9 +362,15 @@ public class GroupService {
         }
     }
 
+    /**
+     * Publish to Group
+     */
+    public int publishToGroup(String groupId, String destination, Object data) {
+        return groupFanout.publish(groupId, destination, data);
+    }
+
     private boolean isSessionInGroup(String sessionId, String groupId) {
-        Set<String> sessionGroups = this.sessionGroups.get(sessionId);
-        return sessionGroups != null && sessionGroups.contains(groupId);
+        return groupFanout.isSessionInGroup(sessionId, groupId);
     }
 
     /**
@@ -510,6 +507,7 @@ public class GroupService {
         }
 
         if(removed) {
+            serviceManager.getChatSummaryService().removeParticipant(groupId, userId);
             eventTracker.track(
                 "user-removed-from-group",
                 Map.of(
@@ -529,46 +527,33 @@ public class GroupService {
      * Remove from Group Mapping
      */
     public void removeUserFromGroupMapping(String userId, String groupId) {
-        Set<String> userGroupSet = userGroups.get(userId);
-        if(userGroupSet != null) {
-            userGroupSet.remove(groupId);
-            if(userGroupSet.isEmpty()) {
-                userGroups.remove(userId);
-            }
-        }
-
-        Set<String> groupSessionSet = groupSessions.get(groupId);
-        if(groupSessionSet != null) {
-            groupSessionSet.remove(userId);
-            if(groupSessionSet.isEmpty()) {
-                groupSessions.remove(groupId);
-            }
-        }
+        groupFanout.removeMember(userId, groupId);
     }
 
     /**
      * Remove from All Groups 
      */
     public void removeUserFromAllGroups(String userId) {
-        Set<String> userGroupSet = userGroups.get(userId);
-        if(userGroupSet != null) {
-            for(String groupId : userGroupSet) {
-                removeUserFromGroupMapping(userId, groupId);
-            }
-        }
-        userGroups.remove(userId);
+        groupFanout.removeUser(userId);
     }
 
     /**
      * Update Sessions for User 
+     *
+     * Memberships are loaded once per user and kept in the fan-out
+     * index until their last session disconnects.
      */
     public void updateGroupSessionsUser(String userId, String sessionId) {
-        Set<String> userGroupSet = userGroups.get(userId);
-        if(userGroupSet != null) {
-            for(String groupId : userGroupSet) {
-                groupSessions.computeIfAbsent(groupId, k -> new CopyOnWriteArraySet<>()).add(sessionId);
+        if(!groupFanout.hasMemberships(userId)) {
+            try {
+                for(Group group : getUserGroups(userId)) {
+                    groupFanout.addMember(userId, group.getId());
+                }
+            } catch(SQLException err) {
+                System.err.println("Failed to load groups for user " + userId + ": " + err.getMessage());
             }
         }
+        groupFanout.bindSession(userId, sessionId);
     }
 
     /**
@@ -683,7 +668,7 @@ public class GroupService {
     }
 
     private void handleGroupRoute(RouteContext context) {
-        String chatId = (String) context.message.get("chatId");
+        String chatId = context.envelope.getChatId();
         if(chatId != null && chatId.startsWith("group_")) {
             try {
                 if(!serviceManager.getMessageService().hasChatEncryption(chatId)) {
@@ -694,15 +679,9 @@ public class GroupService {
                 System.err.println("Group encryption init failed: " + err.getMessage());
             }
             
-            Set<String> groupSessions = this.groupSessions.get(chatId);
-            if(groupSessions != null) {
-                Set<String> validSessions = new HashSet<>();
-                for(String sessionId : groupSessions) {
-                    if(isSessionInGroup(sessionId, chatId)) {
-                        validSessions.add(sessionId);
-                    }
-                }
-                context.targetSessions.addAll(validSessions);
+            Set<String> groupSessions = groupFanout.getSessions(chatId);
+            if(!groupSessions.isEmpty()) {
+                context.targetSessions.addAll(groupSessions);
                 context.metadata.put("groupId", chatId);
                 context.metadata.put("queue", "/user/queue/messages/group/" + chatId);
             }
@@ -715,16 +694,16 @@ public class GroupService {
      * 
      */
     private void handleGroupSelfRoute(RouteContext context) {
-        String chatId = (String) context.message.get("chatId");
+        String chatId = context.envelope.getChatId();
         context.targetSessions.add(context.sessionId);
         context.metadata.put("queue", "/user/queue/messages/group/" + chatId + "/self");
     }
 
     private void handleGroupOthersRoute(RouteContext context) {
-        String chatId = (String) context.message.get("chatId");
+        String chatId = context.envelope.getChatId();
         if(chatId != null && chatId.startsWith("group_")) {
-            Set<String> groupSessions = this.groupSessions.get(chatId);
-            if(groupSessions != null) {
+            Set<String> groupSessions = groupFanout.getSessions(chatId);
+            if(!groupSessions.isEmpty()) {
                 Set<String> otherSessions = new HashSet<>(groupSessions);
                 otherSessions.remove(context.sessionId);
                 context.targetSessions.addAll(groupSessions);
@@ -0,0 +1,317 @@
+package com.app.main.root.app._service;
+import com.app.main.root.app._db.CommandQueryManager;
+import com.app.main.root.app._db.DataSourceService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind pipeline for chat messages. Messages from every chat
+ * go through one bounded FIFO queue and are inserted by a single
+ * writer thread, one transaction per batch. A batch is flushed when
+ * it reaches maxBatchSize or when the flush window runs out.
+ */
+@Component
+public class MessageBatchWriter {
+    private final DataSourceService dataSourceService;
+    private final ChatSummaryService chatSummaryService;
+    private BlockingQueue<PendingMessage> queue;
+    private Thread writerThread;
+    private volatile boolean running = false;
+
+    @Value("${app.messages.batch.queueCapacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.messages.batch.maxSize:256}")
+    private int maxBatchSize;
+
+    @Value("${app.messages.batch.flushMicros:2000}")
+    private long flushMicros;
+
+    @Value("${app.messages.batch.enqueueTimeoutMs:1000}")
+    private long enqueueTimeoutMs;
+
+    private final AtomicLong messagesWritten = new AtomicLong();
+    private final AtomicLong messagesFailed = new AtomicLong();
+    private final AtomicLong batchesFlushed = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos = 0;
+
+    public MessageBatchWriter(DataSourceService dataSourceService, ChatSummaryService chatSummaryService) {
+        this.dataSourceService = dataSourceService;
+        this.chatSummaryService = chatSummaryService;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.running = true;
+        this.writerThread = new Thread(this::run, "message-batch-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(5000);
+        } catch(InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if(!remaining.isEmpty()) flush(remaining);
+    }
+
+    /**
+     * Submit
+     */
+    public CompletableFuture<Integer> submit(
+        String chatId,
+        String senderId,
+        byte[] content,
+        String type,
+        String username,
+        Timestamp createdAt,
+        boolean encrypted
+    ) throws SQLException {
+        PendingMessage message = new PendingMessage(chatId, senderId, content, type, username, createdAt, encrypted);
+        try {
+            if(!running || !queue.offer(message, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Message write queue is full");
+            }
+        } catch(InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while queueing message", err);
+        }
+        return message.future;
+    }
+
+    /**
+     * Writer Loop
+     */
+    private void run() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        while(running) {
+            try {
+                PendingMessage first = queue.take();
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(flushMicros);
+                while(batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    if(batch.size() >= maxBatchSize) break;
+
+                    long remaining = deadline - System.nanoTime();
+                    if(remaining <= 0) break;
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if(next == null) break;
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch(InterruptedException err) {
+                if(!batch.isEmpty()) flush(batch);
+                break;
+            } catch(Exception err) {
+                System.err.println("Message batch writer error: " + err.getMessage());
+                err.printStackTrace();
+                fail(batch, err);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Flush
+     */
+    private void flush(List<PendingMessage> batch) {
+        long start = System.nanoTime();
+        List<Integer> ids = new ArrayList<>(batch.size());
+
+        try(Connection conn = dataSourceService.setDb("message_service").getConnection()) {
+            conn.setAutoCommit(false);
+            try(
+                PreparedStatement stmt = prepareInsert(conn);
+                ChatSummaryService.Recorder summary = chatSummaryService.recorder(conn)
+            ) {
+                for(PendingMessage message : batch) {
+                    int id = insert(stmt, message);
+                    if(id > 0) record(summary, message, id);
+                    ids.add(id);
+                }
+                conn.commit();
+            } catch(Exception err) {
+                conn.rollback();
+                ids.clear();
+                System.err.println("Batch insert failed, retrying individually: " + err.getMessage());
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch(Exception err) {
+            ids.clear();
+            System.err.println("Batch connection failed: " + err.getMessage());
+        }
+
+        if(ids.size() == batch.size()) {
+            recordFlush(start, batch.size());
+            for(int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(ids.get(i));
+            }
+            return;
+        }
+
+        int written = 0;
+        for(PendingMessage message : batch) {
+            if(flushSingle(message)) written++;
+        }
+        recordFlush(start, written);
+    }
+
+    /**
+     * Fail
+     *
+     * Last resort for a batch the writer could not finish, so no sender
+     * waits on a future that will never complete.
+     */
+    private void fail(List<PendingMessage> batch, Exception err) {
+        for(PendingMessage message : batch) {
+            if(message.future.completeExceptionally(err)) messagesFailed.incrementAndGet();
+        }
+    }
+
+    private boolean flushSingle(PendingMessage message) {
+        try(
+            Connection conn = dataSourceService.setDb("message_service").getConnection();
+            PreparedStatement stmt = prepareInsert(conn);
+            ChatSummaryService.Recorder summary = chatSummaryService.recorder(conn);
+        ) {
+            int id = insert(stmt, message);
+            if(id > 0) {
+                try {
+                    record(summary, message, id);
+                } catch(Exception err) {
+                    System.err.println("Chat summary update failed for " + message.chatId + ": " + err.getMessage());
+                }
+            }
+            message.future.complete(id);
+            return true;
+        } catch(Exception err) {
+            messagesFailed.incrementAndGet();
+            message.future.completeExceptionally(err);
+            return false;
+        }
+    }
+
+    private PreparedStatement prepareInsert(Connection conn) throws SQLException {
+        String query = CommandQueryManager.SAVE_MESSAGE.get();
+        return conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    private int insert(PreparedStatement stmt, PendingMessage message) throws SQLException {
+        stmt.setString(1, message.chatId);
+        stmt.setString(2, message.senderId);
+        stmt.setBytes(3, message.content);
+        stmt.setString(4, message.type);
+        stmt.setString(5, message.username);
+        stmt.setTimestamp(6, message.createdAt);
+
+        if(stmt.executeUpdate() > 0) {
+            try(ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if(generatedKeys.next()) return generatedKeys.getInt(1);
+            }
+        }
+        return -1;
+    }
+
+    private void record(ChatSummaryService.Recorder summary, PendingMessage message, int id) throws SQLException {
+        summary.record(
+            id,
+            message.chatId,
+            message.senderId,
+            message.username,
+            message.content,
+            message.encrypted,
+            message.createdAt
+        );
+    }
+
+    private void recordFlush(long start, int size) {
+        long nanos = System.nanoTime() - start;
+        lastFlushNanos = nanos;
+        totalFlushNanos.addAndGet(nanos);
+        maxFlushNanos.accumulateAndGet(nanos, Math::max);
+        batchesFlushed.incrementAndGet();
+        messagesWritten.addAndGet(size);
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        long batches = batchesFlushed.get();
+        long written = messagesWritten.get();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("batchesFlushed", batches);
+        stats.put("messagesWritten", written);
+        stats.put("messagesFailed", messagesFailed.get());
+        stats.put("avgBatchSize", batches > 0 ? (double) written / batches : 0.0);
+        stats.put("lastFlushMs", lastFlushNanos / 1_000_000.0);
+        stats.put("avgFlushMs", batches > 0 ? totalFlushNanos.get() / 1_000_000.0 / batches : 0.0);
+        stats.put("maxFlushMs", maxFlushNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private static class PendingMessage {
+        final String chatId;
+        final String senderId;
+        final byte[] content;
+        final String type;
+        final String username;
+        final Timestamp createdAt;
+        final boolean encrypted;
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        PendingMessage(
+            String chatId,
+            String senderId,
+            byte[] content,
+            String type,
+            String username,
+            Timestamp createdAt,
+            boolean encrypted
+        ) {
+            this.chatId = chatId;
+            this.senderId = senderId;
+            this.content = content;
+            this.type = type;
+            this.username = username;
+            this.createdAt = createdAt;
+            this.encrypted = encrypted;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.app.main.root.app._service;
 import com.app.main.root.app._data.MessagePerspectiveDetector;
 import com.app.main.root.app._data.MessagePerspectiveResult;
+import com.app.main.root.app._types.MessageEnvelope;
+import com.app.main.root.app._types.MessagePerspective;
+import com.app.main.root.app._types.PerspectiveMessage;
 import org.springframework.stereotype.Component;
 import java.util.*;
 
@@ -12,6 +15,36 @@ public class MessagePerspectiveService {
         this.perspectiveDetector = perspectiveDetector;
     }
 
+    /**
+     * Envelope
+     *
+     * Returns an overlay on the shared envelope, the message itself
+     * is not copied.
+     */
+    public PerspectiveMessage applyPerspective(String sessionId, MessageEnvelope envelope) {
+        MessagePerspectiveResult perspective = perspectiveDetector.detectPerspective(sessionId, envelope);
+        return new PerspectiveMessage(envelope, toPerspective(perspective));
+    }
+
+    private MessagePerspective toPerspective(MessagePerspectiveResult perspective) {
+        Map<String, Object> renderConfig = perspective.getRenderConfig();
+        Map<String, Object> metadata = perspective.getMetadata();
+        return new MessagePerspective(
+            perspective.getDirection(),
+            perspective.getPerpspectiveType(),
+            renderConfig.get("showUsername"),
+            renderConfig.get("displayUsername"),
+            metadata.get("isCurrentUser"),
+            metadata.get("isDirect"),
+            metadata.get("isGroup"),
+            metadata.get("isSystem"),
+            Boolean.TRUE.equals(metadata.get("isAboutCurrentUser"))
+        );
+    }
+
+    /**
+     * Map
+     */
     public Map<String, Object> applyPerspective(
         String sessionId,
         Map<String, Object> message
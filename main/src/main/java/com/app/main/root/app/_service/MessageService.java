@@ -5,6 +5,8 @@ import com.app.main.root.app._db.DataSourceService;
 import com.app.main.root.app._cache.CacheService;
 import com.app.main.root.app._cache.ChatCache;
 import com.app.main.root.app._types.Message;
+import com.app.main.root.app._types.MessageCursor;
+import com.app.main.root.app._types.MessageEnvelope;
 import com.app.main.root.app._types.RecentChat;
 import com.app.main.root.app.main.chat.messages.MessageLog;
 import com.app.main.root.app.main.chat.messages.MessageTracker;
@@ -14,14 +16,22 @@ import com.app.main.root.app._crypto.message_encoder.SecureMessageService;
 import com.app.main.root.app._data.MessageAnalyzer;
 import com.app.main.root.app._data.MessagePerspectiveDetector;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import jakarta.annotation.PreDestroy;
 import javax.sql.DataSource;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.time.Instant;
@@ -35,8 +45,18 @@ public class MessageService {
     private final MessageAnalyzer messageAnalyzer;
     private final MessagePerspectiveDetector perspectiveDetector;
     private final CacheService cacheService;
+    private final MessageBatchWriter messageBatchWriter;
+    private final Object[] chatLocks = new Object[64];
+    private final ExecutorService savedCallbacks = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "message-saved");
+        thread.setDaemon(true);
+        return thread;
+    });
     @Autowired @Lazy private SecureMessageService secureMessageService;
 
+    @Value("${app.messages.saveTimeoutMs:10000}")
+    private long saveTimeoutMs;
+
     public MessageService(
         DataSourceService dataSourceService, 
         @Lazy ServiceManager serviceManager,
@@ -44,7 +64,8 @@ public class MessageService {
         MessageAnalyzer messageAnalyzer,
         MessagePerspectiveDetector messagePerspectiveDetector, 
         UserController userController,
-        CacheService cacheService
+        CacheService cacheService,
+        MessageBatchWriter messageBatchWriter
     ) {
         this.dataSourceService = dataSourceService;
         this.serviceManager = serviceManager;
@@ -53,12 +74,37 @@ public class MessageService {
         this.perspectiveDetector = messagePerspectiveDetector;
         this.userController = userController;
         this.cacheService = cacheService;
+        this.messageBatchWriter = messageBatchWriter;
+        for(int i = 0; i < chatLocks.length; i++) chatLocks[i] = new Object();
+        this.createIdx();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        savedCallbacks.shutdown();
     }
 
     private Connection getConnection() throws SQLException {
         return dataSourceService.setDb("message_service").getConnection();
     }
 
+    /**
+     * Create Indexes
+     */
+    public void createIdx() {
+        String chatIdx = CommandQueryManager.EXEC_INDEX_MESSAGES_CHAT.get();
+
+        try(
+            Connection conn = getConnection();
+            Statement stmt = conn.createStatement();
+        ) {
+            stmt.execute(chatIdx);
+        } catch(Exception err) {
+            err.printStackTrace();
+            System.err.println("Idx Error");
+        }
+    }
+
     /**
      * Save Message
      */
@@ -69,84 +115,159 @@ public class MessageService {
         String type,
         String username
     ) throws SQLException {
-        String query = CommandQueryManager.SAVE_MESSAGE.get();
-        int keys = Statement.RETURN_GENERATED_KEYS;
+        return await(saveMessageAsync(chatId, senderId, content, type, username));
+    }
 
-        try(
-            Connection conn = getConnection();
-            PreparedStatement stmt = conn.prepareStatement(query, keys)
-        ) {
-            String fType = type != null ? type : "text";
+    /**
+     * Save Envelope
+     *
+     * Stores the envelope's UTF-8 content as is, only an encrypted
+     * chat needs it back as a string.
+     */
+    public int saveMessage(MessageEnvelope envelope, String type) throws SQLException {
+        return await(saveMessageAsync(
+            envelope.getChatId(),
+            envelope.getSenderId(),
+            envelope.getContentBytes(),
+            type,
+            envelope.getUsername()
+        ));
+    }
+
+    private int await(CompletableFuture<Integer> future) throws SQLException {
+        try {
+            return future.get(saveTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch(ExecutionException err) {
+            Throwable cause = err.getCause();
+            if(cause instanceof SQLException sqlErr) throw sqlErr;
+            throw new SQLException("Failed to save message", cause);
+        } catch(TimeoutException err) {
+            throw new SQLException("Timed out saving message after " + saveTimeoutMs + "ms", err);
+        } catch(InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while saving message", err);
+        }
+    }
+
+    /**
+     * Save Message (Async)
+     */
+    public CompletableFuture<Integer> saveMessageAsync(
+        String chatId,
+        String senderId,
+        String content,
+        String type,
+        String username
+    ) throws SQLException {
+        return saveMessageAsync(chatId, senderId, content.getBytes(StandardCharsets.UTF_8), type, username);
+    }
+
+    public CompletableFuture<Integer> saveMessageAsync(
+        String chatId,
+        String senderId,
+        byte[] content,
+        String type,
+        String username
+    ) throws SQLException {
+        String fType = type != null ? type : "text";
+        CompletableFuture<Integer> future;
+        boolean isEncrypted = false;
+        byte[] storedContent;
+        Timestamp createdAt;
+
+        /* Chat lock keeps stored order equal to ratchet order */
+        synchronized(chatLocks[Math.floorMod(chatId.hashCode(), chatLocks.length)]) {
             byte[] messageContent;
-            String finalContent;
-            boolean isEncrypted = false;
 
             try {
                 String encryptionKey = chatId;
                 if(secureMessageService.hasActiveSession(encryptionKey)) {
-                    byte[] encryptedBytes = secureMessageService.encryptMessage(encryptionKey, content);
+                    byte[] encryptedBytes = secureMessageService.encryptMessage(
+                        encryptionKey,
+                        new String(content, StandardCharsets.UTF_8)
+                    );
                     if(encryptedBytes != null && encryptedBytes.length > 0) {
                         messageContent = encryptedBytes;
-                        finalContent = "[ENCRYPTED]";
                         isEncrypted = true;
                         System.out.println("Message encrypted successfully: " + encryptedBytes.length);
                     } else {
                         throw new Exception("Encryption returned null or empty");
                     }
                 } else {
-                    messageContent = content.getBytes(StandardCharsets.UTF_8);
-                    finalContent = content;
+                    messageContent = content;
                     System.out.println("No encryption session, storing as plain text");
                 }
             } catch(Exception err) {
                 System.err.println("Encryption failed, using plainText: " + err.getMessage());
-                messageContent = content.getBytes(StandardCharsets.UTF_8);
-                finalContent = content;
+                messageContent = content;
             }
 
-            Instant now = Instant.now();
-            Timestamp createdAt = Timestamp.from(now);
-
-            stmt.setString(1, chatId);
-            stmt.setString(2, senderId);
-            stmt.setBytes(3, messageContent);
-            stmt.setString(4, fType);
-            stmt.setString(5, username);
-            stmt.setTimestamp(6, createdAt);
+            storedContent = messageContent;
+            createdAt = Timestamp.from(Instant.now());
+            future = messageBatchWriter.submit(
+                chatId,
+                senderId,
+                messageContent,
+                fType,
+                username,
+                createdAt,
+                isEncrypted
+            );
+        }
 
-            int affectedRows = stmt.executeUpdate();
-            if(affectedRows > 0) {
-                try(ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                    if(generatedKeys.next()) {
-                        int messageId = generatedKeys.getInt(1);
-                        String value = String.valueOf(messageId);
-                        MessageLog.MessageType messageType = chatId.startsWith("direct_") ?
-                            MessageLog.MessageType.DIRECT : MessageLog.MessageType.GROUP;
-                        MessageLog.MessageDirection direction = MessageLog.MessageDirection.SENT;
-                        
-                        messageTracker.track(
-                            value, 
-                            isEncrypted ? "[ENCRYPTED]" : finalContent, 
-                            senderId,
-                            username, 
-                            chatId, 
-                            messageType, 
-                            direction
-                        );
-
-                        ChatCache chatCache = cacheService.getChatCache();
-                        if(chatCache != null) {
-                            chatCache.invalidateMessageCache(chatId);
-                        }
-                        return messageId;
-                    }
-                }
+        /*
+         * Cache and tracker updates run on their own thread, off the
+         * batch writer, in the order messages were committed
+         */
+        boolean encrypted = isEncrypted;
+        return future.thenApplyAsync(messageId -> {
+            if(messageId > 0) {
+                Message saved = new Message();
+                saved.setId(messageId);
+                saved.setChatId(chatId);
+                saved.setSenderId(senderId);
+                saved.setContentBytes(storedContent);
+                saved.setContent(mapContent(storedContent));
+                String trackedContent = encrypted ? "[ENCRYPTED]" : new String(storedContent, StandardCharsets.UTF_8);
+                saved.setMessageType(fType);
+                saved.setCreatedAt(createdAt);
+                saved.setUsername(username);
+                onMessageSaved(saved, trackedContent);
             }
+            return messageId;
+        }, savedCallbacks);
+    }
 
-            return -1;
+    /**
+     * On Message Saved
+     */
+    private void onMessageSaved(Message saved, String trackedContent) {
+        String chatId = saved.getChatId();
+        String value = String.valueOf(saved.getId());
+        MessageLog.MessageType messageType = chatId.startsWith("direct_") ?
+            MessageLog.MessageType.DIRECT : MessageLog.MessageType.GROUP;
+        MessageLog.MessageDirection direction = MessageLog.MessageDirection.SENT;
+        
+        messageTracker.track(
+            value, 
+            trackedContent, 
+            saved.getSenderId(),
+            saved.getUsername(), 
+            chatId, 
+            messageType, 
+            direction
+        );
+
+        ChatCache chatCache = cacheService.getChatCache();
+        if(chatCache != null) {
+            chatCache.appendMessage(chatId, saved);
         }
     }
 
+    public Map<String, Object> getWriterStats() {
+        return messageBatchWriter.getStats();
+    }
+
     /**
      * Messages by User Id 
      */
@@ -274,12 +395,14 @@ public class MessageService {
      */
     public List<Message> getMessagesByChatId(String chatId, int page, int pageSize) throws SQLException {
         ChatCache chatCache = cacheService.getChatCache();
+        long stamp = -1;
         if(chatCache != null) {
-            List<Message> cachedMessages = cacheService.getChatCache().getCachedMessages(chatId, page);
+            List<Message> cachedMessages = chatCache.getCachedMessages(chatId, page, pageSize);
             if(cachedMessages != null) {
                 //System.out.println("Returning cached messages for chat " + chatId + " page " + page);
                 return cachedMessages;
             }
+            stamp = chatCache.readStamp(chatId);
         }
 
         String encriptionKey = chatId;
@@ -306,10 +429,60 @@ public class MessageService {
             }
         }
 
-        if(chatCache != null) cacheService.getChatCache().cacheMessages(chatId, page, messages);
+        if(chatCache != null) chatCache.cacheMessages(chatId, page, pageSize, messages, stamp);
         return messages;
     }
 
+    /**
+     * 
+     * Message History (Keyset)
+     * 
+     */
+    public Map<String, Object> getMessagesBefore(
+        String chatId,
+        MessageCursor before,
+        int limit
+    ) throws SQLException {
+        int pageSize = Math.max(1, limit);
+        String query = before == null ?
+            CommandQueryManager.GET_MESSAGES_BY_CHAT_ID_LATEST.get() :
+            CommandQueryManager.GET_MESSAGES_BY_CHAT_ID_BEFORE.get();
+        List<Message> messages = new ArrayList<>();
+
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(query);
+        ) {
+            int i = 1;
+            stmt.setString(i++, chatId);
+            if(before != null) {
+                stmt.setTimestamp(i++, new Timestamp(before.getCreatedAt()));
+                stmt.setInt(i++, before.getMessageId());
+            }
+            stmt.setInt(i, pageSize + 1);
+
+            try(ResultSet rs = stmt.executeQuery()) {
+                while(rs.next()) {
+                    messages.add(mapMessageFromResultSet(rs));
+                }
+            }
+        }
+
+        boolean hasMore = messages.size() > pageSize;
+        if(hasMore) messages.remove(messages.size() - 1);
+        String nextCursor = hasMore && !messages.isEmpty() ?
+            MessageCursor.of(messages.get(messages.size() - 1)).encode() :
+            null;
+
+        Map<String, Object> res = new HashMap<>();
+        res.put("messages", messages);
+        res.put("chatId", chatId);
+        res.put("limit", pageSize);
+        res.put("hasMore", hasMore);
+        res.put("nextCursor", nextCursor);
+        return res;
+    }
+
     public List<Message> getAllMessagesByChatId() throws SQLException {
         String query = CommandQueryManager.GET_ALL_MESSAGES_BY_CHAT_ID.get();
         List<Message> messages = new ArrayList<>();
@@ -328,7 +501,16 @@ public class MessageService {
     }
 
     public int getMessageCountByChatId(String chatId) throws SQLException {
+        ChatCache chatCache = cacheService.getChatCache();
+        long stamp = -1;
+        if(chatCache != null) {
+            int cachedTotal = chatCache.getTotalMessages(chatId);
+            if(cachedTotal >= 0) return cachedTotal;
+            stamp = chatCache.readStamp(chatId);
+        }
+
         String query = CommandQueryManager.GET_MESSAGE_COUNT_BY_CHAT_ID.get();
+        int count = 0;
         try(
             Connection conn = getConnection();
             PreparedStatement stmt = conn.prepareStatement(query);
@@ -336,11 +518,13 @@ public class MessageService {
             stmt.setString(1, chatId);
             try(ResultSet rs = stmt.executeQuery()) {
                 if(rs.next()) {
-                    return rs.getInt("count");
+                    count = rs.getInt("count");
                 }
             }
         }
-        return 0;
+
+        if(chatCache != null) chatCache.cacheTotalMessages(chatId, count, stamp);
+        return count;
     }
 
     /**
@@ -349,59 +533,7 @@ public class MessageService {
      * 
      */
     public List<RecentChat> getRecentChats(String userId, int limit, int offset) throws SQLException {
-        String query = CommandQueryManager.GET_RECENT_CHATS.get();
-        List<RecentChat> recentChats = new ArrayList<>();
-        int actualLimit = Math.max(1, limit);
-
-        try(
-            Connection conn = getConnection();
-            PreparedStatement stmt = conn.prepareStatement(query)
-        ) {
-            stmt.setString(1, userId);
-            stmt.setString(2, "%" + userId + "%");
-            stmt.setInt(3, actualLimit); 
-            stmt.setInt(4, offset);
-
-            try(ResultSet rs = stmt.executeQuery()) {
-                while(rs.next()) {
-                    String chatId = rs.getString("chat_id");
-                    String chatType = rs.getString("chat_type");
-
-                    byte[] lastMessageBytes = rs.getBytes("last_message");
-                    String lastMessage;
-                    if(lastMessageBytes != null) {
-                        String messageString = new String(lastMessageBytes);
-                        if(messageString.startsWith("[ENCRYPTED]")) {
-                            lastMessage = "[Encrypted Message]";
-                        } else {
-                            lastMessage = messageString;
-                        }
-                    } else {
-                        lastMessage = "";
-                    }
-                    String lastSender = rs.getString("last_sender");
-                    Timestamp lastMessageTime = rs.getTimestamp("last_message_time");
-
-                    String chatName;
-                    if("group".equals(chatType)) {
-                        chatName = getGroupName(chatId);
-                    } else {
-                        chatName = getDirectChatName(chatId, userId);
-                    }
-
-                    RecentChat chat = new RecentChat();
-                    chat.setChatId(chatId);
-                    chat.setLastMessageTime(lastMessageTime);
-                    chat.setLastMessage(lastMessage);
-                    chat.setLastSender(lastSender);
-                    chat.setChatType(chatType);
-                    chat.setChatName(chatName);
-                    recentChats.add(chat);
-                }
-            }
-        }
-
-        return recentChats;
+        return serviceManager.getChatSummaryService().getRecentChats(userId, Math.max(1, limit), offset);
     }
 
     public Map<String, Object> getRecentChatsPages(String userId, int page, int pageSize) throws SQLException {
@@ -421,20 +553,7 @@ public class MessageService {
     }
 
     public int getRecentChatsCount(String userId) throws SQLException {
-        String query = CommandQueryManager.GET_RECENT_CHATS_COUNT.get();
-        try(
-            Connection conn = getConnection();
-            PreparedStatement stmt = conn.prepareStatement(query)
-        ) {
-            stmt.setString(1, userId);
-            stmt.setString(2, userId);
-            try(ResultSet rs = stmt.executeQuery()) {
-                if(rs.next()) {
-                    return rs.getInt("total_chats");
-                }
-            }
-        }
-        return 0;
+        return serviceManager.getChatSummaryService().countRecent(userId);
     }
 
     /**
@@ -442,39 +561,44 @@ public class MessageService {
      * Payload
      * 
      */
-    public Map<String, Object> payload(
+    public MessageEnvelope payload(
         String type, 
         Map<String, Object> payload,
         String chatId,
         String sessionId,
         String currentUserId
     ) { 
-        Map<String, Object> message = new HashMap<>();
-        message.put("username", payload.get("username"));
-        message.put("content", payload.get("content"));
-        message.put("senderId", currentUserId);
-        message.put("chatId", chatId);
-        message.put("userId", currentUserId);
-        message.put("messageId", payload.get("messageId"));
-        message.put("timestamp", payload.get("timestamp"));
-        message.put("type", type);
-        message.put("isDirect", "DIRECT".equalsIgnoreCase(type));
-        message.put("isGroup", "GROUP".equalsIgnoreCase(type));
-        message.put("isSystem", "SYSTEM".equalsIgnoreCase(type));
-        message.put("isBroadcast", false);
-                
-        Map<String, Object> routingMetadata = new HashMap<>();
-        routingMetadata.put("sessionId", sessionId);
-        routingMetadata.put("userId", payload.get("userId"));
-        routingMetadata.put("messageType", type + "_MESSAGE");
-        routingMetadata.put("messageId", payload.get("messageId"));
-        routingMetadata.put("isDirect", "DIRECT".equalsIgnoreCase(type));
-        routingMetadata.put("isGroup", "GROUP".equalsIgnoreCase(type));
-        routingMetadata.put("isBroadcast", false);
-        routingMetadata.put("priority", "NORMAL");
-        message.put("routingMetadata", routingMetadata);
-
-        return message;
+        String messageId = (String) payload.get("messageId");
+        boolean isDirect = "DIRECT".equalsIgnoreCase(type);
+        boolean isGroup = "GROUP".equalsIgnoreCase(type);
+
+        MessageEnvelope.RoutingMetadata routingMetadata = new MessageEnvelope.RoutingMetadata(
+            sessionId,
+            (String) payload.get("userId"),
+            type + "_MESSAGE",
+            messageId,
+            isDirect,
+            isGroup,
+            false,
+            "NORMAL"
+        );
+        return new MessageEnvelope(
+            messageId,
+            chatId,
+            currentUserId,
+            (String) payload.get("username"),
+            MessageEnvelope.utf8((String) payload.get("content")),
+            payload.get("timestamp"),
+            type,
+            null,
+            (String) payload.get("recipientId"),
+            null,
+            isDirect,
+            isGroup,
+            "SYSTEM".equalsIgnoreCase(type),
+            false,
+            routingMetadata
+        );
     }
 
     /**
@@ -538,14 +662,7 @@ public class MessageService {
 
         byte[] contentBytes = rs.getBytes("content");
         message.setContentBytes(contentBytes);
-        
-        String content;
-        if(isEncryptedData(contentBytes)) {
-            content = "[ENCRYPTED]" + new String(contentBytes, StandardCharsets.UTF_8);;
-        } else {
-            content = new String(contentBytes, StandardCharsets.UTF_8);
-        }
-        message.setContent(content);
+        message.setContent(mapContent(contentBytes));
         
         message.setMessageType(rs.getString("message_type"));
         message.setCreatedAt(rs.getTimestamp("created_at"));
@@ -553,6 +670,13 @@ public class MessageService {
         return message;
     }
 
+    private String mapContent(byte[] contentBytes) {
+        if(isEncryptedData(contentBytes)) {
+            return "[ENCRYPTED]" + new String(contentBytes, StandardCharsets.UTF_8);
+        }
+        return new String(contentBytes, StandardCharsets.UTF_8);
+    }
+
     private RecentChat mapRecentChatFromResultSet(ResultSet rs) throws SQLException {
         RecentChat chat = new RecentChat();
         chat.setChatId(rs.getString("chat_id"));
@@ -564,63 +688,6 @@ public class MessageService {
         return chat;
     }
 
-    /**
-     * 
-     * --- Methods with other DB Connections
-     * 
-     */
-    private String getGroupName(String groupId) throws SQLException {
-        String query = CommandQueryManager.GET_GROUP_NAME.get();
-        DataSource db = dataSourceService.setDb("group_service");
-
-        try(
-            Connection conn = db.getConnection();
-            PreparedStatement stmt = conn.prepareStatement(query)
-        ) {
-            stmt.setString(1, groupId);
-            try(ResultSet rs = stmt.executeQuery()) {
-                if(rs.next()) {
-                    return rs.getString("name");
-                }
-            }
-        }
-
-        return "Group Chat*";
-    }
-
-    private String getDirectChatName(String chatId, String currentUserId) throws SQLException {
-        String query = CommandQueryManager.GET_USERNAME.get();
-        DataSource db = dataSourceService.setDb("user_service");
-
-        try(
-            Connection conn = db.getConnection();
-            PreparedStatement stmt = conn.prepareStatement(query);
-        ) {
-            String otherUserId = extractOtherUserId(chatId, currentUserId);
-            stmt.setString(1, otherUserId);
-
-            try(ResultSet rs = stmt.executeQuery()) {
-                if(rs.next()) {
-                    return rs.getString("username");
-                }
-            }
-        }
-
-        return "User*";
-    }
-
-    private String extractOtherUserId(String chatId, String currentUserId) {
-        if(chatId.startsWith("direct_")) {
-            String[] parts = chatId.split("_");
-            for(String part : parts) {
-                if(!part.equals("direct") && !part.equals(currentUserId)) {
-                    return part;
-                }
-            }
-        }
-        return chatId;
-    }
-
     /**
      * 
      * Encryption
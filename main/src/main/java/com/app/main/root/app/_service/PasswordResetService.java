@@ -1,9 +1,11 @@
 package com.app.main.root.app._service;
 import com.app.main.root.app._crypto.password_encoder.PasswordEncoderWrapper;
+import com.app.main.root.app._crypto.password_encoder.PasswordHashService;
 import com.app.main.root.app._data.MessagePerspectiveDetector;
 import com.app.main.root.app._db.CommandQueryManager;
 import com.app.main.root.app._db.DataSourceService;
 import com.app.main.root.app._types.User;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -12,11 +14,14 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class PasswordResetService {
     private final MessagePerspectiveDetector messagePerspectiveDetector;
     private final PasswordEncoderWrapper passwordEncoderWrapper;
+    private final PasswordHashService passwordHashService;
     private final DataSourceService dataSourceService;
     private final ServiceManager serviceManager;
 
@@ -24,11 +29,13 @@ public class PasswordResetService {
         DataSourceService dataSourceService, 
         ServiceManager serviceManager, 
         PasswordEncoderWrapper passwordEncoderWrapper, 
+        @Lazy PasswordHashService passwordHashService,
         MessagePerspectiveDetector messagePerspectiveDetector
     ) {
         this.dataSourceService = dataSourceService;
         this.serviceManager = serviceManager;
         this.passwordEncoderWrapper = passwordEncoderWrapper;
+        this.passwordHashService = passwordHashService;
         this.messagePerspectiveDetector = messagePerspectiveDetector;
     }
 
@@ -124,18 +131,21 @@ public class PasswordResetService {
 
     /**
      * Reset Password
+     *
+     * The new password is stored once its hash is ready, failures come
+     * back as the usual success=false result.
      */
-    public Map<String, Object> resetPassword(String token, String newPassword) {
+    public CompletableFuture<Map<String, Object>> resetPassword(String token, String newPassword) {
         try {
             Map<String, Object> validation = validateResetToken(token);
             System.out.println("Token validation result: " + validation);
             
             if(!(Boolean) validation.get("valid")) {
                 System.out.println("Token is invalid!");
-                return Map.of(
+                return CompletableFuture.completedFuture(Map.of(
                     "success", false,
                     "error", "Invalid or expired token"
-                );
+                ));
             }
 
             String userId = (String) validation.get("userId");
@@ -143,112 +153,132 @@ public class PasswordResetService {
             
             if(newPassword == null || newPassword.trim().isEmpty()) {
                 System.out.println("New password is empty!");
-                return Map.of(
+                return CompletableFuture.completedFuture(Map.of(
                     "success", false, 
                     "error", "New password is required"
-                );
+                ));
             }
             
             if(!passwordEncoderWrapper.isPasswordStrong(newPassword)) {
                 System.out.println("Password is not strong enough!");
-                return Map.of(
+                return CompletableFuture.completedFuture(Map.of(
                     "success", false, 
                     "error", "Password does not meet strength requirements:\n" +
                             "- Minimum length is 8.\n" +
                             "- At least one capital letter.\n" +
                             "- Numbers (0-9)."
-                );
+                ));
             }
 
-            String hashedPassword = passwordEncoderWrapper.encode(newPassword);
-            System.out.println("Password hashed successfully");
-            
-            Connection userConn = null;
-            Connection passwordResetConn = null;
-            try {
-                userConn = dataSourceService.setDb("user_service").getConnection();
-                passwordResetConn = getConnection();
-                
-                userConn.setAutoCommit(false);
-                passwordResetConn.setAutoCommit(false);
-                
-                String updatePasswordQuery = CommandQueryManager.UPDATE_USER_PASSWORD.get();
-                System.out.println("Updating password for user: " + userId + " in user_service database");
-                try(PreparedStatement stmt = userConn.prepareStatement(updatePasswordQuery)) {
-                    stmt.setString(1, hashedPassword);
-                    stmt.setString(2, userId);
-                    int rowsUpdated = stmt.executeUpdate();
-                    System.out.println("Rows updated in users table: " + rowsUpdated);
-                    
-                    if(rowsUpdated == 0) {
-                        throw new SQLException("No user found with ID: " + userId);
+            return passwordHashService.encode(newPassword)
+                .thenApply(hashedPassword -> {
+                    System.out.println("Password hashed successfully");
+                    try {
+                        return storePassword(token, userId, hashedPassword);
+                    } catch(SQLException err) {
+                        throw new CompletionException(err);
                     }
-                }
+                })
+                .exceptionally(this::resetFailed);
+        } catch(Exception err) {
+            return CompletableFuture.completedFuture(resetFailed(err));
+        }
+    }
 
-                String markTokenQuery = CommandQueryManager.MARK_TOKEN_USED.get();
-                System.out.println("Marking token as used in password_reset database");
-                try(PreparedStatement stmt = passwordResetConn.prepareStatement(markTokenQuery)) {
-                    stmt.setString(1, token);
-                    int rowsUpdated = stmt.executeUpdate();
-                    System.out.println("Rows updated in password_reset table: " + rowsUpdated);
-                }
+    private Map<String, Object> resetFailed(Throwable err) {
+        Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+        System.err.println("Error in resetPassword: " + cause.getMessage());
+        cause.printStackTrace();
+        return Map.of(
+            "success", false,
+            "error", "Failed to reset password: " + cause.getMessage()
+        );
+    }
 
-                userConn.commit();
-                passwordResetConn.commit();
-                System.out.println("Transactions committed successfully");
+    /**
+     * Store Password
+     *
+     * Updates the hash and marks the token used, both or neither.
+     */
+    private Map<String, Object> storePassword(String token, String userId, String hashedPassword) throws SQLException {
+        Connection userConn = null;
+        Connection passwordResetConn = null;
+        try {
+            userConn = dataSourceService.setDb("user_service").getConnection();
+            passwordResetConn = getConnection();
+            
+            userConn.setAutoCommit(false);
+            passwordResetConn.setAutoCommit(false);
+            
+            String updatePasswordQuery = CommandQueryManager.UPDATE_USER_PASSWORD.get();
+            System.out.println("Updating password for user: " + userId + " in user_service database");
+            try(PreparedStatement stmt = userConn.prepareStatement(updatePasswordQuery)) {
+                stmt.setString(1, hashedPassword);
+                stmt.setString(2, userId);
+                int rowsUpdated = stmt.executeUpdate();
+                System.out.println("Rows updated in users table: " + rowsUpdated);
                 
-                User user = getUserById(userId);
-                if(user != null) {
-                    System.out.println("Sending password changed email to: " + user.getEmail());
-                    serviceManager
-                        .getEmailService()
-                        .getEmailData()
-                        .passwordChanged(
-                            user.getEmail(),
-                            user.getUsername()
-                        );
-                } else {
-                    System.out.println("User not found for ID: " + userId);
+                if(rowsUpdated == 0) {
+                    throw new SQLException("No user found with ID: " + userId);
                 }
+            }
 
-                System.out.println("Password reset successful!");
-                return Map.of(
-                    "success", true, 
-                    "message", "Password reset successfully"
-                );
-            } catch(SQLException err) {
-                System.err.println("SQL Error during password reset: " + err.getMessage());
-                err.printStackTrace();
-                
-                if(userConn != null) {
-                    try { userConn.rollback(); } catch(SQLException e) {}
-                }
-                if(passwordResetConn != null) {
-                    try { passwordResetConn.rollback(); } catch(SQLException e) {}
-                }
-                
-                throw err;
-            } finally {
-                if(userConn != null) {
-                    try {
-                        userConn.setAutoCommit(true);
-                        userConn.close();
-                    } catch(SQLException e) {}
-                }
-                if(passwordResetConn != null) {
-                    try {
-                        passwordResetConn.setAutoCommit(true);
-                        passwordResetConn.close();
-                    } catch(SQLException e) {}
-                }
+            String markTokenQuery = CommandQueryManager.MARK_TOKEN_USED.get();
+            System.out.println("Marking token as used in password_reset database");
+            try(PreparedStatement stmt = passwordResetConn.prepareStatement(markTokenQuery)) {
+                stmt.setString(1, token);
+                int rowsUpdated = stmt.executeUpdate();
+                System.out.println("Rows updated in password_reset table: " + rowsUpdated);
             }
-        } catch(Exception err) {
-            System.err.println("Error in resetPassword: " + err.getMessage());
-            err.printStackTrace();
+
+            userConn.commit();
+            passwordResetConn.commit();
+            System.out.println("Transactions committed successfully");
+            
+            User user = getUserById(userId);
+            if(user != null) {
+                System.out.println("Sending password changed email to: " + user.getEmail());
+                serviceManager
+                    .getEmailService()
+                    .getEmailData()
+                    .passwordChanged(
+                        user.getEmail(),
+                        user.getUsername()
+                    );
+            } else {
+                System.out.println("User not found for ID: " + userId);
+            }
+
+            System.out.println("Password reset successful!");
             return Map.of(
-                "success", false,
-                "error", "Failed to reset password: " + err.getMessage()
+                "success", true, 
+                "message", "Password reset successfully"
             );
+        } catch(SQLException err) {
+            System.err.println("SQL Error during password reset: " + err.getMessage());
+            err.printStackTrace();
+            
+            if(userConn != null) {
+                try { userConn.rollback(); } catch(SQLException e) {}
+            }
+            if(passwordResetConn != null) {
+                try { passwordResetConn.rollback(); } catch(SQLException e) {}
+            }
+            
+            throw err;
+        } finally {
+            if(userConn != null) {
+                try {
+                    userConn.setAutoCommit(true);
+                    userConn.close();
+                } catch(SQLException e) {}
+            }
+            if(passwordResetConn != null) {
+                try {
+                    passwordResetConn.setAutoCommit(true);
+                    passwordResetConn.close();
+                } catch(SQLException e) {}
+            }
         }
     }
 
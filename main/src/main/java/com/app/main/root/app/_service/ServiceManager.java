@@ -3,6 +3,7 @@ import com.app.main.root.app._db.DbService;
 import com.app.main.root.app._auth.TokenService;
 import com.app.main.root.app._cache.CacheService;
 import com.app.main.root.app._crypto.file_encoder.KeyManagerService;
+import com.app.main.root.app._crypto.password_encoder.PasswordHashService;
 import com.app.main.root.app.main.email_service.EmailService;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
@@ -22,6 +23,7 @@ public class ServiceManager {
     private final GroupService groupService;
     private final EmailService emailService;
     private final ChatService chatService;
+    private final ChatSummaryService chatSummaryService;
     private final NotificationService notificationService;
     private final SessionService sessionService;
     private final TokenService tokenService;
@@ -29,6 +31,7 @@ public class ServiceManager {
     private final FileService fileService;
     private final KeyManagerService keyManagerService;
     private final CacheService cacheService;
+    private final PasswordHashService passwordHashService;
 
     public ServiceManager(
         DbService dbService,
@@ -36,6 +39,7 @@ public class ServiceManager {
         @Lazy SystemMessageService systemMessageService,
         @Lazy MessagePerspectiveService messagePerspectiveService,
         @Lazy ChatService chatService,
+        @Lazy ChatSummaryService chatSummaryService,
         @Lazy NotificationService notificationService,
         UserService userService,
         @Lazy PasswordResetService passwordResetService,
@@ -48,13 +52,15 @@ public class ServiceManager {
         @Lazy CookieService cookieService,
         @Lazy FileService fileService,
         @Lazy KeyManagerService keyManagerService,
-        @Lazy CacheService cacheService
+        @Lazy CacheService cacheService,
+        @Lazy PasswordHashService passwordHashService
     ) {
         this.dbService = dbService;
         this.messageService = messageService;
         this.systemMessageService = systemMessageService;
         this.messagePerspectiveService = messagePerspectiveService;
         this.chatService = chatService;
+        this.chatSummaryService = chatSummaryService;
         this.notificationService = notificationService;
         this.userService = userService;
         this.passwordResetService = passwordResetService;
@@ -68,6 +74,7 @@ public class ServiceManager {
         this.fileService = fileService;
         this.keyManagerService = keyManagerService;
         this.cacheService = cacheService;
+        this.passwordHashService = passwordHashService;
     }
 
     /**
@@ -105,6 +112,13 @@ public class ServiceManager {
         return chatService;
     }
 
+    /**
+     * Chat Summary Service
+     */
+    public ChatSummaryService getChatSummaryService() {
+        return chatSummaryService;
+    }
+
     /**
      * User Service
      */
@@ -195,4 +209,11 @@ public class ServiceManager {
     public CacheService getCacheService() {
         return cacheService;
     }
+
+    /**
+     * Password Hash Service
+     */
+    public PasswordHashService getPasswordHashService() {
+        return passwordHashService;
+    }
 }
\ No newline at end of file
@@ -9,13 +9,16 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import com.app.main.root.app.utils.TimingWheel;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -54,6 +57,8 @@ public class SessionService {
     private final Map<String, SessionData> userSessions = new ConcurrentHashMap<>();
     private final Map<String, String> tokenToUserIdMap = new ConcurrentHashMap<>();
     private final Map<String, Set<String>> userIdToTokensMap = new ConcurrentHashMap<>();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private TimingWheel<String> expiryWheel;
     private String webUrl = EnvConfig.get("WEB_URL");
     private String cookieDomain = EnvConfig.get("WEB_URL");
 
@@ -66,7 +71,13 @@ public class SessionService {
     @Value("${cookie.secure:false}")
     private boolean cookieSecure;
 
+    @Value("${session.expiry.tickMs:1000}")
+    private long expiryTickMs;
+
     public static class SessionData {
+        private static final long IDLE_TIMEOUT_MS = 30 * 60 * 1000L;
+        private static final long REMEMBER_TIMEOUT_MS = 7 * 24 * 60 * 60 * 1000L;
+
         private String sessionId;
         private SessionType currentSession;
         private String userId;
@@ -75,9 +86,9 @@ public class SessionService {
         private String userAgent;
         private String ipAddress;
         private LocalDateTime createdAt;
-        private LocalDateTime lastActivity;
-        private LocalDateTime expiresAt;
-        private boolean rememberUser;
+        private volatile long lastActivity;
+        private volatile boolean rememberUser;
+        private final TimingWheel.Timer<String> expiry;
         private Map<String, Object> sessionAttrs;
 
         public SessionData(
@@ -99,7 +110,8 @@ public class SessionService {
             this.ipAddress = ipAddress;
             this.createdAt = LocalDateTime.now();
             this.rememberUser = rememberUser;
-            this.updateActivity();
+            this.expiry = new TimingWheel.Timer<>(sessionId, 0);
+            this.touch();
             this.sessionAttrs = new ConcurrentHashMap<>();
         }
 
@@ -156,7 +168,7 @@ public class SessionService {
          * Get Last Activity
          */
         public LocalDateTime getLastActivity() {
-            return lastActivity;
+            return toDateTime(lastActivity);
         }
 
         /**
@@ -170,7 +182,7 @@ public class SessionService {
          * Get Expires At
          */
         public LocalDateTime getExpiresAt() {
-            return expiresAt;
+            return toDateTime(expiry.getDeadline());
         }
 
         /**
@@ -187,18 +199,26 @@ public class SessionService {
             return sessionAttrs;
         }
 
-        public ActivityUpdate updateActivity() {
-            this.lastActivity = LocalDateTime.now();
-            this.expiresAt = rememberUser ?
-                this.lastActivity.plusDays(7) :
-                this.lastActivity.plusMinutes(30);
+        /**
+         * Touch
+         *
+         * Moves the deadline on without allocating, the expiry wheel
+         * picks the new deadline up when the old one comes due.
+         */
+        public void touch() {
+            long now = System.currentTimeMillis();
+            this.lastActivity = now;
+            expiry.setDeadline(now + (rememberUser ? REMEMBER_TIMEOUT_MS : IDLE_TIMEOUT_MS));
+        }
 
-            return new ActivityUpdate(this.lastActivity, this.expiresAt);
+        public ActivityUpdate updateActivity() {
+            touch();
+            return new ActivityUpdate(getLastActivity(), getExpiresAt());
         }
 
         public void updateSessionType(SessionType type) {
             this.currentSession = type;
-            updateActivity();
+            touch();
         }
 
         public void updateUserInfo(
@@ -209,7 +229,7 @@ public class SessionService {
             this.userId = userId;
             this.username = username;
             this.email = email;
-            updateActivity();
+            touch();
         }
 
         /**
@@ -217,7 +237,7 @@ public class SessionService {
          */
         public void setAttr(String key, Object val) {
             sessionAttrs.put(key, val);
-            updateActivity();
+            touch();
         }
 
         public Object getAttr(String key) {
@@ -232,7 +252,7 @@ public class SessionService {
          * Session Expired
          */
         public boolean isExpired() {
-            return LocalDateTime.now().isAfter(expiresAt);
+            return System.currentTimeMillis() > expiry.getDeadline();
         }
 
         /**
@@ -240,13 +260,17 @@ public class SessionService {
          */
         public void extendSession(boolean rememberUser) {
             this.rememberUser = rememberUser;
-            this.updateActivity();
+            this.touch();
+        }
+
+        private static LocalDateTime toDateTime(long millis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
         }
     }
 
     @PostConstruct
     public void init() {
-        cleanupExpiredSessions();
+        expiryWheel = new TimingWheel<>(expiryTickMs, 4, System.currentTimeMillis());
     }
 
     /**
@@ -278,11 +302,10 @@ public class SessionService {
         sessionData.setAttr("browserInstanceId", browserInstanceId);
 
         userSessions.put(sessionId, sessionData);
+        activeSessions.incrementAndGet();
+        expiryWheel.schedule(sessionData.expiry);
         tokenToUserIdMap.put(sessionId, userId);
-        userIdToTokensMap.computeIfAbsent(
-            userId,
-            k -> new HashSet<>()
-        ).add(sessionId);
+        addUserSession(userId, sessionId);
         
         setSessionCookie(sessionId, rememberUser, response);
         return sessionId;
@@ -294,7 +317,7 @@ public class SessionService {
     public SessionData getSession(String id) {
         SessionData session = userSessions.get(id);
         if(session != null && !session.isExpired()) {
-            session.updateActivity();
+            session.touch();
             return session;
         }
         return null;
@@ -348,14 +371,11 @@ public class SessionService {
             session.updateUserInfo(userId, username, email);
             session.updateSessionType(type);
 
-            String oldUserId = tokenToUserIdMap.get(sessionId);
+            String oldUserId = tokenToUserIdMap.put(sessionId, userId);
             if(oldUserId != null && !oldUserId.equals(userId)) {
-                Set<String> oldSessions = userIdToTokensMap.get(oldUserId);
-                if(oldSessions != null) oldSessions.remove(sessionId);
+                removeUserSession(oldUserId, sessionId);
             }
-
-            tokenToUserIdMap.put(sessionId, userId);
-            userIdToTokensMap.computeIfAbsent(userId, k -> new HashSet<>()).add(sessionId);
+            addUserSession(userId, sessionId);
         } else {
             throw new IllegalArgumentException("Session cannot be created!" + sessionId);
         }
@@ -373,19 +393,8 @@ public class SessionService {
      * Destroy
      */
     public void destroySession(String sessionId, HttpServletResponse response) {
-        SessionData session = userSessions.remove(sessionId);
-        if(session != null) {
-            String userId = tokenToUserIdMap.remove(sessionId);
-            if(userId != null) {
-                Set<String> sessions = userIdToTokensMap.get(userId);
-                if(sessions != null) {
-                    sessions.remove(sessionId);
-                    if(sessions.isEmpty()) {
-                        userIdToTokensMap.remove(userId);
-                    }
-                }
-            }
-        }
+        SessionData session = userSessions.get(sessionId);
+        if(session != null) removeSession(session);
         clearSessionCookie(response);
     }
 
@@ -393,13 +402,39 @@ public class SessionService {
         Set<String> sessionIds = userIdToTokensMap.remove(userId);
         if(sessionIds != null) {
             for(String sId : sessionIds) {
-                userSessions.remove(sId);
-                tokenToUserIdMap.remove(sId);
+                SessionData session = userSessions.get(sId);
+                if(session != null) removeSession(session);
             }
         }
         clearSessionCookie(response);
     }
 
+    private boolean removeSession(SessionData session) {
+        String sessionId = session.getSessionId();
+        if(!userSessions.remove(sessionId, session)) return false;
+        activeSessions.decrementAndGet();
+        expiryWheel.cancel(session.expiry);
+
+        String userId = tokenToUserIdMap.remove(sessionId);
+        if(userId != null) removeUserSession(userId, sessionId);
+        return true;
+    }
+
+    private void addUserSession(String userId, String sessionId) {
+        userIdToTokensMap.compute(userId, (k, sessions) -> {
+            if(sessions == null) sessions = ConcurrentHashMap.newKeySet();
+            sessions.add(sessionId);
+            return sessions;
+        });
+    }
+
+    private void removeUserSession(String userId, String sessionId) {
+        userIdToTokensMap.computeIfPresent(userId, (k, sessions) -> {
+            sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
     /**
      * Set Session Attribute
      */
@@ -455,40 +490,33 @@ public class SessionService {
     
     /**
      * Get Session Count
+     *
+     * Sessions held, expired ones are dropped within a tick.
      */
     public int getActiveSessionCount() {
-        int count = 0;
-        for(SessionData session : userSessions.values()) {
-            if(!session.isExpired()) {
-                count++;
-            }
-        }
-        return count;
+        return activeSessions.get();
     }
 
     /**
      * Cleanup Expired Sessions
+     *
+     * Advances the expiry wheel, touching only sessions whose deadline
+     * bucket came due. Ones that were active since are rescheduled.
      */
-    @Scheduled(fixedRate = 300000)
+    @Scheduled(fixedRateString = "${session.expiry.tickMs:1000}")
     public void cleanupExpiredSessions() {
-        int removed = 0;
-        for(Map.Entry<String, SessionData> entry : userSessions.entrySet()) {
-            SessionData session = entry.getValue();
-            if(session.isExpired()) {
-                userSessions.remove(entry.getKey());
-                String userId = tokenToUserIdMap.remove(entry.getKey());
-                if(userId != null) {
-                    Set<String> sessions = userIdToTokensMap.get(userId);
-                    if(sessions != null) {
-                        sessions.remove(entry.getKey());
-                        if(sessions.isEmpty()) userIdToTokensMap.remove(userId);
-                    }
-                }
+        AtomicInteger removed = new AtomicInteger();
+        expiryWheel.advance(System.currentTimeMillis(), sessionId -> {
+            SessionData session = userSessions.get(sessionId);
+            if(session == null) return;
+            if(!session.isExpired()) {
+                expiryWheel.schedule(session.expiry);
+            } else if(removeSession(session)) {
+                removed.incrementAndGet();
             }
-            removed++;
-        }
-        if(removed > 0) {
-            System.out.println("Cleaned up " + removed + " expired sessions");
+        });
+        if(removed.get() > 0) {
+            System.out.println("Cleaned up " + removed.get() + " expired sessions");
         }
     }
 
@@ -641,6 +669,7 @@ public class SessionService {
         SessionData session = getSession(sessionId);
         if(session != null) {
             session.extendSession(rememberUser);
+            expiryWheel.schedule(session.expiry);
             setSessionCookie(sessionId, rememberUser, response);
             return true;
         }
@@ -381,7 +381,13 @@ public class SystemMessageService {
         Map<String, Object> data,
         String sessionId
     ) {
-        boolean isAboutCurrentUser = messagePerspectiveDetector.isAboutCurrentUser(data, sessionId);
+        return createPerspective(result, messagePerspectiveDetector.isAboutCurrentUser(data, sessionId));
+    }
+
+    public MessagePerspectiveResult createPerspective(
+        MessagePerspectiveResult result,
+        boolean isAboutCurrentUser
+    ) {
         result.setDirection("system");
         result.setPerpspectiveType("SYSTEM_MESSAGE");
 
@@ -3,7 +3,7 @@ import com.app.main.root.app._db.DataSourceService;
 import com.app.main.root.app._types.User;
 import com.app.main.root.app.EventTracker;
 import com.app.main.root.app.EventLog.EventDirection;
-import com.app.main.root.app._crypto.password_encoder.PasswordEncoderWrapper;
+import com.app.main.root.app._crypto.password_encoder.PasswordHashService;
 import com.app.main.root.app._crypto.user_validator.UserValidatorWrapper;
 import com.app.main.root.app._db.CommandQueryManager;
 import com.app.main.root.app._server.RouteContext;
@@ -11,6 +11,7 @@ import com.app.main.root.app._server.ConnectionTracker;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.stereotype.Component;
 import java.time.LocalDateTime;
@@ -29,7 +30,7 @@ public class UserService {
     private final ConnectionTracker connectionTracker;
     private final SimpMessagingTemplate messagingTemplate;
     private final ServiceManager serviceManager;
-    private final PasswordEncoderWrapper passwordEncoder;
+    private final PasswordHashService passwordHashService;
     private final UserValidatorWrapper userValidator;
     public final Map<String, String> userToSessionMap = new ConcurrentHashMap<>();
     private final Map<String, String> sessionToUserMap = new ConcurrentHashMap<>();
@@ -40,7 +41,7 @@ public class UserService {
         ConnectionTracker connectionTracker,
         SimpMessagingTemplate messagingTemplate,
         @Lazy ServiceManager serviceManager,
-        @Lazy PasswordEncoderWrapper passwordEncoder,
+        @Lazy PasswordHashService passwordHashService,
         UserValidatorWrapper userValidator
     ) {
         this.dataSourceService = dataSourceService;
@@ -48,7 +49,7 @@ public class UserService {
         this.connectionTracker = connectionTracker;
         this.messagingTemplate = messagingTemplate;
         this.serviceManager = serviceManager;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashService = passwordHashService;
         this.userValidator = userValidator;
     }
 
@@ -408,27 +409,47 @@ public class UserService {
      * 
      * Register User
      * 
+     * Validation failures come back as a failed future, the insert runs
+     * once the hash is ready.
      */
-    public Map<String, Object> registerUser(
+    public CompletableFuture<Map<String, Object>> registerUser(
         String username,
         String email,
         String password,
         String sessionId,
         String ipAddress
-    ) throws SQLException {
-        if(!userValidator.validateRegistration(username, email, password, ipAddress)) {
-            throw new IllegalArgumentException("Invalid registration data!");
-        }
-        userValidator.recordRegistrationAttempt(ipAddress);
+    ) {
+        try {
+            if(!userValidator.validateRegistration(username, email, password, ipAddress)) {
+                throw new IllegalArgumentException("Invalid registration data!");
+            }
+            userValidator.recordRegistrationAttempt(ipAddress);
 
-        if(username == null || username.trim().isEmpty()) throw new IllegalArgumentException("Username is required");
-        if(email == null || !serviceManager.getEmailService().isValidEmail(email)) throw new IllegalArgumentException("Email is required");
-        if(password == null || password.length() < 8) throw new IllegalArgumentException("Password is required");
+            if(username == null || username.trim().isEmpty()) throw new IllegalArgumentException("Username is required");
+            if(email == null || !serviceManager.getEmailService().isValidEmail(email)) throw new IllegalArgumentException("Email is required");
+            if(password == null || password.length() < 8) throw new IllegalArgumentException("Password is required");
+        } catch(RuntimeException err) {
+            return CompletableFuture.failedFuture(err);
+        }
 
         String userId = generateUserId();
-        String passwordHash = passwordEncoder.encode(password);
+        return passwordHashService.encode(password).thenApply(passwordHash -> {
+            try {
+                return insertUser(userId, username.trim(), email, passwordHash, sessionId);
+            } catch(SQLException err) {
+                throw new CompletionException(err);
+            }
+        });
+    }
+
+    private Map<String, Object> insertUser(
+        String userId,
+        String trimmedUsername,
+        String email,
+        String passwordHash,
+        String sessionId
+    ) throws SQLException {
         String query = CommandQueryManager.REGISTER_USER.get();
-        String trimmedUsername = username.trim();
 
         try(
             Connection conn = getConnection();
@@ -447,7 +468,7 @@ public class UserService {
                     serviceManager
                         .getEmailService()
                         .getEmailData()
-                        .welcome(email, username, userId);
+                        .welcome(email, trimmedUsername, userId);
                 });
                 linkUserSession(userId, sessionId);
 
@@ -479,59 +500,106 @@ public class UserService {
      * 
      * Login User
      * 
+     * The account is read up front, the hash check is bounded by
+     * app.password.hash.loginTimeoutMs and no connection is held
+     * while it runs.
      */
-    public Map<String, Object> loginUser(
+    public CompletableFuture<Map<String, Object>> loginUser(
         String accountEmail, 
         String password, 
         String sessionId,
         String ipAddress
-    ) throws SQLException {
-        if(!userValidator.validateLogin(accountEmail, password, ipAddress)) {
-            throw new SecurityException("Invalid login data!");
-        }
-        userValidator.recordLoginAttempt(ipAddress);
-        
+    ) {
         String query = CommandQueryManager.LOGIN_USER.get();
-        try(
-            Connection conn = getConnection();
-            PreparedStatement stmt = conn.prepareStatement(query)
-        ) {
-            stmt.setString(1, accountEmail.toLowerCase().trim());
-
-            try(ResultSet rs = stmt.executeQuery()) {
-                if(rs.next()) {
-                    String storedHash = rs.getString("password_hash");
-                    String userId = rs.getString("id");
-                    String username = rs.getString("username");
-                    String email = rs.getString("email");
-                    
-                    if(passwordEncoder.matches(password, storedHash)) {
-                        updateUserSession(conn, userId, sessionId);
-
-                        Map<String, Object> res = new HashMap<>();
-                        res.put("userId", userId);
-                        res.put("email", email);
-                        res.put("username", username);
-                        res.put("sessionId", sessionId);
-
-                        eventTracker.track(
-                            "user-login",
-                            Map.of(
-                                "userId", userId,
-                                "username", username
-                            ),
-                            EventDirection.RECEIVED,
-                            sessionId,
-                            username
-                        );
-
-                        return res;
+        String storedHash = null;
+        String userId = null;
+        String username = null;
+        String email = null;
+        try {
+            if(!userValidator.validateLogin(accountEmail, password, ipAddress)) {
+                throw new SecurityException("Invalid login data!");
+            }
+            userValidator.recordLoginAttempt(ipAddress);
+
+            try(
+                Connection conn = getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query)
+            ) {
+                stmt.setString(1, accountEmail.toLowerCase().trim());
+
+                try(ResultSet rs = stmt.executeQuery()) {
+                    if(rs.next()) {
+                        storedHash = rs.getString("password_hash");
+                        userId = rs.getString("id");
+                        username = rs.getString("username");
+                        email = rs.getString("email");
                     }
                 }
             }
+        } catch(Exception err) {
+            return CompletableFuture.failedFuture(err);
         }
+        if(storedHash == null) return CompletableFuture.failedFuture(new SecurityException("Wrong credentials"));
+
+        String checkedHash = storedHash;
+        String matchedUserId = userId;
+        String matchedUsername = username;
+        Map<String, Object> res = new HashMap<>();
+        res.put("userId", userId);
+        res.put("email", email);
+        res.put("username", username);
+        res.put("sessionId", sessionId);
+
+        return passwordHashService.matches(password, checkedHash).thenApply(matches -> {
+            if(!matches) throw new SecurityException("Wrong credentials");
+            try(Connection conn = getConnection()) {
+                updateUserSession(conn, matchedUserId, sessionId);
+            } catch(SQLException err) {
+                throw new CompletionException(err);
+            }
+            if(passwordHashService.needsRehash(checkedHash)) {
+                rehashPassword(matchedUserId, password, checkedHash);
+            }
 
-        throw new SecurityException("Wrong credentials");
+            eventTracker.track(
+                "user-login",
+                Map.of(
+                    "userId", matchedUserId,
+                    "username", matchedUsername
+                ),
+                EventDirection.RECEIVED,
+                sessionId,
+                matchedUsername
+            );
+
+            return res;
+        });
+    }
+
+    /**
+     * Rehash Password
+     *
+     * Stores a hash at the current cost after a login with an older
+     * one. Runs in the background and only replaces the hash that was
+     * checked, a reset in between wins. A busy pool skips it, the
+     * next login tries again.
+     */
+    private void rehashPassword(String userId, String password, String oldHash) {
+        passwordHashService.encode(password)
+            .thenAccept(newHash -> {
+                try(
+                    Connection conn = getConnection();
+                    PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.REHASH_USER_PASSWORD.get())
+                ) {
+                    stmt.setString(1, newHash);
+                    stmt.setString(2, userId);
+                    stmt.setString(3, oldHash);
+                    stmt.executeUpdate();
+                } catch(SQLException err) {
+                    System.err.println("Failed to store rehashed password for " + userId + ": " + err.getMessage());
+                }
+            })
+            .exceptionally(err -> null);
     }
 
     /**
@@ -540,7 +608,7 @@ public class UserService {
      * 
      */
     public void handleUserRoute(RouteContext context) {
-        String targetUserId = (String) context.message.get("targetUserId");
+        String targetUserId = context.envelope.getTargetUserId();
         if(targetUserId != null) {
             String targetSession = getSessionByUserId(targetUserId);
             if(targetSession != null) {
@@ -0,0 +1,59 @@
+package com.app.main.root.app._types;
+import java.sql.Timestamp;
+
+/**
+ * Keyset position in a chat history, encoded for clients
+ * as "<createdAtMillis>_<messageId>".
+ */
+public class MessageCursor {
+    private final long createdAt;
+    private final int messageId;
+
+    public MessageCursor(long createdAt, int messageId) {
+        this.createdAt = createdAt;
+        this.messageId = messageId;
+    }
+
+    public static MessageCursor of(Message message) {
+        Timestamp time = message.getCreatedAt();
+        return new MessageCursor(time != null ? time.getTime() : 0L, message.getId());
+    }
+
+    public static MessageCursor parse(String value) {
+        if(value == null || value.isBlank()) return null;
+        int i = value.indexOf('_');
+        if(i <= 0 || i == value.length() - 1) {
+            throw new IllegalArgumentException("Invalid message cursor: " + value);
+        }
+        try {
+            long createdAt = Long.parseLong(value.substring(0, i));
+            int messageId = Integer.parseInt(value.substring(i + 1));
+            return new MessageCursor(createdAt, messageId);
+        } catch(NumberFormatException err) {
+            throw new IllegalArgumentException("Invalid message cursor: " + value, err);
+        }
+    }
+
+    /**
+     * Created At
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Message Id
+     */
+    public int getMessageId() {
+        return messageId;
+    }
+
+    public String encode() {
+        return createdAt + "_" + messageId;
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
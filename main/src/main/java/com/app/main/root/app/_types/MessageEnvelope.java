@@ -0,0 +1,290 @@
+package com.app.main.root.app._types;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Immutable chat message as it goes from analysis through routing
+ * to storage.
+ *
+ * Built once per incoming message and shared by every route and
+ * recipient, anything that differs per recipient goes in a
+ * PerspectiveMessage overlay instead of a copy. Serializes to the
+ * same fields the map based messages had, content is held as UTF-8
+ * and the array is not copied, so it must not be changed after the
+ * envelope is built. The timestamp is kept as it came in, epoch millis
+ * from the server or whatever the client sent.
+ */
+@JsonPropertyOrder({
+    "messageId", "chatId", "senderId", "userId", "username", "content",
+    "timestamp", "type", "targetUserId", "isDirect", "isGroup", "isSystem",
+    "isBroadcast", "routingMetadata"
+})
+public final class MessageEnvelope {
+    private final String messageId;
+    private final String chatId;
+    private final String senderId;
+    private final String username;
+    private final byte[] content;
+    private final Object timestamp;
+    private final String type;
+    private final String targetUserId;
+    private final String recipientId;
+    private final String targetSession;
+    private final boolean isDirect;
+    private final boolean isGroup;
+    private final boolean isSystem;
+    private final boolean isBroadcast;
+    private final RoutingMetadata routingMetadata;
+
+    public MessageEnvelope(
+        String messageId,
+        String chatId,
+        String senderId,
+        String username,
+        byte[] content,
+        Object timestamp,
+        String type,
+        String targetUserId,
+        String recipientId,
+        String targetSession,
+        boolean isDirect,
+        boolean isGroup,
+        boolean isSystem,
+        boolean isBroadcast,
+        RoutingMetadata routingMetadata
+    ) {
+        this.messageId = messageId;
+        this.chatId = chatId;
+        this.senderId = senderId;
+        this.username = username;
+        this.content = content;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.targetUserId = targetUserId;
+        this.recipientId = recipientId;
+        this.targetSession = targetSession;
+        this.isDirect = isDirect;
+        this.isGroup = isGroup;
+        this.isSystem = isSystem;
+        this.isBroadcast = isBroadcast;
+        this.routingMetadata = routingMetadata;
+    }
+
+    /**
+     * From Map
+     *
+     * Routing view of a map message, for callers that still build
+     * their messages as maps (system messages).
+     */
+    public static MessageEnvelope fromMap(Map<String, Object> message) {
+        String userId = string(message.get("senderId"));
+        if(userId == null) userId = string(message.get("userId"));
+        return new MessageEnvelope(
+            string(message.get("messageId")),
+            string(message.get("chatId")),
+            userId,
+            string(message.get("username")),
+            utf8(string(message.get("content"))),
+            message.get("timestamp"),
+            string(message.get("type")),
+            string(message.get("targetUserId")),
+            string(message.get("recipientId")),
+            string(message.get("targetSession")),
+            Boolean.TRUE.equals(message.get("isDirect")),
+            Boolean.TRUE.equals(message.get("isGroup")),
+            Boolean.TRUE.equals(message.get("isSystem")),
+            Boolean.TRUE.equals(message.get("isBroadcast")),
+            null
+        );
+    }
+
+    public static byte[] utf8(String content) {
+        return content != null ? content.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Message Id
+     */
+    public String getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Chat Id
+     */
+    public String getChatId() {
+        return chatId;
+    }
+
+    /**
+     * Sender Id
+     */
+    public String getSenderId() {
+        return senderId;
+    }
+
+    @JsonProperty("userId")
+    public String getUserId() {
+        return senderId;
+    }
+
+    /**
+     * Username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Content
+     */
+    public String getContent() {
+        return content != null ? new String(content, StandardCharsets.UTF_8) : null;
+    }
+
+    @JsonIgnore
+    public byte[] getContentBytes() {
+        return content;
+    }
+
+    /**
+     * Timestamp
+     */
+    public Object getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Target User Id
+     */
+    public String getTargetUserId() {
+        return targetUserId;
+    }
+
+    /**
+     * Routing hints, not sent to clients
+     */
+    @JsonIgnore
+    public String getRecipientId() {
+        return recipientId;
+    }
+
+    @JsonIgnore
+    public String getTargetSession() {
+        return targetSession;
+    }
+
+    /**
+     * Flags
+     */
+    @JsonProperty("isDirect")
+    public boolean isDirect() {
+        return isDirect;
+    }
+
+    @JsonProperty("isGroup")
+    public boolean isGroup() {
+        return isGroup;
+    }
+
+    @JsonProperty("isSystem")
+    public boolean isSystem() {
+        return isSystem;
+    }
+
+    @JsonProperty("isBroadcast")
+    public boolean isBroadcast() {
+        return isBroadcast;
+    }
+
+    /**
+     * Routing Metadata
+     */
+    public RoutingMetadata getRoutingMetadata() {
+        return routingMetadata;
+    }
+
+    @JsonPropertyOrder({
+        "sessionId", "userId", "messageType", "messageId",
+        "isDirect", "isGroup", "isBroadcast", "priority"
+    })
+    public static final class RoutingMetadata {
+        private final String sessionId;
+        private final String userId;
+        private final String messageType;
+        private final String messageId;
+        private final boolean isDirect;
+        private final boolean isGroup;
+        private final boolean isBroadcast;
+        private final String priority;
+
+        public RoutingMetadata(
+            String sessionId,
+            String userId,
+            String messageType,
+            String messageId,
+            boolean isDirect,
+            boolean isGroup,
+            boolean isBroadcast,
+            String priority
+        ) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.messageType = messageType;
+            this.messageId = messageId;
+            this.isDirect = isDirect;
+            this.isGroup = isGroup;
+            this.isBroadcast = isBroadcast;
+            this.priority = priority;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getMessageType() {
+            return messageType;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        @JsonProperty("isDirect")
+        public boolean isDirect() {
+            return isDirect;
+        }
+
+        @JsonProperty("isGroup")
+        public boolean isGroup() {
+            return isGroup;
+        }
+
+        @JsonProperty("isBroadcast")
+        public boolean isBroadcast() {
+            return isBroadcast;
+        }
+
+        public String getPriority() {
+            return priority;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.app.main.root.app._types;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * How one session sees a message, sent as "_perspective".
+ */
+@JsonPropertyOrder({
+    "direction", "perspectiveType", "showUsername", "displayUsername",
+    "isCurrentUser", "isDirect", "isGroup", "isSystem", "isAboutCurrentUser"
+})
+public final class MessagePerspective {
+    private final String direction;
+    private final String perspectiveType;
+    private final Object showUsername;
+    private final Object displayUsername;
+    private final Object isCurrentUser;
+    private final Object isDirect;
+    private final Object isGroup;
+    private final Object isSystem;
+    private final boolean isAboutCurrentUser;
+
+    public MessagePerspective(
+        String direction,
+        String perspectiveType,
+        Object showUsername,
+        Object displayUsername,
+        Object isCurrentUser,
+        Object isDirect,
+        Object isGroup,
+        Object isSystem,
+        boolean isAboutCurrentUser
+    ) {
+        this.direction = direction;
+        this.perspectiveType = perspectiveType;
+        this.showUsername = showUsername;
+        this.displayUsername = displayUsername;
+        this.isCurrentUser = isCurrentUser;
+        this.isDirect = isDirect;
+        this.isGroup = isGroup;
+        this.isSystem = isSystem;
+        this.isAboutCurrentUser = isAboutCurrentUser;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public String getPerspectiveType() {
+        return perspectiveType;
+    }
+
+    public Object getShowUsername() {
+        return showUsername;
+    }
+
+    public Object getDisplayUsername() {
+        return displayUsername;
+    }
+
+    @JsonProperty("isCurrentUser")
+    public Object getIsCurrentUser() {
+        return isCurrentUser;
+    }
+
+    @JsonProperty("isDirect")
+    public Object getIsDirect() {
+        return isDirect;
+    }
+
+    @JsonProperty("isGroup")
+    public Object getIsGroup() {
+        return isGroup;
+    }
+
+    @JsonProperty("isSystem")
+    public Object getIsSystem() {
+        return isSystem;
+    }
+
+    @JsonProperty("isAboutCurrentUser")
+    public boolean isAboutCurrentUser() {
+        return isAboutCurrentUser;
+    }
+}
@@ -0,0 +1,28 @@
+package com.app.main.root.app._types;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * Shared envelope plus one session's perspective. Serializes as the
+ * envelope's fields with "_perspective" next to them, the envelope
+ * itself is not copied.
+ */
+public final class PerspectiveMessage {
+    private final MessageEnvelope envelope;
+    private final MessagePerspective perspective;
+
+    public PerspectiveMessage(MessageEnvelope envelope, MessagePerspective perspective) {
+        this.envelope = envelope;
+        this.perspective = perspective;
+    }
+
+    @JsonUnwrapped
+    public MessageEnvelope getEnvelope() {
+        return envelope;
+    }
+
+    @JsonProperty("_perspective")
+    public MessagePerspective getPerspective() {
+        return perspective;
+    }
+}
@@ -8,6 +8,7 @@ public class RecentChat {
     private String lastSender;
     private String chatType;
     private String chatName;
+    private int unreadCount;
     
     /**
      * Chat Id
@@ -68,4 +69,14 @@ public class RecentChat {
     public String getChatName() {
         return chatName;
     }
-}
\ No newline at end of file
+
+    /**
+     * Unread Count
+     */
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+}
@@ -0,0 +1,316 @@
+package com.app.main.root.app.file_compressor;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Chunked stream format (compression type 10).
+ *
+ * Header: [magic "CMPS"][version][total size][chunk size]
+ * Frame:  [codec][stored length][original length][crc32 of original][data]
+ *
+ * Chunks are compressed and decompressed on a shared bounded pool,
+ * each stream keeps a small window of chunks in flight and writes
+ * them back in order, so memory stays at window * chunk size.
+ */
+public class ChunkedCompressor {
+    public static final int STREAM_MAGIC = 0x434D5053;
+    public static final int STREAM_VERSION = 1;
+    public static final int CODEC_STORED = 0;
+
+    private static volatile int threads = Runtime.getRuntime().availableProcessors();
+    private static volatile int chunkSize = 5 * 1024 * 1024;
+    private static volatile ThreadPoolExecutor executor;
+    private static final CompressionStats stats = new CompressionStats();
+
+    /**
+     * Configure
+     */
+    public static synchronized void configure(int threadCount, int chunkBytes) {
+        int count = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+        if(chunkBytes > 0) chunkSize = Math.max(64 * 1024, chunkBytes);
+        if(count != threads) {
+            threads = count;
+            if(executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor current = executor;
+        if(current != null) return current;
+
+        synchronized(ChunkedCompressor.class) {
+            if(executor == null) {
+                AtomicInteger counter = new AtomicInteger();
+                executor = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    30,
+                    TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(threads * 4),
+                    task -> {
+                        Thread thread = new Thread(task, "file-compressor-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy()
+                );
+                executor.allowCoreThreadTimeOut(true);
+            }
+            return executor;
+        }
+    }
+
+    private static int window() {
+        return threads * 2;
+    }
+
+    /**
+     * Compress
+     *
+     * Reads size bytes from the input and writes the framed stream.
+     * Returns how many frames ended up using a codec, zero means
+     * nothing was worth compressing.
+     */
+    public static int compress(InputStream input, long size, OutputStream output) throws IOException {
+        int chunk = chunkSize;
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        dataOutput.writeInt(STREAM_MAGIC);
+        dataOutput.writeByte(STREAM_VERSION);
+        dataOutput.writeLong(size);
+        dataOutput.writeInt(chunk);
+
+        Deque<Future<Frame>> pending = new ArrayDeque<>();
+        int compressedFrames = 0;
+        long read = 0;
+
+        try {
+            while(read < size) {
+                byte[] data = input.readNBytes((int) Math.min(chunk, size - read));
+                if(data.length == 0) throw new EOFException("Input ended at " + read + " of " + size + " bytes");
+                read += data.length;
+
+                pending.add(submit(() -> encodeFrame(data)));
+                if(pending.size() >= window()) {
+                    compressedFrames += writeFrame(dataOutput, await(pending.poll()));
+                }
+            }
+            while(!pending.isEmpty()) {
+                compressedFrames += writeFrame(dataOutput, await(pending.poll()));
+            }
+        } finally {
+            for(Future<Frame> future : pending) future.cancel(true);
+        }
+
+        dataOutput.flush();
+        return compressedFrames;
+    }
+
+    private static Frame encodeFrame(byte[] data) throws Exception {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        long start = System.nanoTime();
+        Frame frame = new Frame(CODEC_STORED, data, data.length, (int) crc.getValue());
+        if(isCompressible(data)) {
+            WithCompressionResult result = WrapperFileCompressor.compress(data);
+            if(result.getCompressionType() > 0 && result.getData().length < data.length) {
+                frame = new Frame(result.getCompressionType(), result.getData(), data.length, frame.crc);
+            }
+        }
+        stats.recordCompress(frame.codec, data.length, frame.data.length, System.nanoTime() - start);
+        return frame;
+    }
+
+    private static int writeFrame(DataOutputStream output, Frame frame) throws IOException {
+        output.writeByte(frame.codec);
+        output.writeInt(frame.data.length);
+        output.writeInt(frame.originalLength);
+        output.writeInt(frame.crc);
+        output.write(frame.data);
+        return frame.codec != CODEC_STORED ? 1 : 0;
+    }
+
+    /**
+     * Decompress
+     *
+     * Frames are read in order, decoded in parallel and written back
+     * in order. Streams written before the framed format (no magic)
+     * are decoded sequentially.
+     */
+    public static long decompress(InputStream input, OutputStream output) throws IOException {
+        DataInputStream dataInput = new DataInputStream(input);
+        int magic = dataInput.readInt();
+        if(magic != STREAM_MAGIC) {
+            long totalSize = ((long) magic << 32) | (dataInput.readInt() & 0xFFFFFFFFL);
+            return decompressLegacy(dataInput, totalSize, output);
+        }
+
+        int version = dataInput.readUnsignedByte();
+        if(version != STREAM_VERSION) throw new IOException("Unsupported stream version: " + version);
+        long totalSize = dataInput.readLong();
+        int chunk = dataInput.readInt();
+        if(totalSize < 0 || chunk <= 0) throw new IOException("Invalid stream header");
+
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        long queued = 0;
+        long written = 0;
+
+        try {
+            while(queued < totalSize) {
+                int codec = dataInput.readUnsignedByte();
+                int storedLength = dataInput.readInt();
+                int originalLength = dataInput.readInt();
+                int crc = dataInput.readInt();
+                if(originalLength <= 0 || originalLength > chunk || storedLength < 0 || storedLength > chunk) {
+                    throw new IOException("Invalid frame header at " + queued);
+                }
+
+                byte[] stored = new byte[storedLength];
+                dataInput.readFully(stored);
+                queued += originalLength;
+
+                pending.add(submit(() -> decodeFrame(codec, stored, originalLength, crc)));
+                if(pending.size() >= window()) {
+                    byte[] data = await(pending.poll());
+                    output.write(data);
+                    written += data.length;
+                }
+            }
+            while(!pending.isEmpty()) {
+                byte[] data = await(pending.poll());
+                output.write(data);
+                written += data.length;
+            }
+        } finally {
+            for(Future<byte[]> future : pending) future.cancel(true);
+        }
+
+        if(written != totalSize) {
+            throw new IOException("Stream decompressed to " + written + " bytes, expected " + totalSize);
+        }
+        return written;
+    }
+
+    private static byte[] decodeFrame(int codec, byte[] stored, int originalLength, int crc) throws Exception {
+        long start = System.nanoTime();
+        byte[] data = codec == CODEC_STORED ? stored : WrapperFileCompressor.decompress(stored, codec);
+        if(data == null || data.length != originalLength) {
+            throw new IOException("Frame decoded to " + (data == null ? 0 : data.length) + " bytes, expected " + originalLength);
+        }
+
+        CRC32 check = new CRC32();
+        check.update(data);
+        if((int) check.getValue() != crc) throw new IOException("Frame checksum mismatch");
+
+        stats.recordDecompress(codec, data.length, System.nanoTime() - start);
+        return data;
+    }
+
+    /**
+     * Legacy layout: [total size] then [type][length][data] per chunk.
+     */
+    private static long decompressLegacy(DataInputStream dataInput, long totalSize, OutputStream output) throws IOException {
+        long written = 0;
+        while(written < totalSize) {
+            int compressionType;
+            try {
+                compressionType = dataInput.readUnsignedByte();
+            } catch(EOFException err) {
+                break;
+            }
+            int chunkLength = dataInput.readInt();
+            if(chunkLength < 0) throw new IOException("Invalid chunk length: " + chunkLength);
+
+            byte[] chunk = new byte[chunkLength];
+            dataInput.readFully(chunk);
+            byte[] data = compressionType > 0 ? WrapperFileCompressor.decompress(chunk, compressionType) : chunk;
+            if(data == null) throw new IOException("Chunk decompression failed, type: " + compressionType);
+
+            output.write(data);
+            written += data.length;
+        }
+
+        if(written != totalSize) {
+            throw new IOException("Stream decompressed to " + written + " bytes, expected " + totalSize);
+        }
+        return written;
+    }
+
+    private static boolean isCompressible(byte[] chunk) {
+        int sampleSize = Math.min(chunk.length, 1000);
+        if(sampleSize == 0) return false;
+
+        int textBytes = 0;
+        for(int i = 0; i < sampleSize; i++) {
+            byte b = chunk[i];
+            if((b >= 32 && b <= 126) || b == '\t' || b == '\n' || b == '\r') {
+                textBytes++;
+            }
+        }
+        return textBytes * 100 / sampleSize > 70;
+    }
+
+    private static <T> Future<T> submit(Callable<T> task) {
+        return getExecutor().submit(task);
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch(InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for chunk", err);
+        } catch(ExecutionException err) {
+            Throwable cause = err.getCause();
+            if(cause instanceof IOException ioErr) throw ioErr;
+            throw new IOException("Chunk processing failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Stats
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        ThreadPoolExecutor current = executor;
+        res.put("threads", threads);
+        res.put("chunkBytes", chunkSize);
+        res.put("activeWorkers", current != null ? current.getActiveCount() : 0);
+        res.put("queuedChunks", current != null ? current.getQueue().size() : 0);
+        res.put("codecs", stats.snapshot());
+        return res;
+    }
+
+    private static class Frame {
+        final int codec;
+        final byte[] data;
+        final int originalLength;
+        final int crc;
+
+        Frame(int codec, byte[] data, int originalLength, int crc) {
+            this.codec = codec;
+            this.data = data;
+            this.originalLength = originalLength;
+            this.crc = crc;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.app.main.root.app.file_compressor;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per codec counters for the chunked pipeline. Time is summed over
+ * worker threads, so throughput is per core, not wall clock.
+ */
+public class CompressionStats {
+    public static final String[] CODEC_NAMES = { "none", "rl", "delta", "sw", "bp" };
+
+    private final Codec[] codecs = new Codec[CODEC_NAMES.length];
+
+    public CompressionStats() {
+        for(int i = 0; i < codecs.length; i++) codecs[i] = new Codec();
+    }
+
+    public void recordCompress(int codec, long bytesIn, long bytesOut, long nanos) {
+        Codec stats = codecs[index(codec)];
+        stats.chunks.increment();
+        stats.bytesIn.add(bytesIn);
+        stats.bytesOut.add(bytesOut);
+        stats.compressNanos.add(nanos);
+    }
+
+    public void recordDecompress(int codec, long bytesOut, long nanos) {
+        Codec stats = codecs[index(codec)];
+        stats.decodedChunks.increment();
+        stats.decodedBytes.add(bytesOut);
+        stats.decompressNanos.add(nanos);
+    }
+
+    private int index(int codec) {
+        return codec >= 0 && codec < codecs.length ? codec : 0;
+    }
+
+    /**
+     * Snapshot
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        for(int i = 0; i < codecs.length; i++) {
+            Codec stats = codecs[i];
+            long bytesIn = stats.bytesIn.sum();
+            long bytesOut = stats.bytesOut.sum();
+            long compressNanos = stats.compressNanos.sum();
+            long decodedBytes = stats.decodedBytes.sum();
+            long decompressNanos = stats.decompressNanos.sum();
+
+            Map<String, Object> codec = new LinkedHashMap<>();
+            codec.put("chunks", stats.chunks.sum());
+            codec.put("bytesIn", bytesIn);
+            codec.put("bytesOut", bytesOut);
+            codec.put("ratio", bytesIn > 0 ? (double) bytesOut / bytesIn : 0.0);
+            codec.put("compressMBps", megabytesPerSecond(bytesIn, compressNanos));
+            codec.put("decodedChunks", stats.decodedChunks.sum());
+            codec.put("decodedBytes", decodedBytes);
+            codec.put("decompressMBps", megabytesPerSecond(decodedBytes, decompressNanos));
+            res.put(CODEC_NAMES[i], codec);
+        }
+        return res;
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        if(nanos <= 0) return 0.0;
+        return (bytes / (1024.0 * 1024.0)) / (nanos / 1_000_000_000.0);
+    }
+
+    private static class Codec {
+        final LongAdder chunks = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder compressNanos = new LongAdder();
+        final LongAdder decodedChunks = new LongAdder();
+        final LongAdder decodedBytes = new LongAdder();
+        final LongAdder decompressNanos = new LongAdder();
+    }
+}
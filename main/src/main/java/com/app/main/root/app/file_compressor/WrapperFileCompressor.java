@@ -1,15 +1,13 @@
 package com.app.main.root.app.file_compressor;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
+import java.util.Map;
 
 public class WrapperFileCompressor {
     private static final String DLL_PATH = "src/main/java/com/app/main/root/app/file_compressor/.build/";
@@ -154,125 +152,27 @@ public class WrapperFileCompressor {
         if(data == null || data.length == 0) {
             throw new IllegalArgumentException("Data cannot be null or empty");
         }
-        if(compressionType < 0 || compressionType > 4) {
+        if(compressionType < 0 || compressionType > 5) {
             throw new IllegalArgumentException("Invalid compression type: " + compressionType);
         }
         return decompress(data, compressionType);
     }
 
-    public static WithCompressionResult compressStream(InputStream inputStream, long size, String mimeType) throws Exception {
-        System.out.println("DEBUG: Starting stream compression for " + mimeType + ", size: " + size + " bytes");
-        
-        if(mimeType != null && mimeType.toLowerCase().contains("video")) {
-            System.out.println("DEBUG: Video file detected, skipping compression");
-            byte[] data = readFully(inputStream);
-            return new WithCompressionResult(data, 0);
-        }
-        
-        if(size < 5 * 1024 * 1024) {
-            byte[] data = readFully(inputStream);
-            return compress(data);
-        }
-        
-        int chunkSize = 5 * 1024 * 1024;
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        
-        byte[] buffer = new byte[chunkSize];
-        int bytesRead;
-        long totalRead = 0;
-        int chunkNumber = 0;
-        boolean anyCompression = false;
-        
-        DataOutputStream dataOutput = new DataOutputStream(output);
-        dataOutput.writeLong(size);
-        while((bytesRead = inputStream.read(buffer)) != -1) {
-            chunkNumber++;
-            System.out.println("DEBUG: Processing chunk " + chunkNumber + ", size: " + bytesRead + " bytes");
-            
-            boolean chunkIsCompressible = isChunkCompressible(buffer, bytesRead);
-            if(!chunkIsCompressible) {
-                dataOutput.writeByte(0);
-                dataOutput.writeInt(bytesRead);
-                dataOutput.write(buffer, 0, bytesRead);
-                System.out.println("DEBUG: Chunk not compressible, storing as-is");
-            } else {
-                byte[] chunkData = Arrays.copyOf(buffer, bytesRead);
-                WithCompressionResult chunkResult = compress(chunkData);
-                
-                if(chunkResult.getCompressionType() > 0) {
-                    byte[] compressedChunk = chunkResult.getData();
-                    dataOutput.writeByte(chunkResult.getCompressionType());
-                    dataOutput.writeInt(compressedChunk.length);
-                    dataOutput.write(compressedChunk);
-                    anyCompression = true;
-                    System.out.println("DEBUG: Chunk compressed: " + bytesRead + " -> " + compressedChunk.length + " bytes");
-                } else {
-                    dataOutput.writeByte(0);
-                    dataOutput.writeInt(bytesRead);
-                    dataOutput.write(buffer, 0, bytesRead);
-                    System.out.println("DEBUG: Chunk compression not beneficial");
-                }
-            }
-            
-            totalRead += bytesRead;
-            System.out.println("DEBUG: Total processed: " + totalRead + "/" + size + " bytes");
-        }
-        
-        byte[] compressedData = output.toByteArray();
-        System.out.println("DEBUG: Stream compression complete: " + size + " -> " + compressedData.length + " bytes");
-        
-        int finalCompressionType = anyCompression ? 10 : 0;
-        return new WithCompressionResult(compressedData, finalCompressionType);
-    }
-
-    private static boolean isChunkCompressible(byte[] chunk, int length) {
-        int textBytes = 0;
-        int sampleSize = Math.min(length, 1000);
-        
-        for(int i = 0; i < sampleSize; i++) {
-            byte b = chunk[i];
-            if((b >= 32 && b <= 126) || b == '\t' || b == '\n' || b == '\r') {
-                textBytes++;
-            }
-        }
-        
-        return textBytes * 100 / sampleSize > 70;
+    /**
+     * Compress Stream
+     *
+     * Writes size bytes from the input to the output as a chunked
+     * stream (type 10), frame by frame, so nothing is buffered beyond
+     * the chunks in flight. Returns how many frames used a codec, zero
+     * means the output is all stored frames and not worth keeping.
+     */
+    public static int compressStream(InputStream inputStream, long size, OutputStream outputStream) throws IOException {
+        return ChunkedCompressor.compress(inputStream, size, outputStream);
     }
     
     public static byte[] decompressStream(byte[] compressedData) throws Exception {
-        ByteArrayInputStream input = new ByteArrayInputStream(compressedData);
-        DataInputStream dataInput = new DataInputStream(input);
-        
-        long totalSize = dataInput.readLong();
-        int chunkSize = dataInput.readInt();
-        
-        System.out.println("DEBUG: Decompressing stream: total size=" + totalSize + 
-                         ", chunk size=" + chunkSize);
-        
-        ByteArrayOutputStream output = new ByteArrayOutputStream((int)totalSize);
-        
-        try {
-            while(dataInput.available() > 0) {
-                int compressedChunkSize = dataInput.readInt();
-                int compressionType = dataInput.readByte() & 0xFF;
-                
-                byte[] compressedChunk = new byte[compressedChunkSize];
-                dataInput.readFully(compressedChunk);
-                
-                byte[] decompressedChunk;
-                if(compressionType == 10) {
-                    decompressedChunk = decompressStream(compressedChunk);
-                } else if(compressionType > 0) {
-                    decompressedChunk = decompress(compressedChunk, compressionType);
-                } else {
-                    decompressedChunk = compressedChunk;
-                }
-                
-                output.write(decompressedChunk);
-            }
-        } catch(EOFException e) {
-            System.out.println(e);
-        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        decompressStream(new ByteArrayInputStream(compressedData), output);
         
         byte[] result = output.toByteArray();
         System.out.println("DEBUG: Stream decompression complete: " + 
@@ -280,6 +180,20 @@ public class WrapperFileCompressor {
         
         return result;
     }
+
+    /**
+     * Decompress Stream
+     *
+     * Decodes a chunked stream written by compressStream, chunks are
+     * decoded in parallel and written out in order as they finish.
+     */
+    public static long decompressStream(InputStream inputStream, OutputStream outputStream) throws Exception {
+        return ChunkedCompressor.decompress(inputStream, outputStream);
+    }
+
+    public static Map<String, Object> getStats() {
+        return ChunkedCompressor.getStats();
+    }
     
     private static byte[] readFully(InputStream inputStream) throws IOException {
         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
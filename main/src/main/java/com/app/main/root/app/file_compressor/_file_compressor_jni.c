@@ -37,38 +37,26 @@ JNIEXPORT jobject JNICALL Java_com_app_main_root_app_file_1compressor_WrapperFil
     JNIEnv *env, jclass clazz, jbyteArray data
 ) {
     jsize len = (*env)->GetArrayLength(env, data);
-    printf("DEBUG JNI: compressNative called, length: %d bytes (%.2f MB)\n", 
-           len, len / (1024.0 * 1024.0));
     
     if(len <= 0) {
-        printf("INFO JNI: Empty data, returning null\n");
         return NULL;
     }
     
     jbyte *buffer = (*env)->GetByteArrayElements(env, data, NULL);
-    
-    if(!buffer) {
-        printf("ERROR JNI: Cannot get byte array elements for size: %d\n", len);
-        return NULL;
-    }
+    if(!buffer) return NULL;
 
-    printf("DEBUG JNI: Got buffer, starting compression...\n");
-    
     size_t compressedSize;
     CompressionType compType;
     uint8_t* compressed = NULL;
     
     compressed = compress((uint8_t*)buffer, (size_t)len, &compressedSize, &compType);
     
-    (*env)->ReleaseByteArrayElements(env, data, buffer, 0);
+    (*env)->ReleaseByteArrayElements(env, data, buffer, JNI_ABORT);
     
     if(!compressed) {
         printf("ERROR JNI: Compression returned NULL\n");
         return NULL;
     }
-    
-    printf("DEBUG JNI: Compression result: %d -> %zu bytes, type: %d\n", 
-           len, compressedSize, compType);
 
     jclass resultClass = (*env)->FindClass(env, "com/app/main/root/app/file_compressor/WithCompressionResult");
     if(!resultClass) {
@@ -93,9 +81,7 @@ JNIEXPORT jobject JNICALL Java_com_app_main_root_app_file_1compressor_WrapperFil
     
     (*env)->SetByteArrayRegion(env, compressedArray, 0, (jsize)compressedSize, (jbyte*)compressed);
     free(compressed);
-    
-    printf("DEBUG JNI: Native compression completed successfully\n");
-    
+
     jobject result = (*env)->NewObject(env, resultClass, constructor, compressedArray, (jint)compType);
     return result;
 }
@@ -158,4 +144,54 @@ JNIEXPORT jint JNICALL Java_com_app_main_root_app_file_1compressor_FileCompresso
     (*env)->ReleaseStringUTFChars(env, outputPath, outPath);
 
     return result;
-}
\ No newline at end of file
+}
+JNIEXPORT jbyteArray JNICALL Java_com_app_main_root_app_file_1compressor_WrapperFileCompressor_decompress(
+    JNIEnv* env,
+    jclass cls,
+    jbyteArray data,
+    jint compressionType
+) {
+    if(!data) return NULL;
+    jsize dataLen = (*env)->GetArrayLength(env, data);
+    if(dataLen <= 0) return NULL;
+
+    jbyte* dataPtr = (*env)->GetByteArrayElements(env, data, NULL);
+    if(!dataPtr) return NULL;
+
+    size_t outputSize = 0;
+    uint8_t* decompressed = decompress(
+        (uint8_t*)dataPtr,
+        dataLen,
+        &outputSize,
+        (CompressionType)compressionType
+    );
+    (*env)->ReleaseByteArrayElements(env, data, dataPtr, JNI_ABORT);
+
+    if(!decompressed) return NULL;
+
+    jbyteArray result = (*env)->NewByteArray(env, (jsize)outputSize);
+    if(result) {
+        (*env)->SetByteArrayRegion(env, result, 0, (jsize)outputSize, (jbyte*)decompressed);
+    }
+    free(decompressed);
+
+    return result;
+}
+
+JNIEXPORT jint JNICALL Java_com_app_main_root_app_file_1compressor_WrapperFileCompressor_compressFile(
+    JNIEnv* env,
+    jclass cls,
+    jstring inputPath,
+    jstring outputPath
+) {
+    return Java_com_app_main_root_app_file_1compressor_FileCompressor_compressFile(env, cls, inputPath, outputPath);
+}
+
+JNIEXPORT jint JNICALL Java_com_app_main_root_app_file_1compressor_WrapperFileCompressor_decompressFile(
+    JNIEnv* env,
+    jclass cls,
+    jstring inputPath,
+    jstring outputPath
+) {
+    return Java_com_app_main_root_app_file_1compressor_FileCompressor_decompressFile(env, cls, inputPath, outputPath);
+}
@@ -0,0 +1,237 @@
+/*
+ * Compression benchmark over a local corpus.
+ *
+ * Every file is run through the codec detectBestCompression picks for
+ * it, decompressed again and compared. Reports ratio and MB/s per file
+ * and per codec. The match finder settings apply to COMP_LZ only.
+ *
+ *   gcc -O2 -o compress_bench bench/compress_bench.c comp.c rl.c delta.c sliding_window.c bp.c
+ *   cl /O2 bench\compress_bench.c comp.c rl.c delta.c sliding_window.c bp.c
+ *
+ *   compress_bench [-d chainDepth] [-n niceLength] [-l 0|1] [-r repeats] <file|dir>...
+ */
+#include "../comp.h"
+#include "../sliding_window.h"
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <stdint.h>
+
+#ifdef _WIN32
+#include <windows.h>
+#else
+#include <dirent.h>
+#include <sys/stat.h>
+#include <time.h>
+#endif
+
+#define CODEC_COUNT (COMP_LZ + 1)
+
+static const char* CODEC_NAMES[CODEC_COUNT] = { "none", "rl", "delta", "sw", "bp", "lz" };
+
+typedef struct {
+    int files;
+    int failures;
+    uint64_t inputBytes;
+    uint64_t outputBytes;
+    double compressSeconds;
+    double decompressSeconds;
+} CodecTotals;
+
+static LzOptions options = { LZ_DEFAULT_CHAIN_DEPTH, 1, LZ_DEFAULT_NICE_LENGTH };
+static int repeats = 3;
+static CodecTotals totals[CODEC_COUNT];
+
+static double now(void) {
+#ifdef _WIN32
+    LARGE_INTEGER frequency, counter;
+    QueryPerformanceFrequency(&frequency);
+    QueryPerformanceCounter(&counter);
+    return (double)counter.QuadPart / (double)frequency.QuadPart;
+#else
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return ts.tv_sec + ts.tv_nsec / 1e9;
+#endif
+}
+
+static double mbPerSecond(uint64_t bytes, double seconds) {
+    return seconds > 0 ? bytes / (1024.0 * 1024.0) / seconds : 0;
+}
+
+static uint8_t* readFile(const char* path, size_t* size) {
+    FILE* in = fopen(path, "rb");
+    if(!in) return NULL;
+    fseek(in, 0, SEEK_END);
+    long length = ftell(in);
+    fseek(in, 0, SEEK_SET);
+    if(length <= 0) {
+        fclose(in);
+        return NULL;
+    }
+
+    uint8_t* data = malloc((size_t)length);
+    if(data && fread(data, 1, (size_t)length, in) != (size_t)length) {
+        free(data);
+        data = NULL;
+    }
+    fclose(in);
+    *size = (size_t)length;
+    return data;
+}
+
+static uint8_t* runCodec(CompressionType type, const uint8_t* data, size_t size, size_t* outputSize) {
+    if(type == COMP_LZ) return lzCompress(data, size, outputSize, &options);
+    if(type == COMP_NONE) {
+        uint8_t* copy = malloc(size);
+        if(copy) memcpy(copy, data, size);
+        *outputSize = copy ? size : 0;
+        return copy;
+    }
+    return compressAs(type, data, size, outputSize);
+}
+
+/**
+ * Bench File
+ */
+static void benchFile(const char* path) {
+    size_t size = 0;
+    uint8_t* data = readFile(path, &size);
+    if(!data) return;
+
+    CompressionType type = detectBestCompression(data, size);
+    CodecTotals* codec = &totals[type];
+
+    uint8_t* compressed = NULL;
+    size_t compressedSize = 0;
+    double compressSeconds = 0;
+    for(int r = 0; r < repeats; r++) {
+        free(compressed);
+        double start = now();
+        compressed = runCodec(type, data, size, &compressedSize);
+        compressSeconds += now() - start;
+    }
+
+    uint8_t* restored = NULL;
+    size_t restoredSize = 0;
+    double decompressSeconds = 0;
+    if(compressed) {
+        for(int r = 0; r < repeats; r++) {
+            free(restored);
+            double start = now();
+            restored = decompress(compressed, compressedSize, &restoredSize, type);
+            decompressSeconds += now() - start;
+        }
+    }
+
+    int ok = compressed && restored && restoredSize == size && memcmp(restored, data, size) == 0;
+    codec->files++;
+    if(!ok) codec->failures++;
+    codec->inputBytes += (uint64_t)size * repeats;
+    codec->outputBytes += (uint64_t)compressedSize * repeats;
+    codec->compressSeconds += compressSeconds;
+    codec->decompressSeconds += decompressSeconds;
+
+    printf("%-6s %12zu -> %12zu  %6.2f%%  comp %8.1f MB/s  decomp %8.1f MB/s  %s  %s\n",
+           CODEC_NAMES[type], size, compressedSize,
+           size ? (double)compressedSize / size * 100.0 : 0,
+           mbPerSecond((uint64_t)size * repeats, compressSeconds),
+           mbPerSecond((uint64_t)size * repeats, decompressSeconds),
+           ok ? "ok" : "MISMATCH", path);
+
+    free(data);
+    free(compressed);
+    free(restored);
+}
+
+/**
+ * Walk
+ */
+static void walk(const char* path) {
+#ifdef _WIN32
+    DWORD attributes = GetFileAttributesA(path);
+    if(attributes == INVALID_FILE_ATTRIBUTES) return;
+    if(!(attributes & FILE_ATTRIBUTE_DIRECTORY)) {
+        benchFile(path);
+        return;
+    }
+
+    char pattern[MAX_PATH];
+    snprintf(pattern, sizeof(pattern), "%s\\*", path);
+    WIN32_FIND_DATAA entry;
+    HANDLE find = FindFirstFileA(pattern, &entry);
+    if(find == INVALID_HANDLE_VALUE) return;
+    do {
+        if(strcmp(entry.cFileName, ".") == 0 || strcmp(entry.cFileName, "..") == 0) continue;
+        char child[MAX_PATH];
+        snprintf(child, sizeof(child), "%s\\%s", path, entry.cFileName);
+        walk(child);
+    } while(FindNextFileA(find, &entry));
+    FindClose(find);
+#else
+    struct stat info;
+    if(stat(path, &info) != 0) return;
+    if(!S_ISDIR(info.st_mode)) {
+        if(S_ISREG(info.st_mode)) benchFile(path);
+        return;
+    }
+
+    DIR* dir = opendir(path);
+    if(!dir) return;
+    struct dirent* entry;
+    while((entry = readdir(dir)) != NULL) {
+        if(strcmp(entry->d_name, ".") == 0 || strcmp(entry->d_name, "..") == 0) continue;
+        size_t length = strlen(path) + strlen(entry->d_name) + 2;
+        char* child = malloc(length);
+        if(!child) continue;
+        snprintf(child, length, "%s/%s", path, entry->d_name);
+        walk(child);
+        free(child);
+    }
+    closedir(dir);
+#endif
+}
+
+int main(int argc, char** argv) {
+    int paths = 0;
+    for(int i = 1; i < argc; i++) {
+        if(strcmp(argv[i], "-d") == 0 && i + 1 < argc) {
+            options.chainDepth = atoi(argv[++i]);
+        } else if(strcmp(argv[i], "-n") == 0 && i + 1 < argc) {
+            options.niceLength = atoi(argv[++i]);
+        } else if(strcmp(argv[i], "-l") == 0 && i + 1 < argc) {
+            options.lazy = atoi(argv[++i]);
+        } else if(strcmp(argv[i], "-r") == 0 && i + 1 < argc) {
+            repeats = atoi(argv[++i]);
+            if(repeats < 1) repeats = 1;
+        } else {
+            argv[++paths] = argv[i];
+        }
+    }
+    if(paths == 0) {
+        fprintf(stderr, "usage: %s [-d chainDepth] [-n niceLength] [-l 0|1] [-r repeats] <file|dir>...\n", argv[0]);
+        return 1;
+    }
+
+    printf("lz chainDepth=%d niceLength=%d lazy=%d repeats=%d\n\n",
+           options.chainDepth, options.niceLength, options.lazy, repeats);
+    for(int i = 1; i <= paths; i++) walk(argv[i]);
+
+    int failures = 0;
+    printf("\n%-6s %6s %14s %14s %8s %14s %14s\n",
+           "codec", "files", "input", "output", "ratio", "comp MB/s", "decomp MB/s");
+    for(int type = 0; type < CODEC_COUNT; type++) {
+        CodecTotals* codec = &totals[type];
+        if(codec->files == 0) continue;
+        failures += codec->failures;
+        printf("%-6s %6d %14llu %14llu %7.2f%% %14.1f %14.1f%s\n",
+               CODEC_NAMES[type], codec->files,
+               (unsigned long long)(codec->inputBytes / repeats),
+               (unsigned long long)(codec->outputBytes / repeats),
+               codec->inputBytes ? (double)codec->outputBytes / codec->inputBytes * 100.0 : 0,
+               mbPerSecond(codec->inputBytes, codec->compressSeconds),
+               mbPerSecond(codec->inputBytes, codec->decompressSeconds),
+               codec->failures ? "  FAILURES" : "");
+    }
+    return failures ? 2 : 0;
+}
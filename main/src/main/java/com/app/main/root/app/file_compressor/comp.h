@@ -7,7 +7,8 @@ typedef enum {
     COMP_RL,
     COMP_DELTA,
     COMP_SW,
-    COMP_BP
+    COMP_BP,
+    COMP_LZ
 } CompressionType;
 
 CompressionType detectBestCompression(const uint8_t* data, size_t size);
@@ -17,6 +18,12 @@ uint8_t* compress(
     size_t* outputSize, 
     CompressionType* usedType
 );
+uint8_t* compressAs(
+    CompressionType type,
+    const uint8_t* data,
+    size_t size,
+    size_t* outputSize
+);
 uint8_t* decompress(
     const uint8_t* data, 
     size_t size, 
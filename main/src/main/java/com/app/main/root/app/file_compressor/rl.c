@@ -13,8 +13,6 @@ uint8_t* rlCompress(const uint8_t* data, size_t size, size_t* outputSize) {
         return NULL;
     }
 
-    printf("DEBUG RL: Compressing %zu bytes\n", size);
-    
     uint8_t* outputBuffer = (uint8_t*)malloc(size * 2);
     if(!outputBuffer) {
         printf("ERROR RL: malloc failed for size: %zu\n", size * 2);
@@ -71,7 +69,6 @@ uint8_t* rlCompress(const uint8_t* data, size_t size, size_t* outputSize) {
         finalBuffer = outputBuffer;
     }
     
-    printf("DEBUG RL: Compressed %zu -> %zu bytes\n", size, outIdx);
     return finalBuffer ? finalBuffer : outputBuffer;
 }
 
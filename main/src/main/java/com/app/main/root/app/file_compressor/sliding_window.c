@@ -4,106 +4,332 @@
 #include <string.h>
 #include <stdint.h>
 
-Match findLongestMatch(
-    const uint8_t* window,
-    int windowPos,
-    const uint8_t* lookahead,
-    int lookaheadLen
-) {
-    Match best = { 0, 0, lookahead[0] };
-    int maxOffset = 
-        windowPos < WINDOW_SIZE ? 
-        windowPos : WINDOW_SIZE;
-    
-    for(int offset = 1; offset <= maxOffset; offset++) {
-        int matchLen = 0;
-        while(
-            matchLen < lookaheadLen &&
-            matchLen < LOOKAHEAD_SIZE &&
-            window[windowPos - offset + matchLen] == lookahead[matchLen]
-        ) {
-            matchLen++;
-        }
-        if(matchLen > best.length) {
-            best.offset = offset;
-            best.length = matchLen;
-            if(matchLen < lookaheadLen) {
-                best.next = lookahead[matchLen];
-            } else {
-                best.next = 0;
+#define LZ_HASH_SIZE (1 << LZ_HASH_BITS)
+#define LZ_WINDOW_MASK (LZ_WINDOW_SIZE - 1)
+#define LZ_SKIP_TRIGGER 6
+
+static const LzOptions DEFAULT_OPTIONS = {
+    LZ_DEFAULT_CHAIN_DEPTH,
+    1,
+    LZ_DEFAULT_NICE_LENGTH
+};
+
+typedef struct {
+    const uint8_t* data;
+    size_t size;
+    int32_t* head;
+    int32_t* prev;
+    size_t nextInsert;
+    int chainDepth;
+    size_t niceLength;
+} MatchFinder;
+
+static uint32_t hash4(const uint8_t* p) {
+    uint32_t v;
+    memcpy(&v, p, sizeof(v));
+    return (v * 2654435761u) >> (32 - LZ_HASH_BITS);
+}
+
+/**
+ * Insert every position below limit into the hash chains
+ */
+static void insertUpTo(MatchFinder* mf, size_t limit) {
+    if(limit + LZ_MIN_MATCH > mf->size) {
+        limit = mf->size >= LZ_MIN_MATCH ? mf->size - LZ_MIN_MATCH + 1 : 0;
+    }
+    while(mf->nextInsert < limit) {
+        size_t pos = mf->nextInsert++;
+        uint32_t h = hash4(mf->data + pos);
+        mf->prev[pos & LZ_WINDOW_MASK] = mf->head[h];
+        mf->head[h] = (int32_t)pos;
+    }
+}
+
+static size_t matchLength(const uint8_t* a, const uint8_t* b, size_t max) {
+    size_t len = 0;
+    while(len + 8 <= max && memcmp(a + len, b + len, 8) == 0) len += 8;
+    while(len < max && a[len] == b[len]) len++;
+    return len;
+}
+
+/**
+ * Find Match
+ *
+ * Walks the chain of earlier positions with the same hash, at most
+ * chainDepth of them, and keeps the longest match inside the window.
+ */
+static size_t findMatch(MatchFinder* mf, size_t pos, size_t* offset) {
+    insertUpTo(mf, pos);
+
+    size_t maxLen = mf->size - pos;
+    if(maxLen < LZ_MIN_MATCH) return 0;
+
+    const uint8_t* current = mf->data + pos;
+    size_t best = LZ_MIN_MATCH - 1;
+    int32_t candidate = mf->head[hash4(current)];
+    int depth = mf->chainDepth;
+
+    while(candidate >= 0 && depth-- > 0) {
+        size_t distance = pos - (size_t)candidate;
+        if(distance > LZ_MAX_OFFSET) break;
+
+        const uint8_t* match = mf->data + candidate;
+        if(match[best] == current[best]) {
+            size_t len = matchLength(match, current, maxLen);
+            if(len > best) {
+                best = len;
+                *offset = distance;
+                if(len >= mf->niceLength || len == maxLen) break;
             }
         }
+
+        int32_t next = mf->prev[candidate & LZ_WINDOW_MASK];
+        if(next >= candidate) break;
+        candidate = next;
     }
 
-    return best;
+    return best >= LZ_MIN_MATCH ? best : 0;
+}
+
+static uint8_t* writeLength(uint8_t* op, size_t len) {
+    while(len >= 255) {
+        *op++ = 255;
+        len -= 255;
+    }
+    *op++ = (uint8_t)len;
+    return op;
+}
+
+/**
+ * Emit one sequence, matchLen 0 for the closing literal run. Returns
+ * NULL when it would not fit.
+ */
+static uint8_t* writeSequence(
+    uint8_t* op,
+    const uint8_t* outputEnd,
+    const uint8_t* literals,
+    size_t literalLen,
+    size_t matchLen,
+    size_t offset
+) {
+    size_t need = 1 + literalLen + literalLen / 255 + 1;
+    if(matchLen) need += 2 + matchLen / 255 + 1;
+    if((size_t)(outputEnd - op) < need) return NULL;
+
+    size_t matchCode = matchLen ? matchLen - LZ_MIN_MATCH : 0;
+    uint8_t* token = op++;
+    *token = (uint8_t)(((literalLen < 15 ? literalLen : 15) << 4) | (matchCode < 15 ? matchCode : 15));
+
+    if(literalLen >= 15) op = writeLength(op, literalLen - 15);
+    memcpy(op, literals, literalLen);
+    op += literalLen;
+    if(!matchLen) return op;
+
+    *op++ = (uint8_t)(offset & 0xFF);
+    *op++ = (uint8_t)(offset >> 8);
+    if(matchCode >= 15) op = writeLength(op, matchCode - 15);
+    return op;
+}
+
+/**
+ * Bound
+ *
+ * Largest output lzCompress can produce for size input bytes.
+ */
+size_t lzBound(size_t size) {
+    return LZ_HEADER_SIZE + size + size / 255 + 16;
 }
 
 /**
  * Compress
  */
-uint8_t* swCompress(
+uint8_t* lzCompress(
     const uint8_t* data,
     size_t size,
-    size_t* outputSize
+    size_t* outputSize,
+    const LzOptions* options
 ) {
-    if(size == 0) {
-        *outputSize = 0;
+    *outputSize = 0;
+    if(size == 0 || size > INT32_MAX) return NULL;
+    if(!options) options = &DEFAULT_OPTIONS;
+
+    size_t capacity = lzBound(size);
+    uint8_t* output = malloc(capacity);
+    MatchFinder mf;
+    mf.data = data;
+    mf.size = size;
+    mf.head = malloc(LZ_HASH_SIZE * sizeof(int32_t));
+    mf.prev = malloc(LZ_WINDOW_SIZE * sizeof(int32_t));
+    mf.nextInsert = 0;
+    mf.chainDepth = options->chainDepth > 0 ? options->chainDepth : 1;
+    mf.niceLength = options->niceLength > LZ_MIN_MATCH ? (size_t)options->niceLength : LZ_DEFAULT_NICE_LENGTH;
+    if(!output || !mf.head || !mf.prev) {
+        free(output);
+        free(mf.head);
+        free(mf.prev);
         return NULL;
     }
+    memset(mf.head, 0xFF, LZ_HASH_SIZE * sizeof(int32_t));
 
-    uint8_t* outputBuffer = malloc(size * 2);
-    size_t outIdx = 0;
+    const uint8_t* outputEnd = output + capacity;
+    uint8_t* op = output;
+    *op++ = (uint8_t)(size & 0xFF);
+    *op++ = (uint8_t)((size >> 8) & 0xFF);
+    *op++ = (uint8_t)((size >> 16) & 0xFF);
+    *op++ = (uint8_t)((size >> 24) & 0xFF);
 
-    uint8_t window[WINDOW_SIZE] = {0};
-    int windowPos = 0;
+    size_t anchor = 0;
+    size_t pos = 0;
+    size_t misses = 0;
+    while(op && pos + LZ_MIN_MATCH <= size) {
+        size_t offset = 0;
+        size_t len = findMatch(&mf, pos, &offset);
+        if(!len) {
+            /* step faster through data that keeps missing */
+            size_t step = 1 + (misses++ >> LZ_SKIP_TRIGGER);
+            if(step > 1) {
+                insertUpTo(&mf, pos + 1);
+                if(mf.nextInsert < pos + step) mf.nextInsert = pos + step;
+            }
+            pos += step;
+            continue;
+        }
+        misses = 0;
 
-    size_t i = 0;
-    while(i < size) {
-        int lookaheadLen = size - i;
-        if(lookaheadLen > LOOKAHEAD_SIZE) {
-            lookaheadLen = LOOKAHEAD_SIZE;
+        /* lazy: take a literal if the next position matches longer */
+        while(options->lazy && len < mf.niceLength && pos + 1 + LZ_MIN_MATCH <= size) {
+            size_t nextOffset = 0;
+            size_t nextLen = findMatch(&mf, pos + 1, &nextOffset);
+            if(nextLen <= len) break;
+            pos++;
+            len = nextLen;
+            offset = nextOffset;
         }
 
-        Match match = findLongestMatch(
-            window,
-            windowPos,
-            data + i,
-            lookaheadLen
-        );
-        if(match.length > 2) {
-            outputBuffer[outIdx++] = 0xFE;
-            outputBuffer[outIdx++] = (match.offset >> 8) & 0xFF;
-            outputBuffer[outIdx++] = match.offset & 0xFF;
-            outputBuffer[outIdx++] = match.length;
-            outputBuffer[outIdx++] = match.next;
-
-            for(int j = 0; j < match.length + 1; j++) {
-                window[windowPos] = data[i + j];
-                windowPos = (windowPos + 1) % WINDOW_SIZE;
-            }
+        op = writeSequence(op, outputEnd, data + anchor, pos - anchor, len, offset);
+        pos += len;
+        anchor = pos;
+    }
+    if(op) op = writeSequence(op, outputEnd, data + anchor, size - anchor, 0, 0);
+
+    free(mf.head);
+    free(mf.prev);
+    if(!op) {
+        free(output);
+        return NULL;
+    }
+
+    *outputSize = (size_t)(op - output);
+    return output;
+}
+
+static int readLength(const uint8_t** ip, const uint8_t* inputEnd, size_t* len) {
+    uint8_t b;
+    do {
+        if(*ip >= inputEnd) return 0;
+        b = *(*ip)++;
+        *len += b;
+    } while(b == 255);
+    return 1;
+}
+
+/**
+ * Decompress
+ *
+ * Every length and offset is checked against the input and the
+ * output size from the header, malformed data returns NULL.
+ */
+uint8_t* lzDecompress(
+    const uint8_t* data,
+    size_t size,
+    size_t* outputSize
+) {
+    *outputSize = 0;
+    if(size < LZ_HEADER_SIZE + 1) return NULL;
+
+    size_t originalSize =
+        (size_t)data[0] |
+        ((size_t)data[1] << 8) |
+        ((size_t)data[2] << 16) |
+        ((size_t)data[3] << 24);
+    if(originalSize > INT32_MAX) return NULL;
+
+    uint8_t* output = malloc(originalSize > 0 ? originalSize : 1);
+    if(!output) return NULL;
 
-            i += match.length + 1;
+    const uint8_t* ip = data + LZ_HEADER_SIZE;
+    const uint8_t* inputEnd = data + size;
+    uint8_t* op = output;
+    uint8_t* outputEnd = output + originalSize;
+
+    while(1) {
+        if(ip >= inputEnd) goto fail;
+        uint8_t token = *ip++;
+
+        size_t literalLen = token >> 4;
+        if(literalLen == 15 && !readLength(&ip, inputEnd, &literalLen)) goto fail;
+        if(literalLen > (size_t)(inputEnd - ip) || literalLen > (size_t)(outputEnd - op)) goto fail;
+        memcpy(op, ip, literalLen);
+        ip += literalLen;
+        op += literalLen;
+        if(ip == inputEnd) break;
+
+        if(inputEnd - ip < 2) goto fail;
+        size_t offset = (size_t)ip[0] | ((size_t)ip[1] << 8);
+        ip += 2;
+        if(offset == 0 || offset > (size_t)(op - output)) goto fail;
+
+        size_t matchLen = token & 0x0F;
+        if(matchLen == 15 && !readLength(&ip, inputEnd, &matchLen)) goto fail;
+        matchLen += LZ_MIN_MATCH;
+        if(matchLen > (size_t)(outputEnd - op)) goto fail;
+
+        const uint8_t* match = op - offset;
+        if(offset >= matchLen) {
+            memcpy(op, match, matchLen);
+            op += matchLen;
         } else {
-            outputBuffer[outIdx++] = data[i];
-            window[windowPos] = data[i];
-            windowPos = (windowPos + 1) % WINDOW_SIZE;
-            i++;
+            for(size_t i = 0; i < matchLen; i++) *op++ = *match++;
         }
     }
+    if(op != outputEnd) goto fail;
 
-    *outputSize = outIdx;
-    return outputBuffer;
+    *outputSize = originalSize;
+    return output;
+
+fail:
+    free(output);
+    return NULL;
 }
 
 /**
- * Decompress
+ * Legacy Decompress
+ *
+ * Stored COMP_SW data: a 0xFE byte followed by offset, length and next
+ * byte is a match, anything else a literal. The output is sized in a
+ * first pass so no token can write past it.
  */
 uint8_t* swDecompress(
     const uint8_t* data,
     size_t size,
     size_t* outputSize
 ) {
-    uint8_t* outputBuffer = malloc(size * 10);
+    *outputSize = 0;
+    if(size == 0) return NULL;
+
+    size_t total = 0;
+    for(size_t i = 0; i < size;) {
+        if(data[i] == 0xFE && i + 4 < size) {
+            total += data[i+3] + (data[i+4] != 0 ? 1 : 0);
+            i += 5;
+        } else {
+            total++;
+            i++;
+        }
+    }
+
+    uint8_t* outputBuffer = malloc(total > 0 ? total : 1);
+    if(!outputBuffer) return NULL;
     size_t outIdx = 0;
 
     uint8_t window[WINDOW_SIZE] = {0};
@@ -114,7 +340,7 @@ uint8_t* swDecompress(
         if(data[i] == 0xFE && i + 4 < size) {
             uint16_t offset = (data[i+1] << 8) | data[i+2];
             uint8_t length = data[i+3];
-            uint8_t nextChair = data[i+4];
+            uint8_t nextChar = data[i+4];
 
             for(int j = 0; j < length; j++) {
                 int srcPos = (windowPos - offset + j) % WINDOW_SIZE;
@@ -126,10 +352,9 @@ uint8_t* swDecompress(
                 outIdx++;
             }
 
-            if(nextChair != 0) {
-                outputBuffer[outIdx] = nextChair;
-                window[windowPos] = nextChair;
-                window[windowPos] = nextChair;
+            if(nextChar != 0) {
+                outputBuffer[outIdx] = nextChar;
+                window[windowPos] = nextChar;
                 windowPos = (windowPos + 1) % WINDOW_SIZE;
                 outIdx++;
             }
@@ -146,4 +371,4 @@ uint8_t* swDecompress(
 
     *outputSize = outIdx;
     return outputBuffer;
-}
\ No newline at end of file
+}
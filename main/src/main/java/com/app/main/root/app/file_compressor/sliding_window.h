@@ -2,29 +2,52 @@
 #include <stdint.h>
 #include <stddef.h>
 
+/*
+ * Legacy sliding window format (COMP_SW), decode only
+ */
 #define WINDOW_SIZE 4096
 #define LOOKAHEAD_SIZE 18
 
+uint8_t* swDecompress(
+    const uint8_t* data,
+    size_t size,
+    size_t* outputSize
+);
+
+/*
+ * Hash chain LZ77 format (COMP_LZ)
+ *
+ * uint32 original size (little endian), then sequences of
+ * token | [literal length bytes] | literals | offset | [match length bytes]
+ * The token holds the literal length in its high nibble and the match
+ * length minus LZ_MIN_MATCH in its low nibble, 15 means more length
+ * bytes follow (255 = keep adding). Offsets are two bytes little
+ * endian. The last sequence has literals only and ends the input.
+ */
+#define LZ_WINDOW_SIZE 65536
+#define LZ_MAX_OFFSET (LZ_WINDOW_SIZE - 1)
+#define LZ_MIN_MATCH 4
+#define LZ_HASH_BITS 15
+#define LZ_HEADER_SIZE 4
+
 typedef struct {
-    uint16_t offset;
-    uint16_t length;
-    uint8_t next;
-} Match;
+    int chainDepth;
+    int lazy;
+    int niceLength;
+} LzOptions;
 
+#define LZ_DEFAULT_CHAIN_DEPTH 32
+#define LZ_DEFAULT_NICE_LENGTH 128
 
-Match findLongestMatch(
-    const uint8_t* window, 
-    int windowPos,
-    const uint8_t* lookahead, 
-    int lookaheadLen
+size_t lzBound(size_t size);
+uint8_t* lzCompress(
+    const uint8_t* data,
+    size_t size,
+    size_t* outputSize,
+    const LzOptions* options
 );
-uint8_t* swCompress(
-    const uint8_t* data, 
-    size_t size, 
+uint8_t* lzDecompress(
+    const uint8_t* data,
+    size_t size,
     size_t* outputSize
 );
-uint8_t* swDecompress(
-    const uint8_t* data, 
-    size_t size, 
-    size_t* outputSize
-);
\ No newline at end of file
@@ -647,7 +647,7 @@ export class ChatService {
             this, 
         {
             destination: '/app/stream-user-chats',
-            payload: { userId, page, pageSize },
+            payload: { userId, page, pageSize, batch: true },
             succssDestination: '/queue/user-chats-stream',
             errDestination: '/queue/user-chats-stream-err'
         });
@@ -659,21 +659,26 @@ export class ChatService {
         page: number = 0,
         pageSize: number = 20,
         includeFiles: boolean = true,
-        includeMessages: boolean = true
+        includeMessages: boolean = true,
+        cursor?: string | null
     ): Promise<EventStream> {
+        const payload: any = { 
+            chatId, 
+            userId, 
+            page, 
+            pageSize,
+            includeFiles,
+            includeMessages,
+            batch: true
+        };
+        if(cursor !== undefined) payload.cursor = cursor;
+
         return new EventStream(
             this.socketClientConnect,
             this,  
         {
             destination: '/app/stream-chat-data',
-            payload: { 
-                chatId, 
-                userId, 
-                page, 
-                pageSize,
-                includeFiles,
-                includeMessages 
-            },
+            payload,
             succssDestination: '/queue/chat-data-stream',
             errDestination: '/queue/chat-data-stream-err'
         });
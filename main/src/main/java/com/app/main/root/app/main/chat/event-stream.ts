@@ -16,6 +16,7 @@ export class EventStream {
     private messageHandlers: Map<string, Function[]> = new Map();
     private isComplete: boolean = false;
     private isStarted: boolean = false;
+    private nextSeq: number = 0;
 
     constructor(
         socketClientConnect: SocketClientConnect, 
@@ -108,6 +109,14 @@ export class EventStream {
                 return;
             }
 
+            if(typeof data.seq === 'number') {
+                if(data.seq !== this.nextSeq) {
+                    console.warn(`Stream frame out of order: expected ${this.nextSeq}, got ${data.seq}`);
+                    this.emit('sequence-gap', { expected: this.nextSeq, received: data.seq });
+                }
+                this.nextSeq = data.seq + 1;
+            }
+
             if(data.type === 'STREAM_COMPLETE') {
                 this.isComplete = true;
                 this.emit('complete', data);
@@ -115,18 +124,13 @@ export class EventStream {
                 return;
             }
 
-            try {
-                const processedData = await this.processData(data);
-                
-                const eventType = data.type && typeof data.type === 'string' 
-                    ? data.type.toLowerCase() 
-                    : 'unknown';
-                    
-                this.emit(eventType, processedData);
-            } catch(err) {
-                console.error('Failed to process stream data:', err);
-                this.emit('processing-error', { original: data, error: err });
+            const batch = this.unbatch(data);
+            if(batch) {
+                for(const item of batch) await this.dispatch(item);
+                return;
             }
+
+            await this.dispatch(data);
         });
         
         this.socketClientConnect.onDestination(this.config.errDestination, (err: any) => {
@@ -135,6 +139,41 @@ export class EventStream {
         });
     }
 
+    /**
+     * Unbatch
+     * 
+     * Batched frames are split back into the single item events,
+     * so handlers see the same shape in both modes.
+     */
+    private unbatch(data: any): any[] | null {
+        const { type, seq, count, chats, messages, files, ...fields } = data;
+        switch(type) {
+            case 'CHAT_BATCH':
+                return (chats || []).map((chat: any) => ({ ...fields, type: 'CHAT_DATA', chat }));
+            case 'MESSAGE_BATCH':
+                return (messages || []).map((message: any) => ({ ...fields, type: 'MESSAGE_DATA', message }));
+            case 'FILE_BATCH':
+                return (files || []).map((file: any) => ({ ...fields, type: 'FILE_DATA', file }));
+            default:
+                return null;
+        }
+    }
+
+    private async dispatch(data: any): Promise<void> {
+        try {
+            const processedData = await this.processData(data);
+            
+            const eventType = data.type && typeof data.type === 'string' 
+                ? data.type.toLowerCase() 
+                : 'unknown';
+                
+            this.emit(eventType, processedData);
+        } catch(err) {
+            console.error('Failed to process stream data:', err);
+            this.emit('processing-error', { original: data, error: err });
+        }
+    }
+
     /**
      * 
      * Process Data
@@ -2,11 +2,18 @@ package com.app.main.root.app.main.chat.messages;
 import com.app.main.root.app._db.CommandQueryManager;
 import com.app.main.root.app._db.DataSourceService;
 import com.app.main.root.app.main.chat.messages.MessageLog.*;
+import com.app.main.root.app.utils.LogRingBuffer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -18,8 +25,26 @@ import java.util.*;
 public class MessageTracker {
     private static MessageTracker instance;
     @Lazy @Autowired private DataSourceService dataSourceService;
-    private final List<MessageLog> logs = new CopyOnWriteArrayList<>();
-    private final int maxMessages = 5000;
+    private LogRingBuffer<MessageLog> logs;
+    private final List<Consumer<MessageLog>> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder sampledOut = new LongAdder();
+
+    @Value("${app.tracker.messages.capacity:8192}")
+    private int maxMessages;
+
+    @Value("${app.tracker.messages.sampleRate:1.0}")
+    private double sampleRate;
+
+    @PostConstruct
+    public void init() {
+        this.logs = new LogRingBuffer<>(maxMessages);
+        this.logs.startDrain("message-tracker-drain", this::emitMessage);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        logs.stopDrain();
+    }
 
     private Connection getConnection() throws SQLException {
         return dataSourceService.setDb("message_service").getConnection();
@@ -34,6 +59,11 @@ public class MessageTracker {
         MessageType messageType,
         MessageDirection direction
     ) {
+        if(sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            return;
+        }
+
         try {
             Date timetamp = new Date();
     
@@ -49,21 +79,44 @@ public class MessageTracker {
             );
 
             logs.add(messageLog);
-            if(logs.size() > maxMessages) {
-                synchronized(logs) {
-                    if(logs.size() > maxMessages) {
-                        int excess = logs.size() - maxMessages;
-                        logs.subList(0, excess).clear();
-                    }
-                }
-            }
-    
             //logMessageToConsole(messageLog);
         } catch(Exception err) {
             throw new RuntimeException("Failed to save message to db!", err);
         }
     }
 
+    /**
+     * Logs
+     */
+    public List<MessageLog> getRecentMessages() {
+        return logs.snapshot();
+    }
+
+    public List<MessageLog> getRecentMessagesByChat(String chatId) {
+        return logs.filter(log -> chatId.equals(log.getChatId()));
+    }
+
+    /**
+     * Listeners
+     */
+    public void addListener(Consumer<MessageLog> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<MessageLog> listener) {
+        listeners.remove(listener);
+    }
+
+    private void emitMessage(MessageLog log) {
+        for(Consumer<MessageLog> listener : listeners) {
+            try {
+                listener.accept(log);
+            } catch(Exception err) {
+                System.err.println("Error in message listener: " + err.getMessage());
+            }
+        }
+    }
+
     /**
      * Count
      */
@@ -112,6 +165,9 @@ public class MessageTracker {
         stats.put("total", getCountFromQuery(totalCount));
         stats.put("direct", getCountFromQuery(directCount));
         stats.put("group", getCountFromQuery(groupCount));
+        stats.put("tracked", logs.getTotalAdded());
+        stats.put("sampledOut", sampledOut.sum());
+        stats.put("buffered", (long) logs.size());
         return stats;
     }
 
@@ -186,6 +186,25 @@ export class MessageServiceClient {
         return res.json();
     }
 
+    /**
+     * Get Message History
+     */
+    public async getMessageHistory(
+        chatId: string,
+        before: string | null = null,
+        limit: number = 20
+    ): Promise<any> {
+        const cursor = before ? `&before=${encodeURIComponent(before)}` : '';
+        const res = await fetch(
+            `${this.url}/api/message/messages/chatId/${chatId}/history?limit=${limit}${cursor}`,
+            {
+                credentials: 'include'
+            }
+        );
+        if(!res.ok) throw new Error('Failed to fetch message history');
+        return res.json();
+    }
+
     /**
      * Get Messages By User Id
      */
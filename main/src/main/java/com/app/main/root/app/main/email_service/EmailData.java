@@ -25,7 +25,7 @@ public class EmailData {
             context.put("webUrl", EmailService.WEB_URL_SRC);
     
             String body = emailDocumentParser.render("welcome-email", context);
-            emailService.sendEmail(toEmail, body);
+            emailService.queueEmail(toEmail, body);
         } catch(Exception err) {
             System.err.println("Welcome Email err." + err.getMessage());
             err.printStackTrace();
@@ -45,7 +45,7 @@ public class EmailData {
             context.put("supportUrl", EmailService.WEB_URL_SRC + "/support");
             
             String body = emailDocumentParser.render("password-reset", context);
-            emailService.sendEmail(toEmail, body);
+            emailService.queueEmail(toEmail, body);
         } catch(Exception err) {
             System.err.println("Password Reset Email error: " + err.getMessage());
             err.printStackTrace();
@@ -66,7 +66,7 @@ public class EmailData {
             context.put("securityUrl", EmailService.WEB_URL_SRC + "/security");
             
             String body = emailDocumentParser.render("password-changed", context);
-            emailService.sendEmail(toEmail, body);
+            emailService.queueEmail(toEmail, body);
         } catch(Exception err) {
             System.err.println("Welcome Email err." + err.getMessage());
             err.printStackTrace();
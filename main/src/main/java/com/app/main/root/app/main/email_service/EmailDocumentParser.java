@@ -1,7 +1,10 @@
 package com.app.main.root.app.main.email_service;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.xpath.XPath;
@@ -9,18 +12,33 @@ import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathException;
 import javax.xml.xpath.XPathFactory;
 import org.w3c.dom.*;
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.*;
 import java.util.*;
 
+/**
+ * Email Document Parser
+ *
+ * Each XML template is parsed and walked once, at startup or on first
+ * use, into an EmailTemplate. A render is then a fill of the cached
+ * segments. Templates loaded from a directory are compiled again when
+ * their file changes.
+ */
 @Component
 public class EmailDocumentParser {
+    private static final String TEMPLATE_PATH = "com/app/main/root/app/main/email_service/";
+
     private final XPath xPath;
-    private final Map<String, Document> templateCache = new ConcurrentHashMap<>();
+    private final Map<String, EmailTemplate> templateCache = new ConcurrentHashMap<>();
     private final Map<String, ElementRenderer> elementRenderers;
-    
+
+    @Value("${app.email.template.reloadCheckMs:2000}")
+    private long reloadCheckMs = 2000;
+
     public EmailDocumentParser() {
         this.xPath = XPathFactory.newInstance().newXPath();
-        this.elementRenderers = new HashMap<>();
+        this.elementRenderers = new ConcurrentHashMap<>();
     }
 
     @FunctionalInterface
@@ -32,23 +50,132 @@ public class EmailDocumentParser {
         );
     }
 
+    /**
+     * Preload
+     */
+    @PostConstruct
+    public void preload() {
+        try {
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+            for(Resource resource : resolver.getResources("classpath*:" + TEMPLATE_PATH + "*.xml")) {
+                String fileName = resource.getFilename();
+                if(fileName == null) continue;
+                String name = fileName.substring(0, fileName.length() - ".xml".length());
+                try {
+                    templateCache.put(name, compile(name));
+                } catch(Exception err) {
+                    System.err.println("Email template " + name + " failed to compile: " + err.getMessage());
+                }
+            }
+            System.out.println("Email templates compiled: " + templateCache.size());
+        } catch(IOException err) {
+            System.err.println("Email template scan failed: " + err.getMessage());
+        }
+    }
+
     public String render(String name, Map<String, Object> context) {
         try {
-            Document content = load(name);
+            return getTemplate(name).render(context, this);
+        } catch(Exception err) {
+            throw new RuntimeException("Template rendering failed" + name, err);
+        }
+    }
+
+    /**
+     * Render Uncached
+     *
+     * Parses and walks the document on every call, kept as the
+     * reference the compiled templates are checked against.
+     */
+    String renderUncached(String name, Map<String, Object> context) {
+        try {
+            Document content = parse(new ClassPathResource(TEMPLATE_PATH + name + ".xml"));
             return getDocument(content, context);
         } catch(Exception err) {
             throw new RuntimeException("Template rendering failed" + name, err);
         }
     }
 
-    private Document load(String name) throws Exception {
-        String resourcePath = "com/app/main/root/app/main/email_service/" + name + ".xml";
-        Resource resource = new ClassPathResource(resourcePath);
+    private EmailTemplate getTemplate(String name) throws Exception {
+        EmailTemplate template = templateCache.get(name);
+        if(template == null || template.isStale(System.currentTimeMillis(), reloadCheckMs)) {
+            template = compile(name);
+            templateCache.put(name, template);
+        }
+        return template;
+    }
+
+    private Document parse(Resource resource) throws Exception {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder builder = factory.newDocumentBuilder();
         return builder.parse(resource.getInputStream());
     }
 
+    /**
+     * Compile
+     *
+     * Runs the XPath selections once and walks the layout into literal
+     * and placeholder segments. The shared XPath is not thread safe,
+     * so compiles are serialized, they only happen on load and reload.
+     */
+    private synchronized EmailTemplate compile(String name) throws Exception {
+        Resource resource = new ClassPathResource(TEMPLATE_PATH + name + ".xml");
+        File source = null;
+        long lastModified = 0;
+        if(resource.isFile()) {
+            source = resource.getFile();
+            lastModified = source.lastModified();
+        }
+
+        Document doc = parse(resource);
+        String rootElementName = doc.getDocumentElement().getNodeName();
+        String subject = (String) xPath.evaluate("/" + rootElementName + "/content/subject/text()", doc, XPathConstants.STRING);
+        String preheader = (String) xPath.evaluate("/" + rootElementName + "/content/preheader/text()", doc, XPathConstants.STRING);
+        Node layoutNode = (Node) xPath.evaluate("/" + rootElementName + "/content/layout", doc, XPathConstants.NODE);
+
+        EmailTemplate.Builder builder = new EmailTemplate.Builder()
+            .literal("<html><head><title>")
+            .text(subject)
+            .literal("</title></head><body><div class='preheader'>")
+            .text(preheader)
+            .literal("</div>");
+        if(layoutNode != null) compileElement((Element) layoutNode, builder);
+        builder.literal("</body></html>");
+        return builder.build(source, lastModified);
+    }
+
+    private void compileElement(Element element, EmailTemplate.Builder builder) {
+        String tagName = element.getTagName();
+        if(elementRenderers.containsKey(tagName)) {
+            builder.element(element);
+            return;
+        }
+
+        builder.literal("<").literal(tagName);
+        boolean hasClass = false;
+        NamedNodeMap attrs = element.getAttributes();
+        for(int i = 0; i < attrs.getLength(); i++) {
+            Node attr = attrs.item(i);
+            String attrName = attr.getNodeName();
+            String value = attr.getNodeValue();
+            if(attrName.endsWith("class") || value.contains("class=")) hasClass = true;
+            builder.literal(" ").literal(attrName).literal("=\"").text(value).literal("\"");
+        }
+        if(!hasClass) builder.literal(" class=\"").literal(tagName).literal("\"");
+        builder.literal(">");
+
+        NodeList children = element.getChildNodes();
+        for(int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if(child.getNodeType() == Node.ELEMENT_NODE) {
+                compileElement((Element) child, builder);
+            } else if(child.getNodeType() == Node.TEXT_NODE) {
+                builder.text(child.getTextContent());
+            }
+        }
+        builder.literal("</").literal(tagName).literal(">");
+    }
+
     private String getDocument(Document doc, Map<String, Object> context) throws XPathException {
         String rootElementName = doc.getDocumentElement().getNodeName();
 
@@ -131,10 +258,17 @@ public class EmailDocumentParser {
         return value.isEmpty() ? defaultValue : value;
     }
     
+    /**
+     * Register Renderer
+     *
+     * Compiled templates inline every element they saw without a
+     * renderer, so they are dropped and compiled again on next use.
+     */
     public void registerRenderer(String elementName, ElementRenderer renderer) {
         elementRenderers.put(elementName, renderer);
+        templateCache.clear();
     }
-    
+
     public void clearCache() {
         templateCache.clear();
     }
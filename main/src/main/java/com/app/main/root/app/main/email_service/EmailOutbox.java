@@ -0,0 +1,404 @@
+package com.app.main.root.app.main.email_service;
+import com.app.main.root.app._db.CommandQueryManager;
+import com.app.main.root.app._db.DataSourceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durable queue in front of mail delivery. Callers write a row to the
+ * email_outbox table and return, a dispatcher thread claims due rows
+ * and hands them to a fixed set of senders. A failed send is retried
+ * with exponential backoff until maxAttempts, then left as 'failed'.
+ * Sent rows are deleted. A claim holds a row for leaseMs; a row still
+ * in 'sending' after that, because a status update never landed or a
+ * crash, goes back to 'pending'. A mail may be sent twice but is never
+ * lost.
+ */
+@Component
+public class EmailOutbox {
+    private static final String DB = "email_outbox";
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final int UPDATE_ATTEMPTS = 3;
+
+    /**
+     * Sender
+     */
+    @FunctionalInterface
+    public interface Sender {
+        void send(String toEmail, String subject, String body) throws Exception;
+    }
+
+    private final DataSourceService dataSourceService;
+    private final Sender sender;
+    private final int threads;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final long pollMs;
+    private final long leaseMs;
+
+    private final Semaphore idleSenders;
+    private final Object signal = new Object();
+    private boolean wakeup = false;
+    private volatile boolean running = false;
+    private ExecutorService senders;
+    private Thread dispatcher;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder requeued = new LongAdder();
+    private final LongAdder sendMillis = new LongAdder();
+    private final LongAdder queueMillis = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public EmailOutbox(
+        DataSourceService dataSourceService,
+        @Lazy EmailService emailService,
+        @Value("${app.email.outbox.threads:2}") int threads,
+        @Value("${app.email.outbox.maxAttempts:8}") int maxAttempts,
+        @Value("${app.email.outbox.baseBackoffMs:5000}") long baseBackoffMs,
+        @Value("${app.email.outbox.maxBackoffMs:3600000}") long maxBackoffMs,
+        @Value("${app.email.outbox.pollMs:1000}") long pollMs,
+        @Value("${app.email.outbox.leaseMs:300000}") long leaseMs
+    ) {
+        this(
+            dataSourceService,
+            emailService::deliver,
+            threads,
+            maxAttempts,
+            baseBackoffMs,
+            maxBackoffMs,
+            pollMs,
+            leaseMs
+        );
+    }
+
+    public EmailOutbox(
+        DataSourceService dataSourceService,
+        Sender sender,
+        int threads,
+        int maxAttempts,
+        long baseBackoffMs,
+        long maxBackoffMs,
+        long pollMs,
+        long leaseMs
+    ) {
+        this.dataSourceService = dataSourceService;
+        this.sender = sender;
+        this.threads = Math.max(1, threads);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMs = Math.max(1, baseBackoffMs);
+        this.maxBackoffMs = Math.max(this.baseBackoffMs, maxBackoffMs);
+        this.pollMs = Math.max(10, pollMs);
+        this.leaseMs = Math.max(this.pollMs, leaseMs);
+        this.idleSenders = new Semaphore(this.threads);
+    }
+
+    private Connection getConnection() throws SQLException {
+        return dataSourceService.setDb(DB).getConnection();
+    }
+
+    @PostConstruct
+    public void start() {
+        try(
+            Connection conn = getConnection();
+            Statement stmt = conn.createStatement();
+        ) {
+            stmt.execute(CommandQueryManager.EXEC_CREATE_EMAIL_OUTBOX.get());
+            stmt.execute(CommandQueryManager.EXEC_INDEX_EMAIL_OUTBOX_DUE.get());
+            int reset = stmt.executeUpdate(CommandQueryManager.RESET_SENDING_OUTBOX_EMAILS.get());
+            if(reset > 0) System.out.println("Email outbox: " + reset + " interrupted sends requeued");
+        } catch(SQLException err) {
+            err.printStackTrace();
+            System.err.println("Email outbox table error");
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "email-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        dispatcher = new Thread(this::dispatch, "email-outbox");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        wake();
+        if(senders != null) {
+            try {
+                dispatcher.join(pollMs + 1000);
+                senders.shutdown();
+                senders.awaitTermination(10, TimeUnit.SECONDS);
+            } catch(InterruptedException err) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Enqueue
+     *
+     * One insert on the caller's thread, delivery happens later.
+     */
+    public long enqueue(String toEmail, String subject, String body) throws SQLException {
+        long now = System.currentTimeMillis();
+        String query = CommandQueryManager.INSERT_OUTBOX_EMAIL.get();
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+        ) {
+            stmt.setString(1, toEmail);
+            stmt.setString(2, subject);
+            stmt.setString(3, body);
+            stmt.setLong(4, now);
+            stmt.setLong(5, now);
+            stmt.executeUpdate();
+
+            enqueued.increment();
+            wake();
+            try(ResultSet rs = stmt.getGeneratedKeys()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    private void wake() {
+        synchronized(signal) {
+            wakeup = true;
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Dispatch
+     *
+     * Requeues rows whose lease ran out, claims as many due rows as
+     * there are idle senders, then sleeps until an enqueue, a finished
+     * send or the poll interval.
+     */
+    private void dispatch() {
+        while(running) {
+            try {
+                requeueExpired();
+                int free = idleSenders.availablePermits();
+                if(free > 0) {
+                    for(Email email : claimDue(free)) {
+                        idleSenders.acquire();
+                        inFlight.incrementAndGet();
+                        senders.execute(() -> send(email));
+                    }
+                }
+                synchronized(signal) {
+                    if(!wakeup && running) signal.wait(pollMs);
+                    wakeup = false;
+                }
+            } catch(InterruptedException err) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch(Exception err) {
+                System.err.println("Email outbox dispatch error: " + err.getMessage());
+                try {
+                    Thread.sleep(pollMs);
+                } catch(InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void requeueExpired() throws SQLException {
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.REQUEUE_EXPIRED_OUTBOX_EMAILS.get());
+        ) {
+            stmt.setLong(1, System.currentTimeMillis());
+            int count = stmt.executeUpdate();
+            if(count > 0) {
+                requeued.add(count);
+                System.err.println("Email outbox: " + count + " expired claims requeued");
+            }
+        }
+    }
+
+    private List<Email> claimDue(int limit) throws SQLException {
+        List<Email> claimed = new ArrayList<>();
+        try(Connection conn = getConnection()) {
+            List<Email> due = new ArrayList<>();
+            try(PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.GET_DUE_OUTBOX_EMAILS.get())) {
+                stmt.setLong(1, System.currentTimeMillis());
+                stmt.setInt(2, limit);
+                try(ResultSet rs = stmt.executeQuery()) {
+                    while(rs.next()) {
+                        due.add(new Email(
+                            rs.getLong("id"),
+                            rs.getString("to_email"),
+                            rs.getString("subject"),
+                            rs.getString("body"),
+                            rs.getInt("attempts"),
+                            rs.getLong("created_at")
+                        ));
+                    }
+                }
+            }
+            try(PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.CLAIM_OUTBOX_EMAIL.get())) {
+                for(Email email : due) {
+                    stmt.setLong(1, System.currentTimeMillis() + leaseMs);
+                    stmt.setLong(2, email.id);
+                    if(stmt.executeUpdate() == 1) claimed.add(email);
+                }
+            }
+        }
+        return claimed;
+    }
+
+    private void send(Email email) {
+        long start = System.currentTimeMillis();
+        try {
+            sender.send(email.toEmail, email.subject, email.body);
+            long end = System.currentTimeMillis();
+            sendMillis.add(end - start);
+            queueMillis.add(end - email.createdAt);
+            update(CommandQueryManager.DELETE_OUTBOX_EMAIL, email.id);
+            sent.increment();
+        } catch(Exception err) {
+            sendMillis.add(System.currentTimeMillis() - start);
+            int attempts = email.attempts + 1;
+            String error = String.valueOf(err.getMessage());
+            if(error.length() > MAX_ERROR_LENGTH) error = error.substring(0, MAX_ERROR_LENGTH);
+
+            if(attempts >= maxAttempts) {
+                System.err.println("Email to " + email.toEmail + " failed after " + attempts + " attempts: " + error);
+                update(CommandQueryManager.FAIL_OUTBOX_EMAIL, attempts, error, email.id);
+                failed.increment();
+            } else {
+                long nextAttempt = System.currentTimeMillis() + backoff(attempts);
+                update(CommandQueryManager.RETRY_OUTBOX_EMAIL, attempts, nextAttempt, error, email.id);
+                retried.increment();
+            }
+        } finally {
+            inFlight.decrementAndGet();
+            idleSenders.release();
+            wake();
+        }
+    }
+
+    /**
+     * Backoff
+     */
+    long backoff(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        return Math.min(maxBackoffMs, baseBackoffMs << shift);
+    }
+
+    /**
+     * Update
+     *
+     * Settles a claimed row, retried a few times. If it never lands the
+     * row stays 'sending' until its lease runs out and is requeued.
+     */
+    private void update(CommandQueryManager query, Object... params) {
+        for(int attempt = 1; ; attempt++) {
+            try(
+                Connection conn = getConnection();
+                PreparedStatement stmt = conn.prepareStatement(query.get());
+            ) {
+                for(int i = 0; i < params.length; i++) stmt.setObject(i + 1, params[i]);
+                stmt.executeUpdate();
+                return;
+            } catch(SQLException err) {
+                System.err.println("Email outbox update error (attempt " + attempt + "): " + err.getMessage());
+                if(attempt >= UPDATE_ATTEMPTS) return;
+            }
+            try {
+                Thread.sleep(100L * attempt);
+            } catch(InterruptedException err) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stats
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        try(
+            Connection conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(CommandQueryManager.COUNT_OUTBOX_EMAILS.get());
+            ResultSet rs = stmt.executeQuery();
+        ) {
+            while(rs.next()) byStatus.put(rs.getString(1), rs.getLong(2));
+        } catch(SQLException err) {
+            System.err.println("Email outbox stats error: " + err.getMessage());
+        }
+
+        long attempts = sent.sum() + retried.sum() + failed.sum();
+        stats.put("pending", byStatus.getOrDefault("pending", 0L));
+        stats.put("failedRows", byStatus.getOrDefault("failed", 0L));
+        stats.put("inFlight", inFlight.get());
+        stats.put("threads", threads);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("sent", sent.sum());
+        stats.put("retried", retried.sum());
+        stats.put("failed", failed.sum());
+        stats.put("requeued", requeued.sum());
+        stats.put("avgSendMs", attempts > 0 ? sendMillis.sum() / attempts : 0);
+        stats.put("avgQueueMs", sent.sum() > 0 ? queueMillis.sum() / sent.sum() : 0);
+        return stats;
+    }
+
+    private static class Email {
+        private final long id;
+        private final String toEmail;
+        private final String subject;
+        private final String body;
+        private final int attempts;
+        private final long createdAt;
+
+        private Email(
+            long id,
+            String toEmail,
+            String subject,
+            String body,
+            int attempts,
+            long createdAt
+        ) {
+            this.id = id;
+            this.toEmail = toEmail;
+            this.subject = subject;
+            this.body = body;
+            this.attempts = attempts;
+            this.createdAt = createdAt;
+        }
+    }
+}
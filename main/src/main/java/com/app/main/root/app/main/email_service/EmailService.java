@@ -3,13 +3,13 @@ package com.app.main.root.app.main.email_service;
 import com.app.main.root.EnvConfig;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeMessage;
-import java.util.Properties;
+import java.sql.SQLException;
 import javax.mail.*;
 
 @Component
@@ -19,6 +19,7 @@ public class EmailService {
 
     @Autowired private EmailDocumentParser emailDocumentParser;
     @Autowired(required = false) private SendGridWebService sendGridWebService; // Auto-wire SendGrid service
+    @Autowired @Lazy private EmailOutbox emailOutbox;
 
     @Value("${email.smtp.host:smtp.sendgrid.net}")
     private String smtpHost;
@@ -41,6 +42,14 @@ public class EmailService {
     @Value("${email.use.sendgrid:true}")
     private boolean useSendGrid;
 
+    @Value("${email.smtp.starttls.enable:true}")
+    private boolean smtpStartTls;
+
+    @Value("${email.smtp.maxIdleConnections:2}")
+    private int smtpMaxIdle;
+
+    private SmtpMailer smtpMailer;
+
     @Autowired
     private org.springframework.core.env.Environment environment;
 
@@ -53,9 +62,24 @@ public class EmailService {
         return new EmailData(this, emailDocumentParser);
     }
 
+    /**
+     * Queue Email
+     *
+     * Stores the mail in the outbox and returns, the outbox dispatcher
+     * delivers it through deliver().
+     */
+    public void queueEmail(String toEmail, String body) throws SQLException {
+        emailOutbox.enqueue(toEmail, extractSubject(body), body);
+    }
+
     public void sendEmail(String toEmail, String body) throws MessagingException {
-        String subject = extractSubject(body);
-        
+        deliver(toEmail, extractSubject(body), body);
+    }
+
+    /**
+     * Deliver
+     */
+    public void deliver(String toEmail, String subject, String body) throws MessagingException {
         if(useSendGrid && sendGridWebService != null) {
             System.out.println("Attempting to send via SendGrid API...");
             boolean sent = sendGridWebService.sendEmail(toEmail, subject, body);
@@ -67,58 +91,40 @@ public class EmailService {
             }
         }
         
-        sendEmailViaSMTP(toEmail, body);
+        sendEmailViaSMTP(toEmail, subject, body);
     }
     
-    private void sendEmailViaSMTP(String toEmail, String body) throws MessagingException {
-        String actualPassword = resolvePassword();
-        String actualUsername = resolveUsername();
-        
-        System.out.println("=== SMTP Email Debug ===");
-        System.out.println("Host: " + smtpHost);
-        System.out.println("Port: " + smtpPort);
-        System.out.println("Username from prop: " + emailUsername);
-        System.out.println("Resolved Username: " + actualUsername);
-        System.out.println("Password found: " + (actualPassword != null && !actualPassword.isEmpty()));
-        System.out.println("From: " + fromEmail);
-        System.out.println("To: " + toEmail);
-        System.out.println("========================");
-        
-        if(actualPassword == null || actualPassword.isEmpty()) {
+    private void sendEmailViaSMTP(String toEmail, String subject, String body) throws MessagingException {
+        SmtpMailer mailer = smtpMailer();
+        if(mailer == null) {
             throw new MessagingException("Email password not configured. Check email.password property or SENDGRID_API_KEY environment variable.");
         }
+        mailer.send(toEmail, subject, body);
+        System.out.println("Email sent successfully via SMTP to: " + toEmail);
+    }
 
-        Properties props = new Properties();
-        props.put("mail.smtp.host", smtpHost);
-        props.put("mail.smtp.port", smtpPort);
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.connectiontimeout", "10000");
-        props.put("mail.smtp.timeout", "10000");
-        props.put("mail.smtp.ssl.protocols", "TLSv1.2");
-        
-        props.put("mail.debug", "true");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(actualUsername, actualPassword);
-            }
-        });
-        
-        session.setDebug(true);
+    /**
+     * SMTP Mailer
+     *
+     * Built on first use once a password resolves, then reused along
+     * with its open connections.
+     */
+    private synchronized SmtpMailer smtpMailer() {
+        if(smtpMailer != null) return smtpMailer;
 
-        Message message = new MimeMessage(session);
-        message.setFrom(new InternetAddress(fromEmail));
-        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
-        
-        String subject = extractSubject(body);
-        message.setSubject(subject);
-        
-        message.setContent(body, "text/html; charset=utf-8");
-        
-        Transport.send(message);
-        System.out.println("Email sent successfully via SMTP to: " + toEmail);
+        String actualPassword = resolvePassword();
+        if(actualPassword == null || actualPassword.isEmpty()) return null;
+        smtpMailer = new SmtpMailer(
+            smtpHost,
+            Integer.parseInt(smtpPort.trim()),
+            resolveUsername(),
+            actualPassword,
+            smtpStartTls,
+            fromEmail,
+            smtpMaxIdle,
+            10000
+        );
+        return smtpMailer;
     }
     
     private String resolvePassword() {
@@ -170,4 +176,9 @@ public class EmailService {
         System.out.println("WEB_URL_SRC: " + WEB_URL_SRC);
         System.out.println("=================================");
     }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if(smtpMailer != null) smtpMailer.close();
+    }
 }
\ No newline at end of file
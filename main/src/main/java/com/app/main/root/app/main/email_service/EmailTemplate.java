@@ -0,0 +1,175 @@
+package com.app.main.root.app.main.email_service;
+import org.w3c.dom.Element;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template compiled to the output it renders: literal segments with
+ * {{placeholder}} keys between them. Rendering appends the segments
+ * and looks each key up in the context, so no DOM or XPath is touched.
+ * Elements with a registered ElementRenderer stay as elements and are
+ * handed to their renderer on every render.
+ */
+class EmailTemplate {
+    private final Object[] parts;
+    private final int literalLength;
+    private final File source;
+    private final long lastModified;
+    private volatile long checkedAt;
+
+    private EmailTemplate(Object[] parts, int literalLength, File source, long lastModified, long checkedAt) {
+        this.parts = parts;
+        this.literalLength = literalLength;
+        this.source = source;
+        this.lastModified = lastModified;
+        this.checkedAt = checkedAt;
+    }
+
+    /**
+     * Is Stale
+     *
+     * Only templates loaded from a directory can change. The file is
+     * looked at once per interval, renders in between trust the cache.
+     */
+    boolean isStale(long now, long intervalMs) {
+        if(source == null || now - checkedAt < intervalMs) return false;
+        checkedAt = now;
+        return source.lastModified() != lastModified;
+    }
+
+    /**
+     * Render
+     */
+    String render(Map<String, Object> context, EmailDocumentParser parser) {
+        StringBuilder out = new StringBuilder(literalLength + 256);
+        append(out, parts, context, parser);
+        return out.toString();
+    }
+
+    private static void append(
+        StringBuilder out,
+        Object[] parts,
+        Map<String, Object> context,
+        EmailDocumentParser parser
+    ) {
+        for(Object part : parts) {
+            if(part instanceof String literal) {
+                out.append(literal);
+            } else if(part instanceof Placeholder placeholder) {
+                if(context.containsKey(placeholder.key)) {
+                    Object value = context.get(placeholder.key);
+                    if(value != null) out.append(value);
+                } else {
+                    out.append("{{").append(placeholder.key).append("}}");
+                }
+            } else if(part instanceof TrimmedText text) {
+                StringBuilder inner = new StringBuilder();
+                append(inner, text.parts, context, parser);
+                out.append(inner.toString().trim());
+            } else {
+                Element element = (Element) part;
+                synchronized(element.getOwnerDocument()) {
+                    out.append(parser.renderElement(element, context));
+                }
+            }
+        }
+    }
+
+    private static final class Placeholder {
+        private final String key;
+
+        private Placeholder(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Text that starts or ends with a placeholder, trimmed after the
+     * values are in like renderTextContent does
+     */
+    private static final class TrimmedText {
+        private final Object[] parts;
+
+        private TrimmedText(Object[] parts) {
+            this.parts = parts;
+        }
+    }
+
+    /**
+     * Builder
+     */
+    static class Builder {
+        private final List<Object> parts = new ArrayList<>();
+        private final StringBuilder literal = new StringBuilder();
+        private int literalLength = 0;
+
+        Builder literal(String text) {
+            literal.append(text);
+            return this;
+        }
+
+        /**
+         * Text
+         *
+         * Same result as renderTextContent: blank text is dropped and
+         * the rest is trimmed. Trimming happens here unless a value
+         * could end up at either edge.
+         */
+        Builder text(String text) {
+            if(text == null || text.trim().isEmpty()) return this;
+            String trimmed = text.trim();
+            if(trimmed.startsWith("{{") || trimmed.endsWith("}}")) {
+                Builder inner = new Builder();
+                inner.tokenize(trimmed);
+                inner.flush();
+                literalLength += inner.literalLength;
+                flush();
+                parts.add(new TrimmedText(inner.parts.toArray()));
+            } else {
+                tokenize(trimmed);
+            }
+            return this;
+        }
+
+        private void tokenize(String text) {
+            int pos = 0;
+            while(pos < text.length()) {
+                int open = text.indexOf("{{", pos);
+                int close = open < 0 ? -1 : text.indexOf("}}", open + 2);
+                if(close < 0) break;
+
+                literal.append(text, pos, open);
+                flush();
+                parts.add(new Placeholder(text.substring(open + 2, close)));
+                pos = close + 2;
+            }
+            literal.append(text, pos, text.length());
+        }
+
+        Builder element(Element element) {
+            flush();
+            parts.add(element);
+            return this;
+        }
+
+        private void flush() {
+            if(literal.length() == 0) return;
+            parts.add(literal.toString());
+            literalLength += literal.length();
+            literal.setLength(0);
+        }
+
+        EmailTemplate build(File source, long lastModified) {
+            flush();
+            return new EmailTemplate(
+                parts.toArray(),
+                literalLength,
+                source,
+                lastModified,
+                System.currentTimeMillis()
+            );
+        }
+    }
+}
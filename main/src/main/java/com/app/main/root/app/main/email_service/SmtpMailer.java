@@ -0,0 +1,116 @@
+package com.app.main.root.app.main.email_service;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.mail.*;
+
+/**
+ * SMTP sender built once. The mail Session is shared and connected
+ * transports are kept in a small idle pool, so a message costs one
+ * MAIL/RCPT/DATA exchange instead of a connect, STARTTLS and AUTH.
+ * A transport that fails, for any reason, is closed rather than
+ * returned.
+ */
+public class SmtpMailer implements AutoCloseable {
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final String fromEmail;
+    private final BlockingQueue<Transport> idle;
+
+    public SmtpMailer(
+        String host,
+        int port,
+        String username,
+        String password,
+        boolean startTls,
+        String fromEmail,
+        int maxIdle,
+        int timeoutMs
+    ) {
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.fromEmail = fromEmail;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+
+        boolean auth = password != null && !password.isEmpty();
+        Properties props = new Properties();
+        props.put("mail.smtp.host", host);
+        props.put("mail.smtp.port", String.valueOf(port));
+        props.put("mail.smtp.auth", String.valueOf(auth));
+        props.put("mail.smtp.starttls.enable", String.valueOf(startTls));
+        props.put("mail.smtp.connectiontimeout", String.valueOf(timeoutMs));
+        props.put("mail.smtp.timeout", String.valueOf(timeoutMs));
+        props.put("mail.smtp.writetimeout", String.valueOf(timeoutMs));
+        if(startTls) props.put("mail.smtp.ssl.protocols", "TLSv1.2");
+        this.session = Session.getInstance(props);
+    }
+
+    /**
+     * Send
+     */
+    public void send(String toEmail, String subject, String body) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(fromEmail));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
+        message.setSubject(subject);
+        message.setContent(body, "text/html; charset=utf-8");
+        message.saveChanges();
+
+        Transport transport = borrow();
+        boolean returned = false;
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+            returned = idle.offer(transport);
+        } finally {
+            if(!returned) closeQuietly(transport);
+        }
+    }
+
+    /**
+     * Borrow
+     *
+     * An idle transport is checked with isConnected(), which costs a
+     * NOOP, so one the server dropped is replaced before use.
+     */
+    private Transport borrow() throws MessagingException {
+        Transport transport;
+        while((transport = idle.poll()) != null) {
+            if(transport.isConnected()) return transport;
+            closeQuietly(transport);
+        }
+
+        transport = session.getTransport("smtp");
+        try {
+            if(password != null && !password.isEmpty()) {
+                transport.connect(host, port, username, password);
+            } else {
+                transport.connect(host, port, null, null);
+            }
+        } catch(Exception err) {
+            closeQuietly(transport);
+            throw err;
+        }
+        return transport;
+    }
+
+    private static void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch(Exception err) {
+            System.err.println("SMTP close failed: " + err.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        Transport transport;
+        while((transport = idle.poll()) != null) closeQuietly(transport);
+    }
+}
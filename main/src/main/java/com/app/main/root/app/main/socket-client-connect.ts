@@ -13,6 +13,7 @@ export class SocketClientConnect {
     private connectionPromise: Promise<void> | null = null;
     private socketId: string | null = null;
     private userId: string | null = null;
+    private resumeAfter: number | null = null;
     public eventDiscovery: EventDiscovery;
 
     private resConnection: ((value: void) => void) | null = null;
@@ -62,6 +63,11 @@ export class SocketClientConnect {
                         this.eventDiscovery.events();
                         await this.getSocketId();
 
+                        if(this.resumeAfter !== null) {
+                            this.notify('resume', { resumeAfter: this.resumeAfter });
+                            this.resumeAfter = null;
+                        }
+
                         if(this.resConnection) {
                             this.resConnection();
                             this.resConnection = null;
@@ -73,6 +79,10 @@ export class SocketClientConnect {
                     onWebSocketClose: (e) => {
                         console.log('%cConnection closed ;(', 'color: #992a24ff; font-weight: bold', e);
                         this.connectionPromise = null;
+                        if(e.code === 4008) {
+                            const match = /resumeAfter=(\d+)/.exec(e.reason || '');
+                            this.resumeAfter = match ? Number(match[1]) : Date.now();
+                        }
                         if(e.code !== 1000) this.handleReconnect();
                     },
                     onWebSocketError: (e) => {
@@ -225,6 +235,25 @@ export class SocketClientConnect {
         }
     }
 
+    /**
+     * Notify
+     *
+     * Local listeners only. 'resume' fires after a reconnect that
+     * followed a slow consumer disconnect, with the time after which
+     * frames may have been missed.
+     */
+    private notify(event: string, data?: any): void {
+        const listeners = this.eventListeners.get(event);
+        if(!listeners) return;
+        listeners.forEach(callback => {
+            try {
+                callback(data);
+            } catch(err) {
+                console.error(`Error in event listener for ${event}:`, err);
+            }
+        });
+    }
+
     /**
      * Emit
      */
@@ -0,0 +1,172 @@
+package com.app.main.root.app.utils;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity multi-producer ring of the most recent entries.
+ * Producers claim a sequence number and write into a preallocated
+ * slot, once the ring is full the oldest entry is overwritten.
+ * Readers take consistent snapshots without blocking producers.
+ */
+public class LogRingBuffer<T> {
+    private final Slot<T>[] slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private volatile long floor = 0;
+
+    private Thread drainThread;
+    private volatile boolean draining = false;
+    private volatile boolean drainWaiting = false;
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLong drainDropped = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for(int i = 0; i < size; i++) slots[i] = new Slot<>();
+    }
+
+    /**
+     * Add
+     */
+    public long add(T item) {
+        long seq = next.getAndIncrement();
+        Slot<T> slot = slots[(int) (seq & mask)];
+        slot.seq = -1;
+        slot.value = item;
+        slot.seq = seq;
+
+        if(drainWaiting) LockSupport.unpark(drainThread);
+        return seq;
+    }
+
+    private T read(long seq) {
+        Slot<T> slot = slots[(int) (seq & mask)];
+        long before = slot.seq;
+        T value = slot.value;
+        long after = slot.seq;
+        return before == seq && after == seq ? value : null;
+    }
+
+    /**
+     * Snapshot
+     */
+    public List<T> snapshot() {
+        return filter(null);
+    }
+
+    public List<T> filter(Predicate<T> predicate) {
+        long head = next.get();
+        long start = Math.max(floor, head - slots.length);
+        List<T> items = new ArrayList<>((int) (head - start));
+
+        for(long seq = start; seq < head; seq++) {
+            T item = read(seq);
+            if(item != null && (predicate == null || predicate.test(item))) items.add(item);
+        }
+        return items;
+    }
+
+    public int size() {
+        long head = next.get();
+        return (int) Math.min(head - floor, slots.length);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long getTotalAdded() {
+        return next.get();
+    }
+
+    public void clear() {
+        floor = next.get();
+    }
+
+    /**
+     * Drain
+     *
+     * Hands every entry to the consumer on a dedicated thread, in
+     * sequence order. Entries overwritten before the drain thread
+     * reaches them are counted as dropped instead of blocking producers.
+     */
+    public synchronized void startDrain(String threadName, Consumer<T> consumer) {
+        if(drainThread != null) return;
+        draining = true;
+        drained.set(next.get());
+        drainThread = new Thread(() -> drainLoop(consumer), threadName);
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    public synchronized void stopDrain() {
+        if(drainThread == null) return;
+        draining = false;
+        LockSupport.unpark(drainThread);
+        try {
+            drainThread.join(1000);
+        } catch(InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+        drainThread = null;
+    }
+
+    private void drainLoop(Consumer<T> consumer) {
+        long cursor = drained.get();
+        while(draining) {
+            long head = next.get();
+            if(cursor >= head) {
+                drainWaiting = true;
+                if(next.get() == cursor && draining) LockSupport.parkNanos(100_000_000L);
+                drainWaiting = false;
+                continue;
+            }
+
+            if(head - cursor > slots.length) {
+                long skipped = head - slots.length - cursor;
+                drainDropped.addAndGet(skipped);
+                cursor += skipped;
+            }
+
+            Slot<T> slot = slots[(int) (cursor & mask)];
+            long seq = slot.seq;
+            if(seq < cursor) {
+                /* Claimed but not yet published */
+                Thread.onSpinWait();
+                continue;
+            }
+
+            T item = read(cursor);
+            if(item == null) {
+                drainDropped.incrementAndGet();
+            } else {
+                try {
+                    consumer.accept(item);
+                } catch(Exception err) {
+                    System.err.println("Error in ring buffer consumer: " + err.getMessage());
+                }
+            }
+            drained.set(++cursor);
+        }
+    }
+
+    public long getDrainLag() {
+        return drainThread != null ? next.get() - drained.get() : 0;
+    }
+
+    public long getDrainDropped() {
+        return drainDropped.get();
+    }
+
+    private static class Slot<T> {
+        volatile long seq = -1;
+        volatile T value;
+    }
+}
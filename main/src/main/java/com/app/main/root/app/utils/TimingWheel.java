@@ -0,0 +1,195 @@
+package com.app.main.root.app.utils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for expiring many entries. Each level has
+ * 64 buckets, a level 0 bucket spans one tick and every level above
+ * spans 64 times the one below, so with four levels and 1s ticks the
+ * wheel covers about 194 days. Later deadlines wait in the last level
+ * and are placed again when their bucket comes round.
+ *
+ * Timers are intrusive list nodes made once per entry. Pushing a
+ * deadline out only writes the timer's deadline, the wheel moves it
+ * when its current bucket is due, so advancing costs the expired and
+ * moved timers rather than every timer held.
+ */
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /**
+     * Timer
+     */
+    public static class Timer<T> {
+        private final T value;
+        private volatile long deadline;
+        private Timer<T> prev;
+        private Timer<T> next;
+        private boolean linked;
+
+        public Timer(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Set Deadline
+         *
+         * Later deadlines take effect without touching the wheel,
+         * earlier ones need schedule() to move the timer.
+         */
+        public void setDeadline(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    private final long tickMs;
+    private final int levels;
+    private final Timer<T>[] buckets;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMs, int levels, long now) {
+        this.tickMs = Math.max(1, tickMs);
+        this.levels = Math.max(1, Math.min(levels, 63 / SLOT_BITS));
+        this.buckets = new Timer[this.levels * SLOTS];
+        for(int i = 0; i < buckets.length; i++) {
+            Timer<T> head = new Timer<>(null, 0);
+            head.prev = head;
+            head.next = head;
+            buckets[i] = head;
+        }
+        this.currentTick = now / this.tickMs;
+    }
+
+    /**
+     * Schedule
+     *
+     * Adds the timer, or moves it if it is already in the wheel.
+     */
+    public synchronized void schedule(Timer<T> timer) {
+        if(timer.linked) {
+            unlink(timer);
+        } else {
+            size++;
+        }
+        place(timer, 1);
+    }
+
+    /**
+     * Cancel
+     */
+    public synchronized boolean cancel(Timer<T> timer) {
+        if(!timer.linked) return false;
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Advance
+     *
+     * Runs every tick up to now and hands the expired values to
+     * onExpire, outside the wheel's lock. Returns how many expired.
+     */
+    public int advance(long now, Consumer<T> onExpire) {
+        List<T> expired = new ArrayList<>();
+        synchronized(this) {
+            long target = now / tickMs;
+            while(currentTick < target) {
+                currentTick++;
+                cascade(1);
+                drain(0, (int) (currentTick & SLOT_MASK), now, expired);
+            }
+        }
+        for(T value : expired) onExpire.accept(value);
+        return expired.size();
+    }
+
+    /**
+     * Cascade
+     *
+     * Each time a level wraps, the next due bucket of the level above
+     * is spread down into the finer levels.
+     */
+    private void cascade(int level) {
+        if(level >= levels) return;
+        long shifted = currentTick >>> (SLOT_BITS * level);
+        if((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) return;
+        if((shifted & SLOT_MASK) == 0) cascade(level + 1);
+        drain(level, (int) (shifted & SLOT_MASK), Long.MIN_VALUE, null);
+    }
+
+    private void drain(int level, int slot, long now, List<T> expired) {
+        Timer<T> head = buckets[level * SLOTS + slot];
+        Timer<T> timer = head.next;
+        head.prev = head;
+        head.next = head;
+        while(timer != head) {
+            Timer<T> next = timer.next;
+            timer.linked = false;
+            if(expired != null && timer.deadline <= now) {
+                size--;
+                expired.add(timer.value);
+            } else {
+                place(timer, expired == null ? 0 : 1);
+            }
+            timer = next;
+        }
+    }
+
+    /**
+     * Place
+     *
+     * Cascades may use the current level 0 bucket, it is drained right
+     * after them. Anything else goes at least one tick ahead.
+     */
+    private void place(Timer<T> timer, long minDelta) {
+        long deadlineTick = Math.floorDiv(timer.deadline + tickMs - 1, tickMs);
+        long delta = Math.max(minDelta, deadlineTick - currentTick);
+
+        int level = 0;
+        while(level < levels - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) level++;
+        long range = 1L << (SLOT_BITS * (level + 1));
+        if(delta >= range) delta = range - 1;
+
+        /*
+         * delta picks the level, so above level 0 the target is 1 to 64
+         * buckets of that level ahead and its bucket comes round
+         * exactly once before it is due
+         */
+        long tick = currentTick + delta;
+        int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+        Timer<T> head = buckets[level * SLOTS + slot];
+        timer.prev = head.prev;
+        timer.next = head;
+        head.prev.next = timer;
+        head.prev = timer;
+        timer.linked = true;
+    }
+
+    private void unlink(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+        timer.linked = false;
+    }
+}
@@ -0,0 +1,217 @@
+package com.app.main.root.app.__config;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Frame reassembly across fragment boundaries. The benchmark compares
+ * the incremental decoder with the old append and rescan approach and
+ * runs only when RUN_BENCHMARKS is set.
+ */
+class BufferConfigTest {
+    private static final int FRAGMENT = 4 * 1024;
+    private static final int[] PAYLOAD_SIZES = { 256, 4 * 1024, 64 * 1024, 512 * 1024, 2 * 1024 * 1024 };
+
+    private BufferConfig bufferConfig;
+
+    @BeforeEach
+    void init() {
+        bufferConfig = newBufferConfig(1024 * 1024);
+    }
+
+    private static BufferConfig newBufferConfig(int maxFrameBytes) {
+        BufferConfig config = new BufferConfig();
+        ReflectionTestUtils.setField(config, "maxFrameBytes", maxFrameBytes);
+        ReflectionTestUtils.setField(config, "poolSize", 4);
+        ReflectionTestUtils.setField(config, "pooledBufferMaxBytes", 64 * 1024);
+        return config;
+    }
+
+    @Test
+    void reassemblesOneCharAtATime() {
+        String json = "{\"text\":\"a } \\\" ] { [\",\"list\":[1,{\"x\":'}'}],\"n\":null}";
+        String frame = null;
+        for(int i = 0; i < json.length(); i++) {
+            String res = bufferConfig.handleMessage("s1", json.substring(i, i + 1));
+            if(i < json.length() - 1) assertNull(res);
+            else frame = res;
+        }
+        assertEquals(json, frame);
+        assertEquals(0, bufferConfig.getStats().get("openSessions"));
+    }
+
+    @Test
+    void emitsEveryFrameClosedByOneFragment() {
+        assertEquals(List.of(), bufferConfig.decode("s1", "  {\"a\":"));
+        List<String> frames = bufferConfig.decode("s1", "1}\n[2,3] {\"b\":[");
+        assertEquals(List.of("{\"a\":1}", "[2,3]"), frames);
+        assertEquals(List.of("{\"b\":[]}"), bufferConfig.decode("s1", "]}"));
+    }
+
+    @Test
+    void handleMessageQueuesExtraFrames() {
+        assertEquals("{}", bufferConfig.handleMessage("s1", "{}[]"));
+        assertEquals("[]", bufferConfig.handleMessage("s1", ""));
+        assertNull(bufferConfig.handleMessage("s1", ""));
+    }
+
+    @Test
+    void keepsSessionsApart() {
+        assertNull(bufferConfig.handleMessage("s1", "{\"from\":"));
+        assertNull(bufferConfig.handleMessage("s2", "[\"other\""));
+        assertEquals("{\"from\":1}", bufferConfig.handleMessage("s1", "1}"));
+        assertEquals("[\"other\"]", bufferConfig.handleMessage("s2", "]"));
+    }
+
+    @Test
+    void rejectsOversizeFrameBeforeItCloses() {
+        BufferConfig small = newBufferConfig(64);
+        small.decode("s1", "{\"data\":\"");
+        assertThrows(IllegalStateException.class, () -> small.decode("s1", "x".repeat(100)));
+        assertEquals(0, small.getStats().get("openSessions"));
+        assertEquals(List.of("{}"), small.decode("s1", "{}"));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThrows(IllegalStateException.class, () -> bufferConfig.decode("s1", "hello"));
+        assertThrows(IllegalStateException.class, () -> bufferConfig.decode("s1", "{]"));
+        assertNull(bufferConfig.handleMessage("s1", "]"));
+        assertEquals("{}", bufferConfig.handleMessage("s1", "{}"));
+    }
+
+    @Test
+    void reusesPooledBuffers() {
+        for(int i = 0; i < 10; i++) {
+            bufferConfig.handleMessage("s" + i, "{\"n\":");
+            assertEquals("{\"n\":" + i + "}", bufferConfig.handleMessage("s" + i, i + "}"));
+        }
+        Map<String, Object> stats = bufferConfig.getStats();
+        assertEquals(1L, stats.get("poolMisses"));
+        assertEquals(9L, stats.get("poolHits"));
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = ".+")
+    void benchmarkAgainstRescan() {
+        BufferConfig bench = newBufferConfig(16 * 1024 * 1024);
+        System.out.printf("%10s %10s %14s %14s %8s%n", "payload", "fragments", "rescan ms", "incremental ms", "speedup");
+        for(int size : PAYLOAD_SIZES) {
+            String payload = payload(size);
+            List<String> fragments = split(payload);
+            int rounds = Math.max(3, 4 * 1024 * 1024 / size);
+
+            for(int i = 0; i < 3; i++) {
+                runLegacy(fragments);
+                runIncremental(bench, fragments);
+            }
+
+            long legacy = System.nanoTime();
+            for(int i = 0; i < rounds; i++) assertEquals(payload, runLegacy(fragments));
+            legacy = System.nanoTime() - legacy;
+
+            long incremental = System.nanoTime();
+            for(int i = 0; i < rounds; i++) assertEquals(payload, runIncremental(bench, fragments));
+            incremental = System.nanoTime() - incremental;
+
+            System.out.printf(
+                "%10d %10d %14.3f %14.3f %7.1fx%n",
+                size,
+                fragments.size(),
+                legacy / 1e6 / rounds,
+                incremental / 1e6 / rounds,
+                (double) legacy / incremental
+            );
+        }
+    }
+
+    private static String runIncremental(BufferConfig config, List<String> fragments) {
+        String frame = null;
+        for(String fragment : fragments) frame = config.handleMessage("bench", fragment);
+        return frame;
+    }
+
+    private static String payload(int size) {
+        StringBuilder sb = new StringBuilder("{\"messages\":[");
+        int n = 0;
+        while(sb.length() < size - 64) {
+            if(n > 0) sb.append(',');
+            sb.append("{\"id\":").append(n).append(",\"content\":\"line ").append(n).append(" with \\\"quotes\\\" and {braces}\"}");
+            n++;
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static List<String> split(String payload) {
+        List<String> fragments = new ArrayList<>();
+        for(int i = 0; i < payload.length(); i += FRAGMENT) {
+            fragments.add(payload.substring(i, Math.min(payload.length(), i + FRAGMENT)));
+        }
+        return fragments;
+    }
+
+    /**
+     * The previous implementation: append, then rescan the whole
+     * buffer on every fragment.
+     */
+    private static String runLegacy(List<String> fragments) {
+        StringBuilder buffer = new StringBuilder();
+        for(String fragment : fragments) {
+            buffer.append(fragment);
+            String message = buffer.toString();
+            if(legacyComplete(message)) return message;
+        }
+        return null;
+    }
+
+    private static boolean legacyComplete(String message) {
+        message = message.trim();
+        if(!message.startsWith("{") && !message.startsWith("[")) return false;
+
+        boolean inString = false;
+        boolean escaped = false;
+        char delimiter = '\0';
+        Stack<Character> stack = new Stack<>();
+        for(int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if(escaped) {
+                escaped = false;
+                continue;
+            }
+            if(inString) {
+                if(c == '\\') escaped = true;
+                else if(c == delimiter) inString = false;
+                continue;
+            }
+            switch(c) {
+                case '"':
+                case '\'':
+                    inString = true;
+                    delimiter = c;
+                    break;
+                case '{':
+                case '[':
+                    stack.push(c);
+                    break;
+                case '}':
+                    if(stack.isEmpty() || stack.pop() != '{') return false;
+                    break;
+                case ']':
+                    if(stack.isEmpty() || stack.pop() != '[') return false;
+                    break;
+            }
+        }
+        return stack.isEmpty() && !inString;
+    }
+}
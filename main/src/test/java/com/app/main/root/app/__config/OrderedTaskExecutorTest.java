@@ -0,0 +1,288 @@
+package com.app.main.root.app.__config;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Per-key ordering, hand-off between a draining lane and new tasks,
+ * the total and per-lane limits and the stats they leave behind.
+ */
+class OrderedTaskExecutorTest {
+    private OrderedTaskExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        if(executor != null) executor.shutdown();
+    }
+
+    private static OrderedTaskExecutor executor(int maxConcurrency, int maxQueued, int maxQueuedPerKey, long timeoutMillis) {
+        return executor(maxConcurrency, maxQueued, maxQueuedPerKey, timeoutMillis, null);
+    }
+
+    private static OrderedTaskExecutor executor(
+        int maxConcurrency,
+        int maxQueued,
+        int maxQueuedPerKey,
+        long timeoutMillis,
+        Consumer<Message<?>> overflow
+    ) {
+        return new OrderedTaskExecutor(
+            "test",
+            message -> (String) message.getHeaders().get("key"),
+            maxConcurrency,
+            maxQueued,
+            maxQueuedPerKey,
+            timeoutMillis,
+            overflow,
+            true
+        );
+    }
+
+    private static Runnable task(String key, Runnable body) {
+        return new KeyedTask(new GenericMessage<>("", Map.of("key", key)), body);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS), "timed out");
+        } catch(InterruptedException err) {
+            throw new RuntimeException(err);
+        }
+    }
+
+    private static void waitFor(OrderedTaskExecutor executor, String stat, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while(((Number) executor.getStats().get(stat)).longValue() != expected) {
+            assertTrue(System.currentTimeMillis() < deadline, stat + " = " + executor.getStats().get(stat));
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void keepsOrderPerKeyAcrossConcurrentKeys() throws InterruptedException {
+        executor = executor(16, 100_000, 10_000, 10_000);
+        int keys = 64;
+        int perKey = 500;
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(keys * perKey);
+
+        ExecutorService submitters = Executors.newFixedThreadPool(8);
+        for(int k = 0; k < keys; k++) {
+            String key = "session-" + k;
+            List<Integer> order = new ArrayList<>();
+            seen.put(key, order);
+            submitters.execute(() -> {
+                for(int i = 0; i < perKey; i++) {
+                    int seq = i;
+                    executor.execute(task(key, () -> {
+                        order.add(seq);
+                        done.countDown();
+                    }));
+                }
+            });
+        }
+        await(done);
+        submitters.shutdown();
+
+        for(Map.Entry<String, List<Integer>> entry : seen.entrySet()) {
+            List<Integer> order = entry.getValue();
+            assertEquals(perKey, order.size(), entry.getKey());
+            for(int i = 0; i < perKey; i++) assertEquals(i, order.get(i), entry.getKey());
+        }
+    }
+
+    @Test
+    void drainHandOffLosesAndRepeatsNothing() throws InterruptedException {
+        executor = executor(4, 100_000, 10_000, 10_000);
+        int rounds = 20_000;
+        AtomicInteger[] runs = new AtomicInteger[rounds];
+        CountDownLatch done = new CountDownLatch(rounds);
+
+        /* one task at a time per key so lanes keep emptying as the next one arrives */
+        for(int i = 0; i < rounds; i++) {
+            AtomicInteger count = new AtomicInteger();
+            runs[i] = count;
+            executor.execute(task("key-" + (i % 3), () -> {
+                count.incrementAndGet();
+                done.countDown();
+            }));
+            if(i % 7 == 0) Thread.onSpinWait();
+        }
+        await(done);
+
+        for(int i = 0; i < rounds; i++) assertEquals(1, runs[i].get(), "task " + i);
+        waitFor(executor, "lanes", 0);
+        waitFor(executor, "queued", 0);
+        assertEquals((long) rounds, executor.getStats().get("executed"));
+    }
+
+    @Test
+    void rejectsPastPerKeyLimit() throws InterruptedException {
+        executor = executor(4, 1000, 3, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+
+        executor.execute(task("a", () -> {
+            started.countDown();
+            await(release);
+            done.countDown();
+        }));
+        await(started);
+        for(int i = 0; i < 3; i++) executor.execute(task("a", done::countDown));
+
+        assertThrows(TaskRejectedException.class, () -> executor.execute(task("a", done::countDown)));
+        executor.execute(task("b", done::countDown));
+
+        release.countDown();
+        await(done);
+        Map<String, Object> stats = executor.getStats();
+        assertEquals(1L, stats.get("blocked"));
+        assertEquals(1L, stats.get("rejected"));
+    }
+
+    @Test
+    void rejectsPastTotalLimitAndReportsStats() throws InterruptedException {
+        executor = executor(1, 4, 100, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+
+        /* the only permit is held, so everything after it stays queued */
+        executor.execute(task("a", () -> {
+            started.countDown();
+            await(release);
+            done.countDown();
+        }));
+        await(started);
+        for(int i = 0; i < 4; i++) executor.execute(task("k" + i, done::countDown));
+
+        long before = System.nanoTime();
+        assertThrows(TaskRejectedException.class, () -> executor.execute(task("k9", done::countDown)));
+        assertTrue(System.nanoTime() - before >= TimeUnit.MILLISECONDS.toNanos(40), "rejected without waiting");
+
+        Map<String, Object> stats = executor.getStats();
+        assertEquals(4, stats.get("queued"));
+        assertEquals(4L, stats.get("peakQueued"));
+        assertEquals(1, stats.get("running"));
+        assertEquals(1L, stats.get("blocked"));
+        assertEquals(1L, stats.get("rejected"));
+
+        release.countDown();
+        await(done);
+        waitFor(executor, "executed", 5);
+        waitFor(executor, "lanes", 0);
+        stats = executor.getStats();
+        assertEquals(0, stats.get("queued"));
+        assertEquals(0, stats.get("running"));
+        assertEquals(0L, stats.get("failed"));
+    }
+
+    @Test
+    void blockedSubmitterGetsInOnceRoomFrees() throws InterruptedException {
+        executor = executor(4, 1000, 1, 10_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+
+        executor.execute(task("a", () -> {
+            started.countDown();
+            await(release);
+            order.add(0);
+            done.countDown();
+        }));
+        await(started);
+        executor.execute(task("a", () -> {
+            order.add(1);
+            done.countDown();
+        }));
+
+        Thread submitter = Thread.ofVirtual().start(() -> executor.execute(task("a", () -> {
+            order.add(2);
+            done.countDown();
+        })));
+        waitFor(executor, "blocked", 1);
+        release.countDown();
+        submitter.join(10_000);
+        await(done);
+
+        assertEquals(List.of(0, 1, 2), order);
+        assertEquals(0L, executor.getStats().get("rejected"));
+    }
+
+    @Test
+    void fullLaneGoesToOverflowWithoutWaiting() throws InterruptedException {
+        List<Message<?>> overflowed = new ArrayList<>();
+        executor = executor(4, 1000, 1, 10_000, overflowed::add);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+
+        executor.execute(task("a", () -> {
+            started.countDown();
+            await(release);
+            done.countDown();
+        }));
+        await(started);
+        executor.execute(task("a", done::countDown));
+
+        Runnable extra = task("a", done::countDown);
+        long before = System.nanoTime();
+        executor.execute(extra);
+        assertTrue(System.nanoTime() - before < TimeUnit.SECONDS.toNanos(1), "overflow waited");
+        assertEquals(List.of(((MessageHandlingRunnable) extra).getMessage()), overflowed);
+
+        release.countDown();
+        await(done);
+        Map<String, Object> stats = executor.getStats();
+        assertEquals(1L, stats.get("overflowed"));
+        assertEquals(0L, stats.get("blocked"));
+        assertEquals(0L, stats.get("rejected"));
+        waitFor(executor, "queued", 0);
+    }
+
+    private static class KeyedTask implements MessageHandlingRunnable {
+        private final Message<?> message;
+        private final Runnable body;
+
+        KeyedTask(Message<?> message, Runnable body) {
+            this.message = message;
+            this.body = body;
+        }
+
+        @Override
+        public Message<?> getMessage() {
+            return message;
+        }
+
+        @Override
+        public MessageHandler getMessageHandler() {
+            return m -> body.run();
+        }
+
+        @Override
+        public void run() {
+            body.run();
+        }
+    }
+}
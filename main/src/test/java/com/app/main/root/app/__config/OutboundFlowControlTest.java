@@ -0,0 +1,231 @@
+package com.app.main.root.app.__config;
+import com.app.main.root.app._data.EventPriority;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The three slow-consumer policies, the hand-off of frames that found
+ * the outbound lane full, and the per-session lag the tracker reports.
+ */
+class OutboundFlowControlTest {
+    private static final String SESSION = "s1";
+    private static final String CHAT = "/topic/chat/1";
+    private static final String REPLY = "/queue/reply";
+    private static final String NOTIFICATIONS = "/topic/notifications";
+    private static final String FILES = "/topic/files";
+
+    private OutboundFlowControl flowControl;
+    private ExecutorChannelInterceptor outbound;
+    private WebSocketSession session;
+
+    private void init(OutboundFlowControl.Policy policy, long maxLagMillis) throws Exception {
+        flowControl = new OutboundFlowControl();
+        ReflectionTestUtils.setField(flowControl, "policy", policy);
+        ReflectionTestUtils.setField(flowControl, "softBytes", 1000L);
+        ReflectionTestUtils.setField(flowControl, "hardBytes", 5000L);
+        ReflectionTestUtils.setField(flowControl, "maxLagMillis", maxLagMillis);
+        ReflectionTestUtils.setField(flowControl, "maxPendingMessages", 100);
+        flowControl.register("/topic/chat", EventPriority.CRITICAL);
+        flowControl.register(NOTIFICATIONS, EventPriority.COALESCE);
+        flowControl.register(FILES, EventPriority.BULK);
+        outbound = flowControl.outbound();
+
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(SESSION);
+        flowControl.transport().decorate(new AbstractWebSocketHandler() {}).afterConnectionEstablished(session);
+    }
+
+    private static Message<byte[]> frame(String destination, int bytes) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(SESSION);
+        accessor.setDestination(destination);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[bytes], accessor.getMessageHeaders());
+    }
+
+    private Message<?> admit(Message<?> message) {
+        return outbound.preSend(message, null);
+    }
+
+    /* what the outbound executor does with a queued frame */
+    private Message<?> deliver(Message<?> message) {
+        Message<?> handled = outbound.beforeHandle(message, null, null);
+        outbound.afterMessageHandled(message, null, null, null);
+        return handled;
+    }
+
+    private Map<String, Object> session() {
+        return flowControl.getSessionStats(SESSION);
+    }
+
+    private void verifyClosed() throws Exception {
+        verify(session, timeout(2000)).close(argThat(status -> status.getCode() == OutboundFlowControl.SLOW_CONSUMER.getCode()));
+    }
+
+    @Test
+    void coalesceSkipsSupersededFrames() throws Exception {
+        init(OutboundFlowControl.Policy.COALESCE, 30_000);
+        Message<?> first = admit(frame(NOTIFICATIONS, 100));
+        Message<?> second = admit(frame(NOTIFICATIONS, 100));
+        Message<?> third = admit(frame(NOTIFICATIONS, 100));
+        assertEquals(3, session().get("pendingMessages"));
+
+        assertNull(deliver(first));
+        assertNull(deliver(second));
+        assertSame(third, deliver(third));
+        assertEquals(2L, session().get("coalesced"));
+        assertEquals(0, session().get("pendingMessages"));
+        assertEquals(0L, session().get("pendingBytes"));
+
+        /* nothing else is dropped under COALESCE, however far behind */
+        assertNotNull(admit(frame(FILES, 4000)));
+        assertNotNull(admit(frame(REPLY, 4000)));
+        assertEquals(0L, session().get("dropped"));
+        assertEquals(false, session().get("closing"));
+    }
+
+    @Test
+    void dropPolicyDropsPastLimitsButKeepsCritical() throws Exception {
+        init(OutboundFlowControl.Policy.DROP, 30_000);
+        assertNotNull(admit(frame(FILES, 600)));
+        assertNull(admit(frame(FILES, 600)));
+        assertNotNull(admit(frame(REPLY, 3000)));
+        assertNull(admit(frame(REPLY, 2000)));
+        assertNotNull(admit(frame(CHAT, 2000)));
+
+        Map<String, Object> stats = session();
+        assertEquals(2L, stats.get("dropped"));
+        assertEquals(3, stats.get("pendingMessages"));
+        assertEquals(5600L, stats.get("pendingBytes"));
+        assertEquals(false, stats.get("closing"));
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void disconnectPolicyClosesOnCriticalPastHardLimit() throws Exception {
+        init(OutboundFlowControl.Policy.DISCONNECT, 30_000);
+        assertNotNull(admit(frame(REPLY, 4000)));
+        assertNull(admit(frame(REPLY, 2000)));
+        assertEquals(false, session().get("closing"));
+
+        assertNull(admit(frame(CHAT, 2000)));
+        assertEquals(true, session().get("closing"));
+        verifyClosed();
+
+        /* a closing session gets nothing more queued */
+        assertNull(admit(frame(CHAT, 10)));
+        assertEquals(1L, flowControl.getStats().get("disconnected"));
+    }
+
+    @Test
+    void disconnectPolicyClosesLaggingSession() throws Exception {
+        init(OutboundFlowControl.Policy.DISCONNECT, 50);
+        admit(frame(CHAT, 10));
+        flowControl.sweep();
+        assertEquals(false, session().get("closing"));
+
+        Thread.sleep(80);
+        flowControl.sweep();
+        assertEquals(true, session().get("closing"));
+        verifyClosed();
+    }
+
+    @Test
+    void busySessionThatKeepsUpStaysConnected() throws Exception {
+        init(OutboundFlowControl.Policy.DISCONNECT, 50);
+        Message<?> inFlight = admit(frame(CHAT, 10));
+        long until = System.currentTimeMillis() + 250;
+
+        /* the lane never drains, but no frame waits longer than a few millis */
+        while(System.currentTimeMillis() < until) {
+            Message<?> next = admit(frame(CHAT, 10));
+            assertNotNull(next);
+            Thread.sleep(5);
+            deliver(inFlight);
+            inFlight = next;
+            flowControl.sweep();
+        }
+        Map<String, Object> stats = session();
+        assertEquals(1, stats.get("pendingMessages"));
+        assertTrue((Long) stats.get("lagMillis") < 50, stats.toString());
+        assertEquals(false, stats.get("closing"));
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void reportsPerSessionLag() throws Exception {
+        init(OutboundFlowControl.Policy.DISCONNECT, 30_000);
+        Map<String, Object> idle = session();
+        assertEquals(0L, idle.get("lagMillis"));
+        assertEquals(0L, idle.get("lastSentAt"));
+
+        Message<?> first = admit(frame(CHAT, 300));
+        Message<?> second = admit(frame(REPLY, 200));
+        Thread.sleep(30);
+        Map<String, Object> behind = session();
+        assertEquals(2, behind.get("pendingMessages"));
+        assertEquals(500L, behind.get("pendingBytes"));
+        assertTrue((Long) behind.get("lagMillis") >= 30, behind.toString());
+
+        Thread.sleep(10);
+        Message<?> third = admit(frame(REPLY, 100));
+        deliver(first);
+        long lag = (Long) session().get("lagMillis");
+        assertTrue(lag >= 30, String.valueOf(lag));
+
+        /* lag follows the oldest unsent frame, not the busy period */
+        deliver(second);
+        assertTrue((Long) session().get("lagMillis") < lag);
+        deliver(third);
+        Map<String, Object> caughtUp = session();
+        assertEquals(0, caughtUp.get("pendingMessages"));
+        assertEquals(0L, caughtUp.get("pendingBytes"));
+        assertEquals(0L, caughtUp.get("lagMillis"));
+        assertTrue((Long) caughtUp.get("lastSentAt") > 0);
+        assertNull(flowControl.getSessionStats("unknown"));
+    }
+
+    @Test
+    void overflowDropsOrDisconnectsThatSession() throws Exception {
+        init(OutboundFlowControl.Policy.DROP, 30_000);
+        Message<?> bulk = admit(frame(FILES, 100));
+        flowControl.overflow(bulk);
+        assertEquals(1L, session().get("dropped"));
+        assertEquals(0, session().get("pendingMessages"));
+        assertEquals(false, session().get("closing"));
+
+        Message<?> critical = admit(frame(CHAT, 100));
+        flowControl.overflow(critical);
+        assertEquals(0, session().get("pendingMessages"));
+        assertEquals(true, session().get("closing"));
+        verifyClosed();
+
+        /* under COALESCE nothing is dropped, so a full lane closes the session */
+        init(OutboundFlowControl.Policy.COALESCE, 30_000);
+        flowControl.overflow(admit(frame(NOTIFICATIONS, 100)));
+        assertEquals(true, session().get("closing"));
+        verifyClosed();
+    }
+}
@@ -0,0 +1,61 @@
+package com.app.main.root.app._auth;
+import com.app.main.root.app._service.SessionService;
+import com.app.main.root.app._service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Which verified tokens the filter turns into an authenticated request.
+ */
+class AuthFilterTest {
+    private final TokenService tokenService = mock(TokenService.class);
+    private final SessionService sessionService = mock(SessionService.class);
+    private final AuthFilter filter = new AuthFilter(tokenService, mock(UserService.class), sessionService);
+
+    @AfterEach
+    void clear() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletResponse request(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/chats");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void accessTokenWithLiveSessionAuthenticates() throws Exception {
+        when(tokenService.verify("access")).thenReturn(new TokenClaims("u1", "s1", "alice", null, "access", Long.MAX_VALUE));
+        when(sessionService.getSession("s1")).thenReturn(mock(SessionService.SessionData.class));
+
+        assertEquals(200, request("access").getStatus());
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals("u1", SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+    }
+
+    @Test
+    void tokensWithoutSessionPassUnauthenticated() throws Exception {
+        when(tokenService.verify("refresh")).thenReturn(new TokenClaims("u1", null, null, null, "refresh", Long.MAX_VALUE));
+        when(tokenService.verify("nosession")).thenReturn(new TokenClaims("u1", null, null, null, "access", Long.MAX_VALUE));
+
+        assertEquals(200, request("refresh").getStatus());
+        assertEquals(200, request("nosession").getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(sessionService, never()).getSession(any());
+    }
+}
@@ -0,0 +1,74 @@
+package com.app.main.root.app._cache;
+import com.app.main.root.app._types.Message;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Byte accounting kept by deltas against a full recount of what the
+ * cache holds, across puts, appends that carry between pages and
+ * appends that drop a broken page chain.
+ */
+class ChatCacheTest {
+    private static Message message(int id, String content) {
+        Message message = new Message();
+        message.setId(id);
+        message.setChatId("chat");
+        message.setSenderId("user");
+        message.setContent(content);
+        message.setMessageType("text");
+        message.setCreatedAt(new Timestamp(1_000_000L + id));
+        return message;
+    }
+
+    /* newest first, like the pages the service caches */
+    private static List<Message> page(int newestId, int size) {
+        List<Message> page = new ArrayList<>();
+        for(int i = 0; i < size; i++) page.add(message(newestId - i, "message " + (newestId - i)));
+        return page;
+    }
+
+    private static long recount(ChatCache cache, int pages, int pageSize) {
+        long bytes = 0;
+        for(int page = 0; page < pages; page++) {
+            List<Message> cached = cache.getCachedMessages("chat", page, pageSize);
+            if(cached == null) continue;
+            for(Message message : cached) bytes += cache.estimateSize(message);
+        }
+        return bytes;
+    }
+
+    @Test
+    void appendKeepsBytesInStep() {
+        ChatCache cache = new ChatCache(64 * 1024 * 1024);
+        cache.cacheMessages("chat", 0, 10, page(100, 10));
+        cache.cacheMessages("chat", 1, 10, page(90, 10));
+        cache.cacheMessages("chat", 0, 10, page(100, 10));
+        assertEquals(recount(cache, 3, 10), cache.getStats().estimatedBytes);
+
+        for(int id = 101; id <= 125; id++) {
+            cache.appendMessage("chat", message(id, "a longer message body " + id));
+            assertEquals(recount(cache, 3, 10), cache.getStats().estimatedBytes, "after " + id);
+        }
+        assertEquals(25 + 100, cache.getCachedMessages("chat", 0, 10).get(0).getId());
+    }
+
+    @Test
+    void brokenChainReleasesDroppedPages() {
+        ChatCache cache = new ChatCache(64 * 1024 * 1024);
+        cache.cacheMessages("chat", 0, 5, page(50, 5));
+        cache.cacheMessages("chat", 2, 5, page(40, 5));
+        cache.cacheMessages("chat", 3, 5, page(35, 5));
+
+        cache.appendMessage("chat", message(51, "new"));
+        assertEquals(null, cache.getCachedMessages("chat", 2, 5));
+        assertEquals(recount(cache, 4, 5), cache.getStats().estimatedBytes);
+
+        cache.invalidateMessageCache("chat");
+        assertEquals(0, cache.getStats().estimatedBytes);
+    }
+}
@@ -0,0 +1,128 @@
+package com.app.main.root.app._crypto.file_encoder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Many threads encrypting and decrypting through a small pool. Every
+ * file has its own key, so an encoder shared between two callers
+ * shows up as a ciphertext that does not decrypt under its key.
+ */
+class FileEncoderPoolTest {
+    private static final int FILES = 4000;
+    private static final int POOL_SIZE = 4;
+    private static final int THREADS = 32;
+
+    @BeforeAll
+    static void requireNatives() {
+        boolean loaded;
+        try {
+            new FileEncoderPool(1).acquire(new byte[32]).close();
+            loaded = true;
+        } catch(Throwable err) {
+            loaded = false;
+        }
+        assumeTrue(loaded, "file encoder natives not available");
+    }
+
+    @Test
+    void parallelRoundTripsStayIsolated() throws Exception {
+        FileEncoderPool pool = new FileEncoderPool(POOL_SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for(int i = 0; i < FILES; i++) {
+                results.add(executor.submit(() -> {
+                    roundTrip(pool);
+                    return null;
+                }));
+            }
+            for(Future<?> result : results) result.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Object> stats = pool.getStats();
+        assertEquals(2L * FILES, stats.get("checkouts"));
+        assertEquals(2L * FILES, stats.get("returns"));
+        assertEquals(0, stats.get("inUse"));
+        assertTrue((int) stats.get("created") <= POOL_SIZE, stats.toString());
+        assertTrue((int) stats.get("peakInUse") <= POOL_SIZE, stats.toString());
+        assertEquals((long) (int) stats.get("created"), stats.get("nativeAllocations"));
+        assertEquals(2L * FILES - (int) stats.get("created"), stats.get("rekeys"));
+        pool.close();
+    }
+
+    @Test
+    void nativeContextIsRekeyedNotReallocated() throws Exception {
+        FileEncoderPool pool = new FileEncoderPool(1);
+        for(int i = 0; i < 200; i++) roundTrip(pool);
+
+        Map<String, Object> stats = pool.getStats();
+        assertEquals(1, stats.get("created"));
+        assertEquals(1L, stats.get("nativeAllocations"));
+        assertEquals(399L, stats.get("rekeys"));
+
+        /* a bad key leaves the pooled context usable */
+        assertThrows(IllegalStateException.class, () -> pool.acquire(new byte[7]));
+        roundTrip(pool);
+        assertEquals(1L, pool.getStats().get("nativeAllocations"));
+        pool.close();
+        assertEquals(0, pool.getStats().get("idle"));
+    }
+
+    @Test
+    void closedLeaseCannotBeUsed() {
+        FileEncoderPool pool = new FileEncoderPool(1);
+        FileEncoderPool.Lease lease = pool.acquire(new byte[32]);
+        lease.close();
+        lease.close();
+        assertThrows(IllegalStateException.class, () -> lease.encrypt(new byte[] { 1 }));
+        assertEquals(1L, pool.getStats().get("returns"));
+    }
+
+    private static void roundTrip(FileEncoderPool pool) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        byte[] data = new byte[1 + random.nextInt(32 * 1024)];
+        random.nextBytes(data);
+
+        byte[] encrypted;
+        byte[] iv;
+        byte[] tag;
+        try(FileEncoderPool.Lease encoder = pool.acquire(key)) {
+            encrypted = encoder.encrypt(data);
+            iv = encoder.getIV();
+            tag = encoder.getTag();
+        }
+        assertEquals(12 + data.length + 16, encrypted.length);
+        assertArrayEquals(iv, Arrays.copyOf(encrypted, 12));
+        assertArrayEquals(tag, Arrays.copyOfRange(encrypted, encrypted.length - 16, encrypted.length));
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+        assertArrayEquals(data, cipher.doFinal(encrypted, 12, encrypted.length - 12));
+
+        try(FileEncoderPool.Lease decoder = pool.acquire(key)) {
+            assertArrayEquals(data, decoder.decrypt(encrypted));
+        }
+    }
+}
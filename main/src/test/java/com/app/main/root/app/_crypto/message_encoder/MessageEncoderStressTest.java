@@ -0,0 +1,115 @@
+package com.app.main.root.app._crypto.message_encoder;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the native ratchet from many threads across many chats.
+ * Runs only when SESSION_KEYS_PATH points at a scratch file so the
+ * session store in the source tree is never touched.
+ */
+@EnabledIfEnvironmentVariable(named = "SESSION_KEYS_PATH", matches = ".+")
+class MessageEncoderStressTest {
+    private static final int CHATS = 256;
+    private static final int THREADS = 16;
+    private static final int MESSAGES_PER_CHAT = 200;
+
+    private static MessageEncoderWrapper encoder;
+
+    @BeforeAll
+    static void init() {
+        encoder = new MessageEncoderWrapper();
+        assertTrue(encoder.init());
+    }
+
+    @AfterAll
+    static void cleanup() {
+        if(encoder != null) encoder.cleanupNative();
+    }
+
+    @Test
+    void concurrentChatsRoundTrip() throws Exception {
+        List<String> chats = new ArrayList<>();
+        for(int i = 0; i < CHATS; i++) {
+            String chatId = "stress_chat_" + i;
+            assertTrue(encoder.initSession(chatId, encoder.getPreKeyBundle()));
+            chats.add(chatId);
+        }
+
+        AtomicLong processed = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for(String chatId : chats) {
+            futures.add(executor.submit(() -> {
+                for(int n = 0; n < MESSAGES_PER_CHAT; n++) {
+                    byte[] plainText = (chatId + " message " + n).getBytes(StandardCharsets.UTF_8);
+                    byte[] cipherText = encoder.encryptMessage(chatId, plainText);
+                    assertArrayEquals(plainText, encoder.decryptMessage(chatId, cipherText));
+                    processed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for(Future<?> future : futures) future.get();
+        executor.shutdown();
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf(
+            "Message encoder: %d chats, %d threads, %d round trips in %.2fs (%.0f msg/s)%n",
+            CHATS, THREADS, processed.get(), seconds, processed.get() / seconds
+        );
+        assertEquals((long) CHATS * MESSAGES_PER_CHAT, processed.get());
+    }
+
+    @Test
+    void journalSurvivesReload() {
+        String chatId = "stress_reload";
+        assertTrue(encoder.initSession(chatId, encoder.getPreKeyBundle()));
+
+        byte[] first = encoder.encryptMessage(chatId, "first".getBytes(StandardCharsets.UTF_8));
+        encoder.decryptMessage(chatId, first);
+        byte[] second = encoder.encryptMessage(chatId, "second".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(encoder.loadSessionsNow());
+        assertArrayEquals("second".getBytes(StandardCharsets.UTF_8), encoder.decryptMessage(chatId, second));
+
+        assertTrue(encoder.saveSessionsNow());
+        assertTrue(encoder.loadSessionsNow());
+        assertArrayEquals("first".getBytes(StandardCharsets.UTF_8), encoder.decryptMessage(chatId, first));
+    }
+
+    @Test
+    void forgedCounterLeavesRatchetUntouched() {
+        String chatId = "stress_forged";
+        assertTrue(encoder.initSession(chatId, encoder.getPreKeyBundle()));
+        byte[] first = encoder.encryptMessage(chatId, "first".getBytes(StandardCharsets.UTF_8));
+
+        /* counter 5000, past the skipped-key limit, with a tag that does not verify */
+        byte[] forged = first.clone();
+        forged[2] = 0x13;
+        forged[3] = (byte) 0x88;
+        forged[forged.length - 1] ^= 1;
+        assertNull(encoder.decryptMessage(chatId, forged));
+
+        assertTrue(encoder.loadSessionsNow());
+        assertArrayEquals("first".getBytes(StandardCharsets.UTF_8), encoder.decryptMessage(chatId, first));
+        byte[] second = encoder.encryptMessage(chatId, "second".getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals("second".getBytes(StandardCharsets.UTF_8), encoder.decryptMessage(chatId, second));
+    }
+}
@@ -0,0 +1,147 @@
+package com.app.main.root.app._crypto.password_encoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Hashing on the bounded pool with per-hash cost. The benchmark
+ * reports hashes per second by pool size and runs only when
+ * RUN_BENCHMARKS is set.
+ */
+class PasswordHashServiceTest {
+    private static PasswordEncoderWrapper encoder;
+    private final List<PasswordHashService> services = new ArrayList<>();
+
+    @BeforeAll
+    static void requireNatives() {
+        try {
+            encoder = new PasswordEncoderWrapper();
+        } catch(Throwable err) {
+            encoder = null;
+        }
+        assumeTrue(encoder != null, "password encoder natives not available");
+    }
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(PasswordHashService::destroy);
+    }
+
+    private PasswordHashService service(int threads, int queueCapacity, int iterations) {
+        return service(threads, queueCapacity, iterations, 2_000);
+    }
+
+    private PasswordHashService service(int threads, int queueCapacity, int iterations, long loginTimeoutMs) {
+        PasswordHashService service = new PasswordHashService(encoder, threads, queueCapacity, 10_000, loginTimeoutMs, iterations);
+        service.init();
+        services.add(service);
+        return service;
+    }
+
+    @Test
+    void hashCarriesItsCost() {
+        PasswordHashService service = service(2, 16, 2000);
+        String hash = service.await(service.encode("Correct1horse"));
+
+        assertTrue(hash.startsWith("2$2000$"), hash);
+        assertTrue(service.await(service.matches("Correct1horse", hash)));
+        assertFalse(service.await(service.matches("Wrong1horse", hash)));
+        assertFalse(service.needsRehash(hash));
+    }
+
+    @Test
+    void olderCostStillMatchesAndAsksForRehash() {
+        String legacy = encoder.encode("Correct1horse");
+        assertEquals(PasswordEncoderWrapper.DEFAULT_ITERATIONS, PasswordEncoderWrapper.iterationsOf(legacy));
+
+        PasswordHashService service = service(2, 16, 3000);
+        assertTrue(service.await(service.matches("Correct1horse", legacy)));
+        assertTrue(service.needsRehash(legacy));
+        assertFalse(service.await(service.matches("Correct1horse", "2$abc$salt$hash")));
+    }
+
+    @Test
+    void fullQueueRejects() {
+        PasswordHashService service = service(1, 1, 200_000);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for(int i = 0; i < 8; i++) futures.add(service.encode("Correct1horse"));
+
+        int rejected = 0;
+        for(CompletableFuture<String> future : futures) {
+            try {
+                service.await(future);
+            } catch(RejectedExecutionException err) {
+                rejected++;
+            }
+        }
+        Map<String, Object> stats = service.getStats();
+        assertTrue(rejected >= 6, stats.toString());
+        assertEquals((long) rejected, stats.get("rejected"));
+    }
+
+    @Test
+    void loginCheckGivesUpAtLoginTimeout() {
+        String legacy = encoder.encode("Correct1horse");
+        PasswordHashService service = service(1, 4, 200_000, 100);
+
+        /* a costly encode holds the only hashing thread past the login bound */
+        CompletableFuture<String> slow = service.encode("Other1horse");
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> login = service.matches("Correct1horse", legacy);
+        assertThrows(RejectedExecutionException.class, () -> service.await(login));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMs < 1000, waitedMs + "ms");
+        assertTrue(service.await(slow).startsWith("2$200000$"));
+
+        /* the abandoned check is skipped once the thread frees up */
+        long deadline = System.currentTimeMillis() + 2000;
+        while(!Long.valueOf(1).equals(service.getStats().get("expired")) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1L, service.getStats().get("expired"));
+        assertEquals(1L, service.getStats().get("completed"));
+    }
+
+    @Test
+    void continuationsRunOffTheHashPool() {
+        PasswordHashService service = service(2, 16, 1000);
+        String thread = service.encode("Correct1horse").thenApply(hash -> Thread.currentThread().getName()).join();
+        assertFalse(thread.matches("password-hash-\\d+"), thread);
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = ".+")
+    void benchmarkPoolSizes() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int hashes = 400;
+        System.out.printf("%8s %12s %14s%n", "threads", "hashes/s", "avg hash us");
+        for(int threads = 1; threads <= cpus * 2; threads *= 2) {
+            PasswordHashService service = service(threads, hashes, PasswordEncoderWrapper.DEFAULT_ITERATIONS);
+            service.await(service.encode("Warmup1pass"));
+
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for(int i = 0; i < hashes; i++) futures.add(service.encode("Correct1horse" + i));
+            futures.forEach(service::await);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%8d %12.0f %14s%n", threads, hashes / seconds, service.getStats().get("avgHashMicros"));
+            service.destroy();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.app.main.root.app._crypto.user_validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Sharded rate limiter: limits, concurrent recording and the SQLite
+ * snapshot shared between instances.
+ */
+class UserValidatorWrapperTest {
+    private static boolean available;
+    private final List<UserValidatorWrapper> validators = new ArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void requireNatives() {
+        try {
+            new UserValidatorWrapper().destroy();
+            available = true;
+        } catch(Throwable err) {
+            available = false;
+        }
+        assumeTrue(available, "user validator natives not available");
+    }
+
+    @AfterEach
+    void shutdown() {
+        validators.forEach(UserValidatorWrapper::destroy);
+    }
+
+    private UserValidatorWrapper validator(String snapshotPath) {
+        UserValidatorWrapper validator = new UserValidatorWrapper(snapshotPath);
+        validator.init();
+        validators.add(validator);
+        return validator;
+    }
+
+    @Test
+    void limitsPerAddress() {
+        UserValidatorWrapper validator = validator(null);
+        for(int i = 0; i < 9; i++) validator.recordLoginAttempt("10.0.0.1");
+        assertFalse(validator.isLoginRateLimited("10.0.0.1"));
+
+        validator.recordLoginAttempt("10.0.0.1");
+        assertTrue(validator.isLoginRateLimited("10.0.0.1"));
+        assertFalse(validator.isRegistrationRateLimited("10.0.0.1"));
+        assertFalse(validator.isLoginRateLimited("10.0.0.2"));
+        assertEquals(1, validator.getRateLimitStats().get("entries"));
+    }
+
+    @Test
+    void concurrentAttemptsAllCount() throws Exception {
+        UserValidatorWrapper validator = validator(null);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for(int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                for(int i = 0; i < 2000; i++) validator.recordLoginAttempt("10.1." + (i % 250) + ".1");
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(250, validator.getRateLimitStats().get("entries"));
+        assertTrue(validator.isLoginRateLimited("10.1.0.1"));
+    }
+
+    @Test
+    void snapshotSurvivesRestartWithoutDoubleCounting() {
+        String path = dir.resolve("rate_limits.db").toString();
+        UserValidatorWrapper first = validator(path);
+        for(int i = 0; i < 4; i++) first.recordRegistrationAttempt("10.2.0.1");
+        first.close();
+
+        UserValidatorWrapper second = validator(path);
+        assertFalse(second.isRegistrationRateLimited("10.2.0.1"));
+        second.maintain();
+        second.maintain();
+        assertFalse(second.isRegistrationRateLimited("10.2.0.1"));
+
+        second.recordRegistrationAttempt("10.2.0.1");
+        assertTrue(second.isRegistrationRateLimited("10.2.0.1"));
+    }
+
+    @Test
+    void instancesShareThroughSnapshot() {
+        String path = dir.resolve("shared.db").toString();
+        UserValidatorWrapper a = validator(path);
+        UserValidatorWrapper b = validator(path);
+        for(int i = 0; i < 10; i++) a.recordLoginAttempt("10.3.0.1");
+        assertFalse(b.isLoginRateLimited("10.3.0.1"));
+
+        a.maintain();
+        b.maintain();
+        assertTrue(b.isLoginRateLimited("10.3.0.1"));
+        assertEquals(2L, b.getRateLimitStats().get("snapshotSyncs"));
+    }
+
+    @Test
+    void attemptsFromEachInstanceAddUp() {
+        String path = dir.resolve("combined.db").toString();
+        UserValidatorWrapper a = validator(path);
+        UserValidatorWrapper b = validator(path);
+        for(int i = 0; i < 6; i++) {
+            a.recordLoginAttempt("10.4.0.1");
+            b.recordLoginAttempt("10.4.0.1");
+            a.recordLoginAttempt("10.4.0.2");
+        }
+        assertFalse(a.isLoginRateLimited("10.4.0.1"));
+        assertFalse(b.isLoginRateLimited("10.4.0.1"));
+
+        a.maintain();
+        assertFalse(a.isLoginRateLimited("10.4.0.1"));
+        b.maintain();
+        assertTrue(b.isLoginRateLimited("10.4.0.1"));
+        a.maintain();
+        assertTrue(a.isLoginRateLimited("10.4.0.1"));
+
+        /* only one instance saw the other address, syncing again adds nothing */
+        for(int i = 0; i < 3; i++) {
+            a.maintain();
+            b.maintain();
+        }
+        assertFalse(a.isLoginRateLimited("10.4.0.2"));
+        assertFalse(b.isLoginRateLimited("10.4.0.2"));
+        for(int i = 0; i < 3; i++) b.recordLoginAttempt("10.4.0.2");
+        assertFalse(b.isLoginRateLimited("10.4.0.2"));
+        b.maintain();
+        a.maintain();
+        assertFalse(a.isLoginRateLimited("10.4.0.2"));
+        b.recordLoginAttempt("10.4.0.2");
+        b.maintain();
+        a.maintain();
+        assertTrue(a.isLoginRateLimited("10.4.0.2"));
+    }
+}
@@ -0,0 +1,162 @@
+package com.app.main.root.app._data;
+import com.app.main.root.app._service.FileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Blob store against a scratch files_metadata database built from
+ * the real schema.
+ */
+class BlobStoreTest {
+    private static final Path SCHEMA = Paths.get(
+        "src/main/java/com/app/main/root/app/_db/src/files_metadata.sql"
+    );
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate metadataTemplate;
+    private BlobStore blobStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        metadataTemplate = template(tempDir.resolve("files_metadata.db"));
+        for(String statement : Files.readString(SCHEMA).split(";")) {
+            if(!statement.isBlank()) metadataTemplate.execute(statement);
+        }
+        blobStore = new BlobStore(metadataTemplate, tempDir.resolve("blobs"));
+    }
+
+    @Test
+    void identicalContentIsStoredOnce() throws Exception {
+        byte[] content = bytes(300_000, 1);
+        String first = blobStore.write(content);
+        String second = blobStore.write(new java.io.ByteArrayInputStream(content));
+
+        assertEquals(first, second);
+        Path path = blobStore.path(first);
+        assertEquals(tempDir.resolve("blobs").resolve(first.substring(0, 2)).resolve(first.substring(2, 4)).resolve(first), path);
+        assertArrayEquals(content, Files.readAllBytes(path));
+        try(var temps = Files.list(tempDir.resolve("blobs").resolve("tmp"))) {
+            assertEquals(0, temps.count());
+        }
+    }
+
+    @Test
+    void lastReleaseCollectsBlob() throws Exception {
+        byte[] content = bytes(4096, 2);
+        String hash = blobStore.write(content);
+        blobStore.register(hash, "content", content.length);
+        assertTrue(blobStore.acquire(hash));
+
+        assertFalse(blobStore.release(hash));
+        assertTrue(Files.exists(blobStore.path(hash)));
+
+        assertTrue(blobStore.release(hash));
+        assertFalse(Files.exists(blobStore.path(hash)));
+        assertFalse(blobStore.acquire(hash));
+        assertFalse(blobStore.release(hash));
+    }
+
+    @Test
+    void sharedBlobIsFoundByContentOfLiveFile() throws Exception {
+        String hash = blobStore.write(bytes(1024, 3));
+        blobStore.register(hash, "plain", 1024);
+        insertMetadata("a", hash, false);
+
+        Map<String, Object> donor = blobStore.findByContent("plain");
+        assertEquals(hash, donor.get("blob_hash"));
+        assertEquals("a", donor.get("file_id"));
+
+        metadataTemplate.update("UPDATE files_metadata SET is_deleted = TRUE WHERE file_id = ?", "a");
+        assertNull(blobStore.findByContent("plain"));
+    }
+
+    @Test
+    void sourceReadsRanges() throws Exception {
+        byte[] content = bytes(200_000, 4);
+        ContentSource source = blobStore.source(blobStore.write(content));
+
+        assertEquals(content.length, source.length());
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 12), source.readRange(0, 12));
+        try(InputStream input = source.open(70_001, 150_000)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 70_001, 150_000), input.readAllBytes());
+        }
+        try(InputStream input = source.open(10, 100)) {
+            input.skipNBytes(40);
+            assertArrayEquals(Arrays.copyOfRange(content, 50, 100), input.readAllBytes());
+        }
+    }
+
+    @Test
+    void migratorMovesLegacyContent() throws Exception {
+        JdbcTemplate videoTemplate = template(tempDir.resolve("video_data.db"));
+        videoTemplate.execute("CREATE TABLE video_data(file_id TEXT PRIMARY KEY, content BLOB NOT NULL)");
+        byte[] live = bytes(50_000, 5);
+        videoTemplate.update("INSERT INTO video_data(file_id, content) VALUES (?, ?)", "live", live);
+        videoTemplate.update("INSERT INTO video_data(file_id, content) VALUES (?, ?)", "gone", bytes(100, 6));
+        insertMetadata("live", null, false);
+        insertMetadata("gone", null, true);
+
+        BlobMigrator migrator = new BlobMigrator(
+            null,
+            Map.of(FileService.METADATA_DB, metadataTemplate, FileService.VIDEO_DB, videoTemplate),
+            blobStore,
+            16 * 1024
+        );
+        assertEquals(1, migrator.run(true));
+        assertEquals(0, migrator.run(false));
+
+        String hash = metadataTemplate.queryForObject(
+            "SELECT blob_hash FROM files_metadata WHERE file_id = ?", String.class, "live"
+        );
+        assertArrayEquals(live, blobStore.read(hash));
+        assertEquals(0, videoTemplate.queryForObject("SELECT COUNT(*) FROM video_data", Integer.class));
+        assertTrue(blobStore.release(hash));
+    }
+
+    private void insertMetadata(String fileId, String blobHash, boolean deleted) {
+        metadataTemplate.update(
+            """
+                INSERT INTO files_metadata(
+                    file_id, user_id, original_filename, file_size, mime_type,
+                    file_type, database_name, is_deleted, blob_hash
+                ) VALUES (?, 'user', ?, 0, 'video/mp4', 'video', ?, ?, ?)
+            """,
+            fileId,
+            fileId,
+            FileService.VIDEO_DB,
+            deleted,
+            blobHash
+        );
+    }
+
+    private static JdbcTemplate template(Path db) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:sqlite:" + db);
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        return new JdbcTemplate(dataSource);
+    }
+
+    private static byte[] bytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,360 @@
+package com.app.main.root.app._data;
+import com.app.main.root.app._crypto.file_encoder.FileEncoderWrapper;
+import com.app.main.root.app.file_compressor.WithCompressionResult;
+import com.app.main.root.app.file_compressor.WrapperFileCompressor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Streams encrypted content out of a scratch SQLite database. The
+ * large file case runs in a child JVM whose heap is a fraction of
+ * the file size, so it only passes if the download path is bounded.
+ */
+class FileDownloadStreamTest {
+    private static final int BLOCK = 64 * 1024;
+    private static final long LARGE_FILE = 96L * 1024 * 1024;
+    private static final String CHILD_HEAP = "-Xmx32m";
+    private static final int WINDOW = 4 * 1024 * 1024;
+    private static final String TABLE = "video_data";
+
+    @TempDir
+    static Path tempDir;
+
+    @BeforeAll
+    static void requireNatives() {
+        boolean loaded;
+        try {
+            FileEncoderWrapper.openDecryptStream(
+                new byte[32],
+                FileEncoderWrapper.EncryptionAlgorithm.AES_256_GCM,
+                new byte[12],
+                0,
+                true
+            ).close();
+            loaded = true;
+        } catch(Throwable err) {
+            loaded = false;
+        }
+        assumeTrue(loaded, "file encoder natives not available");
+    }
+
+    @Test
+    void largeDownloadStaysWithinSmallHeap() throws Exception {
+        Path db = tempDir.resolve("large.db");
+        byte[] key = randomKey();
+        storeEncrypted(db, "large", key, LARGE_FILE);
+
+        long rangeStart = 37L * 1024 * 1024 + 11;
+        long rangeEnd = rangeStart + 3 * 1024 * 1024 + 5;
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add(CHILD_HEAP);
+        command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(FileDownloadStreamTest.class.getName());
+        command.add(db.toString());
+        command.add(HexFormat.of().formatHex(key));
+        command.add(Long.toString(LARGE_FILE));
+        command.add(Long.toString(rangeStart));
+        command.add(Long.toString(rangeEnd));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes());
+        assertEquals(true, process.waitFor(5, TimeUnit.MINUTES), "child timed out");
+        assertEquals(0, process.exitValue(), output);
+
+        String[] lines = output.lines().filter(line -> line.startsWith("DIGEST ")).toArray(String[]::new);
+        assertEquals(2, lines.length, output);
+        assertEquals("DIGEST " + expectedDigest(0, LARGE_FILE - 1), lines[0]);
+        assertEquals("DIGEST " + expectedDigest(rangeStart, rangeEnd), lines[1]);
+    }
+
+    @Test
+    void rangesMatchPlaintext() throws Exception {
+        Path db = tempDir.resolve("ranges.db");
+        byte[] key = randomKey();
+        long length = 3L * WINDOW + 12345;
+        storeEncrypted(db, "ranges", key, length);
+        FileDownloadStream file = open(db, "ranges", key, length);
+
+        long[][] ranges = {
+            { 0, length - 1 },
+            { 0, 0 },
+            { 15, 17 },
+            { WINDOW - 13, WINDOW + 40 },
+            { 2L * WINDOW + 7, length - 1 },
+            { length - 1, length - 1 }
+        };
+        for(long[] range : ranges) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            file.writeTo(output, range[0], range[1]);
+            assertArrayEquals(plaintext(range[0], range[1]), output.toByteArray(), range[0] + "-" + range[1]);
+        }
+    }
+
+    @Test
+    void blobRangesMatchPlaintext() throws Exception {
+        Path db = tempDir.resolve("blob.db");
+        byte[] key = randomKey();
+        long length = 2L * WINDOW + 999;
+        storeEncrypted(db, "blob", key, length);
+
+        byte[] content = template(db).queryForObject("SELECT content FROM " + TABLE + " WHERE file_id = ?", byte[].class, "blob");
+        BlobStore blobStore = new BlobStore(null, tempDir.resolve("blobs"));
+        ContentSource source = blobStore.source(blobStore.write(content));
+        FileDownloadStream file = new FileDownloadStream(
+            "blob",
+            "blob.bin",
+            "application/octet-stream",
+            length,
+            0,
+            "\"blob\"",
+            0,
+            source,
+            source.length(),
+            WINDOW,
+            key::clone,
+            new ConcurrentHashMap<>()
+        );
+
+        long[][] ranges = {
+            { 0, length - 1 },
+            { 3, 3 },
+            { WINDOW + 1, 2L * WINDOW + 17 },
+            { length - 2, length - 1 }
+        };
+        for(long[] range : ranges) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            file.writeTo(output, range[0], range[1]);
+            assertArrayEquals(plaintext(range[0], range[1]), output.toByteArray(), range[0] + "-" + range[1]);
+        }
+    }
+
+    @Test
+    void tamperedContentFailsVerification() throws Exception {
+        Path db = tempDir.resolve("tampered.db");
+        byte[] key = randomKey();
+        long length = 200_000;
+        storeEncrypted(db, "tampered", key, length);
+
+        JdbcTemplate jdbcTemplate = template(db);
+        byte[] blob = jdbcTemplate.queryForObject("SELECT content FROM " + TABLE + " WHERE file_id = ?", byte[].class, "tampered");
+        blob[100] ^= 1;
+        jdbcTemplate.update("UPDATE " + TABLE + " SET content = ? WHERE file_id = ?", blob, "tampered");
+
+        FileDownloadStream file = open(db, "tampered", key, length);
+        assertThrows(IOException.class, () -> file.writeTo(OutputStream.nullOutputStream(), 0, length - 1));
+    }
+
+    @Test
+    void legacySingleShotRowDecodes() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; text.length() < 3 * 1024 * 1024; i++) text.append("line ").append(i % 977).append(" of a legacy upload\n");
+        byte[] original = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        WithCompressionResult compressed;
+        try {
+            compressed = WrapperFileCompressor.compress(original);
+        } catch(Throwable err) {
+            compressed = null;
+        }
+        assumeTrue(compressed != null, "file compressor natives not available");
+        int type = compressed.getCompressionType();
+        assertTrue(type > 0 && type <= 5, "type " + type);
+
+        Path db = tempDir.resolve("legacy.db");
+        byte[] key = randomKey();
+        storeEncrypted(db, "legacy", key, compressed.getData());
+        FileDownloadStream file = open(db, "legacy", key, original.length, type);
+
+        long[][] ranges = {
+            { 0, original.length - 1 },
+            { 5, 5 },
+            { 1024 * 1024 - 3, 2 * 1024 * 1024 + 9 },
+            { original.length - 4, original.length - 1 }
+        };
+        for(long[] range : ranges) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            file.writeTo(output, range[0], range[1]);
+            byte[] expected = Arrays.copyOfRange(original, (int) range[0], (int) range[1] + 1);
+            assertArrayEquals(expected, output.toByteArray(), range[0] + "-" + range[1]);
+        }
+
+        JdbcTemplate jdbcTemplate = template(db);
+        byte[] blob = jdbcTemplate.queryForObject("SELECT content FROM " + TABLE + " WHERE file_id = ?", byte[].class, "legacy");
+        blob[blob.length / 2] ^= 1;
+        jdbcTemplate.update("UPDATE " + TABLE + " SET content = ? WHERE file_id = ?", blob, "legacy");
+        ByteArrayOutputStream tampered = new ByteArrayOutputStream();
+        assertThrows(IOException.class, () -> file.writeTo(tampered, 0, original.length - 1));
+        assertEquals(0, tampered.size());
+
+        long oversized = FileDownloadStream.SINGLE_SHOT_MAX_BYTES + 1;
+        FileDownloadStream tooLarge = open(db, "legacy", key, oversized, type);
+        assertThrows(IOException.class, () -> tooLarge.writeTo(OutputStream.nullOutputStream(), 0, 0));
+    }
+
+    /**
+     * Child JVM entry point: streams the whole file and one range,
+     * printing a digest of each.
+     */
+    public static void main(String[] args) throws Exception {
+        Path db = Paths.get(args[0]);
+        byte[] key = HexFormat.of().parseHex(args[1]);
+        long length = Long.parseLong(args[2]);
+        long rangeStart = Long.parseLong(args[3]);
+        long rangeEnd = Long.parseLong(args[4]);
+
+        FileDownloadStream file = open(db, "large", key, length);
+        System.out.println("DIGEST " + digestOf(file, 0, length - 1));
+        System.out.println("DIGEST " + digestOf(file, rangeStart, rangeEnd));
+    }
+
+    private static String digestOf(FileDownloadStream file, long start, long end) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        file.writeTo(new OutputStream() {
+            @Override
+            public void write(int b) {
+                digest.update((byte) b);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) {
+                digest.update(buffer, offset, length);
+            }
+        }, start, end);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static FileDownloadStream open(Path db, String fileId, byte[] key, long length) {
+        return open(db, fileId, key, length, 0);
+    }
+
+    private static FileDownloadStream open(Path db, String fileId, byte[] key, long length, int compressionType) {
+        JdbcTemplate jdbcTemplate = template(db);
+        long contentLength = FileContentInputStream.contentLength(jdbcTemplate, TABLE, fileId);
+        Map<String, byte[]> ivCache = new ConcurrentHashMap<>();
+        return new FileDownloadStream(
+            fileId,
+            fileId + ".bin",
+            "application/octet-stream",
+            length,
+            0,
+            "\"" + fileId + "\"",
+            compressionType,
+            jdbcTemplate,
+            TABLE,
+            contentLength,
+            WINDOW,
+            key::clone,
+            ivCache
+        );
+    }
+
+    private static JdbcTemplate template(Path db) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:sqlite:" + db);
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        return new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Writes IV | ciphertext | tag, the same layout the native encoder produces.
+     */
+    private static void storeEncrypted(Path db, String fileId, byte[] key, long length) throws Exception {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+
+        byte[] blob = new byte[(int) length + 28];
+        System.arraycopy(iv, 0, blob, 0, 12);
+        int position = 12;
+        for(long offset = 0; offset < length; offset += BLOCK) {
+            byte[] block = plaintext(offset, Math.min(length, offset + BLOCK) - 1);
+            position += cipher.update(block, 0, block.length, blob, position);
+        }
+        cipher.doFinal(blob, position);
+        insert(db, fileId, blob);
+    }
+
+    private static void storeEncrypted(Path db, String fileId, byte[] key, byte[] data) throws Exception {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+
+        byte[] blob = new byte[data.length + 28];
+        System.arraycopy(iv, 0, blob, 0, 12);
+        cipher.doFinal(data, 0, data.length, blob, 12);
+        insert(db, fileId, blob);
+    }
+
+    private static void insert(Path db, String fileId, byte[] blob) {
+        JdbcTemplate jdbcTemplate = template(db);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + "(file_id TEXT PRIMARY KEY, content BLOB)");
+        jdbcTemplate.update("INSERT INTO " + TABLE + "(file_id, content) VALUES (?, ?)", fileId, blob);
+    }
+
+    /**
+     * Deterministic content, every 64 KB block is seeded by its index
+     * so any range can be rebuilt without keeping the file around.
+     */
+    private static byte[] plaintext(long start, long end) {
+        byte[] data = new byte[(int) (end - start + 1)];
+        byte[] block = new byte[BLOCK];
+        long blockIndex = -1;
+        for(int i = 0; i < data.length; i++) {
+            long position = start + i;
+            if(position / BLOCK != blockIndex) {
+                blockIndex = position / BLOCK;
+                new Random(blockIndex).nextBytes(block);
+            }
+            data[i] = block[(int) (position % BLOCK)];
+        }
+        return data;
+    }
+
+    private static String expectedDigest(long start, long end) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for(long offset = start; offset <= end; offset += BLOCK) {
+            digest.update(plaintext(offset, Math.min(end, offset + BLOCK - 1)));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static byte[] randomKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
@@ -0,0 +1,108 @@
+package com.app.main.root.app._service;
+import com.app.main.root.app._db.DataSourceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A batch that fails with an unchecked exception is rolled back before
+ * autocommit comes back, and every sender's future still completes.
+ */
+class MessageBatchWriterTest {
+    private MessageBatchWriter writer;
+    private Connection conn;
+    private PreparedStatement stmt;
+
+    @BeforeEach
+    void init() throws Exception {
+        conn = mock(Connection.class);
+        stmt = mock(PreparedStatement.class);
+        ResultSet keys = mock(ResultSet.class);
+        when(conn.prepareStatement(anyString(), anyInt())).thenReturn(stmt);
+        when(stmt.getGeneratedKeys()).thenReturn(keys);
+        when(keys.next()).thenReturn(true);
+        when(keys.getInt(1)).thenReturn(7);
+
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(conn);
+        DataSourceService dataSourceService = mock(DataSourceService.class);
+        when(dataSourceService.setDb("message_service")).thenReturn(dataSource);
+        ChatSummaryService chatSummaryService = mock(ChatSummaryService.class);
+        when(chatSummaryService.recorder(any())).thenReturn(mock(ChatSummaryService.Recorder.class));
+
+        writer = new MessageBatchWriter(dataSourceService, chatSummaryService);
+        ReflectionTestUtils.setField(writer, "queueCapacity", 100);
+        ReflectionTestUtils.setField(writer, "maxBatchSize", 2);
+        ReflectionTestUtils.setField(writer, "flushMicros", 1_000_000L);
+        ReflectionTestUtils.setField(writer, "enqueueTimeoutMs", 1000L);
+        writer.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        writer.destroy();
+    }
+
+    private CompletableFuture<Integer> submit() throws Exception {
+        return writer.submit(
+            "direct_a_b",
+            "a",
+            "hello".getBytes(StandardCharsets.UTF_8),
+            "text",
+            "alice",
+            new Timestamp(System.currentTimeMillis()),
+            false
+        );
+    }
+
+    @Test
+    void uncheckedFailureRollsBackAndRetriesEachMessage() throws Exception {
+        when(stmt.executeUpdate())
+            .thenThrow(new IllegalStateException("driver bug"))
+            .thenReturn(1);
+        CompletableFuture<Integer> first = submit();
+        CompletableFuture<Integer> second = submit();
+
+        assertEquals(7, first.get(5, TimeUnit.SECONDS));
+        assertEquals(7, second.get(5, TimeUnit.SECONDS));
+        InOrder order = inOrder(conn);
+        order.verify(conn).setAutoCommit(false);
+        order.verify(conn).rollback();
+        order.verify(conn).setAutoCommit(true);
+        assertEquals(0L, writer.getStats().get("messagesFailed"));
+    }
+
+    @Test
+    void messagesThatCannotBeWrittenFailTheirFutures() throws Exception {
+        when(stmt.executeUpdate()).thenThrow(new IllegalStateException("driver bug"));
+        CompletableFuture<Integer> first = submit();
+        CompletableFuture<Integer> second = submit();
+
+        ExecutionException err = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, err.getCause());
+        assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertEquals(2L, writer.getStats().get("messagesFailed"));
+    }
+}
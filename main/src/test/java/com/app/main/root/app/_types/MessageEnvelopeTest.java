@@ -0,0 +1,65 @@
+package com.app.main.root.app._types;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The envelope's JSON against the map messages it replaced: same keys,
+ * client timestamps passed through untouched, routing hints left out.
+ */
+class MessageEnvelopeTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static Map<String, Object> message(Object timestamp) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("messageId", "m1");
+        message.put("chatId", "direct_a_b");
+        message.put("senderId", "a");
+        message.put("username", "alice");
+        message.put("content", "héllo");
+        message.put("timestamp", timestamp);
+        message.put("recipientId", "b");
+        message.put("isDirect", true);
+        return message;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> json(MessageEnvelope envelope) throws Exception {
+        return mapper.readValue(mapper.writeValueAsString(envelope), Map.class);
+    }
+
+    @Test
+    void passesClientTimestampsThrough() throws Exception {
+        assertEquals("2026-01-01T10:00:00Z", json(MessageEnvelope.fromMap(message("2026-01-01T10:00:00Z"))).get("timestamp"));
+        assertEquals("not a date", json(MessageEnvelope.fromMap(message("not a date"))).get("timestamp"));
+        assertEquals(1_700_000_000_000L, json(MessageEnvelope.fromMap(message(1_700_000_000_000L))).get("timestamp"));
+
+        Map<String, Object> missing = json(MessageEnvelope.fromMap(message(null)));
+        assertTrue(missing.containsKey("timestamp"));
+        assertEquals(null, missing.get("timestamp"));
+    }
+
+    @Test
+    void keepsMapMessageFields() throws Exception {
+        MessageEnvelope envelope = MessageEnvelope.fromMap(message(1L));
+        Map<String, Object> json = json(envelope);
+
+        assertEquals("a", json.get("senderId"));
+        assertEquals("a", json.get("userId"));
+        assertEquals("héllo", json.get("content"));
+        assertEquals(true, json.get("isDirect"));
+        assertEquals(false, json.get("isGroup"));
+        assertFalse(json.containsKey("contentBytes"));
+        assertFalse(json.containsKey("recipientId"));
+        assertEquals("b", envelope.getRecipientId());
+        assertArrayEquals("héllo".getBytes(StandardCharsets.UTF_8), envelope.getContentBytes());
+    }
+}
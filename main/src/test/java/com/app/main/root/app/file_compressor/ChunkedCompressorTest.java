@@ -0,0 +1,145 @@
+package com.app.main.root.app.file_compressor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Chunked stream round trips: header and frame layout, checksum
+ * failures and streams written before the framed format.
+ */
+class ChunkedCompressorTest {
+    private static final int CHUNK = 64 * 1024;
+    private static final int HEADER = 4 + 1 + 8 + 4;
+    private static final int FRAME_HEADER = 1 + 4 + 4 + 4;
+
+    @BeforeEach
+    void smallChunks() {
+        ChunkedCompressor.configure(2, CHUNK);
+    }
+
+    @AfterEach
+    void restore() {
+        ChunkedCompressor.configure(0, 5 * 1024 * 1024);
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] text(int length) {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; text.length() < length; i++) text.append("row ").append(i % 311).append(", some repeated text\n");
+        return Arrays.copyOf(text.toString().getBytes(StandardCharsets.UTF_8), length);
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ChunkedCompressor.compress(new ByteArrayInputStream(data), data.length, output);
+        return output.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] stream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ChunkedCompressor.decompress(new ByteArrayInputStream(stream), output);
+        return output.toByteArray();
+    }
+
+    private static boolean nativesLoaded() {
+        try {
+            WrapperFileCompressor.compress(text(4096));
+            return true;
+        } catch(Throwable err) {
+            return false;
+        }
+    }
+
+    @Test
+    void storedFramesRoundTripWithHeader() throws IOException {
+        byte[] data = random(3 * CHUNK + 123);
+        byte[] stream = compress(data);
+
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(stream));
+        assertEquals(ChunkedCompressor.STREAM_MAGIC, header.readInt());
+        assertEquals(ChunkedCompressor.STREAM_VERSION, header.readUnsignedByte());
+        assertEquals(data.length, header.readLong());
+        assertEquals(CHUNK, header.readInt());
+
+        assertEquals(ChunkedCompressor.CODEC_STORED, header.readUnsignedByte());
+        assertEquals(CHUNK, header.readInt());
+        assertEquals(CHUNK, header.readInt());
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, CHUNK);
+        assertEquals((int) crc.getValue(), header.readInt());
+
+        assertEquals(HEADER + 4 * FRAME_HEADER + data.length, stream.length);
+        assertArrayEquals(data, decompress(stream));
+    }
+
+    @Test
+    void compressedFramesRoundTrip() throws IOException {
+        assumeTrue(nativesLoaded(), "file compressor natives not available");
+        byte[] data = text(4 * CHUNK + 77);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int compressedFrames = WrapperFileCompressor.compressStream(new ByteArrayInputStream(data), data.length, output);
+        byte[] stream = output.toByteArray();
+
+        assertTrue(compressedFrames > 0);
+        assertTrue(stream.length < data.length, stream.length + " >= " + data.length);
+        assertArrayEquals(data, decompress(stream));
+    }
+
+    @Test
+    void checksumMismatchFails() throws IOException {
+        byte[] data = random(2 * CHUNK);
+        byte[] stream = compress(data);
+        stream[HEADER + FRAME_HEADER + 10] ^= 1;
+
+        IOException err = assertThrows(IOException.class, () -> decompress(stream));
+        assertTrue(err.getMessage().contains("checksum"), err.getMessage());
+    }
+
+    @Test
+    void truncatedStreamFails() throws IOException {
+        byte[] stream = compress(random(2 * CHUNK));
+        byte[] truncated = Arrays.copyOf(stream, stream.length - 100);
+        assertThrows(IOException.class, () -> decompress(truncated));
+    }
+
+    @Test
+    void legacyStreamFallsBack() throws IOException {
+        byte[] data = random(CHUNK + 500);
+        ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(legacy);
+        output.writeLong(data.length);
+        output.writeByte(0);
+        output.writeInt(CHUNK);
+        output.write(data, 0, CHUNK);
+        output.writeByte(0);
+        output.writeInt(500);
+        output.write(data, CHUNK, 500);
+
+        assertArrayEquals(data, decompress(legacy.toByteArray()));
+
+        byte[] truncated = Arrays.copyOf(legacy.toByteArray(), legacy.size() - 1);
+        assertThrows(IOException.class, () -> decompress(truncated));
+    }
+}
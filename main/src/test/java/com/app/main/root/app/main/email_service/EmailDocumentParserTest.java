@@ -0,0 +1,102 @@
+package com.app.main.root.app.main.email_service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiled templates against the parse-per-render path they replace.
+ * The benchmark compares per-render cost and runs only when
+ * RUN_BENCHMARKS is set.
+ */
+class EmailDocumentParserTest {
+    private static final List<String> TEMPLATES = List.of("welcome-email", "password-reset", "password-changed");
+
+    private EmailDocumentParser parser;
+
+    @BeforeEach
+    void init() {
+        parser = new EmailDocumentParser();
+        parser.preload();
+    }
+
+    private static Map<String, Object> context() {
+        Map<String, Object> context = new HashMap<>();
+        context.put("appName", "Messages");
+        context.put("username", "alice");
+        context.put("userId", "u-42");
+        context.put("resetUrl", "https://example.test/?action=reset&token=abc");
+        context.put("webUrl", "https://example.test");
+        context.put("supportUrl", "https://example.test/support");
+        context.put("changeTime", "2026-01-01 10:00");
+        return context;
+    }
+
+    @Test
+    void matchesUncachedRender() {
+        for(String name : TEMPLATES) {
+            Map<String, Object> context = context();
+            assertEquals(parser.renderUncached(name, context), parser.render(name, context), name);
+        }
+    }
+
+    @Test
+    void keepsUnknownPlaceholdersAndTrimsValues() {
+        Map<String, Object> context = new HashMap<>();
+        context.put("appName", "  Messages  ");
+        context.put("username", null);
+        for(String name : TEMPLATES) {
+            String rendered = parser.render(name, context);
+            assertEquals(parser.renderUncached(name, context), rendered, name);
+        }
+        assertTrue(parser.render("password-reset", context).contains("href=\"{{resetUrl}}\""));
+    }
+
+    @Test
+    void customRendererStillRunsPerRender() {
+        parser.registerRenderer("h1", (element, context, p) -> "<h1>" + context.get("username") + "</h1>");
+        Map<String, Object> context = context();
+        for(String name : TEMPLATES) {
+            assertEquals(parser.renderUncached(name, context), parser.render(name, context), name);
+        }
+        context.put("username", "bob");
+        assertEquals(parser.renderUncached("welcome-email", context), parser.render("welcome-email", context));
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "RUN_BENCHMARKS", matches = ".+")
+    void benchmarkAgainstUncached() {
+        Map<String, Object> context = context();
+        int rounds = 2000;
+        System.out.printf("%18s %14s %14s %8s%n", "template", "uncached us", "compiled us", "speedup");
+        for(String name : TEMPLATES) {
+            for(int i = 0; i < 200; i++) {
+                parser.renderUncached(name, context);
+                parser.render(name, context);
+            }
+
+            long uncached = System.nanoTime();
+            for(int i = 0; i < rounds; i++) parser.renderUncached(name, context);
+            uncached = System.nanoTime() - uncached;
+
+            long compiled = System.nanoTime();
+            for(int i = 0; i < rounds; i++) parser.render(name, context);
+            compiled = System.nanoTime() - compiled;
+
+            System.out.printf(
+                "%18s %14.2f %14.2f %7.1fx%n",
+                name,
+                uncached / 1000.0 / rounds,
+                compiled / 1000.0 / rounds,
+                (double) uncached / Math.max(1, compiled)
+            );
+            assertTrue(compiled < uncached, name);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.app.main.root.app.main.email_service;
+import com.app.main.root.app._db.DataSourceService;
+import com.app.main.root.app._db.DbPool;
+import com.app.main.root.app._db.DbPoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Outbox delivery against an in-process SMTP stand-in: connection
+ * reuse, retry with backoff, giving up, and enqueue not waiting on a
+ * slow relay.
+ */
+class EmailOutboxTest {
+    @TempDir
+    Path dir;
+
+    private DbPool pool;
+    private DataSourceService dataSourceService;
+    private FakeSmtpServer server;
+    private SmtpMailer mailer;
+    private EmailOutbox outbox;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        pool = new DbPool("email_outbox", dir.resolve("email_outbox.db").toString(), DbPoolConfig.defaults());
+        dataSourceService = new DataSourceService(Map.of("email_outbox", pool));
+        server = new FakeSmtpServer();
+        mailer = new SmtpMailer("127.0.0.1", server.getPort(), null, null, false, "noreply@test.local", 2, 5000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if(outbox != null) outbox.stop();
+        mailer.close();
+        server.close();
+        pool.close();
+    }
+
+    private EmailOutbox outbox(EmailOutbox.Sender sender, int threads, int maxAttempts, long backoffMs) {
+        outbox = new EmailOutbox(dataSourceService, sender, threads, maxAttempts, backoffMs, backoffMs * 8, 50, 60_000);
+        outbox.start();
+        return outbox;
+    }
+
+    private static void await(BooleanSupplier condition, Object context) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while(!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out: " + context);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void deliversOverOneConnection() throws Exception {
+        EmailOutbox outbox = outbox(mailer::send, 1, 3, 50);
+        for(int i = 0; i < 5; i++) {
+            outbox.enqueue("user" + i + "@test.local", "Subject " + i, "<p>Body " + i + "</p>");
+        }
+
+        await(() -> server.messages.size() == 5, server.messages);
+        await(() -> (long) outbox.getStats().get("sent") == 5, outbox.getStats());
+        assertEquals(1, server.connections.get());
+        assertEquals(0L, outbox.getStats().get("pending"));
+        assertTrue(server.messages.get(0).contains("Subject: Subject 0"));
+    }
+
+    @Test
+    void retriesAfterTemporaryFailure() throws Exception {
+        server.failNext.set(2);
+        EmailOutbox outbox = outbox(mailer::send, 1, 5, 50);
+        outbox.enqueue("user@test.local", "Retry", "<p>Retry</p>");
+
+        await(() -> server.messages.size() == 1, outbox.getStats());
+        Map<String, Object> stats = outbox.getStats();
+        assertEquals(2L, stats.get("retried"));
+        assertEquals(0L, stats.get("failed"));
+        assertEquals(0L, stats.get("pending"));
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws Exception {
+        EmailOutbox outbox = outbox((to, subject, body) -> {
+            throw new IllegalStateException("relay down");
+        }, 1, 3, 20);
+        outbox.enqueue("user@test.local", "Lost", "<p>Lost</p>");
+
+        await(() -> (long) outbox.getStats().get("failed") == 1, outbox.getStats());
+        Map<String, Object> stats = outbox.getStats();
+        assertEquals(2L, stats.get("retried"));
+        assertEquals(1L, stats.get("failedRows"));
+        assertEquals(0L, stats.get("pending"));
+    }
+
+    @Test
+    void enqueueDoesNotWaitForRelay() throws Exception {
+        EmailOutbox outbox = outbox((to, subject, body) -> Thread.sleep(1000), 1, 3, 50);
+        long start = System.nanoTime();
+        for(int i = 0; i < 3; i++) outbox.enqueue("user@test.local", "Slow", "<p>Slow</p>");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs < 500, "enqueue took " + elapsedMs + "ms");
+        assertEquals(3L, outbox.getStats().get("enqueued"));
+    }
+
+    @Test
+    void requeuesClaimsWhoseLeaseRanOut() throws Exception {
+        EmailOutbox outbox = outbox(mailer::send, 1, 3, 50);
+        long now = System.currentTimeMillis();
+        /* rows whose status update never landed after a send */
+        claimed("expired@test.local", now - 1);
+        claimed("leased@test.local", now + 60_000);
+
+        await(() -> server.messages.size() == 1, outbox.getStats());
+        Thread.sleep(200);
+        assertEquals(1, server.messages.size());
+        assertTrue(server.messages.get(0).contains("expired@test.local"));
+        Map<String, Object> stats = outbox.getStats();
+        assertEquals(1L, stats.get("requeued"));
+        assertEquals(1L, stats.get("sent"));
+    }
+
+    private void claimed(String toEmail, long leaseUntil) throws Exception {
+        try(
+            Connection conn = pool.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO email_outbox(to_email, subject, body, status, created_at, next_attempt_at) VALUES (?, 'Lost', '<p>Lost</p>', 'sending', ?, ?)"
+            );
+        ) {
+            stmt.setString(1, toEmail);
+            stmt.setLong(2, leaseUntil);
+            stmt.setLong(3, leaseUntil);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Test
+    void backoffDoublesUpToCap() {
+        EmailOutbox outbox = new EmailOutbox(dataSourceService, (to, subject, body) -> {}, 1, 10, 100, 1000, 50, 60_000);
+        assertEquals(100, outbox.backoff(1));
+        assertEquals(200, outbox.backoff(2));
+        assertEquals(800, outbox.backoff(4));
+        assertEquals(1000, outbox.backoff(9));
+    }
+
+    /**
+     * Minimal SMTP server: enough of EHLO/MAIL/RCPT/DATA for JavaMail
+     */
+    private static class FakeSmtpServer implements AutoCloseable {
+        private final ServerSocket socket;
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger failNext = new AtomicInteger();
+
+        FakeSmtpServer() throws IOException {
+            socket = new ServerSocket(0);
+            Thread acceptor = new Thread(this::accept, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        private void accept() {
+            while(!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    connections.incrementAndGet();
+                    Thread handler = new Thread(() -> handle(client), "fake-smtp-client");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch(IOException err) {
+                    return;
+                }
+            }
+        }
+
+        private void handle(Socket client) {
+            try(
+                client;
+                BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+                OutputStream out = client.getOutputStream();
+            ) {
+                reply(out, "220 localhost ESMTP");
+                String line;
+                while((line = in.readLine()) != null) {
+                    String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                    switch(command) {
+                        case "EHLO":
+                            reply(out, "250-localhost\r\n250 8BITMIME");
+                            break;
+                        case "MAIL":
+                            if(failNext.get() > 0 && failNext.decrementAndGet() >= 0) {
+                                reply(out, "451 try again later");
+                            } else {
+                                reply(out, "250 OK");
+                            }
+                            break;
+                        case "DATA":
+                            reply(out, "354 end with .");
+                            StringBuilder message = new StringBuilder();
+                            while((line = in.readLine()) != null && !line.equals(".")) {
+                                message.append(line).append('\n');
+                            }
+                            messages.add(message.toString());
+                            reply(out, "250 queued");
+                            break;
+                        case "QUIT":
+                            reply(out, "221 bye");
+                            return;
+                        default:
+                            reply(out, "250 OK");
+                    }
+                }
+            } catch(IOException err) {
+                /* client went away */
+            }
+        }
+
+        private static void reply(OutputStream out, String text) throws IOException {
+            out.write((text + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
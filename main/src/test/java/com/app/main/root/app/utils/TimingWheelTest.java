@@ -0,0 +1,81 @@
+package com.app.main.root.app.utils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Expiry on simulated time: nothing fires early or more than a tick
+ * late, across every level of the wheel.
+ */
+class TimingWheelTest {
+    private static final long TICK = 1000;
+
+    @Test
+    void firesEachTimerOnItsTick() {
+        long start = 1_700_000_123_456L;
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 3, start);
+        Random random = new Random(42);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for(int i = 0; i < 5000; i++) {
+            long deadline = start + 1 + (long) (random.nextDouble() * 64 * 64 * 64 * 3 * TICK);
+            deadlines.put(i, deadline);
+            wheel.schedule(new TimingWheel.Timer<>(i, deadline));
+        }
+
+        List<Integer> fired = new ArrayList<>();
+        long end = start + 64 * 64 * 64 * 3 * TICK + 2 * TICK;
+        for(long now = start; now <= end; now += TICK) {
+            long at = now;
+            wheel.advance(now, id -> {
+                long deadline = deadlines.get(id);
+                assertTrue(deadline <= at, "early " + id);
+                assertTrue(at - deadline < 2 * TICK, "late " + id + " by " + (at - deadline));
+                fired.add(id);
+            });
+        }
+        assertEquals(deadlines.size(), fired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void laterDeadlineMovesWithoutRescheduling() {
+        long start = 0;
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, start);
+        TimingWheel.Timer<String> timer = new TimingWheel.Timer<>("session", 30 * TICK);
+        wheel.schedule(timer);
+
+        assertEquals(0, wheel.advance(20 * TICK, id -> {}));
+        timer.setDeadline(20 * TICK + 30 * 60 * TICK);
+        assertEquals(0, wheel.advance(40 * TICK, id -> {}));
+        assertEquals(1, wheel.size());
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(20 * TICK + 30 * 60 * TICK - TICK, fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(20 * TICK + 30 * 60 * TICK + TICK, fired::add);
+        assertEquals(List.of("session"), fired);
+    }
+
+    @Test
+    void cancelledTimersNeverFire() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 0);
+        TimingWheel.Timer<String> kept = new TimingWheel.Timer<>("kept", 5 * TICK);
+        TimingWheel.Timer<String> cancelled = new TimingWheel.Timer<>("cancelled", 5 * TICK);
+        wheel.schedule(kept);
+        wheel.schedule(cancelled);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        List<String> fired = new ArrayList<>();
+        wheel.advance(10 * TICK, fired::add);
+        assertEquals(List.of("kept"), fired);
+    }
+}